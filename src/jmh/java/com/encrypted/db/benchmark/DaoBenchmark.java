@@ -0,0 +1,176 @@
+package com.encrypted.db.benchmark;
+
+import com.encrypted.db.BaseTest;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DAO operations against a SQL Server container, with Always Encrypted columns (ENCRYPTED) and with the same tables
+ * created without encryption in a separate database (PLAINTEXT).  The difference between the two modes is the cost of
+ * Always Encrypted per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DaoBenchmark extends BaseTest {
+
+    private static final String PLAINTEXT_DATABASE = "plaintext";
+    private static final String CREATE_DATABASE_SQL = "CREATE DATABASE %s";
+    private static final String CREATE_SCHEMA_SQL = "CREATE SCHEMA %s";
+
+    private static final int CUSTOMERS = 1000;
+    private static final int ACCOUNTS_PER_CUSTOMER = 3;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"ENCRYPTED", "PLAINTEXT"})
+    public String mode;
+
+    private DataSource pool;
+    private DataSource ciphertextPool;
+
+    private CustomerDAO customerDAO;
+    private CustomerDAO ciphertextCustomerDAO;
+    private AccountDAO accountDAO;
+
+    private List<Account> accounts;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws Exception {
+        BaseTest.init();
+
+        if ("ENCRYPTED".equals(mode)) {
+            createTables(getMSSQLConnection(), true);
+
+            pool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+            // Reads the stored ciphertext, as getCustomerById(id, true) needs Always Encrypted disabled
+            ciphertextPool = pooledTestDatasource(msSqlServerAlwaysEncryptedDisabledTestDatasource());
+        } else {
+            getMSSQLConnection().prepareCall(String.format(CREATE_DATABASE_SQL, PLAINTEXT_DATABASE)).execute();
+
+            try (Connection con = msSqlServerTestDatasource(PLAINTEXT_DATABASE).getConnection()) {
+                con.prepareCall(String.format(CREATE_SCHEMA_SQL, CustomerDAO.SCHEMA)).execute();
+                createTables(con, false);
+            }
+
+            pool = pooledTestDatasource(msSqlServerTestDatasource(PLAINTEXT_DATABASE));
+            ciphertextPool = pool;
+        }
+
+        customerDAO = new CustomerDAO(pool);
+        ciphertextCustomerDAO = new CustomerDAO(ciphertextPool);
+        accountDAO = new AccountDAO(pool);
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(newCustomer(i));
+        }
+        customerDAO.insertCustomers(customers);
+
+        // Inserted accounts do not get their ids back, so they are read for the updates to hit real rows
+        accounts = new ArrayList<>();
+        for (Customer customer : customers) {
+            accounts.addAll(accountDAO.getAccountByCustomerId(customer.getId(), false));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() throws Exception {
+        pool.close();
+        if (ciphertextPool != pool) {
+            ciphertextPool.close();
+        }
+
+        if ("ENCRYPTED".equals(mode)) {
+            dropTables(getMSSQLConnection());
+        }
+    }
+
+    @Benchmark
+    public Customer insertCustomer() throws SQLException {
+        Customer customer = newCustomer(next++);
+        customerDAO.insertCustomer(customer);
+        return customer;
+    }
+
+    @Benchmark
+    public Customer getCustomerByIdDecrypted() throws SQLException {
+        return customerDAO.getCustomerById(nextCustomerId(), false);
+    }
+
+    @Benchmark
+    public Customer getCustomerByIdCiphertext() throws SQLException {
+        return ciphertextCustomerDAO.getCustomerById(nextCustomerId(), true);
+    }
+
+    @Benchmark
+    public List<Customer> getCustomersByIds() throws SQLException {
+        Integer[] ids = new Integer[PAGE_SIZE];
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            ids[i] = nextCustomerId();
+        }
+        return customerDAO.getCustomersByIds(Arrays.asList(ids), false);
+    }
+
+    @Benchmark
+    public List<Account> getAccountByCustomerId() throws SQLException {
+        return accountDAO.getAccountByCustomerId(nextCustomerId(), false);
+    }
+
+    @Benchmark
+    public Account updateAccount() throws SQLException {
+        Account account = accounts.get(next++ % accounts.size());
+        account.setBalance(account.getBalance() + 1);
+        accountDAO.updateAccount(account);
+        return account;
+    }
+
+    private int nextCustomerId() {
+        return next++ % CUSTOMERS + 1;
+    }
+
+    private static Customer newCustomer(int i) {
+        List<Account> accounts = new ArrayList<>();
+        for (int a = 0; a < ACCOUNTS_PER_CUSTOMER; a++) {
+            accounts.add(Account.builder()
+                    .accountNumber(String.format("ACCT%010d%02d", i, a))
+                    .balance(i * 10.0 + a)
+                    .build());
+        }
+
+        return Customer.builder()
+                .firstName("First" + i)
+                .middleInitial("M")
+                .lastName("Last" + i)
+                .ssn(String.format("%09d", i % 1000000000))
+                .accounts(accounts)
+                .build();
+    }
+}
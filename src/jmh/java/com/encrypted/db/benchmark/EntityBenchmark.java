@@ -0,0 +1,128 @@
+package com.encrypted.db.benchmark;
+
+import com.encrypted.db.codec.EntityCodec;
+import com.encrypted.db.codec.EntityJsonWriter;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serialising the Customer / Account graph, without a database.  Java serialization, the binary
+ * {@link EntityCodec} and JSON through the ObjectMapper and through {@link EntityJsonWriter} are compared on the same
+ * customer.  The encoded sizes are printed once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntityBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    private Customer customer;
+    private byte[] serialized;
+    private byte[] encoded;
+    private ByteArrayOutputStream json;
+
+    @Setup
+    public void setUp() throws IOException {
+        customer = buildCustomer();
+        serialized = javaSerialize();
+        encoded = codecEncode();
+        json = new ByteArrayOutputStream();
+
+        System.out.printf("%nCustomer size: java serialization %d bytes, entity codec %d bytes, json %d bytes%n",
+                serialized.length, encoded.length, objectMapper.writeValueAsBytes(customer).length);
+    }
+
+    @Benchmark
+    public Customer buildCustomer() {
+        return Customer.builder()
+                .id(42)
+                .ssn("123456789")
+                .firstName("Jane")
+                .middleInitial("A")
+                .lastName("Doe")
+                .accounts(Arrays.asList(
+                        Account.builder().id(1).customerId(42).accountNumber("12345ABCDE").balance(12954.32).build(),
+                        Account.builder().id(2).customerId(42).accountNumber("1234567890").balance(965476.43).build(),
+                        Account.builder().id(3).customerId(42).accountNumber("ABCDEFG").balance(65.98).build()))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] javaSerialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(customer);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object javaDeserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        try (EntityCodec.Encoded encoding = EntityCodec.encode(customer)) {
+            return encoding.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public int codecEncodeInPlace() {
+        // What the customer cache and write-behind do: use the pooled buffer without copying it out
+        try (EntityCodec.Encoded encoding = EntityCodec.encode(customer)) {
+            return encoding.size();
+        }
+    }
+
+    @Benchmark
+    public Customer codecDecode() {
+        return EntityCodec.decodeCustomer(encoded, 0, encoded.length);
+    }
+
+    @Benchmark
+    public int objectMapperJson() throws IOException {
+        json.reset();
+        objectMapper.writeValue(json, customer);
+        return json.size();
+    }
+
+    @Benchmark
+    public int entityJsonWriter() throws IOException {
+        json.reset();
+        try (JsonGenerator generator = jsonFactory.createGenerator(json)) {
+            EntityJsonWriter.writeCustomer(generator, customer);
+        }
+        return json.size();
+    }
+}
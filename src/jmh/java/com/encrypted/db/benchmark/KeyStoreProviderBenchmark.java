@@ -0,0 +1,62 @@
+package com.encrypted.db.benchmark;
+
+import com.encrypted.db.encryption.CachingKeyStoreProvider;
+import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionJavaKeyStoreProvider;
+import com.microsoft.sqlserver.jdbc.SQLServerException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unwrapping a column encryption key with the Java Key Store provider, compared with a hit in the key cache
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyStoreProviderBenchmark {
+
+    private static final String KEY_ALIAS = "AlwaysEncryptedKey";
+    private static final char[] KEYSTORE_SECRET = "changeit".toCharArray();
+    private static final String ALGORITHM = "RSA_OAEP";
+
+    private SQLServerColumnEncryptionJavaKeyStoreProvider javaKeyStoreProvider;
+    private CachingKeyStoreProvider cachingKeyStoreProvider;
+    private byte[] encryptedCEK;
+
+    @Setup
+    public void setUp() throws Exception {
+        String keyStoreLocation = new File(getClass().getResource("/KeyStore.jks").toURI()).getPath();
+
+        javaKeyStoreProvider = new SQLServerColumnEncryptionJavaKeyStoreProvider(keyStoreLocation, KEYSTORE_SECRET);
+        cachingKeyStoreProvider = new CachingKeyStoreProvider("CACHED_JAVA_KEYSTORE", javaKeyStoreProvider, 1,
+                TimeUnit.HOURS, 10);
+
+        encryptedCEK = javaKeyStoreProvider.encryptColumnEncryptionKey(KEY_ALIAS, ALGORITHM,
+                "You need to give your plain text".getBytes());
+        cachingKeyStoreProvider.decryptColumnEncryptionKey(KEY_ALIAS, ALGORITHM, encryptedCEK);
+    }
+
+    @Benchmark
+    public byte[] javaKeyStoreUnwrap() throws SQLServerException {
+        return javaKeyStoreProvider.decryptColumnEncryptionKey(KEY_ALIAS, ALGORITHM, encryptedCEK);
+    }
+
+    @Benchmark
+    public byte[] cachedUnwrap() throws SQLServerException {
+        return cachingKeyStoreProvider.decryptColumnEncryptionKey(KEY_ALIAS, ALGORITHM, encryptedCEK);
+    }
+}
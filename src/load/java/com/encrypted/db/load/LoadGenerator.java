@@ -0,0 +1,257 @@
+package com.encrypted.db.load;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import org.HdrHistogram.ConcurrentHistogram;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drives the DAOs with a mix of inserts, reads and updates at a fixed arrival rate.
+ * <p>
+ * The load is an open model: the n-th operation is due at {@code n / ratePerSecond} seconds into the run and is
+ * handed to the worker threads then, however long the earlier operations take.  Its response time is measured from
+ * when it was due, so a stall shows up in the latency of every operation that arrived during it instead of holding
+ * back the arrivals, which is the coordinated omission a closed loop of threads calling the DAOs would suffer from.
+ * <p>
+ * Reads and updates pick among the customers and accounts the generator is given, inserts add new customers.
+ */
+public class LoadGenerator {
+
+    private static final Logger LOG = Logger.getLogger(LoadGenerator.class.getName());
+
+    // Histograms resize as needed and keep three significant digits
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final CustomerDAO customerDAO;
+    private final CustomerDAO ciphertextCustomerDAO;
+    private final AccountDAO accountDAO;
+    private final List<Integer> customerIds;
+    private final List<Account> accounts;
+
+    private final AtomicLong inserted = new AtomicLong();
+
+    /**
+     * @param customerDAO DAO the inserts and decrypted reads go through
+     * @param ciphertextCustomerDAO DAO on a connection without Always Encrypted, for the ciphertext reads
+     * @param accountDAO DAO the updates go through
+     * @param customerIds customers the reads pick from
+     * @param accounts accounts the updates pick from
+     */
+    public LoadGenerator(CustomerDAO customerDAO, CustomerDAO ciphertextCustomerDAO, AccountDAO accountDAO,
+                         List<Integer> customerIds, List<Account> accounts) {
+        if (customerIds.isEmpty() || accounts.isEmpty()) {
+            throw new IllegalArgumentException("Load needs customers to read and accounts to update");
+        }
+        this.customerDAO = customerDAO;
+        this.ciphertextCustomerDAO = ciphertextCustomerDAO;
+        this.accountDAO = accountDAO;
+        this.customerIds = new ArrayList<>(customerIds);
+        this.accounts = new ArrayList<>(accounts);
+    }
+
+    /**
+     * Run the load and wait for every operation started to finish.  Operations still queued or running once the run
+     * has overrun by its own length are dropped and counted in {@link OperationStats#getDropped()}.
+     *
+     * @param mode name of the run in the report, such as the encryption mode
+     * @param options rate, length and mix
+     * @return throughput and latency of the operations started after the warm-up
+     * @throws InterruptedException thrown if interrupted while running
+     */
+    public LoadReport run(String mode, LoadOptions options) throws InterruptedException {
+        Operation[] mix = mix(options);
+        if (options.getRatePerSecond() <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive");
+        }
+
+        Map<Operation, ConcurrentHistogram> responseTimes = new EnumMap<>(Operation.class);
+        Map<Operation, ConcurrentHistogram> serviceTimes = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> submitted = new EnumMap<>(Operation.class);
+        Map<Operation, AtomicLong> completed = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            responseTimes.put(operation, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            serviceTimes.put(operation, new ConcurrentHistogram(SIGNIFICANT_DIGITS));
+            errors.put(operation, new AtomicLong());
+            submitted.put(operation, new AtomicLong());
+            completed.put(operation, new AtomicLong());
+        }
+        AtomicLong lastFinished = new AtomicLong(Long.MIN_VALUE);
+
+        // Unbounded, so arrivals are never held back by slow operations
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = new ThreadPoolExecutor(options.getConcurrency(), options.getConcurrency(),
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "load-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        SplittableRandom random = new SplittableRandom(options.getSeed());
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.getRatePerSecond();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+
+        try {
+            for (long n = 0; ; n++) {
+                long due = start + (long) (n * intervalNanos);
+                if (due >= end) {
+                    break;
+                }
+
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                Operation operation = mix[random.nextInt(mix.length)];
+                int customerId = customerIds.get(random.nextInt(customerIds.size()));
+                Account account = accounts.get(random.nextInt(accounts.size()));
+                double balance = random.nextInt(1000000) / 100.0;
+                boolean measured = due >= measureFrom;
+                if (measured) {
+                    submitted.get(operation).incrementAndGet();
+                }
+
+                workers.execute(() -> {
+                    long started = System.nanoTime();
+                    try {
+                        execute(operation, customerId, account, balance);
+                    } catch (SQLException | RuntimeException e) {
+                        if (measured) {
+                            errors.get(operation).incrementAndGet();
+                        }
+                        LOG.log(Level.FINE, operation.getName() + " failed", e);
+                    }
+
+                    long finished = System.nanoTime();
+                    if (measured) {
+                        responseTimes.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(finished - due));
+                        serviceTimes.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(finished - started));
+                        lastFinished.accumulateAndGet(finished, Math::max);
+                        completed.get(operation).incrementAndGet();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+        }
+
+        if (!workers.awaitTermination(options.getDurationSeconds() + options.getWarmupSeconds(), TimeUnit.SECONDS)) {
+            LOG.warning("Operations still queued after the run, the database can not keep up with the rate");
+            // Queued operations are dropped, running ones are interrupted and recorded as they fail
+            workers.shutdownNow();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long stopped = System.nanoTime();
+
+        LoadReport report = new LoadReport();
+        report.setMode(mode);
+        report.setTargetRatePerSecond(options.getRatePerSecond());
+        for (Operation operation : Operation.values()) {
+            // Operations that never finished are counted as dropped, their latency is unknown
+            long dropped = Math.max(0, submitted.get(operation).get() - completed.get(operation).get());
+            if (responseTimes.get(operation).getTotalCount() == 0 && errors.get(operation).get() == 0
+                    && dropped == 0) {
+                continue;
+            }
+            OperationStats stats = new OperationStats(operation, responseTimes.get(operation),
+                    serviceTimes.get(operation));
+            stats.setErrors(errors.get(operation).get());
+            stats.setDropped(dropped);
+            report.getOperations().put(operation, stats);
+        }
+
+        // Measured from the end of the warm-up until the last operation finished, or until the rest were dropped
+        long finished = report.getDropped() > 0 || lastFinished.get() == Long.MIN_VALUE
+                ? stopped : lastFinished.get();
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(Math.max(0, finished - measureFrom)));
+        return report;
+    }
+
+    private void execute(Operation operation, int customerId, Account account, double balance)
+            throws SQLException {
+        switch (operation) {
+            case INSERT:
+                customerDAO.insertCustomer(newCustomer(inserted.incrementAndGet(), balance));
+                break;
+            case READ:
+                customerDAO.getCustomerById(customerId, false);
+                break;
+            case READ_CIPHERTEXT:
+                ciphertextCustomerDAO.getCustomerById(customerId, true);
+                break;
+            case UPDATE:
+                // A copy per update, the same account may be updated by several threads at once
+                accountDAO.updateAccount(Account.builder()
+                        .id(account.getId())
+                        .customerId(account.getCustomerId())
+                        .accountNumber(account.getAccountNumber())
+                        .balance(balance)
+                        .build());
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    /**
+     * @return one entry per unit of weight, drawn from uniformly
+     */
+    private static Operation[] mix(LoadOptions options) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        weights.put(Operation.INSERT, options.getInsertWeight());
+        weights.put(Operation.READ, options.getReadWeight());
+        weights.put(Operation.READ_CIPHERTEXT, options.getCiphertextReadWeight());
+        weights.put(Operation.UPDATE, options.getUpdateWeight());
+
+        List<Operation> mix = new ArrayList<>();
+        for (Map.Entry<Operation, Integer> weight : weights.entrySet()) {
+            if (weight.getValue() < 0) {
+                throw new IllegalArgumentException("Weight of " + weight.getKey().getName() + " must not be negative");
+            }
+            for (int i = 0; i < weight.getValue(); i++) {
+                mix.add(weight.getKey());
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation needs a weight");
+        }
+        return mix.toArray(new Operation[0]);
+    }
+
+    private static Customer newCustomer(long n, double balance) {
+        List<Account> accounts = new ArrayList<>();
+        accounts.add(Account.builder()
+                .accountNumber(String.format("LOAD%014d", n))
+                .balance(balance)
+                .build());
+
+        return Customer.builder()
+                .firstName("Load" + n)
+                .middleInitial("L")
+                .lastName("Customer" + n)
+                .ssn(String.format("9%08d", n % 100000000))
+                .accounts(accounts)
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.encrypted.db.load;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Arrival rate, length and mix of a load run
+ */
+@Data
+@Builder
+public class LoadOptions {
+
+    // Operations started per second, whatever the latency of the ones already running
+    @Builder.Default
+    private double ratePerSecond = 200;
+
+    @Builder.Default
+    private long durationSeconds = 60;
+
+    // Operations started in the first seconds run but are left out of the report
+    @Builder.Default
+    private long warmupSeconds = 10;
+
+    // Threads running operations; arrivals queue for a free thread and the wait counts towards their latency
+    @Builder.Default
+    private int concurrency = 16;
+
+    // Relative weights of the operations in the mix
+    @Builder.Default
+    private int insertWeight = 10;
+    @Builder.Default
+    private int readWeight = 50;
+    @Builder.Default
+    private int ciphertextReadWeight = 20;
+    @Builder.Default
+    private int updateWeight = 20;
+
+    // Seed of the operation mix and of the customers and accounts picked, so runs can be repeated
+    @Builder.Default
+    private long seed = 42;
+}
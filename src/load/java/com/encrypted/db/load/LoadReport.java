@@ -0,0 +1,51 @@
+package com.encrypted.db.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Throughput and latency percentiles of a load run, per operation
+ */
+@Data
+public class LoadReport {
+
+    private String mode;
+    private double targetRatePerSecond;
+
+    // Time from the end of the warm-up until the last measured operation finished
+    private long elapsedMillis;
+
+    private Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+
+    public long getCount() {
+        return operations.values().stream().mapToLong(OperationStats::getCount).sum();
+    }
+
+    public long getErrors() {
+        return operations.values().stream().mapToLong(OperationStats::getErrors).sum();
+    }
+
+    public long getDropped() {
+        return operations.values().stream().mapToLong(OperationStats::getDropped).sum();
+    }
+
+    public double getThroughputPerSecond() {
+        return elapsedMillis == 0 ? 0 : getCount() * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("Load run ").append(mode).append("\n")
+                .append(String.format("\tthroughput: %.1f/s of %.1f/s", getThroughputPerSecond(),
+                        targetRatePerSecond)).append("\n")
+                .append("\toperations: ").append(getCount()).append(", ").append(getErrors()).append(" errors, ")
+                .append(getDropped()).append(" dropped\n")
+                .append("\telapsed: ").append(elapsedMillis).append(" ms");
+        for (OperationStats stats : operations.values()) {
+            builder.append("\n\t").append(stats);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,196 @@
+package com.encrypted.db.load;
+
+import com.encrypted.db.BaseTest;
+import com.encrypted.db.config.ConnectionPoolFactory;
+import com.encrypted.db.config.EncryptedDataSourceProperties;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Load run against a SQL Server container, with Always Encrypted columns (ENCRYPTED) and with the same tables created
+ * without encryption in a separate database (PLAINTEXT), so the two modes can be compared at the same arrival rate.
+ * <p>
+ * Settings are read from {@code load.*} system properties, see {@code ./gradlew loadTest}.  The report of each mode is
+ * logged and written to the output directory with the full latency distribution of every operation as HdrHistogram
+ * {@code .hgrm} files, in milliseconds.  The run fails when an operation fails or is dropped, or when a p99 response
+ * time is over {@code load.maxP99Millis}, so it can guard against capacity regressions.
+ */
+public class LoadTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(LoadTest.class.getName());
+
+    private static final String PLAINTEXT_DATABASE = "plaintext";
+    private static final String CREATE_DATABASE_SQL = "CREATE DATABASE %s";
+    private static final String CREATE_SCHEMA_SQL = "CREATE SCHEMA %s";
+
+    private static final int ACCOUNTS_PER_CUSTOMER = 3;
+
+    // Histogram values are microseconds, the distributions are written in milliseconds
+    private static final double HGRM_SCALE = 1000.0;
+
+    public static void main(String[] args) throws Exception {
+        Path output = Paths.get(args.length > 0 ? args[0] : "build/reports/load");
+        Files.createDirectories(output);
+
+        String[] modes = System.getProperty("load.modes", "ENCRYPTED,PLAINTEXT").split(",");
+        int customers = Integer.getInteger("load.customers", 1000);
+        double maxP99Millis = Double.parseDouble(System.getProperty("load.maxP99Millis", "0"));
+
+        LoadOptions options = LoadOptions.builder()
+                .ratePerSecond(Double.parseDouble(System.getProperty("load.rate", "200")))
+                .durationSeconds(Long.getLong("load.durationSeconds", 60))
+                .warmupSeconds(Long.getLong("load.warmupSeconds", 10))
+                .concurrency(Integer.getInteger("load.concurrency", 16))
+                .insertWeight(Integer.getInteger("load.insertWeight", 10))
+                .readWeight(Integer.getInteger("load.readWeight", 50))
+                .ciphertextReadWeight(Integer.getInteger("load.ciphertextReadWeight", 20))
+                .updateWeight(Integer.getInteger("load.updateWeight", 20))
+                .seed(Long.getLong("load.seed", 42))
+                .build();
+
+        // The container is stopped by Testcontainers when the run exits
+        BaseTest.init();
+        List<String> failures = new ArrayList<>();
+        for (String mode : modes) {
+            LoadReport report = run(mode.trim(), customers, options);
+            LOG.info(report.toString());
+            write(report, output);
+            failures.addAll(check(report, maxP99Millis));
+        }
+
+        if (!failures.isEmpty()) {
+            failures.forEach(LOG::severe);
+            System.exit(1);
+        }
+    }
+
+    private static LoadReport run(String mode, int customers, LoadOptions options) throws Exception {
+        DataSource pool;
+        DataSource ciphertextPool;
+
+        if ("ENCRYPTED".equals(mode)) {
+            createTables(getMSSQLConnection(), true);
+
+            pool = loadPool(msSqlServerAlwaysEncryptedEnabledTestDatasource(), options);
+            // Reads the stored ciphertext, as getCustomerById(id, true) needs Always Encrypted disabled
+            ciphertextPool = loadPool(msSqlServerAlwaysEncryptedDisabledTestDatasource(), options);
+        } else if ("PLAINTEXT".equals(mode)) {
+            getMSSQLConnection().prepareCall(String.format(CREATE_DATABASE_SQL, PLAINTEXT_DATABASE)).execute();
+
+            try (Connection con = msSqlServerTestDatasource(PLAINTEXT_DATABASE).getConnection()) {
+                con.prepareCall(String.format(CREATE_SCHEMA_SQL, CustomerDAO.SCHEMA)).execute();
+                createTables(con, false);
+            }
+
+            pool = loadPool(msSqlServerTestDatasource(PLAINTEXT_DATABASE), options);
+            ciphertextPool = pool;
+        } else {
+            throw new IllegalArgumentException("Unknown mode " + mode + ", expected ENCRYPTED or PLAINTEXT");
+        }
+
+        try {
+            CustomerDAO customerDAO = new CustomerDAO(pool);
+            List<Customer> seeded = new ArrayList<>();
+            for (int i = 0; i < customers; i++) {
+                seeded.add(newCustomer(i));
+            }
+            customerDAO.insertCustomers(seeded);
+
+            // Inserted accounts do not get their ids back, so they are read
+            AccountDAO accountDAO = new AccountDAO(pool);
+            List<Integer> customerIds = new ArrayList<>();
+            List<Account> accounts = new ArrayList<>();
+            for (Customer customer : seeded) {
+                customerIds.add(customer.getId());
+                accounts.addAll(accountDAO.getAccountByCustomerId(customer.getId(), false));
+            }
+
+            LoadGenerator generator = new LoadGenerator(customerDAO, new CustomerDAO(ciphertextPool), accountDAO,
+                    customerIds, accounts);
+            return generator.run(mode, options);
+        } finally {
+            pool.close();
+            if (ciphertextPool != pool) {
+                ciphertextPool.close();
+            }
+
+            if ("ENCRYPTED".equals(mode)) {
+                dropTables(getMSSQLConnection());
+            }
+        }
+    }
+
+    private static void write(LoadReport report, Path output) throws IOException {
+        Files.write(output.resolve(report.getMode() + ".txt"), report.toString().getBytes());
+
+        for (OperationStats stats : report.getOperations().values()) {
+            Path file = output.resolve(report.getMode() + "-" + stats.getOperation().getName() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                stats.getResponseTime().outputPercentileDistribution(out, HGRM_SCALE);
+            }
+        }
+    }
+
+    private static List<String> check(LoadReport report, double maxP99Millis) {
+        List<String> failures = new ArrayList<>();
+        for (OperationStats stats : report.getOperations().values()) {
+            String name = report.getMode() + " " + stats.getOperation().getName();
+            if (stats.getErrors() > 0) {
+                failures.add(name + " failed " + stats.getErrors() + " times");
+            }
+            if (stats.getDropped() > 0) {
+                failures.add(name + " dropped " + stats.getDropped() + " operations the database did not get to");
+            }
+            if (maxP99Millis > 0 && stats.getResponseMillis(99) > maxP99Millis) {
+                failures.add(String.format("%s p99 of %.2f ms is over %.2f ms", name, stats.getResponseMillis(99),
+                        maxP99Millis));
+            }
+        }
+        return failures;
+    }
+
+    // Sized to the load's concurrency, so operations wait for a thread rather than for a connection
+    private static DataSource loadPool(SQLServerDataSource sqlServerDataSource, LoadOptions options) {
+        EncryptedDataSourceProperties.Pool pool = new EncryptedDataSourceProperties.Pool();
+        pool.setInitialSize(options.getConcurrency());
+        pool.setMinIdle(options.getConcurrency());
+        pool.setMaxActive(options.getConcurrency());
+        pool.setMaxIdle(options.getConcurrency());
+        pool.setJmxEnabled(false);
+
+        return ConnectionPoolFactory.createPool(sqlServerDataSource, pool);
+    }
+
+    private static Customer newCustomer(int i) {
+        List<Account> accounts = new ArrayList<>();
+        for (int a = 0; a < ACCOUNTS_PER_CUSTOMER; a++) {
+            accounts.add(Account.builder()
+                    .accountNumber(String.format("ACCT%010d%02d", i, a))
+                    .balance(i * 10.0 + a)
+                    .build());
+        }
+
+        return Customer.builder()
+                .firstName("First" + i)
+                .middleInitial("M")
+                .lastName("Last" + i)
+                .ssn(String.format("%09d", i % 1000000000))
+                .accounts(accounts)
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.encrypted.db.load;
+
+/**
+ * Operations of the load mix
+ */
+public enum Operation {
+
+    // Customer with its accounts, in one transaction
+    INSERT("insert"),
+
+    // Customer and accounts by id, decrypted by the driver
+    READ("read"),
+
+    // Customer and accounts by id, as the stored ciphertext
+    READ_CIPHERTEXT("readCiphertext"),
+
+    // Balance of one account
+    UPDATE("update");
+
+    private final String name;
+
+    Operation(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,46 @@
+package com.encrypted.db.load;
+
+import org.HdrHistogram.Histogram;
+
+import lombok.Data;
+
+/**
+ * Throughput and latency of one operation of a load run.  Response time runs from when the operation was due to
+ * start, so it includes the time spent waiting for a thread; service time runs from when a thread picked it up.
+ */
+@Data
+public class OperationStats {
+
+    private final Operation operation;
+
+    // Recorded in microseconds
+    private final Histogram responseTime;
+    private final Histogram serviceTime;
+
+    private long errors;
+
+    // Started after the warm-up but still queued or running when the run gave up waiting for them
+    private long dropped;
+
+    public long getCount() {
+        return responseTime.getTotalCount();
+    }
+
+    public double getResponseMillis(double percentile) {
+        return responseTime.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public double getServiceMillis(double percentile) {
+        return serviceTime.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-15s %8d ops %6d errors %6d dropped" +
+                        "  response p50 %8.2f p99 %8.2f p99.9 %8.2f max %8.2f ms  service p50 %8.2f p99 %8.2f ms",
+                operation.getName(), getCount(), errors, dropped,
+                getResponseMillis(50), getResponseMillis(99), getResponseMillis(99.9),
+                responseTime.getMaxValue() / 1000.0,
+                getServiceMillis(50), getServiceMillis(99));
+    }
+}
@@ -0,0 +1,35 @@
+package com.encrypted.db.bulk;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Tuning for a bulk load
+ */
+@Data
+@Builder
+public class BulkLoadOptions {
+
+    // Identifies the load in the checkpoint table, rerunning a job id skips the batches it already committed
+    private String jobId;
+
+    // Customers written and committed together; a batch is the unit of retry when a load is resumed
+    @Builder.Default
+    private int batchSize = 10000;
+
+    // Writer threads, each bulk copying on its own connection
+    @Builder.Default
+    private int writerThreads = 4;
+
+    // Batches read ahead of the writers; the reader blocks when the queue is full
+    @Builder.Default
+    private int queueCapacity = 8;
+
+    // Take bulk update table locks, which allows minimally logged parallel loads but blocks other writers
+    @Builder.Default
+    private boolean tableLock = false;
+
+    // Rejected records kept in the report, further rejections are only counted
+    @Builder.Default
+    private int maxReportedFailures = 1000;
+}
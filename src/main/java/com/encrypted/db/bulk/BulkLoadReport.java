@@ -0,0 +1,53 @@
+package com.encrypted.db.bulk;
+
+import com.encrypted.db.dao.RowFailure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Outcome and throughput of a bulk load
+ */
+@Data
+public class BulkLoadReport {
+
+    private String jobId;
+
+    private long records;
+    private long loadedCustomers;
+    private long loadedAccounts;
+    private long committedBatches;
+
+    // Batches a previous run of the job already committed
+    private long skippedBatches;
+
+    private long rejected;
+    private List<RowFailure> failures = new ArrayList<>();
+
+    private long elapsedMillis;
+
+    public double getCustomersPerSecond() {
+        return elapsedMillis == 0 ? 0 : loadedCustomers * 1000.0 / elapsedMillis;
+    }
+
+    public double getAccountsPerSecond() {
+        return elapsedMillis == 0 ? 0 : loadedAccounts * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("Bulk load ").append(jobId).append("\n")
+                .append("\trecords: ").append(records).append("\n")
+                .append("\tcustomers: ").append(loadedCustomers)
+                .append(String.format(" (%.0f/s)", getCustomersPerSecond())).append("\n")
+                .append("\taccounts: ").append(loadedAccounts)
+                .append(String.format(" (%.0f/s)", getAccountsPerSecond())).append("\n")
+                .append("\tbatches: ").append(committedBatches).append(" committed, ")
+                .append(skippedBatches).append(" skipped").append("\n")
+                .append("\trejected: ").append(rejected).append("\n")
+                .append("\telapsed: ").append(elapsedMillis).append(" ms")
+                .toString();
+    }
+}
@@ -0,0 +1,432 @@
+package com.encrypted.db.bulk;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.RowFailure;
+import com.encrypted.db.encryption.BlindIndex;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopyOptions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sql.DataSource;
+
+/**
+ * Loads customers and their accounts with SQL Server bulk copy.
+ * <p>
+ * A reader thread parses and validates the input and hands batches of customers to a bounded queue, blocking when the
+ * writers fall behind.  Each writer bulk copies a batch on its own connection, customers then accounts, in a single
+ * transaction.  With Always Encrypted enabled on the data source the driver encrypts {@code ssn} and
+ * {@code account_number} on the writer thread before the rows are sent, so encryption runs in parallel with parsing.
+ * <p>
+ * Customer ids are reserved per batch by moving the table's identity past the batch, which lets accounts reference
+ * their customers without reading the ids back and lets writers run concurrently.  This needs ALTER permission on
+ * the customer table, as bulk copy with kept identities does anyway.
+ * <p>
+ * Every batch records itself in {@code acct.bulk_load_checkpoint} in the same transaction as its rows.  Running a job
+ * id again after a failure skips the committed batches, so a load is resumed without duplicates as long as the input
+ * file is unchanged.
+ */
+public class BulkLoader {
+
+    static final String CHECKPOINT_TABLE = "bulk_load_checkpoint";
+
+    private static final String CUSTOMER_TABLE = CustomerDAO.SCHEMA + "." + CustomerDAO.TABLE_CUSTOMER;
+    private static final String ACCOUNT_TABLE = AccountDAO.SCHEMA + "." + AccountDAO.TABLE_ACCOUNT;
+    private static final String CHECKPOINTS = CustomerDAO.SCHEMA + "." + CHECKPOINT_TABLE;
+
+    private static final String CREATE_CHECKPOINT_TABLE_SQL = String.format(
+            "IF OBJECT_ID(N'%1$s', N'U') IS NULL CREATE TABLE %1$s (" +
+                    "job_id NVARCHAR(200) NOT NULL, " +
+                    "batch_number INT NOT NULL, " +
+                    "customers INT NOT NULL, " +
+                    "accounts INT NOT NULL, " +
+                    "committed_at DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME(), " +
+                    "CONSTRAINT pk_%2$s PRIMARY KEY (job_id, batch_number))", CHECKPOINTS, CHECKPOINT_TABLE);
+    private static final String SELECT_CHECKPOINTS_SQL = String.format(
+            "SELECT batch_number FROM %s WHERE job_id = ?", CHECKPOINTS);
+    private static final String INSERT_CHECKPOINT_SQL = String.format(
+            "INSERT INTO %s (job_id, batch_number, customers, accounts) VALUES (?, ?, ?, ?)", CHECKPOINTS);
+
+    /*
+     * Reserves %2$d customer ids and returns the first.  A table that has never had a row gets the reseed value as
+     * its next identity, any other table gets the reseed value plus one.  The exclusive table lock waits for every
+     * open insert and keeps new ones from taking an identity until the reseed is committed, so no other writer is
+     * handed an id inside the block.  The lock is taken by reading a row into a variable, as a TOP 0 select may be
+     * answered without touching the table.  The identity never moves backwards, even after explicit ids above it.
+     */
+    private static final String RESERVE_IDS_SQL = "SET NOCOUNT ON; " +
+            "DECLARE @locked INT, @last BIGINT, @seed BIGINT; " +
+            "BEGIN TRANSACTION; " +
+            "SELECT TOP (1) @locked = 1 FROM %1$s WITH (TABLOCKX, HOLDLOCK); " +
+            "SELECT @last = CAST(last_value AS BIGINT), @seed = CAST(seed_value AS BIGINT) " +
+            "FROM sys.identity_columns WHERE object_id = OBJECT_ID(N'%1$s'); " +
+            "IF @last IS NOT NULL AND IDENT_CURRENT(N'%1$s') > @last SET @last = IDENT_CURRENT(N'%1$s'); " +
+            "DECLARE @first BIGINT = CASE WHEN @last IS NULL THEN @seed ELSE @last + 1 END; " +
+            "DECLARE @reseed BIGINT = @first + %2$d - CASE WHEN @last IS NULL THEN 0 ELSE 1 END; " +
+            "DBCC CHECKIDENT (N'%1$s', RESEED, @reseed) WITH NO_INFOMSGS; " +
+            "COMMIT TRANSACTION; " +
+            "SELECT @first";
+
+    private static final Batch END = new Batch(-1, new ArrayList<>());
+
+    private static final long QUEUE_POLL_MILLIS = 100;
+
+    private final DataSource dataSource;
+    private final BlindIndex blindIndex;
+
+    public BulkLoader(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * @param dataSource data source with Always Encrypted enabled, so the driver encrypts the sensitive columns
+     * @param blindIndex blind index written with every ssn and account number, null to leave the index to the
+     *                   backfill
+     */
+    public BulkLoader(DataSource dataSource, BlindIndex blindIndex) {
+        this.dataSource = dataSource;
+        this.blindIndex = blindIndex;
+    }
+
+    /**
+     * Load every customer of a source
+     *
+     * @param source customers to load
+     * @param options job id and tuning
+     * @return counts, rejected records and throughput
+     * @throws SQLException thrown if a batch could not be written, batches committed before it stay committed
+     * @throws IOException thrown if the input could not be read
+     */
+    public BulkLoadReport load(CustomerSource source, BulkLoadOptions options) throws SQLException, IOException {
+        if (options.getJobId() == null || options.getBatchSize() < 1 || options.getWriterThreads() < 1
+                || options.getQueueCapacity() < 1) {
+            throw new IllegalArgumentException("jobId is required and batchSize, writerThreads and queueCapacity " +
+                    "must be at least 1");
+        }
+
+        long start = System.nanoTime();
+        BulkLoadReport report = new BulkLoadReport();
+        report.setJobId(options.getJobId());
+
+        Set<Integer> committed = readCheckpoints(options.getJobId());
+
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicLong customers = new AtomicLong();
+        AtomicLong accounts = new AtomicLong();
+        AtomicLong batches = new AtomicLong();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService writers = Executors.newFixedThreadPool(options.getWriterThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "bulk-writer-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < options.getWriterThreads(); i++) {
+            running.add(writers.submit(() -> {
+                Batch batch;
+                while ((batch = queue.take()) != END) {
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    try {
+                        accounts.addAndGet(writeBatch(batch, options));
+                        customers.addAndGet(batch.customers.size());
+                        batches.incrementAndGet();
+                    } catch (SQLException | RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        try {
+            read(source, options, committed, queue, failure, report);
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            try {
+                for (int i = 0; i < options.getWriterThreads(); i++) {
+                    queue.put(END);
+                }
+                for (Future<?> writer : running) {
+                    writer.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, new InterruptedIOException("Interrupted waiting for the writers"));
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, new IllegalStateException("Bulk writer failed", e.getCause()));
+            } finally {
+                writers.shutdownNow();
+            }
+        }
+
+        report.setLoadedCustomers(customers.get());
+        report.setLoadedAccounts(accounts.get());
+        report.setCommittedBatches(batches.get());
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        Exception e = failure.get();
+        if (e instanceof SQLException) {
+            throw (SQLException) e;
+        }
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+
+        return report;
+    }
+
+    /**
+     * Parse and validate the input, queueing batches that were not committed by an earlier run of the job
+     */
+    private void read(CustomerSource source, BulkLoadOptions options, Set<Integer> committed,
+                      BlockingQueue<Batch> queue, AtomicReference<Exception> failure, BulkLoadReport report)
+            throws IOException {
+        int number = 0;
+        long index = 0;
+        List<Customer> customers = new ArrayList<>(options.getBatchSize());
+
+        while (failure.get() == null) {
+            Customer customer;
+            try {
+                customer = source.next();
+            } catch (MalformedRecordException e) {
+                reject(report, options, index++, null, e.getMessage());
+                continue;
+            }
+            if (customer == null) {
+                break;
+            }
+
+            String invalid = CustomerDAO.validate(customer);
+            if (invalid != null) {
+                reject(report, options, index++, customer, invalid);
+                continue;
+            }
+            index++;
+
+            customers.add(customer);
+            if (customers.size() == options.getBatchSize()) {
+                queue(new Batch(number++, customers), committed, queue, failure, report);
+                customers = new ArrayList<>(options.getBatchSize());
+            }
+        }
+
+        if (!customers.isEmpty() && failure.get() == null) {
+            queue(new Batch(number, customers), committed, queue, failure, report);
+        }
+
+        report.setRecords(index);
+    }
+
+    private void queue(Batch batch, Set<Integer> committed, BlockingQueue<Batch> queue,
+                       AtomicReference<Exception> failure, BulkLoadReport report) throws InterruptedIOException {
+        if (committed.contains(batch.number)) {
+            report.setSkippedBatches(report.getSkippedBatches() + 1);
+            return;
+        }
+
+        try {
+            while (!queue.offer(batch, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted queueing batch " + batch.number);
+        }
+    }
+
+    private void reject(BulkLoadReport report, BulkLoadOptions options, long index, Customer customer,
+                        String reason) {
+        report.setRejected(report.getRejected() + 1);
+        if (report.getFailures().size() < options.getMaxReportedFailures()) {
+            report.getFailures().add(new RowFailure((int) index, customer, reason));
+        }
+    }
+
+    /**
+     * Bulk copy one batch of customers and their accounts and record its checkpoint, all in one transaction
+     *
+     * @param batch batch to write
+     * @param options load options
+     * @return number of accounts written
+     * @throws SQLException thrown if error writing the batch, nothing of the batch is committed
+     */
+    private int writeBatch(Batch batch, BulkLoadOptions options) throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            int id = reserveIds(con, batch.customers.size());
+
+            List<Account> accounts = new ArrayList<>();
+            for (Customer customer : batch.customers) {
+                customer.setId(id++);
+                if (customer.getAccounts() != null) {
+                    for (Account account : customer.getAccounts()) {
+                        account.setCustomerId(customer.getId());
+                        accounts.add(account);
+                    }
+                }
+            }
+
+            con.setAutoCommit(false);
+            try {
+                EntityBulkRecord<Customer> customerRecord = new EntityBulkRecord<>(batch.customers)
+                        .column("id", Types.INTEGER, 10, Customer::getId)
+                        .column("ssn", Types.NVARCHAR, 9, Customer::getSsn)
+                        .column("first_name", Types.NVARCHAR, 50, Customer::getFirstName)
+                        .column("middle_initial", Types.CHAR, 1, Customer::getMiddleInitial)
+                        .column("last_name", Types.NVARCHAR, 50, Customer::getLastName)
+                        .column("ssn_index", Types.BINARY, BlindIndex.LENGTH,
+                                customer -> blindIndex == null ? null : blindIndex.ssn(customer.getSsn()));
+                bulkCopy(con, CUSTOMER_TABLE, customerRecord, true, options);
+
+                EntityBulkRecord<Account> accountRecord = new EntityBulkRecord<>(accounts)
+                        .column("customer_id", Types.INTEGER, 10, Account::getCustomerId)
+                        .column("account_number", Types.NVARCHAR, 30, Account::getAccountNumber)
+                        .column("balance", Types.DOUBLE, 15, Account::getBalance)
+                        .column("account_number_index", Types.BINARY, BlindIndex.LENGTH, account ->
+                                blindIndex == null ? null : blindIndex.accountNumber(account.getAccountNumber()));
+                bulkCopy(con, ACCOUNT_TABLE, accountRecord, false, options);
+
+                try (PreparedStatement ps = con.prepareStatement(INSERT_CHECKPOINT_SQL)) {
+                    ps.setNString(1, options.getJobId());
+                    ps.setInt(2, batch.number);
+                    ps.setInt(3, batch.customers.size());
+                    ps.setInt(4, accounts.size());
+                    ps.executeUpdate();
+                }
+
+                con.commit();
+                return accounts.size();
+            } catch (SQLException | RuntimeException e) {
+                batch.customers.forEach(customer -> customer.setId(0));
+                accounts.forEach(account -> account.setCustomerId(0));
+                try {
+                    con.rollback();
+                } catch (SQLException rollbackException) {
+                    e.addSuppressed(rollbackException);
+                }
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void bulkCopy(Connection con, String table, EntityBulkRecord<?> record, boolean keepIdentity,
+                          BulkLoadOptions options) throws SQLException {
+        SQLServerBulkCopyOptions copyOptions = new SQLServerBulkCopyOptions();
+        copyOptions.setKeepIdentity(keepIdentity);
+        copyOptions.setTableLock(options.isTableLock());
+        copyOptions.setBatchSize(0);
+        copyOptions.setBulkCopyTimeout(0);
+
+        try (SQLServerBulkCopy bulkCopy = new SQLServerBulkCopy(con)) {
+            bulkCopy.setBulkCopyOptions(copyOptions);
+            bulkCopy.setDestinationTableName(table);
+            for (int column : record.getColumnOrdinals()) {
+                bulkCopy.addColumnMapping(column, record.getColumnName(column));
+            }
+            bulkCopy.writeToServer(record);
+        }
+    }
+
+    /**
+     * Move the customer identity past a block of ids and return the first id of the block
+     *
+     * @param con connection in auto commit mode
+     * @param count number of ids to reserve
+     * @return first reserved id
+     * @throws SQLException thrown if error executing SQL
+     */
+    private int reserveIds(Connection con, int count) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            boolean isResultSet = statement.execute(String.format(RESERVE_IDS_SQL, CUSTOMER_TABLE, count));
+            while (!isResultSet && statement.getUpdateCount() != -1) {
+                isResultSet = statement.getMoreResults();
+            }
+            if (!isResultSet) {
+                throw new SQLException("Expected the first reserved customer id");
+            }
+
+            try (ResultSet resultSet = statement.getResultSet()) {
+                resultSet.next();
+                return Math.toIntExact(resultSet.getLong(1));
+            }
+        }
+    }
+
+    /**
+     * Create the checkpoint table if needed and read the batches a job already committed
+     *
+     * @param jobId job id
+     * @return committed batch numbers
+     * @throws SQLException thrown if error executing SQL
+     */
+    private Set<Integer> readCheckpoints(String jobId) throws SQLException {
+        Set<Integer> committed = new HashSet<>();
+
+        try (Connection con = dataSource.getConnection()) {
+            try (Statement statement = con.createStatement()) {
+                statement.execute(CREATE_CHECKPOINT_TABLE_SQL);
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(SELECT_CHECKPOINTS_SQL)) {
+                ps.setNString(1, jobId);
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        committed.add(resultSet.getInt(1));
+                    }
+                }
+            }
+        }
+
+        return committed;
+    }
+
+    /**
+     * Customers written and committed together
+     */
+    private static final class Batch {
+        private final int number;
+        private final List<Customer> customers;
+
+        private Batch(int number, List<Customer> customers) {
+            this.number = number;
+            this.customers = customers;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.encrypted.db.bulk;
+
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads customers from CSV with one row per account:
+ * <pre>
+ * ssn,first_name,middle_initial,last_name,account_number,balance
+ * 123456789,Jane,A,Doe,12345ABCDE,12954.32
+ * 123456789,Jane,A,Doe,1234567890,965476.43
+ * 987654321,John,,Smith,,
+ * </pre>
+ * Consecutive rows with the same ssn and name belong to one customer; a row without an account number is a customer
+ * without accounts.  Fields may be quoted with double quotes, a doubled quote inside a quoted field is a literal quote.
+ */
+public class CsvCustomerSource implements CustomerSource {
+
+    static final List<String> HEADER = Arrays.asList("ssn", "first_name", "middle_initial", "last_name",
+            "account_number", "balance");
+
+    private final BufferedReader reader;
+    private long line;
+    private boolean headerRead;
+
+    // Row read ahead of the customer being assembled
+    private String[] pending;
+    private long pendingLine;
+
+    public CsvCustomerSource(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Customer next() throws IOException {
+        if (!headerRead) {
+            readHeader();
+        }
+
+        String[] first = pending != null ? pending : readRow();
+        long firstLine = pending != null ? pendingLine : line;
+        pending = null;
+        if (first == null) {
+            return null;
+        }
+
+        Customer customer = Customer.builder()
+                .ssn(first[0])
+                .firstName(first[1])
+                .middleInitial(emptyToNull(first[2]))
+                .lastName(first[3])
+                .accounts(new ArrayList<>())
+                .build();
+        addAccount(customer, first, firstLine);
+
+        String[] row;
+        while ((row = readRow()) != null) {
+            if (!sameCustomer(first, row)) {
+                pending = row;
+                pendingLine = line;
+                break;
+            }
+            addAccount(customer, row, line);
+        }
+
+        return customer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        headerRead = true;
+
+        String text = reader.readLine();
+        line++;
+        if (text == null) {
+            return;
+        }
+
+        List<String> header = Arrays.asList(parse(text, line));
+        if (!HEADER.equals(header)) {
+            throw new IOException("Expected the CSV header " + String.join(",", HEADER) + " but found " + text);
+        }
+    }
+
+    private String[] readRow() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.trim().isEmpty());
+
+        String[] row = parse(text, line);
+        if (row.length != HEADER.size()) {
+            throw new MalformedRecordException(line, "expected " + HEADER.size() + " fields but found " + row.length);
+        }
+        return row;
+    }
+
+    private void addAccount(Customer customer, String[] row, long rowLine) throws MalformedRecordException {
+        if (row[4].isEmpty()) {
+            return;
+        }
+
+        double balance;
+        try {
+            balance = row[5].isEmpty() ? 0 : Double.parseDouble(row[5]);
+        } catch (NumberFormatException e) {
+            throw new MalformedRecordException(rowLine, "balance '" + row[5] + "' is not a number", e);
+        }
+
+        customer.getAccounts().add(Account.builder()
+                .accountNumber(row[4])
+                .balance(balance)
+                .build());
+    }
+
+    private static boolean sameCustomer(String[] a, String[] b) {
+        for (int i = 0; i < 4; i++) {
+            if (!Objects.equals(a[i], b[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Split a CSV line into fields
+     *
+     * @param text line of CSV
+     * @param line line number, for errors
+     * @return fields
+     * @throws MalformedRecordException thrown if a quoted field is not closed
+     */
+    static String[] parse(String text, long line) throws MalformedRecordException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new MalformedRecordException(line, "unterminated quoted field");
+        }
+
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,91 @@
+package com.encrypted.db.bulk;
+
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes customers as CSV with one row per account, in the format {@link CsvCustomerSource} reads, so an export can
+ * be bulk loaded again.  Fields holding a comma, quote or line break are quoted.
+ */
+public class CsvCustomerWriter implements Closeable {
+
+    private final Writer writer;
+    private boolean headerWritten;
+
+    public CsvCustomerWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Write a customer, one row per account or a single row without an account
+     *
+     * @param customer customer to write
+     * @throws IOException thrown if error writing
+     */
+    public void write(Customer customer) throws IOException {
+        if (!headerWritten) {
+            writer.write(String.join(",", CsvCustomerSource.HEADER));
+            writer.write('\n');
+            headerWritten = true;
+        }
+
+        List<Account> accounts = customer.getAccounts();
+        if (accounts == null || accounts.isEmpty()) {
+            writeRow(customer, null);
+            return;
+        }
+        for (Account account : accounts) {
+            writeRow(customer, account);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeRow(Customer customer, Account account) throws IOException {
+        writeField(customer.getSsn());
+        writer.write(',');
+        writeField(customer.getFirstName());
+        writer.write(',');
+        writeField(customer.getMiddleInitial());
+        writer.write(',');
+        writeField(customer.getLastName());
+        writer.write(',');
+        if (account != null) {
+            writeField(account.getAccountNumber());
+            writer.write(',');
+            writer.write(Double.toString(account.getBalance()));
+        } else {
+            writer.write(',');
+        }
+        writer.write('\n');
+    }
+
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,21 @@
+package com.encrypted.db.bulk;
+
+import com.encrypted.db.entity.Customer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Customers, with their accounts, read one at a time from an input file
+ */
+public interface CustomerSource extends Closeable {
+
+    /**
+     * Read the next customer
+     *
+     * @return next customer, null at the end of the input
+     * @throws MalformedRecordException thrown if the next record can not be parsed, the source moves past it
+     * @throws IOException thrown if error reading the input
+     */
+    Customer next() throws IOException;
+}
@@ -0,0 +1,151 @@
+package com.encrypted.db.bulk;
+
+import com.microsoft.sqlserver.jdbc.ISQLServerBulkRecord;
+
+import java.io.Serializable;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Feeds a list of entities to SQLServerBulkCopy as rows, without copying them into an intermediate row set.
+ * Column ordinals are 1 based in the order the columns were added.
+ *
+ * @param <T> entity type
+ */
+class EntityBulkRecord<T> implements ISQLServerBulkRecord {
+
+    private static final long serialVersionUID = -3170948342311519546L;
+
+    private final List<Column<T>> columns = new ArrayList<>();
+    private final transient Iterator<T> rows;
+    private transient T current;
+
+    /**
+     * @param rows entities to write
+     */
+    EntityBulkRecord(List<T> rows) {
+        this.rows = rows.iterator();
+    }
+
+    /**
+     * Add a column
+     *
+     * @param name destination column name
+     * @param jdbcType {@link java.sql.Types} of the column
+     * @param precision length of character columns, precision of numeric columns
+     * @param value reads the column value from an entity
+     * @return this record
+     */
+    EntityBulkRecord<T> column(String name, int jdbcType, int precision, Function<T, Object> value) {
+        columns.add(new Column<>(name, jdbcType, precision, value));
+        return this;
+    }
+
+    @Override
+    public Set<Integer> getColumnOrdinals() {
+        Set<Integer> ordinals = new LinkedHashSet<>();
+        for (int i = 1; i <= columns.size(); i++) {
+            ordinals.add(i);
+        }
+        return ordinals;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns.get(column - 1).name;
+    }
+
+    @Override
+    public int getColumnType(int column) {
+        return columns.get(column - 1).jdbcType;
+    }
+
+    @Override
+    public int getPrecision(int column) {
+        return columns.get(column - 1).precision;
+    }
+
+    @Override
+    public int getScale(int column) {
+        return 0;
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) {
+        return false;
+    }
+
+    @Override
+    public Object[] getRowData() {
+        Object[] data = new Object[columns.size()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = columns.get(i).value.apply(current);
+        }
+        return data;
+    }
+
+    @Override
+    public boolean next() {
+        if (!rows.hasNext()) {
+            current = null;
+            return false;
+        }
+        current = rows.next();
+        return true;
+    }
+
+    /*
+     * Column metadata and date/time formats are fixed by the column() calls, the driver only calls these for
+     * file based records.
+     */
+
+    public void addColumnMetadata(int positionInFile, String name, int jdbcType, int precision, int scale,
+                                  DateTimeFormatter dateTimeFormatter) {
+        throw new UnsupportedOperationException("Columns are added with column()");
+    }
+
+    public void addColumnMetadata(int positionInFile, String name, int jdbcType, int precision, int scale) {
+        throw new UnsupportedOperationException("Columns are added with column()");
+    }
+
+    public void setTimestampWithTimezoneFormat(String dateTimeFormat) {
+    }
+
+    public void setTimestampWithTimezoneFormat(DateTimeFormatter dateTimeFormatter) {
+    }
+
+    public void setTimeWithTimezoneFormat(String timeFormat) {
+    }
+
+    public void setTimeWithTimezoneFormat(DateTimeFormatter dateTimeFormatter) {
+    }
+
+    public DateTimeFormatter getColumnDateTimeFormatter(int column) {
+        return null;
+    }
+
+    /**
+     * Destination column and how to read its value from an entity
+     */
+    private static final class Column<T> implements Serializable {
+
+        private static final long serialVersionUID = 2035612719542938415L;
+
+        private final String name;
+        private final int jdbcType;
+        private final int precision;
+        private final transient Function<T, Object> value;
+
+        private Column(String name, int jdbcType, int precision, Function<T, Object> value) {
+            this.name = name;
+            this.jdbcType = jdbcType;
+            this.precision = precision;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.encrypted.db.bulk;
+
+import java.io.IOException;
+
+/**
+ * A record of a bulk load input file that can not be parsed.  The rest of the file can still be read.
+ */
+public class MalformedRecordException extends IOException {
+
+    private static final long serialVersionUID = 4723097155204957313L;
+
+    private final long line;
+
+    public MalformedRecordException(long line, String message) {
+        super("Line " + line + ": " + message);
+        this.line = line;
+    }
+
+    public MalformedRecordException(long line, String message, Throwable cause) {
+        super("Line " + line + ": " + message, cause);
+        this.line = line;
+    }
+
+    public long getLine() {
+        return line;
+    }
+}
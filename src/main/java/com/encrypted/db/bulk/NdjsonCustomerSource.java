@@ -0,0 +1,51 @@
+package com.encrypted.db.bulk;
+
+import com.encrypted.db.entity.Customer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads one customer per line of newline delimited JSON, in the same shape the REST API writes them:
+ * <pre>
+ * {"ssn":"123456789","firstName":"Jane","middleInitial":"A","lastName":"Doe",
+ *  "accounts":[{"accountNumber":"12345ABCDE","balance":12954.32}]}
+ * </pre>
+ * Ids in the input are ignored.
+ */
+public class NdjsonCustomerSource implements CustomerSource {
+
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private long line;
+
+    public NdjsonCustomerSource(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Customer next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.trim().isEmpty());
+
+        try {
+            return objectMapper.readValue(text, Customer.class);
+        } catch (JsonProcessingException e) {
+            throw new MalformedRecordException(line, e.getOriginalMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,343 @@
+package com.encrypted.db.cache;
+
+import com.encrypted.db.codec.EntityCodec;
+import com.encrypted.db.entity.Customer;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Read-through cache of assembled Customer graphs.
+ * <p>
+ * Entries hold decrypted SSNs and account numbers, so they are kept encoded with {@link EntityCodec} and sealed with
+ * AES-GCM under a key generated for this cache, and the ciphertext is zeroed when an entry is evicted, expires or is
+ * invalidated.  Every hit decrypts a private copy, so callers may modify what they get back.
+ * <p>
+ * Concurrent misses for the same customer share a single load.  A load that overlaps an invalidation is returned to
+ * its callers but not cached, so a write is never hidden behind a value read before it.
+ */
+public class CustomerCache {
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int KEY_BITS = 256;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final SecretKey secretKey;
+    private final SecureRandom random = new SecureRandom();
+
+    private final Map<CacheKey, Sealed> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<CacheKey, CompletableFuture<Sealed>> loading = new ConcurrentHashMap<>();
+
+    // Incremented under the cache lock by every invalidation, a load only caches its value if this did not move
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalescedLoads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Loads a customer from the database on a miss
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Customer load() throws SQLException;
+    }
+
+    /**
+     * @param ttl how long a customer may be served from the cache
+     * @param ttlUnit unit of the ttl
+     * @param maxEntries maximum number of customers held
+     */
+    public CustomerCache(long ttl, TimeUnit ttlUnit, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+
+        this.ttlNanos = ttlUnit.toNanos(ttl);
+        this.maxEntries = maxEntries;
+
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(KEY_BITS, random);
+            secretKey = keyGenerator.generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to create the customer cache key", e);
+        }
+    }
+
+    /**
+     * Get a customer from the cache, loading it on a miss
+     *
+     * @param id id of customer
+     * @param encrypted true if the customer is read with its fields encrypted
+     * @param loader loads the customer on a miss
+     * @return customer, null if the loader found none
+     * @throws SQLException thrown by the loader
+     */
+    public Customer get(int id, boolean encrypted, Loader loader) throws SQLException {
+        CacheKey key = new CacheKey(id, encrypted);
+
+        Sealed sealed = lookup(key);
+        if (sealed != null) {
+            hits.increment();
+            return open(sealed);
+        }
+
+        misses.increment();
+
+        CompletableFuture<Sealed> flight = new CompletableFuture<>();
+        CompletableFuture<Sealed> existing = loading.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalescedLoads.increment();
+            return await(existing);
+        }
+
+        try {
+            long loadGeneration;
+            synchronized (cache) {
+                loadGeneration = generation;
+            }
+
+            loads.increment();
+            Customer customer = loader.load();
+
+            if (customer == null) {
+                flight.complete(null);
+                return null;
+            }
+
+            Sealed loaded = seal(customer, System.nanoTime() + ttlNanos);
+            store(key, loaded.copy(), loadGeneration);
+            flight.complete(loaded);
+
+            return customer;
+        } catch (SQLException | RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, flight);
+        }
+    }
+
+    /**
+     * Drop a customer from the cache.  Loads already running for the customer are not cached.
+     *
+     * @param id id of customer
+     */
+    public void invalidate(int id) {
+        CacheKey plaintext = new CacheKey(id, false);
+        CacheKey encrypted = new CacheKey(id, true);
+
+        synchronized (cache) {
+            generation++;
+            zero(cache.remove(plaintext));
+            zero(cache.remove(encrypted));
+        }
+
+        loading.remove(plaintext);
+        loading.remove(encrypted);
+        invalidations.increment();
+    }
+
+    /**
+     * Zero and drop every cached customer
+     */
+    public void clear() {
+        synchronized (cache) {
+            generation++;
+            cache.values().forEach(this::zero);
+            cache.clear();
+        }
+
+        loading.clear();
+    }
+
+    /**
+     * @return snapshot of the cache counters
+     */
+    public CustomerCacheStatistics getStatistics() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+
+        return CustomerCacheStatistics.builder()
+                .size(size)
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .loads(loads.sum())
+                .coalescedLoads(coalescedLoads.sum())
+                .evictions(evictions.sum())
+                .invalidations(invalidations.sum())
+                .build();
+    }
+
+    /**
+     * Find an unexpired entry, returning a copy that eviction can not zero while it is being decrypted
+     *
+     * @param key cache key
+     * @return copy of the entry, null if there is none
+     */
+    private Sealed lookup(CacheKey key) {
+        synchronized (cache) {
+            Sealed sealed = cache.get(key);
+            if (sealed == null) {
+                return null;
+            }
+            if (System.nanoTime() - sealed.expires >= 0) {
+                evict(cache.remove(key));
+                return null;
+            }
+            return sealed.copy();
+        }
+    }
+
+    private void store(CacheKey key, Sealed sealed, long loadGeneration) {
+        synchronized (cache) {
+            if (generation != loadGeneration) {
+                zero(sealed);
+                return;
+            }
+
+            zero(cache.put(key, sealed));
+
+            Iterator<Sealed> eldest = cache.values().iterator();
+            while (cache.size() > maxEntries && eldest.hasNext()) {
+                evict(eldest.next());
+                eldest.remove();
+            }
+        }
+    }
+
+    private Customer await(CompletableFuture<Sealed> flight) throws SQLException {
+        try {
+            Sealed sealed = flight.get();
+            return sealed == null ? null : open(sealed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the customer to load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new SQLException("Customer load failed", e.getCause());
+        }
+    }
+
+    private Sealed seal(Customer customer, long expires) {
+        // The encoding is zeroed when it is closed
+        try (EntityCodec.Encoded encoded = EntityCodec.encode(customer)) {
+            byte[] iv = new byte[IV_BYTES];
+            random.nextBytes(iv);
+
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_BITS, iv));
+
+            return new Sealed(iv, cipher.doFinal(encoded.buffer(), 0, encoded.size()), expires);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to seal customer " + customer.getId(), e);
+        }
+    }
+
+    private Customer open(Sealed sealed) {
+        byte[] plaintext = null;
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, new GCMParameterSpec(TAG_BITS, sealed.iv));
+            plaintext = cipher.doFinal(sealed.ciphertext);
+
+            return EntityCodec.decodeCustomer(plaintext, 0, plaintext.length);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Unable to open cached customer", e);
+        } finally {
+            if (plaintext != null) {
+                Arrays.fill(plaintext, (byte) 0);
+            }
+        }
+    }
+
+    private void evict(Sealed sealed) {
+        evictions.increment();
+        zero(sealed);
+    }
+
+    private void zero(Sealed sealed) {
+        if (sealed != null) {
+            Arrays.fill(sealed.ciphertext, (byte) 0);
+        }
+    }
+
+    /**
+     * Customer id and whether it was read encrypted
+     */
+    private static final class CacheKey {
+        private final int id;
+        private final boolean encrypted;
+
+        private CacheKey(int id, boolean encrypted) {
+            this.id = id;
+            this.encrypted = encrypted;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return id == other.id && encrypted == other.encrypted;
+        }
+
+        @Override
+        public int hashCode() {
+            return id * 2 + (encrypted ? 1 : 0);
+        }
+    }
+
+    /**
+     * Encoded customer sealed with AES-GCM and when it expires
+     */
+    private static final class Sealed {
+        private final byte[] iv;
+        private final byte[] ciphertext;
+        private final long expires;
+
+        private Sealed(byte[] iv, byte[] ciphertext, long expires) {
+            this.iv = iv;
+            this.ciphertext = ciphertext;
+            this.expires = expires;
+        }
+
+        private Sealed copy() {
+            return new Sealed(iv, ciphertext.clone(), expires);
+        }
+    }
+}
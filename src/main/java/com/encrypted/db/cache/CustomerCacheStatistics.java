@@ -0,0 +1,25 @@
+package com.encrypted.db.cache;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Point in time snapshot of the customer cache counters
+ */
+@Data
+@Builder
+public class CustomerCacheStatistics {
+
+    private int size;
+    private long hits;
+    private long misses;
+    private long loads;
+    private long coalescedLoads;
+    private long evictions;
+    private long invalidations;
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
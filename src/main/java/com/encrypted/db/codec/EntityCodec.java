@@ -0,0 +1,397 @@
+package com.encrypted.db.codec;
+
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of Customers and Accounts, written and read field by field without reflection.
+ * <p>
+ * Every encoding starts with a version byte and a type byte.  Ints are unsigned varints, strings are a varint of the
+ * UTF-8 length plus one followed by the bytes (0 for null), lists are a varint of the size plus one followed by the
+ * elements (0 for null), and doubles are their 8 IEEE 754 bytes, big-endian.
+ * <pre>
+ * customer: id, ssn, firstName, middleInitial, lastName, accounts
+ * account:  id, customerId, accountNumber, balance
+ * </pre>
+ * A later version may only add fields at the end.  Encodings of another version are rejected rather than guessed at.
+ * <p>
+ * Encoding writes into a buffer held by the calling thread, which is zeroed when the {@link Encoded} is closed since
+ * it holds decrypted SSNs and account numbers.
+ */
+public final class EntityCodec {
+
+    public static final byte VERSION = 1;
+
+    static final byte TYPE_CUSTOMER = 1;
+    static final byte TYPE_ACCOUNT = 2;
+
+    private static final int INITIAL_BUFFER_BYTES = 256;
+
+    // A thread that encoded an unusually large customer does not keep the buffer it grew
+    private static final int MAX_POOLED_BUFFER_BYTES = 64 * 1024;
+
+    private static final ThreadLocal<Encoded> BUFFERS = ThreadLocal.withInitial(() -> new Encoded(true));
+
+    private EntityCodec() {
+    }
+
+    /**
+     * Encode a Customer and its accounts into the calling thread's buffer
+     *
+     * @param customer customer to encode
+     * @return encoding, must be closed once it has been used
+     */
+    public static Encoded encode(Customer customer) {
+        Encoded encoded = acquire();
+        encoded.writeByte(VERSION);
+        encoded.writeByte(TYPE_CUSTOMER);
+        writeCustomer(encoded, customer);
+        return encoded;
+    }
+
+    /**
+     * Encode an Account into the calling thread's buffer
+     *
+     * @param account account to encode
+     * @return encoding, must be closed once it has been used
+     */
+    public static Encoded encode(Account account) {
+        Encoded encoded = acquire();
+        encoded.writeByte(VERSION);
+        encoded.writeByte(TYPE_ACCOUNT);
+        writeAccount(encoded, account);
+        return encoded;
+    }
+
+    /**
+     * Decode a Customer and its accounts
+     *
+     * @param bytes buffer holding the encoding
+     * @param offset start of the encoding
+     * @param length length of the encoding
+     * @return customer
+     * @throws IllegalArgumentException thrown if the bytes are not a customer of this version
+     */
+    public static Customer decodeCustomer(byte[] bytes, int offset, int length) {
+        Reader reader = new Reader(bytes, offset, length);
+        reader.header(TYPE_CUSTOMER);
+        Customer customer = readCustomer(reader);
+        reader.end();
+        return customer;
+    }
+
+    /**
+     * Decode an Account
+     *
+     * @param bytes buffer holding the encoding
+     * @param offset start of the encoding
+     * @param length length of the encoding
+     * @return account
+     * @throws IllegalArgumentException thrown if the bytes are not an account of this version
+     */
+    public static Account decodeAccount(byte[] bytes, int offset, int length) {
+        Reader reader = new Reader(bytes, offset, length);
+        reader.header(TYPE_ACCOUNT);
+        Account account = readAccount(reader);
+        reader.end();
+        return account;
+    }
+
+    /**
+     * Decode a Customer or an Account, whichever the bytes hold
+     *
+     * @param bytes encoding
+     * @return customer or account
+     * @throws IllegalArgumentException thrown if the bytes are not an entity of this version
+     */
+    public static Object decode(byte[] bytes) {
+        if (bytes.length > 1 && bytes[1] == TYPE_ACCOUNT) {
+            return decodeAccount(bytes, 0, bytes.length);
+        }
+        return decodeCustomer(bytes, 0, bytes.length);
+    }
+
+    private static void writeCustomer(Encoded out, Customer customer) {
+        out.writeVarint(customer.getId());
+        out.writeString(customer.getSsn());
+        out.writeString(customer.getFirstName());
+        out.writeString(customer.getMiddleInitial());
+        out.writeString(customer.getLastName());
+
+        List<Account> accounts = customer.getAccounts();
+        if (accounts == null) {
+            out.writeVarint(0);
+        } else {
+            out.writeVarint(accounts.size() + 1);
+            for (Account account : accounts) {
+                writeAccount(out, account);
+            }
+        }
+    }
+
+    private static void writeAccount(Encoded out, Account account) {
+        out.writeVarint(account.getId());
+        out.writeVarint(account.getCustomerId());
+        out.writeString(account.getAccountNumber());
+        out.writeLong(Double.doubleToRawLongBits(account.getBalance()));
+    }
+
+    private static Customer readCustomer(Reader in) {
+        Customer customer = new Customer();
+        customer.setId(in.readVarint());
+        customer.setSsn(in.readString());
+        customer.setFirstName(in.readString());
+        customer.setMiddleInitial(in.readString());
+        customer.setLastName(in.readString());
+
+        int accounts = in.readVarint();
+        if (accounts != 0) {
+            // Every account takes more than a byte, so a corrupt count can not allocate more than the input holds
+            in.require(accounts - 1);
+            List<Account> list = new ArrayList<>(accounts - 1);
+            for (int i = 1; i < accounts; i++) {
+                list.add(readAccount(in));
+            }
+            customer.setAccounts(list);
+        }
+
+        return customer;
+    }
+
+    private static Account readAccount(Reader in) {
+        Account account = new Account();
+        account.setId(in.readVarint());
+        account.setCustomerId(in.readVarint());
+        account.setAccountNumber(in.readString());
+        account.setBalance(Double.longBitsToDouble(in.readLong()));
+        return account;
+    }
+
+    private static Encoded acquire() {
+        Encoded encoded = BUFFERS.get();
+        if (encoded.inUse) {
+            // Encoding while another encoding of this thread is still open
+            encoded = new Encoded(false);
+        }
+        encoded.inUse = true;
+        return encoded;
+    }
+
+    /**
+     * Encoded entity in a reusable buffer.  Closing it zeroes the buffer and hands it back to the thread.
+     */
+    public static final class Encoded implements AutoCloseable {
+
+        private final boolean pooled;
+        private byte[] buffer = new byte[INITIAL_BUFFER_BYTES];
+        private int size;
+        private boolean inUse;
+
+        private Encoded(boolean pooled) {
+            this.pooled = pooled;
+        }
+
+        /**
+         * @return buffer holding the encoding in its first {@link #size()} bytes, only valid until closed
+         */
+        public byte[] buffer() {
+            return buffer;
+        }
+
+        /**
+         * @return length of the encoding
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return copy of the encoding that stays valid after close
+         */
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        @Override
+        public void close() {
+            Arrays.fill(buffer, 0, size, (byte) 0);
+            size = 0;
+            if (buffer.length > MAX_POOLED_BUFFER_BYTES) {
+                buffer = new byte[INITIAL_BUFFER_BYTES];
+            }
+            if (pooled) {
+                inUse = false;
+            }
+        }
+
+        private void ensure(int bytes) {
+            if (size + bytes > buffer.length) {
+                byte[] grown = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+                Arrays.fill(buffer, 0, size, (byte) 0);
+                buffer = grown;
+            }
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        private void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeVarint(0);
+                return;
+            }
+
+            int length = utf8Length(value);
+            writeVarint(length + 1);
+            ensure(length);
+
+            // Encoded in place, String.getBytes would allocate a copy of every SSN and account number
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[size++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[size++] = (byte) (0xC0 | (c >>> 6));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[size++] = (byte) (0xF0 | (codePoint >>> 18));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >>> 12) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | ((codePoint >>> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogate, replaced like String.getBytes does
+                    buffer[size++] = (byte) '?';
+                } else {
+                    buffer[size++] = (byte) (0xE0 | (c >>> 12));
+                    buffer[size++] = (byte) (0x80 | ((c >>> 6) & 0x3F));
+                    buffer[size++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private static int utf8Length(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    length++;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    length++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Bounds checked reader over an encoding
+     */
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+
+        private Reader(byte[] bytes, int offset, int length) {
+            if (offset < 0 || length < 0 || offset + length > bytes.length) {
+                throw new IndexOutOfBoundsException("offset " + offset + " length " + length + " of " + bytes.length);
+            }
+            this.bytes = bytes;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        private void header(byte type) {
+            int version = readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported entity encoding version " + version);
+            }
+            int actual = readByte();
+            if (actual != type) {
+                throw new IllegalArgumentException("Expected entity type " + type + " but found " + actual);
+            }
+        }
+
+        private void require(int length) {
+            if (length < 0 || length > end - position) {
+                throw new IllegalArgumentException("Entity encoding is truncated");
+            }
+        }
+
+        private int readByte() {
+            require(1);
+            return bytes[position++];
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint in entity encoding");
+        }
+
+        private long readLong() {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private String readString() {
+            int length = readVarint();
+            if (length == 0) {
+                return null;
+            }
+            require(length - 1);
+            String value = new String(bytes, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+
+        private void end() {
+            if (position != end) {
+                throw new IllegalArgumentException((end - position) + " unexpected bytes after the entity");
+            }
+        }
+    }
+}
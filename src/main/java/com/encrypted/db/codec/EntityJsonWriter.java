@@ -0,0 +1,90 @@
+package com.encrypted.db.codec;
+
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes Customers and Accounts straight to a {@link JsonGenerator}, producing the same JSON as the ObjectMapper
+ * without bean introspection or an intermediate tree.  Field names are pre-encoded once.
+ */
+public final class EntityJsonWriter {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString SSN = new SerializedString("ssn");
+    private static final SerializableString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializableString MIDDLE_INITIAL = new SerializedString("middleInitial");
+    private static final SerializableString LAST_NAME = new SerializedString("lastName");
+    private static final SerializableString ACCOUNTS = new SerializedString("accounts");
+    private static final SerializableString CUSTOMER_ID = new SerializedString("customerId");
+    private static final SerializableString ACCOUNT_NUMBER = new SerializedString("accountNumber");
+    private static final SerializableString BALANCE = new SerializedString("balance");
+
+    private EntityJsonWriter() {
+    }
+
+    /**
+     * Write a Customer and its accounts as a JSON object
+     *
+     * @param generator generator to write to
+     * @param customer customer to write
+     * @throws IOException thrown if error writing
+     */
+    public static void writeCustomer(JsonGenerator generator, Customer customer) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        generator.writeNumber(customer.getId());
+        writeString(generator, SSN, customer.getSsn());
+        writeString(generator, FIRST_NAME, customer.getFirstName());
+        writeString(generator, MIDDLE_INITIAL, customer.getMiddleInitial());
+        writeString(generator, LAST_NAME, customer.getLastName());
+
+        generator.writeFieldName(ACCOUNTS);
+        List<Account> accounts = customer.getAccounts();
+        if (accounts == null) {
+            generator.writeNull();
+        } else {
+            generator.writeStartArray();
+            for (Account account : accounts) {
+                writeAccount(generator, account);
+            }
+            generator.writeEndArray();
+        }
+
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write an Account as a JSON object
+     *
+     * @param generator generator to write to
+     * @param account account to write
+     * @throws IOException thrown if error writing
+     */
+    public static void writeAccount(JsonGenerator generator, Account account) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        generator.writeNumber(account.getId());
+        generator.writeFieldName(CUSTOMER_ID);
+        generator.writeNumber(account.getCustomerId());
+        writeString(generator, ACCOUNT_NUMBER, account.getAccountNumber());
+        generator.writeFieldName(BALANCE);
+        generator.writeNumber(account.getBalance());
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value)
+            throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(value);
+        }
+    }
+}
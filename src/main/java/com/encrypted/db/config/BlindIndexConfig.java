@@ -0,0 +1,55 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.encryption.BlindIndex;
+import com.encrypted.db.index.BlindIndexBackfill;
+import com.encrypted.db.index.BlindIndexBackfillOptions;
+import com.encrypted.db.index.BlindIndexBackfillReport;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.logging.Logger;
+
+/**
+ * Blind indexes for {@code CustomerDAO.findBySsn} and {@code AccountDAO.findByAccountNumber}, enabled by setting
+ * {@code encrypted.blind-index.key}.  With {@code encrypted.blind-index.backfill.enabled=true} rows that have no index
+ * yet are indexed at startup.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.blind-index", name = "key")
+@EnableConfigurationProperties(BlindIndexProperties.class)
+public class BlindIndexConfig {
+
+    private static final Logger LOG = Logger.getLogger(BlindIndexConfig.class.getName());
+
+    @Bean
+    public BlindIndex blindIndex(BlindIndexProperties properties) {
+        byte[] key = Base64.getDecoder().decode(properties.getKey());
+        try {
+            return new BlindIndex(key);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "encrypted.blind-index.backfill", name = "enabled", havingValue = "true")
+    public ApplicationRunner blindIndexBackfillRunner(DataSource dataSource, BlindIndex blindIndex,
+                                                     BlindIndexProperties properties) {
+        return args -> {
+            BlindIndexBackfillReport report = new BlindIndexBackfill(dataSource, blindIndex)
+                    .backfill(BlindIndexBackfillOptions.builder()
+                            .chunkSize(properties.getBackfill().getChunkSize())
+                            .maxRowsPerSecond(properties.getBackfill().getMaxRowsPerSecond())
+                            .build());
+
+            LOG.info(report.toString());
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Key of the blind indexes of the randomized encrypted columns and the backfill of existing rows.
+ * Bound from the {@code encrypted.blind-index} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.blind-index")
+public class BlindIndexProperties {
+
+    // Base64 of at least 32 random bytes.  Changing it makes every existing index useless until backfilled again.
+    private String key;
+
+    private Backfill backfill = new Backfill();
+
+    /**
+     * Backfill of rows that have no index, run at startup
+     */
+    @Data
+    public static class Backfill {
+
+        private boolean enabled = false;
+        private int chunkSize = 1000;
+
+        // Rows indexed per second, 0 for no limit
+        private int maxRowsPerSecond = 0;
+    }
+}
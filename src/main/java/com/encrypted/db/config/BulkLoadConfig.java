@@ -0,0 +1,81 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.bulk.BulkLoadOptions;
+import com.encrypted.db.bulk.BulkLoadReport;
+import com.encrypted.db.bulk.BulkLoader;
+import com.encrypted.db.bulk.CsvCustomerSource;
+import com.encrypted.db.bulk.CustomerSource;
+import com.encrypted.db.bulk.NdjsonCustomerSource;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.encryption.BlindIndex;
+import com.encrypted.db.schema.SchemaMigration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.BufferedReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+/**
+ * Runs a bulk load at startup, for example
+ * {@code java -jar encrypted-db.jar --spring.main.web-application-type=none --encrypted.bulk.file=customers.csv}
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.bulk", name = "file")
+@EnableConfigurationProperties(BulkLoadProperties.class)
+public class BulkLoadConfig {
+
+    private static final Logger LOG = Logger.getLogger(BulkLoadConfig.class.getName());
+
+    @Bean
+    public BulkLoader bulkLoader(DataSource dataSource, ObjectProvider<BlindIndex> blindIndex,
+                                 ObjectProvider<SchemaMigration> schemaMigration) {
+        schemaMigration.getIfAvailable();
+
+        return new BulkLoader(dataSource, blindIndex.getIfAvailable());
+    }
+
+    @Bean
+    public ApplicationRunner bulkLoadRunner(BulkLoader bulkLoader, BulkLoadProperties properties,
+                                            ObjectMapper objectMapper, AccountDAO accountDAO) {
+        return args -> {
+            Path file = Paths.get(properties.getFile());
+            String format = properties.getFormat() != null ? properties.getFormat()
+                    : file.getFileName().toString().replaceAll(".*\\.", "");
+
+            BulkLoadOptions options = BulkLoadOptions.builder()
+                    .jobId(properties.getJobId() != null ? properties.getJobId() : file.getFileName().toString())
+                    .batchSize(properties.getBatchSize())
+                    .writerThreads(properties.getWriterThreads())
+                    .queueCapacity(properties.getQueueCapacity())
+                    .tableLock(properties.isTableLock())
+                    .build();
+
+            BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            try (CustomerSource source = "ndjson".equalsIgnoreCase(format)
+                    ? new NdjsonCustomerSource(reader, objectMapper)
+                    : new CsvCustomerSource(reader)) {
+                BulkLoadReport report = bulkLoader.load(source, options);
+
+                LOG.info(report.toString());
+                report.getFailures().forEach(failure ->
+                        LOG.warning("Rejected record " + failure.getIndex() + ": " + failure.getReason()));
+            }
+
+            // The loader writes past AccountDAO, so its accounts are only summarised by a rebuild
+            if (accountDAO.isBalanceSummaries()) {
+                LOG.info("Rebuilt balance summaries of " + accountDAO.rebuildBalanceSummaries() + " customers");
+            }
+        };
+    }
+}
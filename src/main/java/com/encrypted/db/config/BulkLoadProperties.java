@@ -0,0 +1,27 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Bulk load run at startup when {@code encrypted.bulk.file} is set.  Bound from the {@code encrypted.bulk} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.bulk")
+public class BulkLoadProperties {
+
+    // CSV or NDJSON file of customers to load
+    private String file;
+
+    // csv or ndjson, taken from the file extension when not set
+    private String format;
+
+    // Defaults to the file name, rerun with the same job id to resume
+    private String jobId;
+
+    private int batchSize = 10000;
+    private int writerThreads = 4;
+    private int queueCapacity = 8;
+    private boolean tableLock = false;
+}
@@ -0,0 +1,110 @@
+package com.encrypted.db.config;
+
+import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+
+/**
+ * Builds the SQL Server data source and the Tomcat JDBC connection pool that wraps it.
+ * Every DAO borrows its connections from the pool so the TCP/TLS login and Always Encrypted session setup
+ * are only paid when the pool grows.
+ */
+public final class ConnectionPoolFactory {
+
+    private static final String STATEMENT_CACHE_INTERCEPTOR =
+            "org.apache.tomcat.jdbc.pool.interceptor.StatementCache(prepared=true,callable=false,max=%d)";
+
+    private ConnectionPoolFactory() {
+    }
+
+    /**
+     * Create a SQL Server Data Source from the configured properties
+     *
+     * @param properties data source properties
+     * @return SQL Server Data Source
+     */
+    public static SQLServerDataSource createSqlServerDataSource(EncryptedDataSourceProperties properties) {
+        SQLServerDataSource sqlServerDataSource = new SQLServerDataSource();
+        sqlServerDataSource.setURL(properties.getUrl());
+        sqlServerDataSource.setUser(properties.getUsername());
+        sqlServerDataSource.setPassword(properties.getPassword());
+        sqlServerDataSource.setColumnEncryptionSetting(properties.getColumnEncryptionSetting());
+
+        if (properties.getKeyStoreLocation() != null) {
+            sqlServerDataSource.setKeyStoreLocation(properties.getKeyStoreLocation());
+            sqlServerDataSource.setKeyStoreSecret(properties.getKeyStoreSecret());
+            sqlServerDataSource.setKeyStoreAuthentication(properties.getKeyStoreAuthentication());
+        }
+
+        sqlServerDataSource.setQueryTimeout(properties.getQueryTimeoutSeconds());
+        sqlServerDataSource.setResponseBuffering(properties.getResponseBuffering());
+        sqlServerDataSource.setDisableStatementPooling(properties.getStatementPoolingCacheSize() <= 0);
+        sqlServerDataSource.setStatementPoolingCacheSize(Math.max(properties.getStatementPoolingCacheSize(), 0));
+
+        return sqlServerDataSource;
+    }
+
+    /**
+     * Wrap a SQL Server Data Source in a bounded, validated connection pool
+     *
+     * @param sqlServerDataSource data source the pool opens physical connections with
+     * @param pool pool settings
+     * @return pooled data source
+     */
+    public static DataSource createPool(SQLServerDataSource sqlServerDataSource,
+                                        EncryptedDataSourceProperties.Pool pool) {
+        PoolProperties poolProperties = new PoolProperties();
+        poolProperties.setDataSource(sqlServerDataSource);
+        poolProperties.setName(pool.getName());
+
+        poolProperties.setInitialSize(pool.getInitialSize());
+        poolProperties.setMinIdle(pool.getMinIdle());
+        poolProperties.setMaxIdle(pool.getMaxIdle());
+        poolProperties.setMaxActive(pool.getMaxActive());
+        poolProperties.setMaxWait(pool.getMaxWaitMillis());
+
+        poolProperties.setValidationQuery(pool.getValidationQuery());
+        poolProperties.setValidationQueryTimeout(pool.getValidationQueryTimeoutSeconds());
+        poolProperties.setValidationInterval(pool.getValidationIntervalMillis());
+        poolProperties.setTestOnBorrow(pool.isTestOnBorrow());
+        poolProperties.setTestWhileIdle(pool.isTestWhileIdle());
+
+        poolProperties.setTimeBetweenEvictionRunsMillis(pool.getTimeBetweenEvictionRunsMillis());
+        poolProperties.setMinEvictableIdleTimeMillis(pool.getMinEvictableIdleTimeMillis());
+        poolProperties.setMaxAge(pool.getMaxAgeMillis());
+
+        poolProperties.setRemoveAbandoned(pool.isRemoveAbandoned());
+        poolProperties.setRemoveAbandonedTimeout(pool.getRemoveAbandonedTimeoutSeconds());
+        poolProperties.setLogAbandoned(pool.isLogAbandoned());
+
+        poolProperties.setJmxEnabled(pool.isJmxEnabled());
+
+        if (pool.getStatementCacheMax() > 0) {
+            poolProperties.setJdbcInterceptors(String.format(STATEMENT_CACHE_INTERCEPTOR, pool.getStatementCacheMax()));
+        }
+
+        return new DataSource(poolProperties);
+    }
+
+    /**
+     * Drop every cached prepared statement, and with it the cached Always Encrypted parameter metadata, by replacing
+     * the pooled connections.  Idle connections are closed now, borrowed ones when they are returned.
+     * Call after a schema change or a column encryption key rotation.
+     *
+     * @param dataSource pooled data source
+     */
+    public static void invalidateStatementCaches(DataSource dataSource) {
+        dataSource.purge();
+    }
+
+    /**
+     * Create the pooled data source from the configured properties
+     *
+     * @param properties data source properties
+     * @return pooled data source
+     */
+    public static DataSource createPool(EncryptedDataSourceProperties properties) {
+        return createPool(createSqlServerDataSource(properties), properties.getPool());
+    }
+}
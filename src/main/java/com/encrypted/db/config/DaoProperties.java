@@ -0,0 +1,80 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.dao.CustomerDAO;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Tuning for the data access objects.  Bound from the {@code encrypted.dao} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.dao")
+public class DaoProperties {
+
+    // Number of customers written and committed together by CustomerDAO.insertCustomers
+    private int batchSize = CustomerDAO.DEFAULT_BATCH_SIZE;
+
+    private Async async = new Async();
+
+    private Cache cache = new Cache();
+
+    private Hedge hedge = new Hedge();
+
+    private BalanceSummaries balanceSummaries = new BalanceSummaries();
+
+    /**
+     * Executor behind the asynchronous DAOs
+     */
+    @Data
+    public static class Async {
+
+        // 0 sizes the executor to the connection pool's maxActive
+        private int threads = 0;
+        private int queueCapacity = 1000;
+        // Reads only, writes are not timed out
+        private long timeoutMillis = 10000;
+    }
+
+    /**
+     * Read-through cache of customers behind CustomerDAO.getCustomerById
+     */
+    @Data
+    public static class Cache {
+
+        private boolean enabled = false;
+        private long ttlSeconds = 60;
+        private int maxEntries = 10000;
+    }
+
+    /**
+     * Hedged database reads behind CustomerController's customer by id, see HedgedReads
+     */
+    @Data
+    public static class Hedge {
+
+        private boolean enabled = false;
+        private double percentile = 0.95;
+        private long minDelayMillis = 2;
+        private long maxDelayMillis = 1000;
+        private long initialDelayMillis = 50;
+
+        // Hedges may add at most this percentage of extra reads
+        private double budgetPercent = 5;
+        private int maxBurst = 10;
+        private boolean hedgeOnSecondary = false;
+    }
+
+    /**
+     * Per customer balance summaries kept by AccountDAO, see AccountDAO.rebuildBalanceSummaries
+     */
+    @Data
+    public static class BalanceSummaries {
+
+        private boolean enabled = false;
+
+        // Recompute every summary at startup, which scans the account table
+        private boolean rebuildOnStartup = true;
+    }
+}
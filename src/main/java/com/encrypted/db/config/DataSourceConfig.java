@@ -0,0 +1,149 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.cache.CustomerCache;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.AsyncAccountDAO;
+import com.encrypted.db.dao.AsyncCustomerDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.DaoExecutor;
+import com.encrypted.db.dao.DaoMetrics;
+import com.encrypted.db.dao.HedgeOptions;
+import com.encrypted.db.dao.HedgedCustomerDAO;
+import com.encrypted.db.dao.HedgedReads;
+import com.encrypted.db.encryption.BlindIndex;
+import com.encrypted.db.encryption.CachingKeyStoreProvider;
+import com.encrypted.db.routing.ReadWriteDataSource;
+import com.encrypted.db.schema.SchemaMigration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+@Configuration
+@EnableConfigurationProperties({EncryptedDataSourceProperties.class, DaoProperties.class})
+public class DataSourceConfig {
+
+    private static final Logger LOG = Logger.getLogger(DataSourceConfig.class.getName());
+
+    // Primary so JPA, MyBatis and the health checks keep the primary pool when read routing adds a second DataSource
+    @Bean(destroyMethod = "close")
+    @Primary
+    public DataSource dataSource(EncryptedDataSourceProperties properties,
+                                 ObjectProvider<CachingKeyStoreProvider> cachingKeyStoreProvider) {
+        // The key store provider has to be registered with the driver before the pool opens its first connection
+        cachingKeyStoreProvider.getIfAvailable();
+
+        return ConnectionPoolFactory.createPool(properties);
+    }
+
+    // Migrates the primary before any DAO is created, so the DAOs never see a table without the columns they use
+    @Bean(initMethod = "migrate")
+    @ConditionalOnProperty(name = "encrypted.datasource.migrate-schema", havingValue = "true", matchIfMissing = true)
+    public SchemaMigration schemaMigration(DataSource dataSource) {
+        return new SchemaMigration(dataSource);
+    }
+
+    @Bean
+    public DaoMetrics daoMetrics(MeterRegistry meterRegistry, EncryptedDataSourceProperties properties) {
+        return new DaoMetrics(meterRegistry, "Enabled".equalsIgnoreCase(properties.getColumnEncryptionSetting()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "encrypted.dao.cache.enabled", havingValue = "true")
+    public CustomerCache customerCache(DaoProperties daoProperties) {
+        DaoProperties.Cache cache = daoProperties.getCache();
+        return new CustomerCache(cache.getTtlSeconds(), TimeUnit.SECONDS, cache.getMaxEntries());
+    }
+
+    // With read routing the DAOs send their read-only methods to the secondaries and everything else to the primary
+    @Bean
+    public AccountDAO accountDAO(DataSource dataSource, ObjectProvider<ReadWriteDataSource> readWriteDataSource,
+                                 DaoProperties daoProperties, DaoMetrics daoMetrics,
+                                 ObjectProvider<CustomerCache> customerCache, ObjectProvider<BlindIndex> blindIndex,
+                                 ObjectProvider<SchemaMigration> schemaMigration) {
+        schemaMigration.getIfAvailable();
+
+        return new AccountDAO(daoDataSource(dataSource, readWriteDataSource), daoMetrics,
+                customerCache.getIfAvailable(), blindIndex.getIfAvailable(),
+                daoProperties.getBalanceSummaries().isEnabled());
+    }
+
+    @Bean
+    public CustomerDAO customerDAO(DataSource dataSource, ObjectProvider<ReadWriteDataSource> readWriteDataSource,
+                                   DaoProperties daoProperties, DaoMetrics daoMetrics,
+                                   ObjectProvider<CustomerCache> customerCache, ObjectProvider<BlindIndex> blindIndex,
+                                   ObjectProvider<SchemaMigration> schemaMigration) {
+        schemaMigration.getIfAvailable();
+
+        return new CustomerDAO(daoDataSource(dataSource, readWriteDataSource), daoProperties.getBatchSize(),
+                daoMetrics, customerCache.getIfAvailable(), blindIndex.getIfAvailable(),
+                daoProperties.getBalanceSummaries().isEnabled());
+    }
+
+    // Summaries are only kept by the DAOs, so writes made while they were disabled are folded in at startup
+    @Bean
+    @ConditionalOnProperty(name = "encrypted.dao.balance-summaries.enabled", havingValue = "true")
+    public ApplicationRunner balanceSummariesRunner(AccountDAO accountDAO, DaoProperties daoProperties) {
+        return args -> {
+            if (daoProperties.getBalanceSummaries().isRebuildOnStartup()) {
+                LOG.info("Rebuilt balance summaries of " + accountDAO.rebuildBalanceSummaries() + " customers");
+            }
+        };
+    }
+
+    private static javax.sql.DataSource daoDataSource(DataSource dataSource,
+                                                      ObjectProvider<ReadWriteDataSource> readWriteDataSource) {
+        ReadWriteDataSource routing = readWriteDataSource.getIfAvailable();
+        if (routing == null) {
+            return dataSource;
+        }
+        return routing;
+    }
+
+    @Bean(destroyMethod = "close")
+    public DaoExecutor daoExecutor(DataSource dataSource, DaoProperties daoProperties) {
+        DaoProperties.Async async = daoProperties.getAsync();
+        int threads = async.getThreads() > 0 ? async.getThreads() : dataSource.getMaxActive();
+
+        return new DaoExecutor("dao", threads, async.getQueueCapacity(), async.getTimeoutMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Bean
+    public AsyncAccountDAO asyncAccountDAO(AccountDAO accountDAO, DaoExecutor daoExecutor) {
+        return new AsyncAccountDAO(accountDAO, daoExecutor);
+    }
+
+    @Bean
+    public AsyncCustomerDAO asyncCustomerDAO(CustomerDAO customerDAO, DaoExecutor daoExecutor) {
+        return new AsyncCustomerDAO(customerDAO, daoExecutor);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "encrypted.dao.hedge.enabled", havingValue = "true")
+    public HedgedCustomerDAO hedgedCustomerDAO(CustomerDAO customerDAO, DaoExecutor daoExecutor,
+                                               DaoProperties daoProperties) {
+        DaoProperties.Hedge hedge = daoProperties.getHedge();
+        HedgeOptions options = HedgeOptions.builder()
+                .percentile(hedge.getPercentile())
+                .minDelayMillis(hedge.getMinDelayMillis())
+                .maxDelayMillis(hedge.getMaxDelayMillis())
+                .initialDelayMillis(hedge.getInitialDelayMillis())
+                .budgetPercent(hedge.getBudgetPercent())
+                .maxBurst(hedge.getMaxBurst())
+                .hedgeOnSecondary(hedge.isHedgeOnSecondary())
+                .build();
+
+        return new HedgedCustomerDAO(customerDAO, new HedgedReads(daoExecutor, options));
+    }
+}
@@ -0,0 +1,80 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Connection settings for the Always Encrypted SQL Server database and the connection pool in front of it.
+ * Bound from the {@code encrypted.datasource} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.datasource")
+public class EncryptedDataSourceProperties {
+
+    private String url;
+    private String username;
+    private String password;
+
+    // Enabled to let the driver transparently encrypt / decrypt, Disabled to see the stored ciphertext
+    private String columnEncryptionSetting = "Enabled";
+
+    private String keyStoreLocation;
+    private String keyStoreSecret;
+    private String keyStoreAuthentication = "JavaKeyStorePassword";
+
+    // Default query timeout for every statement, so a stalled query releases its connection, 0 waits forever
+    private int queryTimeoutSeconds = 30;
+
+    // adaptive streams large results from the server as they are read instead of buffering them in full
+    private String responseBuffering = "adaptive";
+
+    // Prepared statement handles the driver keeps per connection, 0 disables driver statement pooling
+    private int statementPoolingCacheSize = 100;
+
+    // Add the columns and indexes the DAOs need to the acct tables at startup, see SchemaMigration
+    private boolean migrateSchema = true;
+
+    private Pool pool = new Pool();
+
+    /**
+     * Tomcat JDBC pool settings.  Defaults favour a small, validated pool that never blocks a caller forever.
+     */
+    @Data
+    public static class Pool {
+
+        private String name = "encrypted-db";
+
+        private int initialSize = 2;
+        private int minIdle = 2;
+        private int maxIdle = 10;
+        private int maxActive = 10;
+
+        // How long a caller waits for a free connection before an exception is thrown
+        private int maxWaitMillis = 5000;
+
+        private String validationQuery = "SELECT 1";
+        private int validationQueryTimeoutSeconds = 2;
+        private long validationIntervalMillis = 30000;
+        private boolean testOnBorrow = true;
+        private boolean testWhileIdle = true;
+
+        private int timeBetweenEvictionRunsMillis = 30000;
+        private int minEvictableIdleTimeMillis = 60000;
+
+        // Connections older than this are closed when returned, 0 disables
+        private long maxAgeMillis = 0;
+
+        private boolean removeAbandoned = false;
+        private int removeAbandonedTimeoutSeconds = 60;
+        private boolean logAbandoned = false;
+
+        private boolean jmxEnabled = true;
+
+        /*
+         * Prepared statements cached across the pool, 0 disables the cache.  A cached statement keeps the
+         * Always Encrypted parameter metadata the driver fetched on first execution.
+         */
+        private int statementCacheMax = 500;
+    }
+}
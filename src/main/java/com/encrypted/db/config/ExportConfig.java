@@ -0,0 +1,59 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.export.CustomerExport;
+import com.encrypted.db.export.ExportOptions;
+import com.encrypted.db.export.ExportReport;
+import com.encrypted.db.routing.ReadWriteDataSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+/**
+ * Exports every customer at startup, for example
+ * {@code java -jar encrypted-db.jar --spring.main.web-application-type=none --encrypted.export.directory=export}.
+ * With read routing the export reads from the secondaries.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.export", name = "directory")
+@EnableConfigurationProperties(ExportProperties.class)
+public class ExportConfig {
+
+    private static final Logger LOG = Logger.getLogger(ExportConfig.class.getName());
+
+    @Bean
+    public CustomerExport customerExport(DataSource dataSource, ObjectProvider<ReadWriteDataSource> readWriteDataSource,
+                                         ObjectMapper objectMapper) {
+        ReadWriteDataSource routing = readWriteDataSource.getIfAvailable();
+        if (routing == null) {
+            return new CustomerExport(dataSource, objectMapper.getFactory());
+        }
+        return new CustomerExport(routing.reads(), objectMapper.getFactory());
+    }
+
+    @Bean
+    public ApplicationRunner customerExportRunner(CustomerExport customerExport, ExportProperties properties) {
+        return args -> {
+            ExportReport report = customerExport.export(ExportOptions.builder()
+                    .directory(Paths.get(properties.getDirectory()))
+                    .format(properties.getFormat())
+                    .gzip(properties.isGzip())
+                    .rangeSize(properties.getRangeSize())
+                    .parallelism(properties.getParallelism())
+                    .fetchSize(properties.getFetchSize())
+                    .encrypted(properties.isEncrypted())
+                    .progressIntervalSeconds(properties.getProgressIntervalSeconds())
+                    .build());
+
+            LOG.info(report.toString());
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.export.ExportFormat;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Customer export run at startup when {@code encrypted.export.directory} is set.  Bound from the
+ * {@code encrypted.export} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.export")
+public class ExportProperties {
+
+    // Directory the shards are written to
+    private String directory;
+
+    private ExportFormat format = ExportFormat.NDJSON;
+    private boolean gzip = true;
+
+    private int rangeSize = 100000;
+
+    // Each worker holds a connection for the whole export, keep it below the pool's max-active
+    private int parallelism = 4;
+
+    private int fetchSize = 1000;
+    private boolean encrypted = false;
+    private long progressIntervalSeconds = 10;
+}
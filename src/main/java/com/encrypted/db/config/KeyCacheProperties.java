@@ -0,0 +1,24 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings for the cache of unwrapped column encryption keys.  Bound from the {@code encrypted.key-cache} properties.
+ * <p>
+ * The cache serves column master keys created with {@code KEY_STORE_PROVIDER_NAME} equal to {@code providerName};
+ * keys created for the built in {@code MSSQL_JAVA_KEYSTORE} provider are unwrapped by the driver as before.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.key-cache")
+public class KeyCacheProperties {
+
+    private boolean enabled = false;
+
+    // Custom provider names may not start with MSSQL_, that prefix is reserved for the driver's own providers
+    private String providerName = "CACHED_JAVA_KEYSTORE";
+
+    private long ttlSeconds = 7200;
+    private int maxEntries = 100;
+}
@@ -0,0 +1,61 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.encryption.CachingKeyStoreProvider;
+import com.encrypted.db.rotation.ColumnEncryptionKeyRotation;
+import com.encrypted.db.rotation.KeyRotationOptions;
+import com.encrypted.db.rotation.KeyRotationReport;
+import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionJavaKeyStoreProvider;
+import com.microsoft.sqlserver.jdbc.SQLServerException;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.logging.Logger;
+
+/**
+ * Rotates the column encryption key at startup, for example
+ * {@code java -jar encrypted-db.jar --encrypted.rotation.old-key-name=CEK1 --encrypted.rotation.new-key-name=CEK2}.
+ * The application keeps serving requests while the rows are re-encrypted.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.rotation", name = "new-key-name")
+@EnableConfigurationProperties(KeyRotationProperties.class)
+public class KeyRotationConfig {
+
+    private static final Logger LOG = Logger.getLogger(KeyRotationConfig.class.getName());
+
+    @Bean
+    public ColumnEncryptionKeyRotation columnEncryptionKeyRotation(DataSource dataSource,
+                                                                   EncryptedDataSourceProperties properties)
+            throws SQLServerException {
+        return new ColumnEncryptionKeyRotation(dataSource, new SQLServerColumnEncryptionJavaKeyStoreProvider(
+                properties.getKeyStoreLocation(), properties.getKeyStoreSecret().toCharArray()));
+    }
+
+    @Bean
+    public ApplicationRunner keyRotationRunner(ColumnEncryptionKeyRotation rotation, KeyRotationProperties properties,
+                                               DataSource dataSource,
+                                               ObjectProvider<CachingKeyStoreProvider> cachingKeyStoreProvider) {
+        return args -> {
+            KeyRotationReport report = rotation.rotate(KeyRotationOptions.builder()
+                    .oldKeyName(properties.getOldKeyName())
+                    .newKeyName(properties.getNewKeyName())
+                    .chunkSize(properties.getChunkSize())
+                    .threads(properties.getThreads())
+                    .maxRowsPerSecond(properties.getMaxRowsPerSecond())
+                    .retireOldKey(properties.isRetireOldKey())
+                    .build());
+
+            // Cached statements carry encryption metadata for the columns that were just replaced
+            ConnectionPoolFactory.invalidateStatementCaches(dataSource);
+            cachingKeyStoreProvider.ifAvailable(CachingKeyStoreProvider::flush);
+
+            LOG.info(report.toString());
+        };
+    }
+}
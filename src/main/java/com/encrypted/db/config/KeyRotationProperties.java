@@ -0,0 +1,25 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Column encryption key rotation run at startup when {@code encrypted.rotation.new-key-name} is set.
+ * Bound from the {@code encrypted.rotation} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.rotation")
+public class KeyRotationProperties {
+
+    private String oldKeyName;
+    private String newKeyName;
+
+    private int chunkSize = 10000;
+    private int threads = 4;
+
+    // Rows re-encrypted per second across all threads, 0 for no limit
+    private int maxRowsPerSecond = 0;
+
+    private boolean retireOldKey = true;
+}
@@ -0,0 +1,37 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.encryption.CachingKeyStoreProvider;
+import com.encrypted.db.encryption.KeyStoreProviders;
+import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionJavaKeyStoreProvider;
+import com.microsoft.sqlserver.jdbc.SQLServerException;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.key-cache", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(KeyCacheProperties.class)
+public class KeyStoreProviderConfig {
+
+    @Bean
+    public CachingKeyStoreProvider cachingKeyStoreProvider(KeyCacheProperties keyCacheProperties,
+                                                           EncryptedDataSourceProperties dataSourceProperties)
+            throws SQLServerException {
+
+        SQLServerColumnEncryptionJavaKeyStoreProvider javaKeyStoreProvider =
+                new SQLServerColumnEncryptionJavaKeyStoreProvider(dataSourceProperties.getKeyStoreLocation(),
+                        dataSourceProperties.getKeyStoreSecret().toCharArray());
+
+        CachingKeyStoreProvider provider = new CachingKeyStoreProvider(keyCacheProperties.getProviderName(),
+                javaKeyStoreProvider, keyCacheProperties.getTtlSeconds(), TimeUnit.SECONDS,
+                keyCacheProperties.getMaxEntries());
+
+        KeyStoreProviders.register(provider);
+
+        return provider;
+    }
+}
@@ -0,0 +1,139 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.cache.CustomerCache;
+import com.encrypted.db.dao.DaoExecutor;
+import com.encrypted.db.dao.HedgedCustomerDAO;
+import com.encrypted.db.encryption.CachingKeyStoreProvider;
+import com.encrypted.db.routing.ReadWriteDataSource;
+import com.encrypted.db.warmup.Warmup;
+import com.encrypted.db.writebehind.WriteBehindWriter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the DAO executor, column encryption key cache, hedged read, read routing, write-behind and warm-up counters
+ * alongside the DAO timers.
+ * The connection pool itself is published by Spring Boot's data source metrics.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder daoExecutorMetrics(DaoExecutor daoExecutor) {
+        return registry -> {
+            Gauge.builder("dao.executor.active", daoExecutor, e -> e.getStatistics().getActiveThreads())
+                    .register(registry);
+            Gauge.builder("dao.executor.queued", daoExecutor, e -> e.getStatistics().getQueued())
+                    .register(registry);
+            FunctionCounter.builder("dao.executor.rejected", daoExecutor, e -> e.getStatistics().getRejected())
+                    .register(registry);
+            FunctionCounter.builder("dao.executor.timed.out", daoExecutor, e -> e.getStatistics().getTimedOut())
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder keyCacheMetrics(ObjectProvider<CachingKeyStoreProvider> cachingKeyStoreProvider) {
+        return registry -> cachingKeyStoreProvider.ifAvailable(provider -> {
+            Gauge.builder("encryption.key.cache.size", provider, p -> p.getStatistics().getSize())
+                    .register(registry);
+            FunctionCounter.builder("encryption.key.cache.hits", provider, p -> p.getStatistics().getHits())
+                    .register(registry);
+            FunctionCounter.builder("encryption.key.cache.misses", provider, p -> p.getStatistics().getMisses())
+                    .register(registry);
+            FunctionCounter.builder("encryption.key.unwrap", provider, p -> p.getStatistics().getUnwrapCount())
+                    .description("Column encryption keys unwrapped with the column master key")
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder customerCacheMetrics(ObjectProvider<CustomerCache> customerCache) {
+        return registry -> customerCache.ifAvailable(cache -> {
+            Gauge.builder("dao.customer.cache.size", cache, c -> c.getStatistics().getSize())
+                    .register(registry);
+            FunctionCounter.builder("dao.customer.cache.hits", cache, c -> c.getStatistics().getHits())
+                    .register(registry);
+            FunctionCounter.builder("dao.customer.cache.misses", cache, c -> c.getStatistics().getMisses())
+                    .register(registry);
+            FunctionCounter.builder("dao.customer.cache.loads", cache, c -> c.getStatistics().getLoads())
+                    .register(registry);
+            FunctionCounter.builder("dao.customer.cache.coalesced", cache, c -> c.getStatistics().getCoalescedLoads())
+                    .description("Misses that waited on a load already running for the same customer")
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder hedgedReadMetrics(ObjectProvider<HedgedCustomerDAO> hedgedCustomerDAO) {
+        return registry -> hedgedCustomerDAO.ifAvailable(dao -> {
+            FunctionCounter.builder("dao.hedge.reads", dao, d -> d.getStatistics().getReads())
+                    .register(registry);
+            FunctionCounter.builder("dao.hedge.hedges", dao, d -> d.getStatistics().getHedges())
+                    .description("Reads sent a second time because the first attempt was slower than the hedge delay")
+                    .register(registry);
+            FunctionCounter.builder("dao.hedge.wins", dao, d -> d.getStatistics().getHedgeWins())
+                    .description("Reads answered by the hedge rather than the first attempt")
+                    .register(registry);
+            FunctionCounter.builder("dao.hedge.budget.exhausted", dao, d -> d.getStatistics().getBudgetExhausted())
+                    .register(registry);
+            TimeGauge.builder("dao.hedge.delay", dao, TimeUnit.MILLISECONDS, d -> d.getStatistics().getDelayMillis())
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder readRoutingMetrics(ObjectProvider<ReadWriteDataSource> readWriteDataSource) {
+        return registry -> readWriteDataSource.ifAvailable(routing -> {
+            FunctionCounter.builder("read.routing.secondary.reads", routing,
+                    r -> r.getStatistics().getSecondaryReads())
+                    .register(registry);
+            FunctionCounter.builder("read.routing.primary.reads", routing, r -> r.getStatistics().getPrimaryReads())
+                    .description("Reads sent to the primary because no secondary was healthy and fresh enough")
+                    .register(registry);
+            Gauge.builder("read.routing.usable.secondaries", routing, r -> r.getStatistics().getUsableSecondaries())
+                    .register(registry);
+            TimeGauge.builder("read.routing.max.lag", routing, TimeUnit.MILLISECONDS,
+                    r -> r.getStatistics().getMaxLagMillis())
+                    .description("Lag of the most stale healthy secondary")
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder writeBehindMetrics(ObjectProvider<WriteBehindWriter> writeBehindWriter) {
+        return registry -> writeBehindWriter.ifAvailable(writer -> {
+            FunctionCounter.builder("write.behind.applied", writer, w -> w.getStatistics().getApplied())
+                    .register(registry);
+            FunctionCounter.builder("write.behind.coalesced", writer, w -> w.getStatistics().getCoalesced())
+                    .description("Updates replaced by a later update of the same entity in the same batch")
+                    .register(registry);
+            FunctionCounter.builder("write.behind.batches", writer, w -> w.getStatistics().getBatches())
+                    .register(registry);
+            FunctionCounter.builder("write.behind.retried", writer, w -> w.getStatistics().getRetried())
+                    .register(registry);
+            FunctionCounter.builder("write.behind.dead.lettered", writer, w -> w.getStatistics().getDeadLettered())
+                    .register(registry);
+            TimeGauge.builder("write.behind.lag", writer, TimeUnit.MILLISECONDS, w -> w.getStatistics().getLagMillis())
+                    .description("Time between enqueue and commit of the most recently applied write")
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder warmupMetrics(ObjectProvider<Warmup> warmup) {
+        return registry -> warmup.ifAvailable(w ->
+                TimeGauge.builder("warmup.duration", w, TimeUnit.MILLISECONDS, Warmup::getElapsedMillis)
+                        .description("Time the startup warm-up took, or has taken so far")
+                        .register(registry));
+    }
+}
@@ -0,0 +1,49 @@
+package com.encrypted.db.config;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Point in time snapshot of the connection pool counters
+ */
+@Data
+@Builder
+public class PoolStatistics {
+
+    private int size;
+    private int active;
+    private int idle;
+    private int waitCount;
+    private int maxActive;
+
+    private long borrowedCount;
+    private long returnedCount;
+    private long createdCount;
+    private long releasedCount;
+    private long releasedIdleCount;
+    private long removeAbandonedCount;
+
+    /**
+     * Take a snapshot of the pool counters
+     *
+     * @param dataSource pooled data source
+     * @return pool statistics
+     */
+    public static PoolStatistics of(DataSource dataSource) {
+        return PoolStatistics.builder()
+                .size(dataSource.getSize())
+                .active(dataSource.getActive())
+                .idle(dataSource.getIdle())
+                .waitCount(dataSource.getWaitCount())
+                .maxActive(dataSource.getMaxActive())
+                .borrowedCount(dataSource.getBorrowedCount())
+                .returnedCount(dataSource.getReturnedCount())
+                .createdCount(dataSource.getCreatedCount())
+                .releasedCount(dataSource.getReleasedCount())
+                .releasedIdleCount(dataSource.getReleasedIdleCount())
+                .removeAbandonedCount(dataSource.getRemoveAbandonedCount())
+                .build();
+    }
+}
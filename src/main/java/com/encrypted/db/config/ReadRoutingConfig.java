@@ -0,0 +1,60 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.routing.ReadRoutingOptions;
+import com.encrypted.db.routing.ReadWriteDataSource;
+import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Routes the read-only DAO methods to readable secondaries, enabled by {@code encrypted.read-routing.enabled=true}.
+ * The DAOs pick up the routing data source, everything else keeps using the primary pool.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.read-routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReadRoutingProperties.class)
+public class ReadRoutingConfig {
+
+    private static final Logger LOG = Logger.getLogger(ReadRoutingConfig.class.getName());
+
+    private static final String READ_ONLY_INTENT = "ReadOnly";
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ReadWriteDataSource readWriteDataSource(DataSource dataSource, EncryptedDataSourceProperties properties,
+                                                   ReadRoutingProperties routing) {
+        if (routing.getSecondaryUrls().isEmpty()) {
+            LOG.warning("encrypted.read-routing is enabled without secondary-urls, reads stay on the primary");
+        }
+
+        List<DataSource> secondaries = new ArrayList<>();
+        for (String url : routing.getSecondaryUrls()) {
+            SQLServerDataSource sqlServerDataSource = ConnectionPoolFactory.createSqlServerDataSource(properties);
+            sqlServerDataSource.setURL(url);
+            sqlServerDataSource.setApplicationIntent(READ_ONLY_INTENT);
+
+            EncryptedDataSourceProperties.Pool pool = new EncryptedDataSourceProperties.Pool();
+            BeanUtils.copyProperties(routing.getPool(), pool);
+            pool.setName(routing.getPool().getName() + "-" + secondaries.size());
+
+            secondaries.add(ConnectionPoolFactory.createPool(sqlServerDataSource, pool));
+        }
+
+        ReadRoutingOptions options = ReadRoutingOptions.builder()
+                .maxStalenessMillis(routing.getMaxStalenessMillis())
+                .healthCheckIntervalMillis(routing.getHealthCheckIntervalMillis())
+                .healthCheckTimeoutSeconds(routing.getHealthCheckTimeoutSeconds())
+                .heartbeatTable(routing.getHeartbeatTable())
+                .build();
+
+        return new ReadWriteDataSource(dataSource, secondaries, options);
+    }
+}
@@ -0,0 +1,39 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Readable secondaries for read-only DAO methods, enabled by {@code encrypted.read-routing.enabled}.
+ * Bound from the {@code encrypted.read-routing} properties.  Secondaries use the credentials, key store and driver
+ * settings of {@code encrypted.datasource}.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.read-routing")
+public class ReadRoutingProperties {
+
+    private boolean enabled = false;
+
+    // JDBC URLs of the readable secondaries, ApplicationIntent=ReadOnly is added to each
+    private List<String> secondaryUrls = new ArrayList<>();
+
+    // Reads go to the primary while a secondary lags more than this, 0 ignores lag
+    private long maxStalenessMillis = 5000;
+
+    private long healthCheckIntervalMillis = 1000;
+    private int healthCheckTimeoutSeconds = 2;
+    private String heartbeatTable = "acct.replication_heartbeat";
+
+    // Pool settings of each secondary, the name gets the secondary's index appended
+    private EncryptedDataSourceProperties.Pool pool = defaultPool();
+
+    private static EncryptedDataSourceProperties.Pool defaultPool() {
+        EncryptedDataSourceProperties.Pool pool = new EncryptedDataSourceProperties.Pool();
+        pool.setName("encrypted-db-read");
+        return pool;
+    }
+}
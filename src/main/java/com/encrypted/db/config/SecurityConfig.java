@@ -5,15 +5,33 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 
+/**
+ * Customer and account endpoints need an authenticated user, over HTTP basic.  They return the stored ciphertext of
+ * ssn and account number unless asked for {@code encrypted=false}, which needs the {@value #PLAINTEXT_READER} role.
+ * Users come from the {@code spring.security.user} properties unless another user store is configured.
+ */
 @EnableWebSecurity
 @Configuration
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    // Role allowed to read decrypted ssns and account numbers
+    public static final String PLAINTEXT_READER = "PLAINTEXT_READER";
+
+    // Method security expression of the endpoints with an encrypted parameter
+    public static final String ENCRYPTED_OR_PLAINTEXT_READER = "#encrypted or hasRole('" + PLAINTEXT_READER + "')";
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
-        http.csrf().disable();
+        http.csrf().disable()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                .and()
+                .authorizeRequests()
+                .antMatchers("/customers/**", "/accounts/**").authenticated()
+                .anyRequest().permitAll()
+                .and()
+                .httpBasic();
     }
 }
@@ -0,0 +1,121 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.DaoExecutor;
+import com.encrypted.db.dao.DaoMetrics;
+import com.encrypted.db.encryption.BlindIndex;
+import com.encrypted.db.schema.SchemaMigration;
+import com.encrypted.db.sharding.RebalanceOptions;
+import com.encrypted.db.sharding.Shard;
+import com.encrypted.db.sharding.ShardCatalog;
+import com.encrypted.db.sharding.ShardRebalancer;
+import com.encrypted.db.sharding.ShardRouter;
+import com.encrypted.db.sharding.ShardedAccountDAO;
+import com.encrypted.db.sharding.ShardedCustomerDAO;
+import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Spreads customers and their accounts over several databases, enabled by {@code encrypted.sharding.enabled=true}.
+ * The sharded DAOs sit beside the single database DAOs, which keep working on the primary shard.  Every configured
+ * shard is given an id block at startup, and customers are rebalanced when {@code encrypted.sharding.rebalance=true}.
+ * <p>
+ * The shard DAOs do not use the customer cache, since the rebalancer moves customers past it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ShardingProperties.class)
+public class ShardingConfig {
+
+    private static final Logger LOG = Logger.getLogger(ShardingConfig.class.getName());
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ShardRouter shardRouter(DataSource dataSource, EncryptedDataSourceProperties properties,
+                                   ShardingProperties sharding, DaoProperties daoProperties, DaoMetrics daoMetrics,
+                                   ObjectProvider<BlindIndex> blindIndex, DaoExecutor daoExecutor,
+                                   ObjectProvider<SchemaMigration> schemaMigration) throws SQLException {
+        // The primary shard is migrated with the single database DAOs, the other shards here
+        schemaMigration.getIfAvailable();
+
+        List<Shard> shards = new ArrayList<>();
+        shards.add(createShard(sharding.getPrimaryShard(), dataSource, daoProperties, daoMetrics,
+                blindIndex.getIfAvailable(), false));
+
+        for (Map.Entry<String, String> entry : sharding.getShards().entrySet()) {
+            SQLServerDataSource sqlServerDataSource = ConnectionPoolFactory.createSqlServerDataSource(properties);
+            sqlServerDataSource.setURL(entry.getValue());
+
+            EncryptedDataSourceProperties.Pool pool = new EncryptedDataSourceProperties.Pool();
+            BeanUtils.copyProperties(sharding.getPool(), pool);
+            pool.setName(sharding.getPool().getName() + "-" + entry.getKey());
+
+            DataSource shardDataSource = ConnectionPoolFactory.createPool(sqlServerDataSource, pool);
+            if (properties.isMigrateSchema()) {
+                new SchemaMigration(shardDataSource).migrate();
+            }
+
+            shards.add(createShard(entry.getKey(), shardDataSource, daoProperties, daoMetrics,
+                    blindIndex.getIfAvailable(), true));
+        }
+
+        return new ShardRouter(shards, new ShardCatalog(dataSource), daoExecutor,
+                sharding.getRefreshIntervalMillis());
+    }
+
+    @Bean
+    public ShardedCustomerDAO shardedCustomerDAO(ShardRouter shardRouter) {
+        return new ShardedCustomerDAO(shardRouter);
+    }
+
+    @Bean
+    public ShardedAccountDAO shardedAccountDAO(ShardRouter shardRouter) {
+        return new ShardedAccountDAO(shardRouter);
+    }
+
+    @Bean
+    public ShardRebalancer shardRebalancer(ShardRouter shardRouter) {
+        return new ShardRebalancer(shardRouter);
+    }
+
+    // Adding a shard that already has a block only checks it, so every startup runs it for every shard
+    @Bean
+    public ApplicationRunner shardingRunner(ShardRouter shardRouter, ShardRebalancer shardRebalancer,
+                                            ShardingProperties sharding) {
+        return args -> {
+            for (Shard shard : shardRouter.getShards()) {
+                shardRebalancer.addShard(shard.getName(), sharding.getBlockSize());
+            }
+
+            if (sharding.isRebalance()) {
+                LOG.info(shardRebalancer.rebalance(RebalanceOptions.builder()
+                        .chunkSize(sharding.getChunkSize())
+                        .build()).toString());
+            }
+        };
+    }
+
+    private static Shard createShard(String name, DataSource dataSource, DaoProperties daoProperties,
+                                     DaoMetrics daoMetrics, BlindIndex blindIndex, boolean ownsDataSource) {
+        boolean balanceSummaries = daoProperties.getBalanceSummaries().isEnabled();
+        return new Shard(name, dataSource,
+                new CustomerDAO(dataSource, daoProperties.getBatchSize(), daoMetrics, null, blindIndex,
+                        balanceSummaries),
+                new AccountDAO(dataSource, daoMetrics, null, blindIndex, balanceSummaries),
+                ownsDataSource);
+    }
+}
@@ -0,0 +1,44 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Customers and accounts spread over several databases, enabled by {@code encrypted.sharding.enabled}.
+ * Bound from the {@code encrypted.sharding} properties.  Shards use the credentials, key store and driver settings of
+ * {@code encrypted.datasource}.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.sharding")
+public class ShardingProperties {
+
+    private boolean enabled = false;
+
+    // Name of the shard on the encrypted.datasource database, which also holds the shard map
+    private String primaryShard = "shard-0";
+
+    // JDBC URL of every other shard by name, a name must not change once it is in the shard map
+    private Map<String, String> shards = new LinkedHashMap<>();
+
+    // Customer ids given to each new shard
+    private int blockSize = 100_000_000;
+
+    private long refreshIntervalMillis = 10000;
+
+    // Even out customers over the shards at startup, after new shards have been added
+    private boolean rebalance = false;
+    private int chunkSize = 1000;
+
+    // Pool settings of each shard other than the primary, the name gets the shard name appended
+    private EncryptedDataSourceProperties.Pool pool = defaultPool();
+
+    private static EncryptedDataSourceProperties.Pool defaultPool() {
+        EncryptedDataSourceProperties.Pool pool = new EncryptedDataSourceProperties.Pool();
+        pool.setName("encrypted-db-shard");
+        return pool;
+    }
+}
@@ -0,0 +1,53 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.warmup.Warmup;
+import com.encrypted.db.warmup.WarmupHealthIndicator;
+import com.encrypted.db.warmup.WarmupOptions;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.logging.Logger;
+
+/**
+ * Warms up the connection pool, column encryption keys, statement caches and DAOs at startup.  The {@code warmup}
+ * health indicator reports out of service until the warm-up has finished, so a readiness probe on
+ * {@code /actuator/health} keeps traffic away from a cold instance.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.warmup", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(WarmupProperties.class)
+public class WarmupConfig {
+
+    private static final Logger LOG = Logger.getLogger(WarmupConfig.class.getName());
+
+    @Bean
+    public Warmup warmup(DataSource dataSource, CustomerDAO customerDAO, AccountDAO accountDAO) {
+        return new Warmup(dataSource, customerDAO, accountDAO);
+    }
+
+    @Bean
+    public WarmupHealthIndicator warmupHealthIndicator(Warmup warmup) {
+        return new WarmupHealthIndicator(warmup);
+    }
+
+    @Bean
+    public ApplicationRunner warmupRunner(Warmup warmup, WarmupProperties properties, DataSource dataSource) {
+        return args -> {
+            int connections = properties.getConnections() > 0 ? properties.getConnections()
+                    : Math.max(1, Math.min(dataSource.getMaxIdle(), dataSource.getMaxActive()));
+
+            LOG.info(warmup.warmUp(WarmupOptions.builder()
+                    .connections(connections)
+                    .iterations(properties.getIterations())
+                    .timeoutSeconds(properties.getTimeoutSeconds())
+                    .build()).toString());
+        };
+    }
+}
@@ -0,0 +1,21 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Startup warm-up, see Warmup.  Bound from the {@code encrypted.warmup} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+
+    // 0 opens as many connections as the pool keeps idle
+    private int connections = 0;
+
+    private int iterations = 200;
+    private long timeoutSeconds = 60;
+}
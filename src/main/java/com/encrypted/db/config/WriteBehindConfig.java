@@ -0,0 +1,91 @@
+package com.encrypted.db.config;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.writebehind.PayloadCipher;
+import com.encrypted.db.writebehind.WriteBehindDAO;
+import com.encrypted.db.writebehind.WriteBehindOptions;
+import com.encrypted.db.writebehind.WriteBehindWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.RedeliveryPolicy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Write-behind DAO and the consumers that apply its writes, enabled by {@code encrypted.write-behind.enabled=true}.
+ * The broker connection is separate from Spring Boot's JMS connection factory so its redelivery policy and
+ * acknowledgement mode can not be changed by other JMS users.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "encrypted.write-behind", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(WriteBehindProperties.class)
+public class WriteBehindConfig {
+
+    @Bean
+    public PayloadCipher writeBehindPayloadCipher(WriteBehindProperties properties) {
+        if (properties.getPayloadKey() == null) {
+            throw new IllegalStateException("encrypted.write-behind.payload-key is required");
+        }
+
+        byte[] key = Base64.getDecoder().decode(properties.getPayloadKey());
+        try {
+            return new PayloadCipher(key);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteBehindDAO writeBehindDAO(WriteBehindProperties properties, PayloadCipher writeBehindPayloadCipher) {
+        return new WriteBehindDAO(connectionFactory(properties), properties.getQueue(), writeBehindPayloadCipher);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public WriteBehindWriter writeBehindWriter(WriteBehindProperties properties, CustomerDAO customerDAO,
+                                               AccountDAO accountDAO, ObjectMapper objectMapper,
+                                               PayloadCipher writeBehindPayloadCipher) {
+        WriteBehindOptions options = WriteBehindOptions.builder()
+                .queue(properties.getQueue())
+                .deadLetterQueue(properties.getDeadLetterQueue())
+                .consumers(properties.getConsumers())
+                .batchSize(properties.getBatchSize())
+                .maxWaitMillis(properties.getMaxWaitMillis())
+                .maxDeliveries(properties.getMaxDeliveries())
+                .build();
+
+        return new WriteBehindWriter(connectionFactory(properties), customerDAO, accountDAO, objectMapper,
+                writeBehindPayloadCipher, options);
+    }
+
+    /**
+     * Create a connection factory for the write-behind broker
+     *
+     * @param properties write-behind properties
+     * @return connection factory
+     */
+    static ActiveMQConnectionFactory connectionFactory(WriteBehindProperties properties) {
+        ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(properties.getBrokerUrl());
+        if (properties.getBrokerUsername() != null) {
+            connectionFactory.setUserName(properties.getBrokerUsername());
+            connectionFactory.setPassword(properties.getBrokerPassword());
+        }
+
+        // The writer dead letters messages itself, so the broker redelivers without limit
+        RedeliveryPolicy redeliveryPolicy = new RedeliveryPolicy();
+        redeliveryPolicy.setMaximumRedeliveries(RedeliveryPolicy.NO_MAXIMUM_REDELIVERIES);
+        redeliveryPolicy.setInitialRedeliveryDelay(properties.getInitialRedeliveryDelayMillis());
+        redeliveryPolicy.setRedeliveryDelay(properties.getInitialRedeliveryDelayMillis());
+        redeliveryPolicy.setUseExponentialBackOff(properties.getRedeliveryBackOffMultiplier() > 1);
+        redeliveryPolicy.setBackOffMultiplier(properties.getRedeliveryBackOffMultiplier());
+        connectionFactory.setRedeliveryPolicy(redeliveryPolicy);
+
+        return connectionFactory;
+    }
+}
@@ -0,0 +1,36 @@
+package com.encrypted.db.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Write-behind queue in front of the DAOs, enabled by {@code encrypted.write-behind.enabled}.
+ * Bound from the {@code encrypted.write-behind} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "encrypted.write-behind")
+public class WriteBehindProperties {
+
+    private boolean enabled = false;
+
+    // The default embedded, non persistent broker loses queued writes when the application stops
+    private String brokerUrl = "vm://localhost?broker.persistent=false";
+    private String brokerUsername;
+    private String brokerPassword;
+
+    // Base64 of the 16, 24 or 32 byte AES key sealing the queued writes, shared by every instance
+    private String payloadKey;
+
+    private String queue = "encrypted.writes";
+    private String deadLetterQueue = "encrypted.writes.DLQ";
+
+    private int consumers = 4;
+    private int batchSize = 500;
+    private long maxWaitMillis = 50;
+
+    // Deliveries of a failing write before it is dead lettered, and the delay before the first redelivery
+    private int maxDeliveries = 5;
+    private long initialRedeliveryDelayMillis = 1000;
+    private double redeliveryBackOffMultiplier = 2;
+}
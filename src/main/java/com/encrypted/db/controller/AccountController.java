@@ -0,0 +1,86 @@
+package com.encrypted.db.controller;
+
+import com.encrypted.db.config.SecurityConfig;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.BalanceBucket;
+import com.encrypted.db.dao.BalanceSummary;
+import com.encrypted.db.dao.ChangeBatch;
+import com.encrypted.db.entity.Account;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Accounts by id, the account change feed and balance aggregates.  Accounts of a customer and their balance are under
+ * {@link CustomerController}.  Account numbers are returned as ciphertext unless {@code encrypted=false}, see
+ * {@link SecurityConfig}.
+ */
+@RestController
+@RequestMapping("/accounts")
+public class AccountController {
+
+    private final AccountDAO accountDAO;
+    private final ObjectMapper objectMapper;
+
+    public AccountController(AccountDAO accountDAO, ObjectMapper objectMapper) {
+        this.accountDAO = accountDAO;
+        this.objectMapper = objectMapper;
+    }
+
+    @PreAuthorize(SecurityConfig.ENCRYPTED_OR_PLAINTEXT_READER)
+    @GetMapping("/changes")
+    public ChangePage getAccountChanges(@RequestParam(defaultValue = "0") long since,
+                                        @RequestParam(defaultValue = "" + CustomerController.DEFAULT_PAGE_SIZE)
+                                                int limit,
+                                        @RequestParam(required = false) String fields,
+                                        @RequestParam(defaultValue = "true") boolean encrypted)
+            throws SQLException {
+        CustomerController.checkLimit(limit);
+        FieldProjection projection = FieldProjection.parse(fields, CustomerController.ACCOUNT_FIELDS);
+
+        ChangeBatch<Account> changes = accountDAO.getAccountChanges(since, limit, encrypted);
+        return new ChangePage(CustomerController.project(objectMapper, projection, changes.getItems()),
+                changes.getNextToken(), changes.isComplete());
+    }
+
+    @GetMapping("/top-customers")
+    public List<BalanceSummary> getTopCustomers(@RequestParam(defaultValue = "10") int limit) throws SQLException {
+        CustomerController.checkLimit(limit);
+        return accountDAO.getTopCustomersByBalance(limit);
+    }
+
+    @GetMapping("/balance-buckets")
+    public List<BalanceBucket> getBalanceBuckets(@RequestParam double[] bounds) throws SQLException {
+        try {
+            return accountDAO.getBalanceBuckets(bounds);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @PreAuthorize(SecurityConfig.ENCRYPTED_OR_PLAINTEXT_READER)
+    @GetMapping("/{id}")
+    public JsonNode getAccount(@PathVariable int id,
+                               @RequestParam(required = false) String fields,
+                               @RequestParam(defaultValue = "true") boolean encrypted) throws SQLException {
+        FieldProjection projection = FieldProjection.parse(fields, CustomerController.ACCOUNT_FIELDS);
+
+        Account account = accountDAO.getAccountById(id, encrypted);
+        if (account == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Account " + id + " not found");
+        }
+
+        return projection.apply(objectMapper, account);
+    }
+}
@@ -0,0 +1,24 @@
+package com.encrypted.db.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One batch of a change feed.  The next batch is requested with {@code since=nextToken}.
+ */
+@Data
+@AllArgsConstructor
+public class ChangePage {
+
+    private List<JsonNode> items;
+
+    // Token to pass as since for the next batch, keep it to resume the feed later
+    private long nextToken;
+
+    // True if the feed was caught up when the batch was read
+    private boolean complete;
+}
@@ -0,0 +1,239 @@
+package com.encrypted.db.controller;
+
+import com.encrypted.db.codec.EntityJsonWriter;
+import com.encrypted.db.config.SecurityConfig;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.BalanceSummary;
+import com.encrypted.db.dao.ChangeBatch;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.CustomerField;
+import com.encrypted.db.dao.HedgedCustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Customers and their accounts.
+ * <p>
+ * Listings use keyset pagination: each page starts after the last id of the previous page, so deep pages cost the same
+ * as the first.  The {@code /stream} variants write every row as newline delimited JSON while it is read from the
+ * database, holding one row in memory at a time.  {@code /changes} returns the customers written since a change token,
+ * so a consumer can sync deltas instead of re-reading every customer.  Listings and customers by id only read the
+ * columns the {@code fields} parameter asks for.
+ * <p>
+ * Ssns and account numbers are returned as the stored ciphertext unless {@code encrypted=false} is asked for, which
+ * needs the plaintext reader role, see {@link SecurityConfig}.
+ */
+@RestController
+@RequestMapping("/customers")
+public class CustomerController {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final Set<String> CUSTOMER_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(
+            Arrays.asList("id", "ssn", "firstName", "middleInitial", "lastName", "accounts")));
+    static final Set<String> ACCOUNT_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(
+            Arrays.asList("id", "customerId", "accountNumber", "balance")));
+
+    private static final String FIELD_ACCOUNTS = "accounts";
+
+    private final CustomerDAO customerDAO;
+    private final AccountDAO accountDAO;
+    private final ObjectMapper objectMapper;
+
+    // Null unless encrypted.dao.hedge.enabled is set
+    private final HedgedCustomerDAO hedgedCustomerDAO;
+
+    public CustomerController(CustomerDAO customerDAO, AccountDAO accountDAO, ObjectMapper objectMapper,
+                              ObjectProvider<HedgedCustomerDAO> hedgedCustomerDAO) {
+        this.customerDAO = customerDAO;
+        this.accountDAO = accountDAO;
+        this.objectMapper = objectMapper;
+        this.hedgedCustomerDAO = hedgedCustomerDAO.getIfAvailable();
+    }
+
+    @PreAuthorize(SecurityConfig.ENCRYPTED_OR_PLAINTEXT_READER)
+    @GetMapping
+    public KeysetPage getCustomers(@RequestParam(defaultValue = "0") int after,
+                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                   @RequestParam(required = false) String fields,
+                                   @RequestParam(defaultValue = "true") boolean encrypted) throws SQLException {
+        checkLimit(limit);
+        FieldProjection projection = FieldProjection.parse(fields, CUSTOMER_FIELDS);
+
+        List<Customer> customers = customerDAO.getCustomersAfter(after, limit, customerFields(projection), encrypted,
+                false);
+
+        Integer nextAfter = customers.size() < limit ? null : customers.get(customers.size() - 1).getId();
+        return new KeysetPage(project(projection, customers), nextAfter);
+    }
+
+    @PreAuthorize(SecurityConfig.ENCRYPTED_OR_PLAINTEXT_READER)
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamCustomers(
+            @RequestParam(defaultValue = "0") int after,
+            @RequestParam(defaultValue = "" + AccountDAO.DEFAULT_FETCH_SIZE) int fetchSize,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "true") boolean encrypted) {
+        FieldProjection projection = FieldProjection.parse(fields, CUSTOMER_FIELDS);
+        if (fields != null && projection.includes(FIELD_ACCOUNTS)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "accounts can not be streamed with customers, use /customers/{id}/accounts/stream");
+        }
+
+        StreamingResponseBody body = out -> {
+            try (Stream<Customer> customers = customerDAO.streamCustomersAfter(after, encrypted, fetchSize)) {
+                if (fields == null) {
+                    JsonLines.write(objectMapper, out, customers, EntityJsonWriter::writeCustomer);
+                } else {
+                    JsonLines.write(objectMapper, out,
+                            customers.map(customer -> projection.apply(objectMapper, customer)));
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        };
+
+        return ResponseEntity.ok().contentType(JsonLines.APPLICATION_NDJSON).body(body);
+    }
+
+    @PreAuthorize(SecurityConfig.ENCRYPTED_OR_PLAINTEXT_READER)
+    @GetMapping("/changes")
+    public ChangePage getCustomerChanges(@RequestParam(defaultValue = "0") long since,
+                                         @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                         @RequestParam(required = false) String fields,
+                                         @RequestParam(defaultValue = "true") boolean encrypted)
+            throws SQLException {
+        checkLimit(limit);
+        FieldProjection projection = FieldProjection.parse(fields, CUSTOMER_FIELDS);
+        if (fields != null && projection.includes(FIELD_ACCOUNTS)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "accounts are not part of the customer change feed, use /accounts/changes");
+        }
+
+        ChangeBatch<Customer> changes = customerDAO.getCustomerChanges(since, limit, encrypted);
+        return new ChangePage(project(projection, changes.getItems()), changes.getNextToken(), changes.isComplete());
+    }
+
+    @PreAuthorize(SecurityConfig.ENCRYPTED_OR_PLAINTEXT_READER)
+    @GetMapping("/{id}")
+    public JsonNode getCustomer(@PathVariable int id,
+                                @RequestParam(required = false) String fields,
+                                @RequestParam(defaultValue = "true") boolean encrypted) throws SQLException {
+        FieldProjection projection = FieldProjection.parse(fields, CUSTOMER_FIELDS);
+
+        // Complete customers come from the customer cache, with hedged reads of a miss if enabled, projections
+        // straight from the database
+        Customer customer;
+        if (fields != null) {
+            customer = customerDAO.getCustomerById(id, customerFields(projection), encrypted, false);
+        } else if (hedgedCustomerDAO != null) {
+            customer = hedgedCustomerDAO.getCustomerById(id, encrypted);
+        } else {
+            customer = customerDAO.getCustomerById(id, encrypted);
+        }
+        if (customer == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Customer " + id + " not found");
+        }
+
+        return projection.apply(objectMapper, customer);
+    }
+
+    @PreAuthorize(SecurityConfig.ENCRYPTED_OR_PLAINTEXT_READER)
+    @GetMapping("/{id}/accounts")
+    public KeysetPage getAccounts(@PathVariable int id,
+                                  @RequestParam(defaultValue = "0") int after,
+                                  @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                  @RequestParam(required = false) String fields,
+                                  @RequestParam(defaultValue = "true") boolean encrypted) throws SQLException {
+        checkLimit(limit);
+        FieldProjection projection = FieldProjection.parse(fields, ACCOUNT_FIELDS);
+
+        List<Account> accounts = accountDAO.getAccountsByCustomerIdAfter(id, after, limit, encrypted);
+
+        Integer nextAfter = accounts.size() < limit ? null : accounts.get(accounts.size() - 1).getId();
+        return new KeysetPage(project(projection, accounts), nextAfter);
+    }
+
+    @GetMapping("/{id}/balance")
+    public BalanceSummary getBalance(@PathVariable int id) throws SQLException {
+        return accountDAO.getBalanceSummary(id);
+    }
+
+    @PreAuthorize(SecurityConfig.ENCRYPTED_OR_PLAINTEXT_READER)
+    @GetMapping("/{id}/accounts/stream")
+    public ResponseEntity<StreamingResponseBody> streamAccounts(
+            @PathVariable int id,
+            @RequestParam(defaultValue = "" + AccountDAO.DEFAULT_FETCH_SIZE) int fetchSize,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "true") boolean encrypted) {
+        FieldProjection projection = FieldProjection.parse(fields, ACCOUNT_FIELDS);
+
+        StreamingResponseBody body = out -> {
+            try (Stream<Account> accounts = accountDAO.streamAccountsByCustomerId(id, encrypted, fetchSize)) {
+                if (fields == null) {
+                    JsonLines.write(objectMapper, out, accounts, EntityJsonWriter::writeAccount);
+                } else {
+                    JsonLines.write(objectMapper, out,
+                            accounts.map(account -> projection.apply(objectMapper, account)));
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        };
+
+        return ResponseEntity.ok().contentType(JsonLines.APPLICATION_NDJSON).body(body);
+    }
+
+    static List<JsonNode> project(ObjectMapper objectMapper, FieldProjection projection, List<?> entities) {
+        return entities.stream()
+                .map(entity -> projection.apply(objectMapper, entity))
+                .collect(Collectors.toList());
+    }
+
+    private List<JsonNode> project(FieldProjection projection, List<?> entities) {
+        return project(objectMapper, projection, entities);
+    }
+
+    private static Set<CustomerField> customerFields(FieldProjection projection) {
+        Set<CustomerField> fields = EnumSet.noneOf(CustomerField.class);
+        for (CustomerField field : CustomerField.values()) {
+            if (projection.includes(field.getProperty())) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.encrypted.db.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fields of an entity a client asked for with the {@code fields} request parameter
+ */
+final class FieldProjection {
+
+    // null selects every field
+    private final Set<String> fields;
+
+    private FieldProjection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Parse a comma separated list of field names
+     *
+     * @param fields requested fields, null or blank for every field
+     * @param allowed fields the entity has
+     * @return projection
+     * @throws ResponseStatusException 400 if an unknown field is requested
+     */
+    static FieldProjection parse(String fields, Set<String> allowed) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return new FieldProjection(null);
+        }
+
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        for (String field : requested) {
+            if (!allowed.contains(field)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown field '" + field + "', expected one of " + allowed);
+            }
+        }
+
+        return new FieldProjection(requested);
+    }
+
+    /**
+     * @param field field name
+     * @return true if the field is part of the projection
+     */
+    boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    /**
+     * Convert an entity to JSON keeping only the projected fields
+     *
+     * @param objectMapper mapper to convert with
+     * @param entity entity to convert
+     * @return projected JSON object
+     */
+    JsonNode apply(ObjectMapper objectMapper, Object entity) {
+        ObjectNode node = objectMapper.valueToTree(entity);
+        if (fields != null) {
+            node.retain(fields);
+        }
+        return node;
+    }
+}
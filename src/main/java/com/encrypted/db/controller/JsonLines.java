@@ -0,0 +1,82 @@
+package com.encrypted.db.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes newline delimited JSON, one object per line, flushing as it goes so the client sees rows as they are read
+ */
+final class JsonLines {
+
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // Rows written between flushes of the response
+    private static final int FLUSH_EVERY = 100;
+
+    private JsonLines() {
+    }
+
+    /**
+     * Writes one row as a JSON value
+     *
+     * @param <T> row type
+     */
+    @FunctionalInterface
+    interface RowWriter<T> {
+        void write(JsonGenerator generator, T row) throws IOException;
+    }
+
+    /**
+     * Write every element of a stream as a line of JSON
+     *
+     * @param objectMapper mapper to write with
+     * @param out response body
+     * @param rows rows to write
+     * @return number of rows written
+     * @throws IOException thrown if the client went away
+     */
+    static long write(ObjectMapper objectMapper, OutputStream out, Stream<JsonNode> rows) throws IOException {
+        return write(objectMapper, out, rows, JsonGenerator::writeTree);
+    }
+
+    /**
+     * Write every element of a stream as a line of JSON with a row writer, which saves building a tree per row
+     *
+     * @param objectMapper mapper whose factory creates the generator
+     * @param out response body
+     * @param rows rows to write
+     * @param writer writes one row
+     * @param <T> row type
+     * @return number of rows written
+     * @throws IOException thrown if the client went away
+     */
+    static <T> long write(ObjectMapper objectMapper, OutputStream out, Stream<T> rows, RowWriter<T> writer)
+            throws IOException {
+        long written = 0;
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(generator, iterator.next());
+                generator.writeRaw('\n');
+
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+        }
+
+        out.flush();
+        return written;
+    }
+}
@@ -0,0 +1,21 @@
+package com.encrypted.db.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One page of a keyset paginated listing.  The next page is requested with {@code after=nextAfter}.
+ */
+@Data
+@AllArgsConstructor
+public class KeysetPage {
+
+    private List<JsonNode> items;
+
+    // Id to pass as after for the next page, null on the last page
+    private Integer nextAfter;
+}
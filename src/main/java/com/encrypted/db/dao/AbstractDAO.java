@@ -0,0 +1,87 @@
+package com.encrypted.db.dao;
+
+import com.encrypted.db.routing.ReadWriteDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection and statement handling shared by the DAOs, instrumented through {@link DaoMetrics}
+ */
+abstract class AbstractDAO {
+
+    /*
+     * Rows changed after a change token, in change order, formatted with the select list, schema and table.
+     * Rows at or above MIN_ACTIVE_ROWVERSION() may belong to open transactions and are left for the next call.
+     * The row_version column is added to existing tables by SchemaMigration.
+     */
+    static final String CHANGES_SQL = "SELECT TOP (?) %s, CAST(row_version AS BIGINT) AS change_token FROM %s.%s " +
+            "WHERE row_version > CAST(? AS BINARY(8)) AND row_version < MIN_ACTIVE_ROWVERSION() ORDER BY row_version";
+
+    protected final DataSource dataSource;
+    protected final DaoMetrics metrics;
+
+    // Secondaries for read-only methods when the data source routes reads, otherwise the data source itself
+    private final DataSource readDataSource;
+
+    AbstractDAO(DataSource dataSource, DaoMetrics metrics) {
+        this.dataSource = dataSource;
+        this.metrics = metrics;
+        this.readDataSource = dataSource instanceof ReadWriteDataSource
+                ? ((ReadWriteDataSource) dataSource).reads()
+                : dataSource;
+    }
+
+    /**
+     * Borrow a connection from the data source
+     *
+     * @return connection
+     * @throws SQLException thrown if no connection could be obtained
+     */
+    protected Connection getConnection() throws SQLException {
+        return metrics.acquire(dataSource);
+    }
+
+    /**
+     * Borrow a connection for a read that may see data slightly behind the primary, from a readable secondary if the
+     * data source routes reads.  Reads that must see the caller's own writes use {@link #getConnection()}.
+     *
+     * @return connection
+     * @throws SQLException thrown if no connection could be obtained
+     */
+    protected Connection getReadConnection() throws SQLException {
+        return metrics.acquire(readDataSource);
+    }
+
+    /**
+     * Prepare a parameterised statement
+     *
+     * @param con connection to prepare on
+     * @param sql statement text
+     * @return prepared statement
+     * @throws SQLException thrown if error preparing the statement
+     */
+    protected PreparedStatement prepare(Connection con, String sql) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql);
+        metrics.statementPrepared(ps);
+        return ps;
+    }
+
+    /**
+     * Prepare a parameterised statement that returns generated keys
+     *
+     * @param con connection to prepare on
+     * @param sql statement text
+     * @param autoGeneratedKeys one of the {@link java.sql.Statement} generated keys constants
+     * @return prepared statement
+     * @throws SQLException thrown if error preparing the statement
+     */
+    protected PreparedStatement prepare(Connection con, String sql, int autoGeneratedKeys) throws SQLException {
+        PreparedStatement ps = con.prepareStatement(sql, autoGeneratedKeys);
+        metrics.statementPrepared(ps);
+        return ps;
+    }
+}
@@ -1,35 +1,198 @@
 package com.encrypted.db.dao;
 
+import com.encrypted.db.cache.CustomerCache;
+import com.encrypted.db.encryption.BlindIndex;
 import com.encrypted.db.entity.Account;
-import com.microsoft.sqlserver.jdbc.SQLServerConnection;
-import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
+import com.microsoft.sqlserver.jdbc.SQLServerStatement;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
 
 /**
- * Account Data Access
+ * Account Data Access.
+ * <p>
+ * Balance aggregates are computed by the database over the unencrypted balance column, so they never move or decrypt
+ * account numbers.  With balance summaries enabled the per customer aggregates are kept in
+ * {@code acct.customer_balance} by every account write of this DAO, in the write's transaction, and read from there in
+ * constant time.
  */
-public class AccountDAO {
+public class AccountDAO extends AbstractDAO {
 
     public static final String SCHEMA = "acct";
     public static final String TABLE_ACCOUNT = "account";
+    public static final String TABLE_BALANCE_SUMMARY = "customer_balance";
 
-    private static final String COLUMN_ID = "id";
-    private static final String COLUMN_CUSTOMER_ID = "customer_id";
+    static final String COLUMN_ID = "id";
+    static final String COLUMN_CUSTOMER_ID = "customer_id";
     private static final String COLUMN_ACCOUNT_NUMBER = "account_number";
     private static final String COLUMN_BALANCE = "balance";
+    private static final String COLUMN_ACCOUNT_NUMBER_INDEX = "account_number_index";
+    private static final String COLUMN_CHANGE_TOKEN = "change_token";
 
     private static final String ALL_COLUMNS = String.format("%s, %s, %s, %s", COLUMN_ID, COLUMN_CUSTOMER_ID,
             COLUMN_ACCOUNT_NUMBER, COLUMN_BALANCE);
+    private static final String ENCRYPTED_COLUMNS = String.format("%s, %s, CONVERT(NVARCHAR, %s, 2) as account_number, %s",
+            COLUMN_ID, COLUMN_CUSTOMER_ID, COLUMN_ACCOUNT_NUMBER, COLUMN_BALANCE);
+
+    /*
+     * SQL is built once so every call prepares the identical text.  The pooled connections cache prepared
+     * statements by text, which lets the driver reuse the Always Encrypted parameter metadata it already fetched.
+     */
+    private static final String INSERT_SQL = String.format("INSERT INTO %s.%s (%s, %s, %s, %s) VALUES (?, ?, ?, ?)",
+            SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID, COLUMN_ACCOUNT_NUMBER, COLUMN_BALANCE,
+            COLUMN_ACCOUNT_NUMBER_INDEX);
+    private static final String SELECT_BY_ID_SQL = String.format("SELECT %s FROM %s.%s WHERE %s = ?",
+            ALL_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_ID);
+    private static final String SELECT_ENCRYPTED_BY_ID_SQL = String.format("SELECT %s FROM %s.%s WHERE %s = ?",
+            ENCRYPTED_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_ID);
+    private static final String SELECT_BY_CUSTOMER_ID_SQL = String.format("SELECT %s FROM %s.%s WHERE %s = ?",
+            ALL_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID);
+    private static final String SELECT_PAGE_BY_CUSTOMER_ID_SQL = String.format(
+            "SELECT TOP (?) %s FROM %s.%s WHERE %s = ? AND %s > ? ORDER BY %s",
+            ALL_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID, COLUMN_ID, COLUMN_ID);
+    private static final String SELECT_ENCRYPTED_PAGE_BY_CUSTOMER_ID_SQL = String.format(
+            "SELECT TOP (?) %s FROM %s.%s WHERE %s = ? AND %s > ? ORDER BY %s",
+            ENCRYPTED_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID, COLUMN_ID, COLUMN_ID);
+    private static final String SELECT_BY_ACCOUNT_NUMBER_INDEX_SQL = String.format(
+            "SELECT %s FROM %s.%s WHERE %s = ? ORDER BY %s",
+            ALL_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_ACCOUNT_NUMBER_INDEX, COLUMN_ID);
+    private static final String SELECT_ENCRYPTED_BY_ACCOUNT_NUMBER_INDEX_SQL = String.format(
+            "SELECT %s FROM %s.%s WHERE %s = ? ORDER BY %s",
+            ENCRYPTED_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_ACCOUNT_NUMBER_INDEX, COLUMN_ID);
+    private static final String SELECT_CHANGES_SQL = String.format(CHANGES_SQL, ALL_COLUMNS, SCHEMA, TABLE_ACCOUNT);
+    private static final String SELECT_ENCRYPTED_CHANGES_SQL = String.format(CHANGES_SQL, ENCRYPTED_COLUMNS, SCHEMA,
+            TABLE_ACCOUNT);
+    private static final String SELECT_ENCRYPTED_BY_CUSTOMER_ID_SQL = String.format("SELECT %s FROM %s.%s WHERE %s = ?",
+            ENCRYPTED_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID);
+    /*
+     * Returns the customer and balance of the account before the update, so both customers can be invalidated and
+     * their balance summaries adjusted.
+     * OUTPUT goes through a table variable because a plain OUTPUT clause is rejected on tables with triggers.
+     */
+    private static final String UPDATE_SQL = String.format("DECLARE @previous TABLE (%s INT, %s FLOAT); " +
+                    "UPDATE %s.%s SET %s = ?, %s = ?, %s = ?, %s = ? OUTPUT DELETED.%s, DELETED.%s INTO @previous " +
+                    "WHERE %s = ?; SELECT %s, %s FROM @previous",
+            COLUMN_CUSTOMER_ID, COLUMN_BALANCE, SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID, COLUMN_ACCOUNT_NUMBER,
+            COLUMN_BALANCE, COLUMN_ACCOUNT_NUMBER_INDEX, COLUMN_CUSTOMER_ID, COLUMN_BALANCE, COLUMN_ID,
+            COLUMN_CUSTOMER_ID, COLUMN_BALANCE);
+
+    /*
+     * Aggregates over the unencrypted balance column, which never touch account_number.  With balance summaries the
+     * per customer figures are read from acct.customer_balance instead, which AccountDAO keeps up to date in the
+     * transaction of every account write.
+     */
+    private static final String BALANCE_SUMMARY = SCHEMA + "." + TABLE_BALANCE_SUMMARY;
+    private static final String SELECT_BALANCE_SQL = String.format(
+            "SELECT COUNT(*), ISNULL(SUM(%s), 0) FROM %s.%s WHERE %s = ?",
+            COLUMN_BALANCE, SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID);
+    private static final String SELECT_TOP_BALANCES_SQL = String.format(
+            "SELECT TOP (?) %1$s, COUNT(*), SUM(%2$s) FROM %3$s.%4$s GROUP BY %1$s ORDER BY SUM(%2$s) DESC, %1$s",
+            COLUMN_CUSTOMER_ID, COLUMN_BALANCE, SCHEMA, TABLE_ACCOUNT);
+    private static final String SELECT_SUMMARY_SQL = "SELECT account_count, total_balance FROM " + BALANCE_SUMMARY +
+            " WHERE customer_id = ?";
+    private static final String SELECT_TOP_SUMMARIES_SQL = "SELECT TOP (?) customer_id, account_count, total_balance " +
+            "FROM " + BALANCE_SUMMARY + " WHERE account_count > 0 ORDER BY total_balance DESC, customer_id";
+    private static final String SELECT_BUCKETS_SQL = "SELECT b.lower_bound, b.upper_bound, COUNT(a.%1$s), " +
+            "ISNULL(SUM(a.%2$s), 0) FROM (VALUES %5$s) b (bucket, lower_bound, upper_bound) " +
+            "LEFT JOIN %3$s.%4$s a ON (b.lower_bound IS NULL OR a.%2$s >= b.lower_bound) " +
+            "AND (b.upper_bound IS NULL OR a.%2$s < b.upper_bound) " +
+            "GROUP BY b.bucket, b.lower_bound, b.upper_bound ORDER BY b.bucket";
+
+    private static final String CREATE_SUMMARY_SQL = "IF OBJECT_ID(N'" + BALANCE_SUMMARY + "', N'U') IS NULL BEGIN " +
+            "CREATE TABLE " + BALANCE_SUMMARY + " (customer_id INT NOT NULL PRIMARY KEY, " +
+            "account_count INT NOT NULL, total_balance FLOAT NOT NULL); " +
+            "CREATE INDEX ix_" + TABLE_BALANCE_SUMMARY + "_total_balance ON " + BALANCE_SUMMARY +
+            " (total_balance DESC) INCLUDE (account_count); END";
+    /*
+     * Locks the account table before touching the summaries, in the same order as the account writes.  The lock reads
+     * a row into a variable, as a TOP 0 select may be answered without touching the table.
+     */
+    private static final String REBUILD_SUMMARY_SQL = String.format(
+            "DECLARE @locked INT; SELECT TOP (1) @locked = %2$s FROM %4$s.%5$s WITH (TABLOCK, HOLDLOCK); " +
+                    "DELETE FROM %1$s; " +
+                    "INSERT INTO %1$s (customer_id, account_count, total_balance) " +
+                    "SELECT %2$s, COUNT(*), ISNULL(SUM(%3$s), 0) FROM %4$s.%5$s GROUP BY %2$s",
+            BALANCE_SUMMARY, COLUMN_CUSTOMER_ID, COLUMN_BALANCE, SCHEMA, TABLE_ACCOUNT);
+    private static final String ADJUST_SUMMARY_SQL = "MERGE " + BALANCE_SUMMARY + " WITH (HOLDLOCK) s " +
+            "USING (SELECT ? AS customer_id, ? AS account_count, ? AS total_balance) d " +
+            "ON s.customer_id = d.customer_id " +
+            "WHEN MATCHED THEN UPDATE SET account_count = s.account_count + d.account_count, " +
+            "total_balance = s.total_balance + d.total_balance " +
+            "WHEN NOT MATCHED THEN INSERT (customer_id, account_count, total_balance) " +
+            "VALUES (d.customer_id, d.account_count, d.total_balance);";
+
+    // Keeps a customer from being deleted until the accounts inserted for it are committed
+    private static final String LOCK_CUSTOMER_SQL = String.format("SELECT 1 FROM %s.%s WITH (UPDLOCK, HOLDLOCK) " +
+            "WHERE %s = ?", CustomerDAO.SCHEMA, CustomerDAO.TABLE_CUSTOMER, COLUMN_ID);
+
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    static final String ADAPTIVE_BUFFERING = "adaptive";
+
+    private final CustomerCache customerCache;
+    private final BlindIndex blindIndex;
+    private final boolean balanceSummaries;
+
+    public AccountDAO(DataSource dataSource) {
+        this(dataSource, DaoMetrics.global());
+    }
+
+    public AccountDAO(DataSource dataSource, DaoMetrics metrics) {
+        this(dataSource, metrics, null);
+    }
 
-    private SQLServerDataSource dataSource;
+    public AccountDAO(DataSource dataSource, DaoMetrics metrics, CustomerCache customerCache) {
+        this(dataSource, metrics, customerCache, null);
+    }
+
+    /**
+     * @param dataSource data source
+     * @param metrics DAO metrics
+     * @param customerCache cache of customers to invalidate when their accounts change, null if not cached
+     * @param blindIndex blind index written with every account number and used by
+     *                   {@link #findByAccountNumber(String, boolean)}, null to leave the index to the backfill
+     */
+    public AccountDAO(DataSource dataSource, DaoMetrics metrics, CustomerCache customerCache, BlindIndex blindIndex) {
+        this(dataSource, metrics, customerCache, blindIndex, false);
+    }
+
+    /**
+     * @param dataSource data source
+     * @param metrics DAO metrics
+     * @param customerCache cache of customers to invalidate when their accounts change, null if not cached
+     * @param blindIndex blind index written with every account number and used by
+     *                   {@link #findByAccountNumber(String, boolean)}, null to leave the index to the backfill
+     * @param balanceSummaries true to keep {@code acct.customer_balance} up to date with every account write and read
+     *                         the balance summaries from it, see {@link #rebuildBalanceSummaries()}
+     */
+    public AccountDAO(DataSource dataSource, DaoMetrics metrics, CustomerCache customerCache, BlindIndex blindIndex,
+                      boolean balanceSummaries) {
+        super(dataSource, metrics);
+        this.customerCache = customerCache;
+        this.blindIndex = blindIndex;
+        this.balanceSummaries = balanceSummaries;
+    }
 
-    public AccountDAO(SQLServerDataSource dataSource) {
-        this.dataSource = dataSource;
+    /**
+     * @return true if balance summaries are kept in {@code acct.customer_balance}
+     */
+    public boolean isBalanceSummaries() {
+        return balanceSummaries;
     }
 
     /**
@@ -39,18 +202,125 @@ public class AccountDAO {
      * @throws SQLException thrown if error executing SQL
      */
     public void insertAccount(Account account) throws SQLException {
-        String sql = String.format("INSERT INTO %s.%s (%s, %s, %s) VALUES (?, ?, ?)",
-                SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID, COLUMN_ACCOUNT_NUMBER, COLUMN_BALANCE);
+        metrics.record("insertAccount", false, () -> {
+            try (Connection con = getConnection()) {
+                if (balanceSummaries) {
+                    Transactions.inTransaction(con, c -> insertAccounts(c, Collections.singletonList(account)));
+                } else {
+                    try (PreparedStatement ps = prepare(con, INSERT_SQL)) {
+                        setParameters(ps, account);
+                        ps.executeUpdate();
+                    }
+                }
+            }
+
+            invalidateCustomer(account.getCustomerId());
+            return null;
+        });
+    }
+
+    /**
+     * Insert Accounts as a single JDBC batch in one transaction
+     *
+     * @param accounts accounts to insert
+     * @return number of accounts inserted
+     * @throws SQLException thrown if error executing SQL, no account is inserted
+     */
+    public int insertAccounts(List<Account> accounts) throws SQLException {
+        return metrics.record("insertAccounts", false, () -> {
+            int inserted;
+            try (Connection con = getConnection()) {
+                inserted = Transactions.inTransaction(con, c -> insertAccounts(c, accounts));
+            }
+
+            accounts.stream().map(Account::getCustomerId).distinct().forEach(this::invalidateCustomer);
+            return inserted;
+        });
+    }
+
+    /**
+     * Insert Accounts in one transaction, only if every customer they belong to is in the database.  The customers are
+     * locked until the accounts are committed, so a customer deleted at the same time, as the shard rebalancer deletes
+     * the customers it moved, is either deleted after the accounts, with them, or found missing.
+     *
+     * @param accounts accounts to insert
+     * @return true if the accounts were inserted, false if a customer is missing and no account was inserted
+     * @throws SQLException thrown if error executing SQL, no account is inserted
+     */
+    public boolean insertAccountsOfExistingCustomers(List<Account> accounts) throws SQLException {
+        return metrics.record("insertAccountsOfExistingCustomers", false, () -> {
+            boolean inserted;
+            try (Connection con = getConnection()) {
+                inserted = Transactions.inTransaction(con, c -> {
+                    if (!lockCustomers(c, accounts)) {
+                        return false;
+                    }
+                    insertAccounts(c, accounts);
+                    return true;
+                });
+            }
+
+            if (inserted) {
+                accounts.stream().map(Account::getCustomerId).distinct().forEach(this::invalidateCustomer);
+            }
+            return inserted;
+        });
+    }
+
+    /**
+     * Lock the customers of some accounts, in id order so concurrent inserts do not deadlock
+     *
+     * @param con connection in a transaction
+     * @param accounts accounts whose customers are locked
+     * @return true if every customer was found
+     * @throws SQLException thrown if error executing SQL
+     */
+    private boolean lockCustomers(Connection con, List<Account> accounts) throws SQLException {
+        try (PreparedStatement ps = prepare(con, LOCK_CUSTOMER_SQL)) {
+            for (int customerId : accounts.stream().map(Account::getCustomerId)
+                    .collect(Collectors.toCollection(TreeSet::new))) {
+                ps.setInt(1, customerId);
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Insert Accounts as a single JDBC batch on the caller's connection.  The caller owns the transaction.
+     *
+     * @param con connection to insert with
+     * @param accounts accounts to insert
+     * @return number of accounts inserted
+     * @throws SQLException thrown if error executing SQL
+     */
+    int insertAccounts(Connection con, List<Account> accounts) throws SQLException {
+        if (accounts.isEmpty()) {
+            return 0;
+        }
 
-        try (SQLServerConnection con = (SQLServerConnection) dataSource.getConnection()) {
+        try (PreparedStatement ps = prepare(con, INSERT_SQL)) {
+            for (Account account : accounts) {
+                setParameters(ps, account);
+                ps.addBatch();
+            }
 
-            PreparedStatement ps = con.prepareStatement(sql);
-            ps.setInt(1, account.getCustomerId());
-            ps.setNString(2, account.getAccountNumber());
-            ps.setDouble(3, account.getBalance());
+            ps.executeBatch();
+        }
 
-            ps.executeUpdate();
+        if (balanceSummaries) {
+            Map<Integer, double[]> changes = new HashMap<>();
+            for (Account account : accounts) {
+                addBalanceChange(changes, account.getCustomerId(), 1, account.getBalance());
+            }
+            adjustBalanceSummaries(con, changes);
         }
+
+        return accounts.size();
     }
 
     /**
@@ -61,29 +331,87 @@ public class AccountDAO {
      * @throws SQLException thrown if error executing SQL
      */
     public Account getAccountById(int id) throws SQLException {
-        String sql = String.format("SELECT %s FROM %s.%s WHERE %s = ?",
-                ALL_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_ID);
+        return getAccountById(id, false);
+    }
 
-        try (SQLServerConnection con = (SQLServerConnection) dataSource.getConnection()) {
+    /**
+     * Get account by Id
+     *
+     * @param id id of account
+     * @param encrypted true if fields should be encrypted
+     * @return account if found
+     * @throws SQLException thrown if error executing SQL
+     */
+    public Account getAccountById(int id, boolean encrypted) throws SQLException {
+        return metrics.record("getAccountById", encrypted, () -> {
+            try (Connection con = getConnection();
+                 PreparedStatement ps = prepare(con, encrypted ? SELECT_ENCRYPTED_BY_ID_SQL : SELECT_BY_ID_SQL)) {
 
-            PreparedStatement ps = con.prepareStatement(sql);
-            ps.setInt(1, id);
+                ps.setInt(1, id);
 
-            ps.execute();
+                ps.execute();
 
-            Account account = null;
-            try (ResultSet resultSet = ps.getResultSet()) {
-                if (resultSet.next()) {
-                    account = convertFromResultSet(resultSet);
+                Account account = null;
+                try (ResultSet resultSet = ps.getResultSet()) {
+                    if (resultSet.next()) {
+                        account = convertFromResultSet(resultSet);
+                    }
                 }
+
+                metrics.rows("getAccountById", account == null ? 0 : 1);
+                return account;
             }
+        });
+    }
 
-            return account;
+    /**
+     * Find Accounts by account number.
+     * <p>
+     * {@code account_number} is encrypted with randomized encryption, so the accounts are found by seeking the blind
+     * index.  Accounts whose index has not been backfilled yet are not found.
+     *
+     * @param accountNumber account number, matched exactly
+     * @param encrypted true if fields should be encrypted
+     * @return accounts with the account number, in id order
+     * @throws SQLException thrown if error executing SQL
+     * @throws IllegalStateException thrown if the DAO has no blind index
+     */
+    public List<Account> findByAccountNumber(String accountNumber, boolean encrypted) throws SQLException {
+        if (blindIndex == null) {
+            throw new IllegalStateException("findByAccountNumber needs a blind index key");
         }
+        if (accountNumber == null) {
+            throw new IllegalArgumentException("accountNumber is required");
+        }
+
+        byte[] accountNumberIndex = blindIndex.accountNumber(accountNumber);
+        String sql = encrypted ? SELECT_ENCRYPTED_BY_ACCOUNT_NUMBER_INDEX_SQL : SELECT_BY_ACCOUNT_NUMBER_INDEX_SQL;
+
+        return metrics.record("findByAccountNumber", encrypted, () -> {
+            try (Connection con = getConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                ps.setBytes(1, accountNumberIndex);
+
+                List<Account> accounts = new ArrayList<>();
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        Account account = convertFromResultSet(resultSet);
+                        // Decrypted values are checked so a changed row can never be returned for a stale index
+                        if (encrypted || accountNumber.equals(account.getAccountNumber())) {
+                            accounts.add(account);
+                        }
+                    }
+                }
+
+                metrics.rows("findByAccountNumber", accounts.size());
+                return accounts;
+            }
+        });
     }
 
     /**
-     * Get list of Accounts by Customer Id
+     * Get list of Accounts by Customer Id, from a readable secondary if reads are routed
      *
      * @param customerId customer id
      * @param encrypted true if fields should be encrypted
@@ -91,54 +419,456 @@ public class AccountDAO {
      * @throws SQLException thrown if error executing SQL
      */
     public List<Account> getAccountByCustomerId(int customerId, boolean encrypted) throws SQLException {
-        String sql = String.format("SELECT %s FROM %s.%s WHERE %s = ?",
-                ALL_COLUMNS, SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID);;
-        if (encrypted) {
-            sql = String.format("SELECT %s, %s, CONVERT(NVARCHAR, %s, 2) as account_number, %s FROM %s.%s WHERE %s = ?",
-                    COLUMN_ID, COLUMN_CUSTOMER_ID, COLUMN_ACCOUNT_NUMBER, COLUMN_BALANCE, SCHEMA,
-                    TABLE_ACCOUNT, COLUMN_CUSTOMER_ID);
-        }
+        return getAccountByCustomerId(customerId, encrypted, true);
+    }
+
+    /**
+     * Get list of Accounts by Customer Id
+     *
+     * @param customerId customer id
+     * @param encrypted true if fields should be encrypted
+     * @param secondary true to allow a readable secondary, false when the accounts complete a customer read from the
+     *                  primary
+     * @return list of accounts for customer id
+     * @throws SQLException thrown if error executing SQL
+     */
+    List<Account> getAccountByCustomerId(int customerId, boolean encrypted, boolean secondary) throws SQLException {
+        String sql = encrypted ? SELECT_ENCRYPTED_BY_CUSTOMER_ID_SQL : SELECT_BY_CUSTOMER_ID_SQL;
 
-        try (SQLServerConnection con = (SQLServerConnection) dataSource.getConnection()) {
+        return metrics.record("getAccountByCustomerId", encrypted, () -> {
+            try (Connection con = secondary ? getReadConnection() : getConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
 
-            PreparedStatement ps = con.prepareStatement(sql);
-            ps.setInt(1, customerId);
+                ps.setInt(1, customerId);
 
-            ps.execute();
+                ps.execute();
 
-            List<Account> accounts = new ArrayList<>();
-            try (ResultSet resultSet = ps.getResultSet()) {
-                while (resultSet.next()) {
-                    accounts.add(convertFromResultSet(resultSet));
+                List<Account> accounts = new ArrayList<>();
+                try (ResultSet resultSet = ps.getResultSet()) {
+                    while (resultSet.next()) {
+                        accounts.add(convertFromResultSet(resultSet));
+                    }
+                }
+
+                metrics.rows("getAccountByCustomerId", accounts.size());
+                return accounts;
+            }
+        });
+    }
+
+    /**
+     * Get a page of a customer's Accounts in id order, starting after a given account id, from a readable secondary if
+     * reads are routed.  Pages seek on the customer_id index SchemaMigration creates, whose rows are in id order.
+     *
+     * @param customerId customer id
+     * @param afterId id of the last account of the previous page, 0 for the first page
+     * @param limit maximum number of accounts to return
+     * @param encrypted true if fields should be encrypted
+     * @return accounts in id order, fewer than {@code limit} on the last page
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<Account> getAccountsByCustomerIdAfter(int customerId, int afterId, int limit, boolean encrypted)
+            throws SQLException {
+        String sql = encrypted ? SELECT_ENCRYPTED_PAGE_BY_CUSTOMER_ID_SQL : SELECT_PAGE_BY_CUSTOMER_ID_SQL;
+
+        return metrics.record("getAccountsByCustomerIdAfter", encrypted, () -> {
+            try (Connection con = getReadConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                ps.setInt(1, limit);
+                ps.setInt(2, customerId);
+                ps.setInt(3, afterId);
+
+                List<Account> accounts = new ArrayList<>();
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        accounts.add(convertFromResultSet(resultSet));
+                    }
+                }
+
+                metrics.rows("getAccountsByCustomerIdAfter", accounts.size());
+                return accounts;
+            }
+        });
+    }
+
+    /**
+     * Get Accounts inserted or updated since a change token, in the order they were changed.
+     * See {@link CustomerDAO#getCustomerChanges(long, int, boolean)}.
+     *
+     * @param sinceToken {@code nextToken} of the previous batch, 0 for every account
+     * @param limit maximum number of accounts to return
+     * @param encrypted true if fields should be encrypted
+     * @return changed accounts and the token to continue from
+     * @throws SQLException thrown if error executing SQL
+     */
+    public ChangeBatch<Account> getAccountChanges(long sinceToken, int limit, boolean encrypted) throws SQLException {
+        String sql = encrypted ? SELECT_ENCRYPTED_CHANGES_SQL : SELECT_CHANGES_SQL;
+
+        return metrics.record("getAccountChanges", encrypted, () -> {
+            try (Connection con = getConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                ps.setInt(1, limit);
+                ps.setLong(2, sinceToken);
+
+                List<Account> accounts = new ArrayList<>();
+                long nextToken = sinceToken;
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        accounts.add(convertFromResultSet(resultSet));
+                        nextToken = resultSet.getLong(COLUMN_CHANGE_TOKEN);
+                    }
                 }
+
+                metrics.rows("getAccountChanges", accounts.size());
+                return new ChangeBatch<>(accounts, nextToken, accounts.size() < limit);
+            }
+        });
+    }
+
+    /**
+     * Stream Accounts by Customer Id.
+     * <p>
+     * Rows are fetched {@code fetchSize} at a time with adaptive response buffering and converted as the stream is
+     * consumed, so memory stays flat however many accounts the customer has.  The stream holds a pooled connection
+     * until it is exhausted or closed and must be used in a try-with-resources block.  Rows come from a readable
+     * secondary when reads are routed.
+     *
+     * @param customerId customer id
+     * @param encrypted true if fields should be encrypted
+     * @param fetchSize number of rows fetched per round trip
+     * @return stream of accounts, throws {@link UncheckedSQLException} if a row can not be read
+     * @throws SQLException thrown if error executing SQL
+     */
+    public Stream<Account> streamAccountsByCustomerId(int customerId, boolean encrypted, int fetchSize)
+            throws SQLException {
+        String sql = encrypted ? SELECT_ENCRYPTED_BY_CUSTOMER_ID_SQL : SELECT_BY_CUSTOMER_ID_SQL;
+
+        Connection con = getReadConnection();
+        try {
+            PreparedStatement ps = prepare(con, sql);
+            ps.setInt(1, customerId);
+            ps.setFetchSize(fetchSize);
+            if (ps.isWrapperFor(SQLServerStatement.class)) {
+                ps.unwrap(SQLServerStatement.class).setResponseBuffering(ADAPTIVE_BUFFERING);
+            }
+
+            ResultSet resultSet = ps.executeQuery();
+            return ResultSetStreams.stream(con, ps, resultSet, this::convertFromResultSet);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                con.close();
+            } catch (SQLException closeException) {
+                e.addSuppressed(closeException);
             }
+            throw e;
+        }
+    }
+
+    /**
+     * Stream Accounts by Customer Id using the default fetch size
+     *
+     * @param customerId customer id
+     * @param encrypted true if fields should be encrypted
+     * @return stream of accounts
+     * @throws SQLException thrown if error executing SQL
+     */
+    public Stream<Account> streamAccountsByCustomerId(int customerId, boolean encrypted) throws SQLException {
+        return streamAccountsByCustomerId(customerId, encrypted, DEFAULT_FETCH_SIZE);
+    }
 
-            return accounts;
+    /**
+     * Hand every Account of a customer to a callback as it is read.  The connection is released when this returns.
+     *
+     * @param customerId customer id
+     * @param encrypted true if fields should be encrypted
+     * @param fetchSize number of rows fetched per round trip
+     * @param consumer callback receiving each account
+     * @throws SQLException thrown if error executing SQL
+     */
+    public void forEachAccountByCustomerId(int customerId, boolean encrypted, int fetchSize,
+                                           Consumer<Account> consumer) throws SQLException {
+        try (Stream<Account> accounts = streamAccountsByCustomerId(customerId, encrypted, fetchSize)) {
+            accounts.forEach(consumer);
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
         }
     }
 
     /**
      * Update Account
      * @param account account to update
+     * @return true if the account was updated, false if there is no account with its id
+     * @throws SQLException thrown if error executing SQL
+     */
+    public boolean updateAccount(Account account) throws SQLException {
+        return metrics.record("updateAccount", false, () -> {
+            Integer previousCustomerId;
+            try (Connection con = getConnection()) {
+                previousCustomerId = balanceSummaries
+                        ? Transactions.inTransaction(con, c -> updateAccount(c, account))
+                        : updateAccount(con, account);
+            }
+
+            if (previousCustomerId != null) {
+                invalidateCustomer(previousCustomerId);
+            }
+            invalidateCustomer(account.getCustomerId());
+            return previousCustomerId != null;
+        });
+    }
+
+    /**
+     * Update an Account on the caller's connection, moving its balance between balance summaries if they are kept
+     *
+     * @param con connection to update with
+     * @param account account to update
+     * @return customer the account belonged to before the update, null if there is no such account
+     * @throws SQLException thrown if error executing SQL
+     */
+    private Integer updateAccount(Connection con, Account account) throws SQLException {
+        try (PreparedStatement ps = prepare(con, UPDATE_SQL)) {
+            setParameters(ps, account);
+            ps.setInt(5, account.getId());
+
+            // Skip the update count to the previous customer id and balance
+            boolean isResultSet = ps.execute();
+            while (!isResultSet && ps.getUpdateCount() != -1) {
+                isResultSet = ps.getMoreResults();
+            }
+
+            if (!isResultSet) {
+                return null;
+            }
+
+            try (ResultSet resultSet = ps.getResultSet()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+
+                int previousCustomerId = resultSet.getInt(1);
+                if (balanceSummaries) {
+                    Map<Integer, double[]> changes = new HashMap<>();
+                    addBalanceChange(changes, previousCustomerId, -1, -resultSet.getDouble(2));
+                    addBalanceChange(changes, account.getCustomerId(), 1, account.getBalance());
+                    adjustBalanceSummaries(con, changes);
+                }
+                return previousCustomerId;
+            }
+        }
+    }
+
+    /**
+     * Get the number of accounts and total balance of a customer, aggregated by the database over the balance column
+     * or read from the customer's balance summary if they are kept
+     *
+     * @param customerId customer id
+     * @return balance summary, with no accounts if the customer has none
+     * @throws SQLException thrown if error executing SQL
+     */
+    public BalanceSummary getBalanceSummary(int customerId) throws SQLException {
+        return metrics.record("getBalanceSummary", false, () -> {
+            try (Connection con = getConnection();
+                 PreparedStatement ps = prepare(con, balanceSummaries ? SELECT_SUMMARY_SQL : SELECT_BALANCE_SQL)) {
+
+                ps.setInt(1, customerId);
+
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return new BalanceSummary(customerId, 0, 0);
+                    }
+                    return new BalanceSummary(customerId, resultSet.getLong(1), resultSet.getDouble(2));
+                }
+            }
+        });
+    }
+
+    /**
+     * Get the customers with the highest total balance, from the balance summaries if they are kept
+     *
+     * @param limit number of customers to return
+     * @return balance summaries, highest total balance first
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<BalanceSummary> getTopCustomersByBalance(int limit) throws SQLException {
+        return metrics.record("getTopCustomersByBalance", false, () -> {
+            try (Connection con = getReadConnection();
+                 PreparedStatement ps = prepare(con, balanceSummaries ? SELECT_TOP_SUMMARIES_SQL
+                         : SELECT_TOP_BALANCES_SQL)) {
+
+                ps.setInt(1, limit);
+
+                List<BalanceSummary> summaries = new ArrayList<>();
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        summaries.add(new BalanceSummary(resultSet.getInt(1), resultSet.getLong(2),
+                                resultSet.getDouble(3)));
+                    }
+                }
+
+                metrics.rows("getTopCustomersByBalance", summaries.size());
+                return summaries;
+            }
+        });
+    }
+
+    /**
+     * Count the accounts and total their balances by balance range.  The bounds split the balances into one more
+     * bucket than there are bounds: below the first bound, between each pair of bounds, and at or above the last.
+     *
+     * @param bounds ascending bucket bounds
+     * @return one bucket per range, lowest first, including empty ones
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<BalanceBucket> getBalanceBuckets(double... bounds) throws SQLException {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("bounds must be ascending");
+            }
+        }
+
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i <= bounds.length; i++) {
+            values.append(i == 0 ? "" : ", ").append("(").append(i).append(", CAST(? AS FLOAT), CAST(? AS FLOAT))");
+        }
+        String sql = String.format(SELECT_BUCKETS_SQL, COLUMN_ID, COLUMN_BALANCE, SCHEMA, TABLE_ACCOUNT, values);
+
+        return metrics.record("getBalanceBuckets", false, () -> {
+            try (Connection con = getReadConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                for (int i = 0; i <= bounds.length; i++) {
+                    setBound(ps, 2 * i + 1, i == 0 ? null : bounds[i - 1]);
+                    setBound(ps, 2 * i + 2, i == bounds.length ? null : bounds[i]);
+                }
+
+                List<BalanceBucket> buckets = new ArrayList<>();
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        double lower = resultSet.getDouble(1);
+                        Double lowerBound = resultSet.wasNull() ? null : lower;
+                        double upper = resultSet.getDouble(2);
+                        Double upperBound = resultSet.wasNull() ? null : upper;
+                        buckets.add(new BalanceBucket(lowerBound, upperBound, resultSet.getLong(3),
+                                resultSet.getDouble(4)));
+                    }
+                }
+                return buckets;
+            }
+        });
+    }
+
+    /**
+     * Create {@code acct.customer_balance} if it is missing and recompute every summary from the account table, which
+     * is locked while they are recomputed.  Run it once before enabling balance summaries, and after writing accounts
+     * without AccountDAO, for example with the bulk loader.
+     *
+     * @return number of customers summarised
+     * @throws SQLException thrown if error executing SQL, the previous summaries are kept
+     */
+    public int rebuildBalanceSummaries() throws SQLException {
+        return metrics.record("rebuildBalanceSummaries", false, () -> {
+            try (Connection con = getConnection()) {
+                try (PreparedStatement ps = con.prepareStatement(CREATE_SUMMARY_SQL)) {
+                    ps.execute();
+                }
+
+                return Transactions.inTransaction(con, c -> {
+                    try (PreparedStatement ps = c.prepareStatement(REBUILD_SUMMARY_SQL)) {
+                        // The lock's and the delete's update counts come before the insert's
+                        int inserted = 0;
+                        boolean isResultSet = ps.execute();
+                        while (isResultSet || ps.getUpdateCount() != -1) {
+                            if (!isResultSet) {
+                                inserted = ps.getUpdateCount();
+                            }
+                            isResultSet = ps.getMoreResults();
+                        }
+                        return inserted;
+                    }
+                });
+            }
+        });
+    }
+
+    private static void addBalanceChange(Map<Integer, double[]> changes, int customerId, int accounts,
+                                         double balance) {
+        double[] change = changes.computeIfAbsent(customerId, id -> new double[2]);
+        change[0] += accounts;
+        change[1] += balance;
+    }
+
+    /**
+     * Add account count and balance changes to the customers' balance summaries, in the caller's transaction
+     *
+     * @param con connection in the transaction of the account write
+     * @param changes account count and balance change by customer id
      * @throws SQLException thrown if error executing SQL
      */
-    public void updateAccount(Account account) throws SQLException {
-        String sql = String.format("UPDATE %s.%s SET %s = ?, %s = ?, %s = ? WHERE %s = ? RETURNING %s",
-                SCHEMA, TABLE_ACCOUNT, COLUMN_CUSTOMER_ID, COLUMN_ACCOUNT_NUMBER, COLUMN_BALANCE, COLUMN_ID,
-                ALL_COLUMNS);
+    private void adjustBalanceSummaries(Connection con, Map<Integer, double[]> changes) throws SQLException {
+        try (PreparedStatement ps = prepare(con, ADJUST_SUMMARY_SQL)) {
+            // In customer id order, so concurrent writers lock the summary rows in the same order
+            for (Map.Entry<Integer, double[]> change : new TreeMap<>(changes).entrySet()) {
+                ps.setInt(1, change.getKey());
+                ps.setInt(2, (int) change.getValue()[0]);
+                ps.setDouble(3, change.getValue()[1]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void setBound(PreparedStatement ps, int index, Double bound) throws SQLException {
+        if (bound == null) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, bound);
+        }
+    }
 
-        try (SQLServerConnection con = (SQLServerConnection) dataSource.getConnection()) {
+    /**
+     * Set the parameters of the account insert statement, which the update statement starts with too
+     *
+     * @param ps insert or update statement
+     * @param account account to write
+     * @throws SQLException thrown if error setting a parameter
+     */
+    private void setParameters(PreparedStatement ps, Account account) throws SQLException {
+        ps.setInt(1, account.getCustomerId());
+        ps.setNString(2, account.getAccountNumber());
+        ps.setDouble(3, account.getBalance());
 
-            PreparedStatement ps = con.prepareStatement(sql);
-            ps.setInt(1, account.getCustomerId());
-            ps.setNString(2, account.getAccountNumber());
-            ps.setDouble(3, account.getBalance());
-            ps.setInt(4, account.getId());
+        // Without a key the index is left null for the backfill rather than keeping the index of an old number
+        byte[] accountNumberIndex = blindIndex == null ? null : blindIndex.accountNumber(account.getAccountNumber());
+        if (accountNumberIndex == null) {
+            ps.setNull(4, Types.BINARY);
+        } else {
+            ps.setBytes(4, accountNumberIndex);
+        }
+    }
 
-            ps.executeUpdate();
+    /**
+     * Drop a customer from the customer cache, if there is one
+     *
+     * @param customerId customer id
+     */
+    void invalidateCustomer(int customerId) {
+        if (customerCache != null) {
+            customerCache.invalidate(customerId);
         }
     }
 
+    /**
+     * Columns to select from the account table
+     *
+     * @param encrypted true if the account number should be returned as the stored ciphertext
+     * @return select list
+     */
+    static String selectColumns(boolean encrypted) {
+        return encrypted ? ENCRYPTED_COLUMNS : ALL_COLUMNS;
+    }
+
     /**
      * Convert ResultSet to Account
      *
@@ -146,7 +876,7 @@ public class AccountDAO {
      * @return Account
      * @throws SQLException thrown if error converting result set
      */
-    private Account convertFromResultSet(ResultSet resultSet) throws SQLException {
+    Account convertFromResultSet(ResultSet resultSet) throws SQLException {
         return Account.builder()
                 .id(resultSet.getInt(COLUMN_ID))
                 .accountNumber(resultSet.getString(COLUMN_ACCOUNT_NUMBER))
@@ -0,0 +1,67 @@
+package com.encrypted.db.dao;
+
+import com.encrypted.db.entity.Account;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous Account Data Access.  Every call runs on the DAO executor, so independent lookups can overlap.
+ */
+public class AsyncAccountDAO {
+
+    private final AccountDAO accountDAO;
+    private final DaoExecutor executor;
+
+    public AsyncAccountDAO(AccountDAO accountDAO, DaoExecutor executor) {
+        this.accountDAO = accountDAO;
+        this.executor = executor;
+    }
+
+    /**
+     * Insert Account
+     *
+     * @param account account to insert
+     * @return future completed when the account is committed
+     */
+    public CompletableFuture<Void> insertAccount(Account account) {
+        return executor.submitWrite(() -> {
+            accountDAO.insertAccount(account);
+            return null;
+        });
+    }
+
+    /**
+     * Get account by Id
+     *
+     * @param id id of account
+     * @return future completed with the account, or null if not found
+     */
+    public CompletableFuture<Account> getAccountById(int id) {
+        return executor.submit(() -> accountDAO.getAccountById(id));
+    }
+
+    /**
+     * Get list of Accounts by Customer Id
+     *
+     * @param customerId customer id
+     * @param encrypted true if fields should be encrypted
+     * @return future completed with the accounts of the customer
+     */
+    public CompletableFuture<List<Account>> getAccountByCustomerId(int customerId, boolean encrypted) {
+        return executor.submit(() -> accountDAO.getAccountByCustomerId(customerId, encrypted));
+    }
+
+    /**
+     * Update Account
+     *
+     * @param account account to update
+     * @return future completed when the update is committed
+     */
+    public CompletableFuture<Void> updateAccount(Account account) {
+        return executor.submitWrite(() -> {
+            accountDAO.updateAccount(account);
+            return null;
+        });
+    }
+}
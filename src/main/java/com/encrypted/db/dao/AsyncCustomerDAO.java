@@ -0,0 +1,79 @@
+package com.encrypted.db.dao;
+
+import com.encrypted.db.entity.Customer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous Customer Data Access.  Every call runs on the DAO executor, so independent lookups can overlap.
+ */
+public class AsyncCustomerDAO {
+
+    private final CustomerDAO customerDAO;
+    private final DaoExecutor executor;
+
+    public AsyncCustomerDAO(CustomerDAO customerDAO, DaoExecutor executor) {
+        this.customerDAO = customerDAO;
+        this.executor = executor;
+    }
+
+    /**
+     * Insert Customer and its accounts
+     *
+     * @param customer customer to insert
+     * @return future completed when the customer is committed
+     */
+    public CompletableFuture<Void> insertCustomer(Customer customer) {
+        return executor.submitWrite(() -> {
+            customerDAO.insertCustomer(customer);
+            return null;
+        });
+    }
+
+    /**
+     * Insert Customers and their accounts in committed chunks, see {@link CustomerDAO#insertCustomers(List)}
+     *
+     * @param customers customers to insert
+     * @return future completed with the counts of inserted rows and the customers that failed
+     */
+    public CompletableFuture<BatchInsertResult> insertCustomers(List<Customer> customers) {
+        return executor.submitWrite(() -> customerDAO.insertCustomers(customers));
+    }
+
+    /**
+     * Get Customer by Id
+     *
+     * @param id id of customer
+     * @param encrypted true if fields should be encrypted
+     * @return future completed with the customer, or null if not found
+     */
+    public CompletableFuture<Customer> getCustomerById(int id, boolean encrypted) {
+        return executor.submit(() -> customerDAO.getCustomerById(id, encrypted));
+    }
+
+    /**
+     * Get Customers and their accounts by Id
+     *
+     * @param ids ids of the customers
+     * @param encrypted true if fields should be encrypted
+     * @return future completed with the customers found
+     */
+    public CompletableFuture<List<Customer>> getCustomersByIds(Collection<Integer> ids, boolean encrypted) {
+        return executor.submit(() -> customerDAO.getCustomersByIds(ids, encrypted));
+    }
+
+    /**
+     * Update Customer
+     *
+     * @param customer customer to update
+     * @return future completed when the update is committed
+     */
+    public CompletableFuture<Void> updateCustomer(Customer customer) {
+        return executor.submitWrite(() -> {
+            customerDAO.updateCustomer(customer);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,21 @@
+package com.encrypted.db.dao;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Accounts whose balance is at least {@code lowerBound} and below {@code upperBound}
+ */
+@Data
+@AllArgsConstructor
+public class BalanceBucket {
+
+    // Null for the bucket below the lowest bound
+    private Double lowerBound;
+
+    // Null for the bucket above the highest bound
+    private Double upperBound;
+
+    private long accounts;
+    private double totalBalance;
+}
@@ -0,0 +1,20 @@
+package com.encrypted.db.dao;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Number of accounts and total balance of a customer
+ */
+@Data
+@AllArgsConstructor
+public class BalanceSummary {
+
+    private int customerId;
+    private long accounts;
+    private double totalBalance;
+
+    public double getAverageBalance() {
+        return accounts == 0 ? 0 : totalBalance / accounts;
+    }
+}
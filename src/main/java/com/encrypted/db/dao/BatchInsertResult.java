@@ -0,0 +1,22 @@
+package com.encrypted.db.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Outcome of a batch insert: how many rows were committed and which customers failed
+ */
+@Data
+public class BatchInsertResult {
+
+    private int insertedCustomers;
+    private int insertedAccounts;
+    private int committedChunks;
+    private List<RowFailure> failures = new ArrayList<>();
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
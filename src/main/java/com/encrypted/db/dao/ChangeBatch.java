@@ -0,0 +1,25 @@
+package com.encrypted.db.dao;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Rows changed since a change token, in the order they were changed.  The next batch is requested with
+ * {@code nextToken}.
+ *
+ * @param <T> entity type
+ */
+@Data
+@AllArgsConstructor
+public class ChangeBatch<T> {
+
+    private List<T> items;
+
+    // Token of the last row returned, or the requested token if nothing changed
+    private long nextToken;
+
+    // True if there were no more changes when the batch was read
+    private boolean complete;
+}
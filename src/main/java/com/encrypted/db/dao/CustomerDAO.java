@@ -1,18 +1,34 @@
 package com.encrypted.db.dao;
 
+import com.encrypted.db.cache.CustomerCache;
+import com.encrypted.db.encryption.BlindIndex;
+import com.encrypted.db.entity.Account;
 import com.encrypted.db.entity.Customer;
-import com.microsoft.sqlserver.jdbc.SQLServerConnection;
-import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
+import com.microsoft.sqlserver.jdbc.SQLServerStatement;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
 
 /**
  * Customer Data Access
  */
-public class CustomerDAO {
+public class CustomerDAO extends AbstractDAO {
 
     public static final String SCHEMA = "acct";
     public static final String TABLE_CUSTOMER = "customer";
@@ -22,62 +38,367 @@ public class CustomerDAO {
     private static final String COLUMN_FIRST_NAME = "first_name";
     private static final String COLUMN_MIDDLE_INITIAL = "middle_initial";
     private static final String COLUMN_LAST_NAME = "last_name";
+    private static final String COLUMN_SSN_INDEX = "ssn_index";
+    private static final String COLUMN_CHANGE_TOKEN = "change_token";
 
     private static final String ALL_COLUMNS = String.format("%s, %s, %s, %s, %s", COLUMN_ID, COLUMN_SSN,
             COLUMN_FIRST_NAME, COLUMN_MIDDLE_INITIAL, COLUMN_LAST_NAME);
+    private static final String ENCRYPTED_COLUMN = "CONVERT(NVARCHAR, %1$s, 2) as %1$s";
+    private static final String ENCRYPTED_COLUMNS = String.format("%s, " + ENCRYPTED_COLUMN + ", %s, %s, %s",
+            COLUMN_ID, COLUMN_SSN, COLUMN_FIRST_NAME, COLUMN_MIDDLE_INITIAL, COLUMN_LAST_NAME);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final int MAX_SSN_LENGTH = 9;
+    private static final int MAX_NAME_LENGTH = 50;
+    private static final int MAX_ACCOUNT_NUMBER_LENGTH = 30;
+
+    // Two IN lists per statement batch must stay under the 2100 parameter limit of SQL Server
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    // IN list sizes the multi-get pads to, so only a handful of statement shapes are ever prepared
+    private static final int[] ID_BUCKETS = {1, 2, 4, 8, 16, 32, 64, 128, 256, 512, MAX_IDS_PER_QUERY};
+
+    /*
+     * SQL is built once so every call prepares the identical text.  The pooled connections cache prepared
+     * statements by text, which lets the driver reuse the Always Encrypted parameter metadata it already fetched.
+     */
+    private static final String INSERT_SQL = String.format("INSERT INTO %s.%s (%s, %s, %s, %s, %s) VALUES (?, ?, ?, ?, ?)",
+            SCHEMA, TABLE_CUSTOMER, COLUMN_SSN, COLUMN_FIRST_NAME, COLUMN_MIDDLE_INITIAL, COLUMN_LAST_NAME,
+            COLUMN_SSN_INDEX);
+    /*
+     * Customers of a chunk are JDBC batched through one single-row insert, each writing its generated id to a temp
+     * table of the session whose identity follows the order the inserts ran in.  OUTPUT goes INTO a table because a
+     * plain OUTPUT clause is rejected on tables with triggers.
+     */
+    private static final String BATCH_IDS_TABLE = "#inserted_customer_ids";
+    private static final String RESET_BATCH_IDS_SQL = "IF OBJECT_ID(N'tempdb.." + BATCH_IDS_TABLE + "') IS NULL " +
+            "CREATE TABLE " + BATCH_IDS_TABLE + " (n INT IDENTITY PRIMARY KEY, id INT NOT NULL) " +
+            "ELSE TRUNCATE TABLE " + BATCH_IDS_TABLE;
+    private static final String BATCH_INSERT_SQL = String.format(
+            "INSERT INTO %s.%s (%s, %s, %s, %s, %s) OUTPUT INSERTED.%s INTO %s (id) VALUES (?, ?, ?, ?, ?)",
+            SCHEMA, TABLE_CUSTOMER, COLUMN_SSN, COLUMN_FIRST_NAME, COLUMN_MIDDLE_INITIAL, COLUMN_LAST_NAME,
+            COLUMN_SSN_INDEX, COLUMN_ID, BATCH_IDS_TABLE);
+    private static final String SELECT_BATCH_IDS_SQL = "SELECT id FROM " + BATCH_IDS_TABLE + " ORDER BY n";
+    private static final String SELECT_BY_ID_SQL = String.format("SELECT %s FROM %s.%s WHERE %s = ?",
+            ALL_COLUMNS, SCHEMA, TABLE_CUSTOMER, COLUMN_ID);
+    private static final String SELECT_ENCRYPTED_BY_ID_SQL = String.format("SELECT %s FROM %s.%s WHERE %s = ?",
+            ENCRYPTED_COLUMNS, SCHEMA, TABLE_CUSTOMER, COLUMN_ID);
+    private static final String[] SELECT_BY_IDS_SQL = selectByIdsSql(false);
+    private static final String[] SELECT_ENCRYPTED_BY_IDS_SQL = selectByIdsSql(true);
+    private static final String UPDATE_SQL = String.format(
+            "UPDATE %s.%s SET %s = ?, %s = ?, %s = ?, %s = ?, %s = ? WHERE %s = ?",
+            SCHEMA, TABLE_CUSTOMER, COLUMN_SSN, COLUMN_FIRST_NAME, COLUMN_MIDDLE_INITIAL, COLUMN_LAST_NAME,
+            COLUMN_SSN_INDEX, COLUMN_ID);
+    private static final String[] SELECT_SSNS_BY_IDS_SQL = selectSsnsByIdsSql(false);
+    private static final String[] SELECT_ENCRYPTED_SSNS_BY_IDS_SQL = selectSsnsByIdsSql(true);
+    private static final String SELECT_BY_SSN_INDEX_SQL = selectBySsnIndexSql(false);
+    private static final String SELECT_ENCRYPTED_BY_SSN_INDEX_SQL = selectBySsnIndexSql(true);
+
+    private static final String SELECT_AFTER_SQL = String.format("SELECT %s FROM %s.%s WHERE %s > ? ORDER BY %s",
+            ALL_COLUMNS, SCHEMA, TABLE_CUSTOMER, COLUMN_ID, COLUMN_ID);
+    private static final String SELECT_ENCRYPTED_AFTER_SQL = String.format("SELECT %s FROM %s.%s WHERE %s > ? ORDER BY %s",
+            ENCRYPTED_COLUMNS, SCHEMA, TABLE_CUSTOMER, COLUMN_ID, COLUMN_ID);
+    private static final String SELECT_CHANGES_SQL = String.format(CHANGES_SQL, ALL_COLUMNS, SCHEMA, TABLE_CUSTOMER);
+    private static final String SELECT_ENCRYPTED_CHANGES_SQL = String.format(CHANGES_SQL, ENCRYPTED_COLUMNS, SCHEMA,
+            TABLE_CUSTOMER);
+    private static final String SELECT_PAGE_SQL = selectPageSql(ALL_COLUMNS, false, false);
+    private static final String SELECT_ENCRYPTED_PAGE_SQL = selectPageSql(ENCRYPTED_COLUMNS, true, false);
+    private static final String SELECT_PAGE_WITH_ACCOUNTS_SQL = selectPageSql(ALL_COLUMNS, false, true);
+    private static final String SELECT_ENCRYPTED_PAGE_WITH_ACCOUNTS_SQL = selectPageSql(ENCRYPTED_COLUMNS, true, true);
+
+    // Projected reads by projection key, see projection(Set, boolean, boolean)
+    private static final int ENCRYPTED_PROJECTION = 1 << CustomerField.values().length;
+    private static final String[] SELECT_PROJECTED_BY_ID_SQL = selectProjectedSql(false);
+    private static final String[] SELECT_PROJECTED_PAGE_SQL = selectProjectedSql(true);
 
-    private SQLServerDataSource dataSource;
     private AccountDAO accountDAO;
+    private int batchSize;
+    private CustomerCache customerCache;
+    private BlindIndex blindIndex;
+
+    public CustomerDAO(DataSource dataSource) {
+        this(dataSource, DEFAULT_BATCH_SIZE);
+    }
+
+    public CustomerDAO(DataSource dataSource, int batchSize) {
+        this(dataSource, batchSize, DaoMetrics.global());
+    }
+
+    public CustomerDAO(DataSource dataSource, int batchSize, DaoMetrics metrics) {
+        this(dataSource, batchSize, metrics, null);
+    }
+
+    public CustomerDAO(DataSource dataSource, int batchSize, DaoMetrics metrics, CustomerCache customerCache) {
+        this(dataSource, batchSize, metrics, customerCache, null);
+    }
+
+    /**
+     * @param dataSource data source
+     * @param batchSize customers written and committed together by {@link #insertCustomers(List)}
+     * @param metrics DAO metrics
+     * @param customerCache read-through cache for {@link #getCustomerById(int, boolean)}, null to always read the
+     *                      database
+     * @param blindIndex blind index written with every ssn and used by {@link #findBySsn(String, boolean)}, null to
+     *                   leave the index to the backfill
+     */
+    public CustomerDAO(DataSource dataSource, int batchSize, DaoMetrics metrics, CustomerCache customerCache,
+                       BlindIndex blindIndex) {
+        this(dataSource, batchSize, metrics, customerCache, blindIndex, false);
+    }
+
+    /**
+     * @param dataSource data source
+     * @param batchSize customers written and committed together by {@link #insertCustomers(List)}
+     * @param metrics DAO metrics
+     * @param customerCache read-through cache for {@link #getCustomerById(int, boolean)}, null to always read the
+     *                      database
+     * @param blindIndex blind index written with every ssn and used by {@link #findBySsn(String, boolean)}, null to
+     *                   leave the index to the backfill
+     * @param balanceSummaries true to keep the customers' balance summaries up to date with their accounts, see
+     *                         {@link AccountDAO#rebuildBalanceSummaries()}
+     */
+    public CustomerDAO(DataSource dataSource, int batchSize, DaoMetrics metrics, CustomerCache customerCache,
+                       BlindIndex blindIndex, boolean balanceSummaries) {
+        super(dataSource, metrics);
 
-    public CustomerDAO(SQLServerDataSource dataSource) {
-        this.dataSource = dataSource;
-        accountDAO = new AccountDAO(dataSource);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+
+        this.batchSize = batchSize;
+        this.customerCache = customerCache;
+        this.blindIndex = blindIndex;
+        accountDAO = new AccountDAO(dataSource, metrics, customerCache, blindIndex, balanceSummaries);
     }
 
     /**
-     * Insert Customer
+     * Insert Customer and its accounts in a single transaction
      *
      * @param customer customer to insert
      * @throws SQLException thrown if error executing SQL
      */
     public void insertCustomer(Customer customer) throws SQLException {
-        String sql = String.format("INSERT INTO %s.%s (%s, %s, %s, %s) VALUES (?, ?, ?, ?)",
-                SCHEMA, TABLE_CUSTOMER, COLUMN_SSN, COLUMN_FIRST_NAME, COLUMN_MIDDLE_INITIAL,
-                COLUMN_LAST_NAME);
+        metrics.record("insertCustomer", false, () -> {
+            try (Connection con = getConnection()) {
+                return Transactions.inTransaction(con, c -> {
+                    try (PreparedStatement ps = prepare(c, INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                        setInsertParameters(ps, customer);
 
-        try (SQLServerConnection con = (SQLServerConnection) dataSource.getConnection()) {
+                        ps.executeUpdate();
 
-            PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setNString(1, (String) customer.getSsn());
-            ps.setNString(2, customer.getFirstName());
-            ps.setString(3, customer.getMiddleInitial());
-            ps.setNString(4, customer.getLastName());
+                        try (ResultSet resultSet = ps.getGeneratedKeys()) {
+                            if (resultSet.next()) {
+                                int customerId = resultSet.getInt(1);
+                                customer.setId(customerId);
 
-            ps.executeUpdate();
-
-            try (ResultSet resultSet = ps.getGeneratedKeys()) {
-                if (resultSet.next()) {
-                    int customerId = resultSet.getInt(1);
-
-                    if (customer.getAccounts() != null) {
-                        customer.getAccounts().forEach(account -> {
-                            try {
-                                account.setCustomerId(customerId);
-                                accountDAO.insertAccount(account);
-                            } catch (SQLException e) {
-                                e.printStackTrace();
+                                if (customer.getAccounts() != null) {
+                                    customer.getAccounts().forEach(account -> account.setCustomerId(customerId));
+                                    accountDAO.insertAccounts(c, customer.getAccounts());
+                                }
                             }
-                        });
+                        }
+                    }
+                    return null;
+                });
+            }
+        });
+    }
+
+    /**
+     * Insert Customers and their accounts using JDBC batches on a single connection.
+     * <p>
+     * Customers are written in chunks of {@code batchSize}; each chunk is committed atomically.  Customers that fail
+     * validation are reported without being sent.  If a chunk fails, it is rolled back and retried one customer at a
+     * time so the failure can be reported against the customer that caused it.
+     * <p>
+     * Each customer's insert records its generated id in the order the batch ran, so other writers of the customer
+     * table are not held up by the chunks.
+     *
+     * @param customers customers to insert, ids are set on the customers that were committed
+     * @return counts of inserted rows and the customers that failed
+     * @throws SQLException thrown if a connection could not be obtained or was lost
+     */
+    public BatchInsertResult insertCustomers(List<Customer> customers) throws SQLException {
+        return metrics.record("insertCustomers", false, () -> {
+            BatchInsertResult result = new BatchInsertResult();
+            List<Integer> chunk = new ArrayList<>(batchSize);
+
+            try (Connection con = getConnection()) {
+                for (int index = 0; index < customers.size(); index++) {
+                    Customer customer = customers.get(index);
+
+                    String invalid = validate(customer);
+                    if (invalid != null) {
+                        result.getFailures().add(new RowFailure(index, customer, invalid));
+                        continue;
                     }
+
+                    chunk.add(index);
+                    if (chunk.size() == batchSize) {
+                        insertChunk(con, customers, chunk, result);
+                        chunk.clear();
+                    }
+                }
+
+                if (!chunk.isEmpty()) {
+                    insertChunk(con, customers, chunk, result);
+                }
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Insert one chunk of customers in its own transaction, falling back to one customer per transaction on failure
+     *
+     * @param con connection to insert with
+     * @param customers all customers being inserted
+     * @param chunk indexes of the customers in this chunk
+     * @param result result to record the outcome in
+     * @throws SQLException thrown if the connection was lost
+     */
+    private void insertChunk(Connection con, List<Customer> customers, List<Integer> chunk,
+                             BatchInsertResult result) throws SQLException {
+        try {
+            int accounts = Transactions.inTransaction(con, c -> insertBatch(c, customers, chunk));
+
+            result.setInsertedCustomers(result.getInsertedCustomers() + chunk.size());
+            result.setInsertedAccounts(result.getInsertedAccounts() + accounts);
+            result.setCommittedChunks(result.getCommittedChunks() + 1);
+        } catch (SQLException e) {
+            chunk.forEach(index -> clearIds(customers.get(index)));
+
+            if (con.isClosed()) {
+                throw e;
+            }
+
+            if (chunk.size() == 1) {
+                int index = chunk.get(0);
+                result.getFailures().add(new RowFailure(index, customers.get(index), e.getMessage()));
+                return;
+            }
+
+            for (Integer index : chunk) {
+                insertChunk(con, customers, Collections.singletonList(index), result);
+            }
+        }
+    }
+
+    /**
+     * Batch insert the customers of a chunk, read back their generated ids and batch insert their accounts
+     *
+     * @param con connection with an open transaction
+     * @param customers all customers being inserted
+     * @param chunk indexes of the customers in this chunk
+     * @return number of accounts inserted
+     * @throws SQLException thrown if error executing SQL
+     */
+    private int insertBatch(Connection con, List<Customer> customers, List<Integer> chunk) throws SQLException {
+        try (PreparedStatement ps = prepare(con, RESET_BATCH_IDS_SQL)) {
+            ps.execute();
+        }
+
+        try (PreparedStatement ps = prepare(con, BATCH_INSERT_SQL)) {
+            for (Integer index : chunk) {
+                setInsertParameters(ps, customers.get(index));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        List<Account> accounts = new ArrayList<>();
+        try (PreparedStatement ps = prepare(con, SELECT_BATCH_IDS_SQL);
+             ResultSet resultSet = ps.executeQuery()) {
+            for (Integer index : chunk) {
+                if (!resultSet.next()) {
+                    throw new SQLException("Expected " + chunk.size() + " generated customer ids");
+                }
+
+                Customer customer = customers.get(index);
+                customer.setId(resultSet.getInt(1));
+
+                if (customer.getAccounts() != null) {
+                    customer.getAccounts().forEach(account -> account.setCustomerId(customer.getId()));
+                    accounts.addAll(customer.getAccounts());
                 }
             }
+        }
+
+        return accountDAO.insertAccounts(con, accounts);
+    }
 
+    /**
+     * Forget the ids given to a customer and its accounts by a rolled back insert
+     *
+     * @param customer customer whose insert was rolled back
+     */
+    private static void clearIds(Customer customer) {
+        customer.setId(0);
+        if (customer.getAccounts() != null) {
+            customer.getAccounts().forEach(account -> account.setCustomerId(0));
+        }
+    }
 
+    /**
+     * Set the parameters of the customer insert statement, which the update statement starts with too
+     *
+     * @param ps insert statement
+     * @param customer customer to insert
+     * @throws SQLException thrown if error setting a parameter
+     */
+    private void setInsertParameters(PreparedStatement ps, Customer customer) throws SQLException {
+        ps.setNString(1, customer.getSsn());
+        ps.setNString(2, customer.getFirstName());
+        ps.setString(3, customer.getMiddleInitial());
+        ps.setNString(4, customer.getLastName());
+
+        // Without a key the index is left null for the backfill rather than keeping the index of an old ssn
+        byte[] ssnIndex = blindIndex == null ? null : blindIndex.ssn(customer.getSsn());
+        if (ssnIndex == null) {
+            ps.setNull(5, Types.BINARY);
+        } else {
+            ps.setBytes(5, ssnIndex);
         }
     }
 
     /**
-     * Get Customer by Id
+     * Check a customer against the table constraints before it is sent to the database
+     *
+     * @param customer customer to check
+     * @return reason the customer is invalid, null if it is valid
+     */
+    public static String validate(Customer customer) {
+        if (customer == null) {
+            return "customer is null";
+        }
+        if (customer.getSsn() == null || customer.getSsn().length() > MAX_SSN_LENGTH) {
+            return "ssn is required and must be at most " + MAX_SSN_LENGTH + " characters";
+        }
+        if (customer.getFirstName() == null || customer.getFirstName().length() > MAX_NAME_LENGTH) {
+            return "first name is required and must be at most " + MAX_NAME_LENGTH + " characters";
+        }
+        if (customer.getLastName() == null || customer.getLastName().length() > MAX_NAME_LENGTH) {
+            return "last name is required and must be at most " + MAX_NAME_LENGTH + " characters";
+        }
+        if (customer.getMiddleInitial() != null && customer.getMiddleInitial().length() > 1) {
+            return "middle initial must be a single character";
+        }
+        if (customer.getAccounts() != null) {
+            for (Account account : customer.getAccounts()) {
+                if (account.getAccountNumber() == null
+                        || account.getAccountNumber().length() > MAX_ACCOUNT_NUMBER_LENGTH) {
+                    return "account number is required and must be at most " + MAX_ACCOUNT_NUMBER_LENGTH
+                            + " characters";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get Customer by Id, from the customer cache if there is one
      *
      * @param id id of customer
      * @param encrypted true if fields should be encrypted
@@ -85,16 +406,46 @@ public class CustomerDAO {
      * @throws SQLException thrown if error executing SQL
      */
     public Customer getCustomerById(int id, boolean encrypted) throws SQLException {
-        String sql = String.format("SELECT %s FROM %s.%s WHERE %s = ?", ALL_COLUMNS, SCHEMA, TABLE_CUSTOMER, COLUMN_ID);
-        if (encrypted) {
-            sql = String.format("SELECT %s, CONVERT(NVARCHAR, %s, 2) as ssn, %s, %s, %s FROM %s.%s WHERE %s = ?",
-                    COLUMN_ID, COLUMN_SSN, COLUMN_FIRST_NAME, COLUMN_MIDDLE_INITIAL, COLUMN_LAST_NAME, SCHEMA,
-                    TABLE_CUSTOMER, COLUMN_ID);
-        }
+        return getCustomerById(id, encrypted, null);
+    }
 
-        try (SQLServerConnection con = (SQLServerConnection) dataSource.getConnection()) {
+    /**
+     * Get Customer by Id, from the customer cache if there is one, hedging the database read of a miss
+     *
+     * @param id id of customer
+     * @param encrypted true if fields should be encrypted
+     * @param hedgedReads hedging of the database read, null to read once
+     * @return customer if found
+     * @throws SQLException thrown if error executing SQL
+     */
+    Customer getCustomerById(int id, boolean encrypted, HedgedReads hedgedReads) throws SQLException {
+        CustomerCache.Loader loader = hedgedReads == null
+                ? () -> loadCustomerById(id, encrypted)
+                : () -> hedgedReads.read((hedge, cancel) -> loadCustomerById(id, encrypted, cancel,
+                        hedge && hedgedReads.getOptions().isHedgeOnSecondary()));
+
+        return metrics.record("getCustomerById", encrypted, () -> {
+            if (customerCache == null) {
+                return loader.load();
+            }
+            return customerCache.get(id, encrypted, loader);
+        });
+    }
+
+    /**
+     * Read a Customer and its accounts from the database
+     *
+     * @param id id of customer
+     * @param encrypted true if fields should be encrypted
+     * @return customer if found
+     * @throws SQLException thrown if error executing SQL
+     */
+    private Customer loadCustomerById(int id, boolean encrypted) throws SQLException {
+        String sql = encrypted ? SELECT_ENCRYPTED_BY_ID_SQL : SELECT_BY_ID_SQL;
+
+        try (Connection con = getConnection();
+             PreparedStatement ps = prepare(con, sql)) {
 
-            PreparedStatement ps = con.prepareStatement(sql);
             ps.setInt(1, id);
 
             ps.execute();
@@ -106,32 +457,693 @@ public class CustomerDAO {
                 }
             }
 
+            metrics.rows("getCustomerById", customers == null ? 0 : 1);
             return customers;
         }
     }
 
+    /**
+     * Read a Customer and its accounts with one cancellable statement batch, so a hedged read can stop the attempt
+     * that lost on the server
+     *
+     * @param id id of customer
+     * @param encrypted true if fields should be encrypted
+     * @param cancel handle the statement is attached to while it runs
+     * @param secondary true to allow a readable secondary
+     * @return customer if found
+     * @throws SQLException thrown if error executing SQL or if the read was cancelled
+     */
+    private Customer loadCustomerById(int id, boolean encrypted, QueryCancel cancel, boolean secondary)
+            throws SQLException {
+        Map<Integer, Customer> customers = new HashMap<>();
+
+        try (Connection con = secondary ? getReadConnection() : getConnection()) {
+            loadCustomers(con, Collections.singletonList(id), encrypted, customers, cancel);
+        }
+
+        metrics.rows("getCustomerById", customers.size());
+        return customers.get(id);
+    }
+
+    /**
+     * Get Customers and their accounts by Id.
+     * <p>
+     * Customers and accounts are read by one statement batch returning two result sets, so each group of up to
+     * {@value #MAX_IDS_PER_QUERY} ids costs a single round trip.  The customer / account graph is assembled in memory.
+     *
+     * @param ids ids of the customers
+     * @param encrypted true if fields should be encrypted
+     * @return customers found, in the order of the requested ids, without duplicates
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<Customer> getCustomersByIds(Collection<Integer> ids, boolean encrypted) throws SQLException {
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        return metrics.record("getCustomersByIds", encrypted, () -> {
+            Map<Integer, Customer> customers = new HashMap<>();
+
+            if (!distinctIds.isEmpty()) {
+                try (Connection con = getConnection()) {
+                    for (int from = 0; from < distinctIds.size(); from += MAX_IDS_PER_QUERY) {
+                        List<Integer> chunk = distinctIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY,
+                                distinctIds.size()));
+                        loadCustomers(con, chunk, encrypted, customers);
+                    }
+                }
+            }
+
+            List<Customer> result = new ArrayList<>(customers.size());
+            for (Integer id : distinctIds) {
+                Customer customer = customers.get(id);
+                if (customer != null) {
+                    result.add(customer);
+                }
+            }
+
+            metrics.rows("getCustomersByIds", result.size());
+            return result;
+        });
+    }
+
+    /**
+     * Load a group of customers and their accounts with one statement batch
+     *
+     * @param con connection to use
+     * @param ids ids of the customers
+     * @param encrypted true if fields should be encrypted
+     * @param customers loaded customers by id
+     * @throws SQLException thrown if error executing SQL
+     */
+    private void loadCustomers(Connection con, List<Integer> ids, boolean encrypted, Map<Integer, Customer> customers)
+            throws SQLException {
+        loadCustomers(con, ids, encrypted, customers, null);
+    }
+
+    /**
+     * Load a group of customers and their accounts with one statement batch
+     *
+     * @param con connection to use
+     * @param ids ids of the customers
+     * @param encrypted true if fields should be encrypted
+     * @param customers loaded customers by id
+     * @param cancel handle the statement is attached to while it runs, null if it can not be cancelled
+     * @throws SQLException thrown if error executing SQL
+     */
+    private void loadCustomers(Connection con, List<Integer> ids, boolean encrypted, Map<Integer, Customer> customers,
+                               QueryCancel cancel) throws SQLException {
+        int bucket = bucket(ids.size());
+        int size = ID_BUCKETS[bucket];
+        String sql = encrypted ? SELECT_ENCRYPTED_BY_IDS_SQL[bucket] : SELECT_BY_IDS_SQL[bucket];
+
+        try (PreparedStatement ps = prepare(con, sql)) {
+            // Unused IN list slots repeat the last id, which does not change the result
+            for (int i = 0; i < size; i++) {
+                int id = ids.get(Math.min(i, ids.size() - 1));
+                ps.setInt(i + 1, id);
+                ps.setInt(size + i + 1, id);
+            }
+
+            if (cancel != null) {
+                cancel.attach(ps);
+            }
+            try {
+                readCustomers(ps, customers);
+            } finally {
+                if (cancel != null) {
+                    cancel.detach();
+                }
+            }
+        }
+    }
+
+    /**
+     * Execute a customers and accounts statement batch and assemble its result sets
+     *
+     * @param ps statement batch, with its parameters set
+     * @param customers loaded customers by id
+     * @throws SQLException thrown if error executing SQL
+     */
+    private void readCustomers(PreparedStatement ps, Map<Integer, Customer> customers) throws SQLException {
+        ps.execute();
+
+        try (ResultSet resultSet = ps.getResultSet()) {
+            while (resultSet.next()) {
+                Customer customer = mapCustomer(resultSet);
+                customer.setAccounts(new ArrayList<>());
+                customers.put(customer.getId(), customer);
+            }
+        }
+
+        if (!ps.getMoreResults()) {
+            throw new SQLException("Expected the account result set after the customer result set");
+        }
+
+        try (ResultSet resultSet = ps.getResultSet()) {
+            while (resultSet.next()) {
+                Account account = accountDAO.convertFromResultSet(resultSet);
+                Customer customer = customers.get(account.getCustomerId());
+                if (customer != null) {
+                    customer.getAccounts().add(account);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a page of Customers in id order, starting after a given id.
+     * <p>
+     * Keyset pagination seeks straight to {@code afterId} on the clustered primary key SchemaMigration puts on id, so
+     * every page costs the same however deep into the table it is.  With accounts, customers and accounts are read by
+     * one statement batch.  Pages are read from a readable secondary when reads are routed, so they may lag the
+     * primary slightly.
+     *
+     * @param afterId id of the last customer of the previous page, 0 for the first page
+     * @param limit maximum number of customers to return
+     * @param encrypted true if fields should be encrypted
+     * @param includeAccounts true to load the accounts of each customer
+     * @return customers in id order, fewer than {@code limit} on the last page
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<Customer> getCustomersAfter(int afterId, int limit, boolean encrypted, boolean includeAccounts)
+            throws SQLException {
+        String sql = includeAccounts
+                ? (encrypted ? SELECT_ENCRYPTED_PAGE_WITH_ACCOUNTS_SQL : SELECT_PAGE_WITH_ACCOUNTS_SQL)
+                : (encrypted ? SELECT_ENCRYPTED_PAGE_SQL : SELECT_PAGE_SQL);
+
+        return metrics.record("getCustomersAfter", encrypted, () -> {
+            try (Connection con = getReadConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                ps.setInt(1, limit);
+                ps.setInt(2, afterId);
+                if (includeAccounts) {
+                    ps.setInt(3, limit);
+                    ps.setInt(4, afterId);
+                }
+
+                ps.execute();
+
+                Map<Integer, Customer> customers = new LinkedHashMap<>();
+                try (ResultSet resultSet = ps.getResultSet()) {
+                    while (resultSet.next()) {
+                        Customer customer = mapCustomer(resultSet);
+                        customers.put(customer.getId(), customer);
+                    }
+                }
+
+                if (includeAccounts) {
+                    addAccounts(ps, customers);
+                }
+
+                metrics.rows("getCustomersAfter", customers.size());
+                return new ArrayList<>(customers.values());
+            }
+        });
+    }
+
+    /**
+     * Get a Customer by Id reading only the requested fields.
+     * <p>
+     * Fields that are not requested stay null and are never read, so a read that leaves out the ssn and accounts
+     * decrypts nothing.  With {@code lazy} the ssn is not read either, it is loaded the first time
+     * {@link Customer#getSsn()} is called.  Projected reads always go to the database, the customer cache only holds
+     * complete customers.
+     *
+     * @param id id of customer
+     * @param fields fields to read, {@link CustomerField#ALL} for the complete customer
+     * @param encrypted true if fields should be encrypted
+     * @param lazy true to defer reading the ssn until it is used
+     * @return customer if found
+     * @throws SQLException thrown if error executing SQL
+     */
+    public Customer getCustomerById(int id, Set<CustomerField> fields, boolean encrypted, boolean lazy)
+            throws SQLException {
+        String sql = SELECT_PROJECTED_BY_ID_SQL[projection(fields, encrypted, lazy)];
+        LazySsnLoader loader = lazy && fields.contains(CustomerField.SSN) ? new LazySsnLoader(this, encrypted) : null;
+
+        return metrics.record("getCustomerByIdProjected", encrypted, () -> {
+            Customer customer = null;
+
+            try (Connection con = getConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                ps.setInt(1, id);
+
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    if (resultSet.next()) {
+                        customer = mapProjected(resultSet, fields, loader);
+                    }
+                }
+            }
+
+            if (customer != null && fields.contains(CustomerField.ACCOUNTS)) {
+                customer.setAccounts(accountDAO.getAccountByCustomerId(id, encrypted, false));
+            }
+
+            metrics.rows("getCustomerByIdProjected", customer == null ? 0 : 1);
+            return customer;
+        });
+    }
+
+    /**
+     * Get a page of Customers in id order reading only the requested fields.
+     * <p>
+     * Same keyset pagination and read routing as {@link #getCustomersAfter(int, int, boolean, boolean)}.  Fields that
+     * are not requested stay null and are never read.  With {@code lazy} the ssn is not read either, the first call to
+     * {@link Customer#getSsn()} on any customer of the page loads the ssn of the whole page from the primary with one
+     * query.
+     *
+     * @param afterId id of the last customer of the previous page, 0 for the first page
+     * @param limit maximum number of customers to return
+     * @param fields fields to read, {@link CustomerField#ALL} for complete customers
+     * @param encrypted true if fields should be encrypted
+     * @param lazy true to defer reading the ssn until it is used
+     * @return customers in id order, fewer than {@code limit} on the last page
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<Customer> getCustomersAfter(int afterId, int limit, Set<CustomerField> fields, boolean encrypted,
+                                            boolean lazy) throws SQLException {
+        boolean includeAccounts = fields.contains(CustomerField.ACCOUNTS);
+        String sql = SELECT_PROJECTED_PAGE_SQL[projection(fields, encrypted, lazy)];
+        LazySsnLoader loader = lazy && fields.contains(CustomerField.SSN) ? new LazySsnLoader(this, encrypted) : null;
+
+        return metrics.record("getCustomersAfterProjected", encrypted, () -> {
+            try (Connection con = getReadConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                ps.setInt(1, limit);
+                ps.setInt(2, afterId);
+                if (includeAccounts) {
+                    ps.setInt(3, limit);
+                    ps.setInt(4, afterId);
+                }
+
+                ps.execute();
+
+                Map<Integer, Customer> customers = new LinkedHashMap<>();
+                try (ResultSet resultSet = ps.getResultSet()) {
+                    while (resultSet.next()) {
+                        Customer customer = mapProjected(resultSet, fields, loader);
+                        customers.put(customer.getId(), customer);
+                    }
+                }
+
+                if (includeAccounts) {
+                    addAccounts(ps, customers);
+                }
+
+                metrics.rows("getCustomersAfterProjected", customers.size());
+                return new ArrayList<>(customers.values());
+            }
+        });
+    }
+
+    /**
+     * Read the ssn of a group of customers for a {@link LazySsnLoader}
+     *
+     * @param ids ids of the customers
+     * @param encrypted true if the ssn should be encrypted
+     * @return ssn by customer id
+     * @throws SQLException thrown if error executing SQL
+     */
+    Map<Integer, String> loadSsns(List<Integer> ids, boolean encrypted) throws SQLException {
+        return metrics.record("loadSsns", encrypted, () -> {
+            Map<Integer, String> ssns = new HashMap<>();
+
+            try (Connection con = getConnection()) {
+                for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                    List<Integer> chunk = ids.subList(from, Math.min(from + MAX_IDS_PER_QUERY, ids.size()));
+                    int bucket = bucket(chunk.size());
+                    String sql = encrypted ? SELECT_ENCRYPTED_SSNS_BY_IDS_SQL[bucket] : SELECT_SSNS_BY_IDS_SQL[bucket];
+
+                    try (PreparedStatement ps = prepare(con, sql)) {
+                        // Unused IN list slots repeat the last id, which does not change the result
+                        for (int i = 0; i < ID_BUCKETS[bucket]; i++) {
+                            ps.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                        }
+
+                        try (ResultSet resultSet = ps.executeQuery()) {
+                            while (resultSet.next()) {
+                                ssns.put(resultSet.getInt(COLUMN_ID), resultSet.getString(COLUMN_SSN));
+                            }
+                        }
+                    }
+                }
+            }
+
+            metrics.rows("loadSsns", ssns.size());
+            return ssns;
+        });
+    }
+
+    /**
+     * Get Customers, without their accounts, inserted or updated since a change token.
+     * <p>
+     * Every write moves the row's {@code row_version}, which is the change token.  Rows are returned in token order,
+     * stopping before any row written by a transaction that is still open, so a row committed later can never get a
+     * token below one already returned.  Key rotation and blind index backfills write rows too, so their rows come
+     * back again unchanged.
+     *
+     * @param sinceToken {@code nextToken} of the previous batch, 0 for every customer
+     * @param limit maximum number of customers to return
+     * @param encrypted true if fields should be encrypted
+     * @return changed customers and the token to continue from
+     * @throws SQLException thrown if error executing SQL
+     */
+    public ChangeBatch<Customer> getCustomerChanges(long sinceToken, int limit, boolean encrypted)
+            throws SQLException {
+        String sql = encrypted ? SELECT_ENCRYPTED_CHANGES_SQL : SELECT_CHANGES_SQL;
+
+        return metrics.record("getCustomerChanges", encrypted, () -> {
+            try (Connection con = getConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                ps.setInt(1, limit);
+                ps.setLong(2, sinceToken);
+
+                List<Customer> customers = new ArrayList<>();
+                long nextToken = sinceToken;
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        customers.add(mapCustomer(resultSet));
+                        nextToken = resultSet.getLong(COLUMN_CHANGE_TOKEN);
+                    }
+                }
+
+                metrics.rows("getCustomerChanges", customers.size());
+                return new ChangeBatch<>(customers, nextToken, customers.size() < limit);
+            }
+        });
+    }
+
+    /**
+     * Stream Customers, without their accounts, in id order starting after a given id.
+     * <p>
+     * Rows are fetched {@code fetchSize} at a time with adaptive response buffering, so memory stays flat however many
+     * customers there are.  The stream holds a pooled connection until it is exhausted or closed and must be used in a
+     * try-with-resources block.  Rows come from a readable secondary when reads are routed.
+     *
+     * @param afterId id to start after, 0 for all customers
+     * @param encrypted true if fields should be encrypted
+     * @param fetchSize number of rows fetched per round trip
+     * @return stream of customers, throws {@link UncheckedSQLException} if a row can not be read
+     * @throws SQLException thrown if error executing SQL
+     */
+    public Stream<Customer> streamCustomersAfter(int afterId, boolean encrypted, int fetchSize) throws SQLException {
+        String sql = encrypted ? SELECT_ENCRYPTED_AFTER_SQL : SELECT_AFTER_SQL;
+
+        Connection con = getReadConnection();
+        try {
+            PreparedStatement ps = prepare(con, sql);
+            ps.setInt(1, afterId);
+            ps.setFetchSize(fetchSize);
+            if (ps.isWrapperFor(SQLServerStatement.class)) {
+                ps.unwrap(SQLServerStatement.class).setResponseBuffering(AccountDAO.ADAPTIVE_BUFFERING);
+            }
+
+            ResultSet resultSet = ps.executeQuery();
+            return ResultSetStreams.stream(con, ps, resultSet, this::mapCustomer);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                con.close();
+            } catch (SQLException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Find Customers and their accounts by social security number.
+     * <p>
+     * {@code ssn} is encrypted with randomized encryption, so the customers are found by seeking the blind index and
+     * customers and accounts are read by one statement batch.  Customers whose index has not been backfilled yet are
+     * not found.
+     *
+     * @param ssn social security number, dashes and whitespace are ignored
+     * @param encrypted true if fields should be encrypted
+     * @return customers with the ssn, in id order
+     * @throws SQLException thrown if error executing SQL
+     * @throws IllegalStateException thrown if the DAO has no blind index
+     */
+    public List<Customer> findBySsn(String ssn, boolean encrypted) throws SQLException {
+        if (blindIndex == null) {
+            throw new IllegalStateException("findBySsn needs a blind index key");
+        }
+        if (ssn == null) {
+            throw new IllegalArgumentException("ssn is required");
+        }
+
+        byte[] ssnIndex = blindIndex.ssn(ssn);
+        String sql = encrypted ? SELECT_ENCRYPTED_BY_SSN_INDEX_SQL : SELECT_BY_SSN_INDEX_SQL;
+
+        return metrics.record("findBySsn", encrypted, () -> {
+            try (Connection con = getConnection();
+                 PreparedStatement ps = prepare(con, sql)) {
+
+                ps.setBytes(1, ssnIndex);
+                ps.setBytes(2, ssnIndex);
+
+                ps.execute();
+
+                Map<Integer, Customer> customers = new LinkedHashMap<>();
+                try (ResultSet resultSet = ps.getResultSet()) {
+                    while (resultSet.next()) {
+                        Customer customer = mapCustomer(resultSet);
+                        customer.setAccounts(new ArrayList<>());
+                        customers.put(customer.getId(), customer);
+                    }
+                }
+
+                if (!ps.getMoreResults()) {
+                    throw new SQLException("Expected the account result set after the customer result set");
+                }
+
+                try (ResultSet resultSet = ps.getResultSet()) {
+                    while (resultSet.next()) {
+                        Account account = accountDAO.convertFromResultSet(resultSet);
+                        Customer customer = customers.get(account.getCustomerId());
+                        if (customer != null) {
+                            customer.getAccounts().add(account);
+                        }
+                    }
+                }
+
+                // Decrypted values are checked so a changed row can never be returned for a stale index
+                if (!encrypted) {
+                    String normalized = BlindIndex.normalizeSsn(ssn);
+                    customers.values().removeIf(customer ->
+                            !normalized.equals(BlindIndex.normalizeSsn(customer.getSsn())));
+                }
+
+                metrics.rows("findBySsn", customers.size());
+                return new ArrayList<>(customers.values());
+            }
+        });
+    }
+
     /**
      * Update Customer
      *
      * @param customer customer to update
+     * @return true if the customer was updated, false if there is no customer with its id
      * @throws SQLException thrown if error executing SQL
      */
-    public void updateCustomer(Customer customer) throws SQLException {
-        String sql = String.format("UPDATE %s.%s SET %s = ?, %s = ?, %s = ?, %s = ? WHERE %s = ? RETURNING %s",
-                SCHEMA, TABLE_CUSTOMER, COLUMN_SSN, COLUMN_FIRST_NAME, COLUMN_MIDDLE_INITIAL, COLUMN_LAST_NAME,
-                COLUMN_ID, ALL_COLUMNS);
+    public boolean updateCustomer(Customer customer) throws SQLException {
+        return metrics.record("updateCustomer", false, () -> {
+            int updated;
+            try (Connection con = getConnection();
+                 PreparedStatement ps = prepare(con, UPDATE_SQL)) {
+
+                setInsertParameters(ps, customer);
+                ps.setInt(6, customer.getId());
+
+                updated = ps.executeUpdate();
+            }
+
+            accountDAO.invalidateCustomer(customer.getId());
+            return updated > 0;
+        });
+    }
+
+    /**
+     * Read the account result set that follows the customer result set and add the accounts to their customers
+     *
+     * @param ps statement batch positioned on the customer result set
+     * @param customers customers by id, their accounts are replaced
+     * @throws SQLException thrown if error executing SQL
+     */
+    private void addAccounts(PreparedStatement ps, Map<Integer, Customer> customers) throws SQLException {
+        customers.values().forEach(customer -> customer.setAccounts(new ArrayList<>()));
+
+        if (!ps.getMoreResults()) {
+            throw new SQLException("Expected the account result set after the customer result set");
+        }
+
+        try (ResultSet resultSet = ps.getResultSet()) {
+            while (resultSet.next()) {
+                Account account = accountDAO.convertFromResultSet(resultSet);
+                Customer customer = customers.get(account.getCustomerId());
+                if (customer != null) {
+                    customer.getAccounts().add(account);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param ids number of ids
+     * @return index of the smallest bucket in {@link #ID_BUCKETS} that holds the ids
+     */
+    private static int bucket(int ids) {
+        int bucket = 0;
+        while (ID_BUCKETS[bucket] < ids) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * Key of the statement text of a projected read: a bit for each field read, the encrypted ones left out when they
+     * are loaded lazily, plus {@link #ENCRYPTED_PROJECTION} when encrypted columns are returned as ciphertext
+     *
+     * @param fields fields to read
+     * @param encrypted true if encrypted columns should be returned as the stored ciphertext
+     * @param lazy true to leave out the encrypted columns
+     * @return index into the projected read statements
+     */
+    private static int projection(Set<CustomerField> fields, boolean encrypted, boolean lazy) {
+        int projection = encrypted ? ENCRYPTED_PROJECTION : 0;
 
-        try (SQLServerConnection con = (SQLServerConnection) dataSource.getConnection()) {
+        for (CustomerField field : fields) {
+            if (!lazy || !field.isEncrypted()) {
+                projection |= 1 << field.ordinal();
+            }
+        }
+
+        return projection;
+    }
+
+    /**
+     * Build the projected id lookup or keyset page query for every projection key, so a projected read only looks its
+     * statement text up
+     *
+     * @param page true for the keyset page queries, batched with the accounts when the key includes them
+     * @return SQL by projection key
+     */
+    private static String[] selectProjectedSql(boolean page) {
+        String[] sql = new String[ENCRYPTED_PROJECTION * 2];
 
-            PreparedStatement ps = con.prepareStatement(sql);
-            ps.setObject(1, customer.getSsn());
-            ps.setNString(2, customer.getFirstName());
-            ps.setNString(3, customer.getMiddleInitial());
-            ps.setNString(3, customer.getLastName());
-            ps.setInt(5, customer.getId());
+        for (int projection = 0; projection < sql.length; projection++) {
+            boolean encrypted = (projection & ENCRYPTED_PROJECTION) != 0;
+            String columns = projectedColumns(projection, encrypted);
 
-            ps.executeUpdate();
+            sql[projection] = page
+                    ? selectPageSql(columns, encrypted, (projection & (1 << CustomerField.ACCOUNTS.ordinal())) != 0)
+                    : String.format("SELECT %s FROM %s.%s WHERE %s = ?", columns, SCHEMA, TABLE_CUSTOMER, COLUMN_ID);
         }
+
+        return sql;
+    }
+
+    /**
+     * Build the select list of a projected read, always starting with the id and listing the columns in table order
+     *
+     * @param projection projection key
+     * @param encrypted true if encrypted columns should be returned as the stored ciphertext
+     * @return select list
+     */
+    private static String projectedColumns(int projection, boolean encrypted) {
+        StringBuilder columns = new StringBuilder(COLUMN_ID);
+
+        for (CustomerField field : CustomerField.values()) {
+            if ((projection & (1 << field.ordinal())) == 0 || field.getColumn() == null) {
+                continue;
+            }
+
+            columns.append(", ").append(encrypted && field.isEncrypted()
+                    ? String.format(ENCRYPTED_COLUMN, field.getColumn())
+                    : field.getColumn());
+        }
+
+        return columns.toString();
+    }
+
+    /**
+     * Build the lazy ssn lookup for every IN list size in {@link #ID_BUCKETS}
+     *
+     * @param encrypted true if the ssn should be returned as the stored ciphertext
+     * @return SQL by bucket
+     */
+    private static String[] selectSsnsByIdsSql(boolean encrypted) {
+        String[] sql = new String[ID_BUCKETS.length];
+
+        for (int bucket = 0; bucket < ID_BUCKETS.length; bucket++) {
+            sql[bucket] = String.format("SELECT %s, %s FROM %s.%s WHERE %s IN (%s)", COLUMN_ID,
+                    encrypted ? String.format(ENCRYPTED_COLUMN, COLUMN_SSN) : COLUMN_SSN, SCHEMA, TABLE_CUSTOMER,
+                    COLUMN_ID, String.join(", ", Collections.nCopies(ID_BUCKETS[bucket], "?")));
+        }
+
+        return sql;
+    }
+
+    /**
+     * Build the multi-get statement batch for every IN list size in {@link #ID_BUCKETS}
+     *
+     * @param encrypted true if fields should be returned as the stored ciphertext
+     * @return SQL by bucket
+     */
+    private static String[] selectByIdsSql(boolean encrypted) {
+        String[] sql = new String[ID_BUCKETS.length];
+
+        for (int bucket = 0; bucket < ID_BUCKETS.length; bucket++) {
+            String inList = String.join(", ", Collections.nCopies(ID_BUCKETS[bucket], "?"));
+            sql[bucket] = String.format("SELECT %s FROM %s.%s WHERE %s IN (%s); " +
+                            "SELECT %s FROM %s.%s WHERE %s IN (%s) ORDER BY %s, %s",
+                    encrypted ? ENCRYPTED_COLUMNS : ALL_COLUMNS, SCHEMA, TABLE_CUSTOMER, COLUMN_ID, inList,
+                    AccountDAO.selectColumns(encrypted), AccountDAO.SCHEMA, AccountDAO.TABLE_ACCOUNT,
+                    AccountDAO.COLUMN_CUSTOMER_ID, inList, AccountDAO.COLUMN_CUSTOMER_ID, AccountDAO.COLUMN_ID);
+        }
+
+        return sql;
+    }
+
+    /**
+     * Build the ssn lookup, batched with the accounts of the customers found
+     *
+     * @param encrypted true if fields should be returned as the stored ciphertext
+     * @return SQL
+     */
+    private static String selectBySsnIndexSql(boolean encrypted) {
+        return String.format("SELECT %s FROM %s.%s WHERE %s = ? ORDER BY %s; " +
+                        "SELECT %s FROM %s.%s WHERE %s IN (SELECT %s FROM %s.%s WHERE %s = ?) ORDER BY %s, %s",
+                encrypted ? ENCRYPTED_COLUMNS : ALL_COLUMNS, SCHEMA, TABLE_CUSTOMER, COLUMN_SSN_INDEX, COLUMN_ID,
+                AccountDAO.selectColumns(encrypted), AccountDAO.SCHEMA, AccountDAO.TABLE_ACCOUNT,
+                AccountDAO.COLUMN_CUSTOMER_ID, COLUMN_ID, SCHEMA, TABLE_CUSTOMER, COLUMN_SSN_INDEX,
+                AccountDAO.COLUMN_CUSTOMER_ID, AccountDAO.COLUMN_ID);
+    }
+
+    /**
+     * Build the keyset page query, optionally batched with the accounts of the same page
+     *
+     * @param columns customer select list
+     * @param encrypted true if account fields should be returned as the stored ciphertext
+     * @param includeAccounts true to add the account query
+     * @return SQL
+     */
+    private static String selectPageSql(String columns, boolean encrypted, boolean includeAccounts) {
+        String sql = String.format("SELECT TOP (?) %s FROM %s.%s WHERE %s > ? ORDER BY %s",
+                columns, SCHEMA, TABLE_CUSTOMER, COLUMN_ID, COLUMN_ID);
+
+        if (includeAccounts) {
+            sql += String.format("; SELECT %s FROM %s.%s WHERE %s IN " +
+                            "(SELECT TOP (?) %s FROM %s.%s WHERE %s > ? ORDER BY %s) ORDER BY %s, %s",
+                    AccountDAO.selectColumns(encrypted), AccountDAO.SCHEMA, AccountDAO.TABLE_ACCOUNT,
+                    AccountDAO.COLUMN_CUSTOMER_ID, COLUMN_ID, SCHEMA, TABLE_CUSTOMER, COLUMN_ID, COLUMN_ID,
+                    AccountDAO.COLUMN_CUSTOMER_ID, AccountDAO.COLUMN_ID);
+        }
+
+        return sql;
     }
 
     /**
@@ -143,15 +1155,55 @@ public class CustomerDAO {
      * @throws SQLException thrown if error converting result set
      */
     private Customer convertFromResultSet(ResultSet resultSet, boolean encrypted) throws SQLException {
-        int customerId = resultSet.getInt(COLUMN_ID);
+        Customer customer = mapCustomer(resultSet);
+        customer.setAccounts(accountDAO.getAccountByCustomerId(customer.getId(), encrypted, false));
+        return customer;
+    }
 
+    /**
+     * Convert the current row of a ResultSet to a Customer without its accounts
+     *
+     * @param resultSet result set
+     * @return Customer
+     * @throws SQLException thrown if error converting result set
+     */
+    private Customer mapCustomer(ResultSet resultSet) throws SQLException {
         return Customer.builder()
-                .id(customerId)
+                .id(resultSet.getInt(COLUMN_ID))
                 .ssn(resultSet.getString(COLUMN_SSN))
                 .firstName(resultSet.getNString(COLUMN_FIRST_NAME))
                 .middleInitial(resultSet.getString(COLUMN_MIDDLE_INITIAL))
                 .lastName(resultSet.getNString(COLUMN_LAST_NAME))
-                .accounts(accountDAO.getAccountByCustomerId(customerId, encrypted))
                 .build();
     }
+
+    /**
+     * Convert the current row of a projected read to a Customer without its accounts
+     *
+     * @param resultSet result set
+     * @param fields fields that were read
+     * @param loader loader of the ssn if it was left out to be read lazily, otherwise null
+     * @return Customer
+     * @throws SQLException thrown if error converting result set
+     */
+    private Customer mapProjected(ResultSet resultSet, Set<CustomerField> fields, LazySsnLoader loader)
+            throws SQLException {
+        int id = resultSet.getInt(COLUMN_ID);
+        Customer customer = loader == null ? Customer.builder().id(id).build() : loader.newCustomer(id);
+
+        if (loader == null && fields.contains(CustomerField.SSN)) {
+            customer.setSsn(resultSet.getString(COLUMN_SSN));
+        }
+        if (fields.contains(CustomerField.FIRST_NAME)) {
+            customer.setFirstName(resultSet.getNString(COLUMN_FIRST_NAME));
+        }
+        if (fields.contains(CustomerField.MIDDLE_INITIAL)) {
+            customer.setMiddleInitial(resultSet.getString(COLUMN_MIDDLE_INITIAL));
+        }
+        if (fields.contains(CustomerField.LAST_NAME)) {
+            customer.setLastName(resultSet.getNString(COLUMN_LAST_NAME));
+        }
+
+        return customer;
+    }
 }
@@ -0,0 +1,68 @@
+package com.encrypted.db.dao;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Customer fields a projected read can select.  The id is always read.
+ */
+public enum CustomerField {
+
+    SSN("ssn", "ssn", true),
+    FIRST_NAME("firstName", "first_name", false),
+    MIDDLE_INITIAL("middleInitial", "middle_initial", false),
+    LAST_NAME("lastName", "last_name", false),
+    ACCOUNTS("accounts", null, false);
+
+    /**
+     * Every field, which reads the same data as the unprojected methods
+     */
+    public static final Set<CustomerField> ALL = Collections.unmodifiableSet(EnumSet.allOf(CustomerField.class));
+
+    private final String property;
+    private final String column;
+    private final boolean encrypted;
+
+    CustomerField(String property, String column, boolean encrypted) {
+        this.property = property;
+        this.column = column;
+        this.encrypted = encrypted;
+    }
+
+    /**
+     * @return property name of the field on {@link com.encrypted.db.entity.Customer}
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * @return column of the customer table, null for the accounts
+     */
+    String getColumn() {
+        return column;
+    }
+
+    /**
+     * @return true if the column is encrypted with Always Encrypted
+     */
+    boolean isEncrypted() {
+        return encrypted;
+    }
+
+    /**
+     * Find a field by its property name
+     *
+     * @param property property name
+     * @return field, null if the property is not a selectable field
+     */
+    public static CustomerField fromProperty(String property) {
+        for (CustomerField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,197 @@
+package com.encrypted.db.dao;
+
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, instrumented executor that runs blocking DAO calls and completes CompletableFutures with their results.
+ * <p>
+ * It should have no more threads than the connection pool has connections, otherwise extra threads only wait on the
+ * pool.  When the queue is full the returned future fails with a {@link RejectedExecutionException} instead of
+ * blocking the caller.  A future that times out or is cancelled before its call has started never runs the call.
+ * <p>
+ * Interrupting a worker does not stop a statement the driver is running, so a call that times out after it has
+ * started runs on to its end.  For a read that only holds its connection a little longer, but a write could still
+ * commit after its caller was told it timed out, leaving the caller with an unknown outcome.  Writes are therefore
+ * submitted with {@link #submitWrite(SqlCall)}, which applies no timeout and never interrupts a running write; they
+ * are bounded by the statements' query timeout instead.
+ */
+public class DaoExecutor implements AutoCloseable {
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final long defaultTimeoutNanos;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder queueWaitTotalNanos = new LongAdder();
+    private final AtomicLong queueWaitMaxNanos = new AtomicLong();
+
+    /**
+     * A blocking DAO call
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * @param name prefix of the worker thread names
+     * @param threads number of worker threads
+     * @param queueCapacity number of calls that may wait for a thread
+     * @param defaultTimeout time after which a read's future fails with a TimeoutException
+     * @param unit unit of the timeout
+     */
+    public DaoExecutor(String name, int threads, int queueCapacity, long defaultTimeout, TimeUnit unit) {
+        this.queueCapacity = queueCapacity;
+        this.defaultTimeoutNanos = unit.toNanos(defaultTimeout);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Run a read with the default timeout
+     *
+     * @param call call to run
+     * @param <T> result type
+     * @return future completed with the result of the call
+     */
+    public <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        return submit(call, defaultTimeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Run a read
+     *
+     * @param call call to run
+     * @param timeout time after which the future fails with a TimeoutException
+     * @param unit unit of the timeout
+     * @param <T> result type
+     * @return future completed with the result of the call
+     */
+    public <T> CompletableFuture<T> submit(SqlCall<T> call, long timeout, TimeUnit unit) {
+        return submit(call, unit.toNanos(timeout), true);
+    }
+
+    /**
+     * Run a call that writes, without a timeout.  Cancelling the future only keeps a write that has not started from
+     * running; a started write runs to its commit or rollback, and the cancelled future does not report which.
+     *
+     * @param call call to run
+     * @param <T> result type
+     * @return future completed with the result of the call
+     */
+    public <T> CompletableFuture<T> submitWrite(SqlCall<T> call) {
+        return submit(call, 0, false);
+    }
+
+    private <T> CompletableFuture<T> submit(SqlCall<T> call, long timeoutNanos, boolean interruptible) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queued = System.nanoTime();
+
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                long wait = System.nanoTime() - queued;
+                queueWaitTotalNanos.add(wait);
+                queueWaitMaxNanos.accumulateAndGet(wait, Math::max);
+
+                if (result.isDone()) {
+                    return;
+                }
+
+                try {
+                    result.complete(call.call());
+                    completed.increment();
+                } catch (Exception e) {
+                    failed.increment();
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        submitted.increment();
+
+        if (interruptible) {
+            result.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        result.whenComplete((value, throwable) -> {
+            if (throwable instanceof TimeoutException) {
+                timedOut.increment();
+                task.cancel(true);
+            } else if (throwable instanceof CancellationException) {
+                cancelled.increment();
+                task.cancel(interruptible);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * @return number of worker threads
+     */
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * @return snapshot of the executor counters
+     */
+    public DaoExecutorStatistics getStatistics() {
+        return DaoExecutorStatistics.builder()
+                .poolSize(executor.getPoolSize())
+                .activeThreads(executor.getActiveCount())
+                .queued(executor.getQueue().size())
+                .queueCapacity(queueCapacity)
+                .submitted(submitted.sum())
+                .completed(completed.sum())
+                .failed(failed.sum())
+                .rejected(rejected.sum())
+                .timedOut(timedOut.sum())
+                .cancelled(cancelled.sum())
+                .queueWaitTotalNanos(queueWaitTotalNanos.sum())
+                .queueWaitMaxNanos(queueWaitMaxNanos.get())
+                .build();
+    }
+
+    /**
+     * Stop accepting calls and wait for the running ones to finish
+     */
+    @Override
+    public void close() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
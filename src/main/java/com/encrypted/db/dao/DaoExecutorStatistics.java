@@ -0,0 +1,27 @@
+package com.encrypted.db.dao;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Point in time snapshot of the DAO executor counters
+ */
+@Data
+@Builder
+public class DaoExecutorStatistics {
+
+    private int poolSize;
+    private int activeThreads;
+    private int queued;
+    private int queueCapacity;
+
+    private long submitted;
+    private long completed;
+    private long failed;
+    private long rejected;
+    private long timedOut;
+    private long cancelled;
+
+    private long queueWaitTotalNanos;
+    private long queueWaitMaxNanos;
+}
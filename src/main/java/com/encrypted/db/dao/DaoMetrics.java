@@ -0,0 +1,170 @@
+package com.encrypted.db.dao;
+
+import com.microsoft.sqlserver.jdbc.SQLServerPreparedStatement;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+/**
+ * Micrometer instrumentation of the DAOs.
+ * <ul>
+ * <li>{@code dao.operation} - latency of each DAO method, tagged by method, encrypted and outcome</li>
+ * <li>{@code dao.connection.acquire} - time spent waiting for a pooled connection</li>
+ * <li>{@code dao.rows} - rows returned by each read, tagged by method</li>
+ * <li>{@code dao.encryption.metadata.lookups} - statements executed for the first time on a connection with Always
+ * Encrypted enabled, each of which costs a sp_describe_parameter_encryption round trip</li>
+ * </ul>
+ */
+public class DaoMetrics {
+
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_ERROR = "error";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+
+    private final MeterRegistry registry;
+    private final boolean columnEncryptionEnabled;
+
+    private final Map<String, Timer> operationTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rowSummaries = new ConcurrentHashMap<>();
+    private final Timer connectionAcquireTimer;
+    private final Counter encryptionMetadataLookups;
+
+    // Driver statements already executed once; weak so statements closed with their connection are forgotten
+    private final Set<SQLServerPreparedStatement> preparedStatements =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    /**
+     * A DAO call to time
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface Operation<T> {
+        T execute() throws SQLException;
+    }
+
+    /**
+     * @param registry registry the meters are registered in
+     * @param columnEncryptionEnabled true if the data source has Always Encrypted enabled
+     */
+    public DaoMetrics(MeterRegistry registry, boolean columnEncryptionEnabled) {
+        this.registry = registry;
+        this.columnEncryptionEnabled = columnEncryptionEnabled;
+
+        connectionAcquireTimer = Timer.builder("dao.connection.acquire")
+                .description("Time spent waiting for a pooled connection")
+                .publishPercentileHistogram()
+                .publishPercentiles(PERCENTILES)
+                .register(registry);
+        encryptionMetadataLookups = Counter.builder("dao.encryption.metadata.lookups")
+                .description("Statements that needed a sp_describe_parameter_encryption round trip")
+                .register(registry);
+    }
+
+    /**
+     * @return metrics registered in the global registry, which Spring Boot also publishes
+     */
+    public static DaoMetrics global() {
+        return new DaoMetrics(Metrics.globalRegistry, false);
+    }
+
+    /**
+     * Time a DAO method
+     *
+     * @param method name of the DAO method
+     * @param encrypted value of the method's encrypted flag
+     * @param operation call to time
+     * @param <T> result type
+     * @return result of the call
+     * @throws SQLException thrown by the call
+     */
+    public <T> T record(String method, boolean encrypted, Operation<T> operation) throws SQLException {
+        long start = System.nanoTime();
+        String outcome = OUTCOME_ERROR;
+
+        try {
+            T result = operation.execute();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } finally {
+            operationTimer(method, encrypted, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Borrow a connection, timing how long the pool takes to hand it out
+     *
+     * @param dataSource data source to borrow from
+     * @return connection
+     * @throws SQLException thrown if no connection could be obtained
+     */
+    Connection acquire(DataSource dataSource) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return dataSource.getConnection();
+        } finally {
+            connectionAcquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Note a prepared statement that is about to be executed.  The first execution of a driver statement with Always
+     * Encrypted enabled fetches the parameter encryption metadata; cached statements reuse it.
+     *
+     * @param ps statement, possibly a pool proxy
+     * @throws SQLException thrown if the statement can not be unwrapped
+     */
+    void statementPrepared(PreparedStatement ps) throws SQLException {
+        if (!columnEncryptionEnabled || !ps.isWrapperFor(SQLServerPreparedStatement.class)) {
+            return;
+        }
+
+        if (preparedStatements.add(ps.unwrap(SQLServerPreparedStatement.class))) {
+            encryptionMetadataLookups.increment();
+        }
+    }
+
+    /**
+     * Record the number of rows a read returned
+     *
+     * @param method name of the DAO method
+     * @param rows rows returned
+     */
+    void rows(String method, int rows) {
+        rowSummaries.computeIfAbsent(method, m -> DistributionSummary.builder("dao.rows")
+                .description("Rows returned by a DAO read")
+                .tag("method", m)
+                .publishPercentiles(PERCENTILES)
+                .register(registry))
+                .record(rows);
+    }
+
+    private Timer operationTimer(String method, boolean encrypted, String outcome) {
+        String key = method + '|' + encrypted + '|' + outcome;
+
+        return operationTimers.computeIfAbsent(key, k -> Timer.builder("dao.operation")
+                .description("Latency of a DAO method")
+                .tag("method", method)
+                .tag("encrypted", Boolean.toString(encrypted))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(PERCENTILES)
+                .register(registry));
+    }
+}
@@ -0,0 +1,43 @@
+package com.encrypted.db.dao;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * When hedged reads send a second attempt, and how many they may send
+ */
+@Data
+@Builder
+public class HedgeOptions {
+
+    // A hedge is sent once the first attempt has run longer than this percentile of recent read latencies
+    @Builder.Default
+    private double percentile = 0.95;
+
+    // Bounds of the hedge delay, so a burst of fast or slow reads can not make it hedge everything or nothing
+    @Builder.Default
+    private long minDelayMillis = 2;
+
+    @Builder.Default
+    private long maxDelayMillis = 1000;
+
+    // Hedge delay until enough latencies have been seen
+    @Builder.Default
+    private long initialDelayMillis = 50;
+
+    // Number of recent latencies the percentile is taken over
+    @Builder.Default
+    private int sampleWindow = 1000;
+
+    // Hedges may add at most this percentage of extra reads
+    @Builder.Default
+    private double budgetPercent = 5;
+
+    // Hedges that may be sent back to back once the budget has built up
+    @Builder.Default
+    private int maxBurst = 10;
+
+    // Send the hedge to a readable secondary when reads are routed, which may return data slightly behind the primary
+    @Builder.Default
+    private boolean hedgeOnSecondary = false;
+}
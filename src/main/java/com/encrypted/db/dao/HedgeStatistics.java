@@ -0,0 +1,23 @@
+package com.encrypted.db.dao;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Point in time snapshot of the hedged read counters
+ */
+@Data
+@Builder
+public class HedgeStatistics {
+
+    private long reads;
+    private long hedges;
+
+    // Reads answered by the hedge rather than the first attempt
+    private long hedgeWins;
+
+    // Reads that were slow enough to hedge but found the budget spent
+    private long budgetExhausted;
+
+    private long delayMillis;
+}
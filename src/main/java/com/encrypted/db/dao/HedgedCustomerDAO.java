@@ -0,0 +1,40 @@
+package com.encrypted.db.dao;
+
+import com.encrypted.db.entity.Customer;
+
+import java.sql.SQLException;
+
+/**
+ * Customer lookups with hedged database reads, for callers whose tail latency matters more than the few extra reads
+ * the hedges cost.  See {@link HedgedReads}.
+ */
+public class HedgedCustomerDAO {
+
+    private final CustomerDAO customerDAO;
+    private final HedgedReads hedgedReads;
+
+    public HedgedCustomerDAO(CustomerDAO customerDAO, HedgedReads hedgedReads) {
+        this.customerDAO = customerDAO;
+        this.hedgedReads = hedgedReads;
+    }
+
+    /**
+     * Get Customer by Id, from the customer cache if there is one.  A database read that is slower than the hedge
+     * delay is sent again on another connection and the first answer wins.
+     *
+     * @param id id of customer
+     * @param encrypted true if fields should be encrypted
+     * @return customer if found
+     * @throws SQLException thrown if error executing SQL
+     */
+    public Customer getCustomerById(int id, boolean encrypted) throws SQLException {
+        return customerDAO.getCustomerById(id, encrypted, hedgedReads);
+    }
+
+    /**
+     * @return snapshot of the hedge counters
+     */
+    public HedgeStatistics getStatistics() {
+        return hedgedReads.getStatistics();
+    }
+}
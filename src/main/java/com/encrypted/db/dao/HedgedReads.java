@@ -0,0 +1,252 @@
+package com.encrypted.db.dao;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedged reads: a read that has not returned within a high percentile of recent read latencies is sent again on
+ * another connection, and whichever attempt answers first wins.  The losing attempt's statement is cancelled on the
+ * server, not just abandoned.
+ * <p>
+ * Hedging only helps when slowness is a property of the attempt (a stalled connection, a blocked query, a busy
+ * replica) rather than of the read itself, and every hedge is an extra read.  The number of hedges is therefore capped
+ * by a budget that grows by {@code budgetPercent} of a hedge with every read, up to {@code maxBurst} hedges, so a
+ * database that is slow across the board is not sent more work.  Both attempts run on the DAO executor.
+ */
+public class HedgedReads {
+
+    // Budget is kept in hundredths of a hedge
+    private static final long HEDGE_COST = 100;
+
+    // Latencies recorded between two recalculations of the hedge delay
+    private static final int RECALCULATE_EVERY = 64;
+
+    private final DaoExecutor executor;
+    private final HedgeOptions options;
+
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long budgetPerRead;
+    private final long maxBudget;
+
+    private final long[] latencies;
+    private int latencyCount;
+    private int recordedSinceRecalculation;
+    private volatile long delayNanos;
+
+    private final AtomicLong budget = new AtomicLong();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+
+    /**
+     * One attempt of a hedged read
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+
+        /**
+         * @param hedge true for the second attempt
+         * @param cancel handle the attempt attaches its statement to
+         * @return result of the read
+         * @throws SQLException thrown if error executing SQL
+         */
+        T read(boolean hedge, QueryCancel cancel) throws SQLException;
+    }
+
+    /**
+     * @param executor executor both attempts run on, which needs a spare thread and connection for the hedge
+     * @param options hedge delay and budget
+     */
+    public HedgedReads(DaoExecutor executor, HedgeOptions options) {
+        if (options.getPercentile() <= 0 || options.getPercentile() >= 1) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1");
+        }
+        if (options.getSampleWindow() < 1) {
+            throw new IllegalArgumentException("sampleWindow must be at least 1");
+        }
+        if (options.getMinDelayMillis() > options.getMaxDelayMillis()) {
+            throw new IllegalArgumentException("minDelayMillis must not exceed maxDelayMillis");
+        }
+
+        this.executor = executor;
+        this.options = options;
+
+        minDelayNanos = TimeUnit.MILLISECONDS.toNanos(options.getMinDelayMillis());
+        maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(options.getMaxDelayMillis());
+        budgetPerRead = Math.round(options.getBudgetPercent());
+        maxBudget = options.getMaxBurst() * HEDGE_COST;
+
+        latencies = new long[options.getSampleWindow()];
+        delayNanos = clamp(TimeUnit.MILLISECONDS.toNanos(options.getInitialDelayMillis()));
+    }
+
+    /**
+     * @return options the reads are hedged with
+     */
+    public HedgeOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Run a read, hedging it if it is slow and the budget allows
+     *
+     * @param attempt read to run, once or twice
+     * @param <T> result type
+     * @return result of the first attempt to succeed
+     * @throws SQLException thrown if both attempts fail, with the error of the last one
+     */
+    public <T> T read(Attempt<T> attempt) throws SQLException {
+        reads.increment();
+        budget.accumulateAndGet(budgetPerRead, (current, add) -> Math.min(maxBudget, current + add));
+
+        QueryCancel firstCancel = new QueryCancel();
+        CompletableFuture<T> first = start(attempt, false, firstCancel);
+
+        try {
+            try {
+                return first.get(delayNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Slow enough to hedge
+            }
+
+            if (!spendBudget()) {
+                budgetExhausted.increment();
+                return first.get();
+            }
+
+            hedges.increment();
+            QueryCancel hedgeCancel = new QueryCancel();
+            CompletableFuture<T> hedge = start(attempt, true, hedgeCancel);
+
+            CompletableFuture<T> winner = new CompletableFuture<>();
+            AtomicInteger won = new AtomicInteger();
+            AtomicInteger failures = new AtomicInteger();
+            first.whenComplete((value, throwable) -> complete(winner, 1, value, throwable, won, failures));
+            hedge.whenComplete((value, throwable) -> complete(winner, 2, value, throwable, won, failures));
+
+            try {
+                T value = winner.get();
+                if (won.get() == 2) {
+                    hedgeWins.increment();
+                }
+                return value;
+            } finally {
+                cancel(hedge, hedgeCancel);
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a hedged read", e);
+        } finally {
+            cancel(first, firstCancel);
+        }
+    }
+
+    /**
+     * @return snapshot of the hedge counters
+     */
+    public HedgeStatistics getStatistics() {
+        return HedgeStatistics.builder()
+                .reads(reads.sum())
+                .hedges(hedges.sum())
+                .hedgeWins(hedgeWins.sum())
+                .budgetExhausted(budgetExhausted.sum())
+                .delayMillis(TimeUnit.NANOSECONDS.toMillis(delayNanos))
+                .build();
+    }
+
+    private <T> CompletableFuture<T> start(Attempt<T> attempt, boolean hedge, QueryCancel cancel) {
+        return executor.submit(() -> {
+            long start = System.nanoTime();
+            T value = attempt.read(hedge, cancel);
+            record(System.nanoTime() - start);
+            return value;
+        });
+    }
+
+    /**
+     * Complete the read with the first attempt to succeed, or with the last failure once both have failed
+     */
+    private static <T> void complete(CompletableFuture<T> winner, int attempt, T value, Throwable throwable,
+                                     AtomicInteger won, AtomicInteger failures) {
+        if (throwable == null) {
+            if (won.compareAndSet(0, attempt)) {
+                winner.complete(value);
+            }
+        } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(throwable);
+        }
+    }
+
+    /**
+     * Cancel an attempt that has not finished: on the server if its statement is running, before it starts otherwise
+     */
+    private static void cancel(CompletableFuture<?> attempt, QueryCancel cancel) {
+        if (!attempt.isDone()) {
+            cancel.cancel();
+            attempt.cancel(false);
+        }
+    }
+
+    private boolean spendBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < HEDGE_COST) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - HEDGE_COST));
+        return true;
+    }
+
+    /**
+     * Record the latency of a successful attempt, recalculating the hedge delay now and then
+     */
+    private void record(long nanos) {
+        long[] sorted;
+        synchronized (latencies) {
+            latencies[latencyCount++ % latencies.length] = nanos;
+            if (latencyCount >= 2 * latencies.length) {
+                // Keep the count bounded while remembering that the window is full
+                latencyCount -= latencies.length;
+            }
+
+            if (++recordedSinceRecalculation < RECALCULATE_EVERY || latencyCount < Math.min(latencies.length,
+                    RECALCULATE_EVERY)) {
+                return;
+            }
+            recordedSinceRecalculation = 0;
+            sorted = Arrays.copyOf(latencies, Math.min(latencyCount, latencies.length));
+        }
+
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(options.getPercentile() * sorted.length) - 1;
+        delayNanos = clamp(sorted[Math.max(0, index)]);
+    }
+
+    private long clamp(long nanos) {
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, nanos));
+    }
+
+    private static SQLException unwrap(Throwable throwable) {
+        if (throwable instanceof SQLException) {
+            return (SQLException) throwable;
+        }
+        if (throwable instanceof UncheckedSQLException) {
+            return ((UncheckedSQLException) throwable).getCause();
+        }
+        return new SQLException("Hedged read failed", throwable);
+    }
+}
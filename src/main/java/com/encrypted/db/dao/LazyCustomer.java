@@ -0,0 +1,63 @@
+package com.encrypted.db.dao;
+
+import com.encrypted.db.entity.Customer;
+
+/**
+ * Customer read without its ssn.  The first call to {@link #getSsn()} loads the ssn of every customer read with it,
+ * so the ssn is only decrypted for reads that use it.  Setting the ssn replaces the value that would be loaded.
+ * {@code equals} and {@code hashCode} go through the getters and load the ssn too.
+ */
+final class LazyCustomer extends Customer {
+
+    private static final long serialVersionUID = 2874635126301842417L;
+
+    // null once the ssn is loaded or set, volatile so the ssn written by the loading thread is visible after it
+    private transient volatile LazySsnLoader loader;
+
+    LazyCustomer(LazySsnLoader loader) {
+        this.loader = loader;
+    }
+
+    @Override
+    public String getSsn() {
+        LazySsnLoader pending = loader;
+        if (pending != null) {
+            pending.load();
+        }
+        return super.getSsn();
+    }
+
+    @Override
+    public void setSsn(String ssn) {
+        super.setSsn(ssn);
+        loader = null;
+    }
+
+    /**
+     * Take the loaded ssn, unless it was set in the meantime
+     *
+     * @param from loader loading the ssn
+     * @param ssn loaded ssn
+     */
+    void loaded(LazySsnLoader from, String ssn) {
+        if (loader == from) {
+            setSsn(ssn);
+        }
+    }
+
+    /**
+     * @return true if the ssn has been loaded or set
+     */
+    boolean isSsnLoaded() {
+        return loader == null;
+    }
+
+    /**
+     * Serialize as a plain customer with the ssn loaded, the loader can not outlive the DAO
+     *
+     * @return customer to serialize
+     */
+    private Object writeReplace() {
+        return new Customer(getId(), getSsn(), getFirstName(), getMiddleInitial(), getLastName(), getAccounts());
+    }
+}
@@ -0,0 +1,60 @@
+package com.encrypted.db.dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Loads the ssn of every {@link LazyCustomer} of one read in a single query, the first time one of them needs it
+ */
+final class LazySsnLoader {
+
+    private final CustomerDAO customerDAO;
+    private final boolean encrypted;
+    private final Map<Integer, LazyCustomer> customers = new LinkedHashMap<>();
+
+    /**
+     * @param customerDAO DAO that read the customers
+     * @param encrypted true if the ssn should be loaded encrypted
+     */
+    LazySsnLoader(CustomerDAO customerDAO, boolean encrypted) {
+        this.customerDAO = customerDAO;
+        this.encrypted = encrypted;
+    }
+
+    /**
+     * Create a customer whose ssn this loader loads
+     *
+     * @param id id of the customer
+     * @return lazy customer
+     */
+    synchronized LazyCustomer newCustomer(int id) {
+        LazyCustomer customer = new LazyCustomer(this);
+        customer.setId(id);
+        customers.put(id, customer);
+        return customer;
+    }
+
+    /**
+     * Load the ssn of every customer that does not have it yet
+     *
+     * @throws UncheckedSQLException thrown if the ssn could not be read, the next call tries again
+     */
+    synchronized void load() {
+        if (customers.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, String> ssns;
+        try {
+            ssns = customerDAO.loadSsns(new ArrayList<>(customers.keySet()), encrypted);
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+
+        // A customer deleted since it was read keeps a null ssn
+        customers.forEach((id, customer) -> customer.loaded(this, ssns.get(id)));
+        customers.clear();
+    }
+}
@@ -0,0 +1,51 @@
+package com.encrypted.db.dao;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets another thread cancel the statement a read is running.  A read cancelled before it attaches its statement
+ * fails as soon as it tries to.
+ */
+public final class QueryCancel {
+
+    private Statement statement;
+    private boolean cancelled;
+
+    /**
+     * @param statement statement about to be executed
+     * @throws SQLException thrown if the read has already been cancelled
+     */
+    public synchronized void attach(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Read cancelled");
+        }
+        this.statement = statement;
+    }
+
+    /**
+     * Forget the statement before it is closed
+     */
+    public synchronized void detach() {
+        statement = null;
+    }
+
+    /**
+     * Cancel the running statement, or the read if its statement has not started yet
+     */
+    public void cancel() {
+        Statement running;
+        synchronized (this) {
+            cancelled = true;
+            running = statement;
+        }
+
+        if (running != null) {
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                // The statement finished or its connection closed in the meantime
+            }
+        }
+    }
+}
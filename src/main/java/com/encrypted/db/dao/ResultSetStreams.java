@@ -0,0 +1,114 @@
+package com.encrypted.db.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Adapts an open ResultSet to a Stream that converts rows lazily and releases the JDBC resources when done
+ */
+final class ResultSetStreams {
+
+    private ResultSetStreams() {
+    }
+
+    /**
+     * Convert the current row of a ResultSet
+     *
+     * @param <T> row type
+     */
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Create a stream over the rows of a ResultSet.  The result set, statement and connection are closed as soon as
+     * the last row has been read, reading or converting a row fails, or the stream is closed, whichever happens first.
+     *
+     * @param con connection the result set was read with
+     * @param statement statement that produced the result set
+     * @param resultSet result set positioned before the first row
+     * @param mapper converts each row
+     * @param <T> row type
+     * @return stream of rows
+     */
+    static <T> Stream<T> stream(Connection con, Statement statement, ResultSet resultSet, RowMapper<T> mapper) {
+        Resources resources = new Resources(con, statement, resultSet);
+
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                if (resources.closed) {
+                    return false;
+                }
+
+                try {
+                    if (!resultSet.next()) {
+                        resources.close();
+                        return false;
+                    }
+                    action.accept(mapper.map(resultSet));
+                    return true;
+                } catch (SQLException e) {
+                    resources.closeQuietly(e);
+                    throw new UncheckedSQLException(e);
+                } catch (RuntimeException | Error e) {
+                    // Thrown by the mapper or by the stream's own operations, which may never close the stream
+                    resources.closeQuietly(e);
+                    throw e;
+                }
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                resources.close();
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        });
+    }
+
+    /**
+     * JDBC resources held open by a stream
+     */
+    private static final class Resources {
+        private final Connection con;
+        private final Statement statement;
+        private final ResultSet resultSet;
+        private boolean closed;
+
+        private Resources(Connection con, Statement statement, ResultSet resultSet) {
+            this.con = con;
+            this.statement = statement;
+            this.resultSet = resultSet;
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try (Connection c = con; Statement s = statement; ResultSet r = resultSet) {
+                // closed in reverse order by try-with-resources
+            }
+        }
+
+        private void closeQuietly(Throwable cause) {
+            try {
+                close();
+            } catch (SQLException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+}
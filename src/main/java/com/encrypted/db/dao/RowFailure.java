@@ -0,0 +1,19 @@
+package com.encrypted.db.dao;
+
+import com.encrypted.db.entity.Customer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A customer that could not be inserted by a batch insert
+ */
+@Data
+@AllArgsConstructor
+public class RowFailure {
+
+    // Position of the customer in the list passed to the batch insert
+    private int index;
+    private Customer customer;
+    private String reason;
+}
@@ -0,0 +1,53 @@
+package com.encrypted.db.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs a unit of work on a connection inside a local transaction
+ */
+final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * Work executed against a connection
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    interface Work<T> {
+        T execute(Connection con) throws SQLException;
+    }
+
+    /**
+     * Execute the work in a transaction, committing on success and rolling back on failure.
+     * The auto commit mode of the connection is restored before returning.
+     *
+     * @param con connection to use
+     * @param work work to execute
+     * @param <T> result type
+     * @return result of the work
+     * @throws SQLException thrown if the work or the commit fails
+     */
+    static <T> T inTransaction(Connection con, Work<T> work) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+
+        try {
+            T result = work.execute(con);
+            con.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                con.rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+}
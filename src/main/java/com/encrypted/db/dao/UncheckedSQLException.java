@@ -0,0 +1,20 @@
+package com.encrypted.db.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Wraps a SQLException raised while a stream or callback is being consumed, where checked exceptions can not be thrown
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 4107532218846204627L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
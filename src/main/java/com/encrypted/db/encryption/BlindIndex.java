@@ -0,0 +1,110 @@
+package com.encrypted.db.encryption;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Keyed HMAC-SHA256 blind indexes of the randomized encrypted columns.
+ * <p>
+ * Randomized encryption gives every write of the same value a different ciphertext, so the database can not compare
+ * encrypted values.  A blind index stored next to the ciphertext is the same for equal values and lets the database
+ * find rows by equality on an ordinary index.  Without the key the index can not be computed from a guessed value,
+ * but equal values still have equal indexes, so the index reveals how often a value repeats.
+ * <p>
+ * Each column has its own key derived from the root key, so the same value in two columns has unrelated indexes.
+ * Instances are thread safe.
+ */
+public class BlindIndex {
+
+    // Length in bytes of every index, the size of the BINARY index columns
+    public static final int LENGTH = 32;
+
+    private static final int MIN_KEY_LENGTH = 32;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final String SSN_DOMAIN = "acct.customer.ssn";
+    private static final String ACCOUNT_NUMBER_DOMAIN = "acct.account.account_number";
+
+    private final ThreadLocal<Mac> ssnMac;
+    private final ThreadLocal<Mac> accountNumberMac;
+
+    /**
+     * @param key root key, at least 32 random bytes kept as secret as the column master key.  Not retained.
+     */
+    public BlindIndex(byte[] key) {
+        if (key == null || key.length < MIN_KEY_LENGTH) {
+            throw new IllegalArgumentException("Blind index key must be at least " + MIN_KEY_LENGTH + " bytes");
+        }
+
+        SecretKeySpec ssnKey = deriveKey(key, SSN_DOMAIN);
+        SecretKeySpec accountNumberKey = deriveKey(key, ACCOUNT_NUMBER_DOMAIN);
+
+        ssnMac = ThreadLocal.withInitial(() -> newMac(ssnKey));
+        accountNumberMac = ThreadLocal.withInitial(() -> newMac(accountNumberKey));
+    }
+
+    /**
+     * Blind index of a social security number.  Dashes and whitespace are ignored, so 123-45-6789 and 123456789 have
+     * the same index.
+     *
+     * @param ssn social security number
+     * @return index, null if the ssn is null
+     */
+    public byte[] ssn(String ssn) {
+        return ssn == null ? null : ssnMac.get().doFinal(normalizeSsn(ssn).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Blind index of an account number.  Account numbers are matched exactly.
+     *
+     * @param accountNumber account number
+     * @return index, null if the account number is null
+     */
+    public byte[] accountNumber(String accountNumber) {
+        return accountNumber == null ? null
+                : accountNumberMac.get().doFinal(accountNumber.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Form of a social security number the index is computed from
+     *
+     * @param ssn social security number
+     * @return ssn without dashes and whitespace
+     */
+    public static String normalizeSsn(String ssn) {
+        return ssn.replaceAll("[\\s-]", "");
+    }
+
+    /**
+     * Derive the key of one column from the root key
+     *
+     * @param key root key
+     * @param domain name of the column
+     * @return column key
+     */
+    private static SecretKeySpec deriveKey(byte[] key, String domain) {
+        byte[] derived = newMac(new SecretKeySpec(key, ALGORITHM)).doFinal(domain.getBytes(StandardCharsets.UTF_8));
+        try {
+            return new SecretKeySpec(derived, ALGORITHM);
+        } finally {
+            Arrays.fill(derived, (byte) 0);
+        }
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (InvalidKeyException e) {
+            throw new IllegalArgumentException("Invalid blind index key", e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+}
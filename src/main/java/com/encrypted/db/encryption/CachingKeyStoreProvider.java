@@ -0,0 +1,207 @@
+package com.encrypted.db.encryption;
+
+import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionKeyStoreProvider;
+import com.microsoft.sqlserver.jdbc.SQLServerException;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Column encryption key store provider that keeps unwrapped column encryption keys in a bounded, process-wide cache.
+ * <p>
+ * Unwrapping a column encryption key is an RSA-OAEP decryption by the delegate provider, which for the Java Key Store
+ * also reloads the key store file.  This provider does that once per key and time to live; every connection after that
+ * gets the key from memory.  Entries are evicted least recently used first once {@code maxEntries} is reached, and
+ * evicted keys are zeroed.
+ */
+public class CachingKeyStoreProvider extends SQLServerColumnEncryptionKeyStoreProvider {
+
+    private final SQLServerColumnEncryptionKeyStoreProvider delegate;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final Map<CacheKey, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder unwrapCount = new LongAdder();
+    private final LongAdder unwrapTotalNanos = new LongAdder();
+    private final AtomicLong unwrapMaxNanos = new AtomicLong();
+
+    private String name;
+
+    /**
+     * @param name name the provider is registered under, must match the KEY_STORE_PROVIDER_NAME of the column master key
+     * @param delegate provider that does the actual unwrapping
+     * @param ttl how long an unwrapped key may be served from the cache
+     * @param ttlUnit unit of the ttl
+     * @param maxEntries maximum number of unwrapped keys held
+     */
+    public CachingKeyStoreProvider(String name, SQLServerColumnEncryptionKeyStoreProvider delegate, long ttl,
+                                   TimeUnit ttlUnit, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+
+        this.name = name;
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.ttlNanos = ttlUnit.toNanos(ttl);
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public byte[] encryptColumnEncryptionKey(String masterKeyPath, String encryptionAlgorithm,
+                                             byte[] columnEncryptionKey) throws SQLServerException {
+        return delegate.encryptColumnEncryptionKey(masterKeyPath, encryptionAlgorithm, columnEncryptionKey);
+    }
+
+    @Override
+    public byte[] decryptColumnEncryptionKey(String masterKeyPath, String encryptionAlgorithm,
+                                             byte[] encryptedColumnEncryptionKey) throws SQLServerException {
+        CacheKey key = new CacheKey(masterKeyPath, encryptionAlgorithm, encryptedColumnEncryptionKey);
+        long now = System.nanoTime();
+
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry != null) {
+                if (now - entry.created < ttlNanos) {
+                    hits.increment();
+                    return entry.key.clone();
+                }
+                evict(cache.remove(key));
+            }
+        }
+
+        misses.increment();
+
+        long start = System.nanoTime();
+        byte[] columnEncryptionKey = delegate.decryptColumnEncryptionKey(masterKeyPath, encryptionAlgorithm,
+                encryptedColumnEncryptionKey);
+        long elapsed = System.nanoTime() - start;
+
+        unwrapCount.increment();
+        unwrapTotalNanos.add(elapsed);
+        unwrapMaxNanos.accumulateAndGet(elapsed, Math::max);
+
+        synchronized (cache) {
+            CacheEntry previous = cache.put(key, new CacheEntry(columnEncryptionKey.clone(), start));
+            if (previous != null) {
+                previous.zero();
+            }
+
+            Iterator<CacheEntry> eldest = cache.values().iterator();
+            while (cache.size() > maxEntries && eldest.hasNext()) {
+                evict(eldest.next());
+                eldest.remove();
+            }
+        }
+
+        return columnEncryptionKey;
+    }
+
+    /**
+     * Zero and drop every cached key.  Call after a column master key or column encryption key rotation.
+     */
+    public void flush() {
+        synchronized (cache) {
+            cache.values().forEach(this::evict);
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return snapshot of the cache counters
+     */
+    public KeyCacheStatistics getStatistics() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+
+        return KeyCacheStatistics.builder()
+                .size(size)
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .unwrapCount(unwrapCount.sum())
+                .unwrapTotalNanos(unwrapTotalNanos.sum())
+                .unwrapMaxNanos(unwrapMaxNanos.get())
+                .build();
+    }
+
+    private void evict(CacheEntry entry) {
+        evictions.increment();
+        entry.zero();
+    }
+
+    /**
+     * Identity of an encrypted column encryption key
+     */
+    private static final class CacheKey {
+        private final String masterKeyPath;
+        private final String encryptionAlgorithm;
+        private final byte[] encryptedColumnEncryptionKey;
+        private final int hash;
+
+        private CacheKey(String masterKeyPath, String encryptionAlgorithm, byte[] encryptedColumnEncryptionKey) {
+            this.masterKeyPath = masterKeyPath;
+            this.encryptionAlgorithm = encryptionAlgorithm;
+            this.encryptedColumnEncryptionKey = encryptedColumnEncryptionKey.clone();
+            this.hash = Objects.hash(masterKeyPath, encryptionAlgorithm)
+                    * 31 + Arrays.hashCode(encryptedColumnEncryptionKey);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return Objects.equals(masterKeyPath, other.masterKeyPath)
+                    && Objects.equals(encryptionAlgorithm, other.encryptionAlgorithm)
+                    && Arrays.equals(encryptedColumnEncryptionKey, other.encryptedColumnEncryptionKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Unwrapped key and when it was unwrapped
+     */
+    private static final class CacheEntry {
+        private final byte[] key;
+        private final long created;
+
+        private CacheEntry(byte[] key, long created) {
+            this.key = key;
+            this.created = created;
+        }
+
+        private void zero() {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.encrypted.db.encryption;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Point in time snapshot of the decrypted column encryption key cache counters
+ */
+@Data
+@Builder
+public class KeyCacheStatistics {
+
+    private int size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private long unwrapCount;
+    private long unwrapTotalNanos;
+    private long unwrapMaxNanos;
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
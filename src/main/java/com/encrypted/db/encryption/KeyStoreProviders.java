@@ -0,0 +1,46 @@
+package com.encrypted.db.encryption;
+
+import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionKeyStoreProvider;
+import com.microsoft.sqlserver.jdbc.SQLServerConnection;
+import com.microsoft.sqlserver.jdbc.SQLServerException;
+
+import java.util.Collections;
+
+/**
+ * Registers custom column encryption key store providers with the driver.
+ * The driver only accepts one registration per JVM, so this is done once at start up.
+ */
+public final class KeyStoreProviders {
+
+    private static boolean registered;
+
+    private KeyStoreProviders() {
+    }
+
+    /**
+     * Register the caching provider for the whole JVM.
+     * The driver's own key cache is left on, since it is shared by every provider and the built in
+     * {@code MSSQL_JAVA_KEYSTORE} provider relies on it for column master keys that have not been moved over.
+     *
+     * @param provider caching provider to register
+     * @throws SQLServerException thrown if the driver rejects the registration
+     */
+    public static synchronized void register(CachingKeyStoreProvider provider) throws SQLServerException {
+        if (registered) {
+            throw new IllegalStateException("Column encryption key store providers are already registered");
+        }
+
+        SQLServerConnection.registerColumnEncryptionKeyStoreProviders(
+                Collections.<String, SQLServerColumnEncryptionKeyStoreProvider>singletonMap(provider.getName(),
+                        provider));
+
+        registered = true;
+    }
+
+    /**
+     * @return true if the providers have been registered
+     */
+    public static synchronized boolean isRegistered() {
+        return registered;
+    }
+}
@@ -0,0 +1,360 @@
+package com.encrypted.db.export;
+
+import com.encrypted.db.bulk.CsvCustomerWriter;
+import com.encrypted.db.codec.EntityJsonWriter;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.microsoft.sqlserver.jdbc.SQLServerStatement;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+/**
+ * Exports every customer and its accounts to compressed NDJSON or CSV shards for analytics.
+ * <p>
+ * {@code acct.customer} is split into id ranges of {@code rangeSize} ids.  A fixed number of workers each borrow one
+ * connection for the whole export and take ranges off a shared queue, so a worker that draws a dense range does not
+ * hold up the others.  Each range is read by a single forward-only query joining the accounts, decrypted by the driver
+ * as the rows stream in, and written to its own shard.  A shard is written under a {@code .tmp} name and renamed once
+ * complete, so a shard without that suffix is always whole.
+ * <p>
+ * Unless {@code encrypted} is set the shards hold decrypted SSNs and account numbers and must be protected like the
+ * key store.
+ */
+public class CustomerExport {
+
+    private static final Logger LOG = Logger.getLogger(CustomerExport.class.getName());
+
+    private static final String CUSTOMERS = CustomerDAO.SCHEMA + "." + CustomerDAO.TABLE_CUSTOMER;
+    private static final String ACCOUNTS = AccountDAO.SCHEMA + "." + AccountDAO.TABLE_ACCOUNT;
+
+    private static final String ID_RANGE_SQL = "SELECT ISNULL(MIN(id), 0), ISNULL(MAX(id), 0) FROM " + CUSTOMERS;
+    private static final String SELECT_RANGE_SQL = "SELECT c.id, %s, c.first_name, c.middle_initial, c.last_name, " +
+            "a.id, a.customer_id, %s, a.balance FROM " + CUSTOMERS + " c " +
+            "LEFT JOIN " + ACCOUNTS + " a ON a.customer_id = c.id " +
+            "WHERE c.id >= ? AND c.id < ? ORDER BY c.id, a.id";
+    private static final String SELECT_RANGE_PLAIN_SQL = String.format(SELECT_RANGE_SQL, "c.ssn",
+            "a.account_number");
+    private static final String SELECT_RANGE_ENCRYPTED_SQL = String.format(SELECT_RANGE_SQL,
+            "CONVERT(NVARCHAR, c.ssn, 2)", "CONVERT(NVARCHAR, a.account_number, 2)");
+
+    private static final String SHARD_NAME = "customers-%05d.%s";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final DataSource dataSource;
+    private final JsonFactory jsonFactory;
+
+    /**
+     * @param dataSource data source to read from, with Always Encrypted enabled unless exporting ciphertext
+     * @param jsonFactory factory of the NDJSON generators
+     */
+    public CustomerExport(DataSource dataSource, JsonFactory jsonFactory) {
+        this.dataSource = dataSource;
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Export every customer and its accounts
+     *
+     * @param options destination and tuning
+     * @return what was written
+     * @throws SQLException thrown if error executing SQL, shards already written are kept
+     * @throws IOException thrown if error writing a shard, shards already written are kept
+     */
+    public ExportReport export(ExportOptions options) throws SQLException, IOException {
+        if (options.getDirectory() == null || options.getRangeSize() < 1 || options.getParallelism() < 1) {
+            throw new IllegalArgumentException("directory is required and rangeSize and parallelism must be at " +
+                    "least 1");
+        }
+
+        long start = System.nanoTime();
+        Files.createDirectories(options.getDirectory());
+
+        Queue<Range> ranges = new ConcurrentLinkedQueue<>();
+        try (Connection con = dataSource.getConnection();
+             Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery(ID_RANGE_SQL)) {
+            resultSet.next();
+            int minId = resultSet.getInt(1);
+            int maxId = resultSet.getInt(2);
+
+            // An empty table has no ids, MIN and MAX are both 0
+            int shard = 0;
+            for (long from = minId; maxId > 0 && from <= maxId; from += options.getRangeSize()) {
+                ranges.add(new Range(shard++, (int) from, (int) Math.min(from + options.getRangeSize(),
+                        (long) maxId + 1)));
+            }
+        }
+
+        String[] files = new String[ranges.size()];
+        Progress progress = new Progress(ranges.size());
+
+        int workers = Math.max(1, Math.min(options.getParallelism(), ranges.size()));
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "customer-export-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "customer-export-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (options.getProgressIntervalSeconds() > 0) {
+            reporter.scheduleAtFixedRate(() -> LOG.info(progress.describe(start)),
+                    options.getProgressIntervalSeconds(), options.getProgressIntervalSeconds(), TimeUnit.SECONDS);
+        }
+
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                running.add(executor.submit(() -> {
+                    try (Connection con = dataSource.getConnection()) {
+                        Range range;
+                        while ((range = ranges.poll()) != null && !Thread.currentThread().isInterrupted()) {
+                            files[range.shard] = exportRange(con, range, options, progress).getFileName()
+                                    .toString();
+                            progress.ranges.incrementAndGet();
+                        }
+                    } catch (SQLException | IOException | RuntimeException e) {
+                        // The other workers stop after their current range
+                        ranges.clear();
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+
+            await(running);
+        } finally {
+            executor.shutdownNow();
+            reporter.shutdownNow();
+        }
+
+        ExportReport report = new ExportReport();
+        report.setCustomers(progress.customers.get());
+        report.setAccounts(progress.accounts.get());
+        for (String file : files) {
+            report.getFiles().add(file);
+            report.setBytes(report.getBytes() + Files.size(options.getDirectory().resolve(file)));
+        }
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+
+    /**
+     * Read the customers of one id range with their accounts and write them to the range's shard
+     *
+     * @param con connection of the worker
+     * @param range ids to export
+     * @param options destination and tuning
+     * @param progress counters to add to
+     * @return shard written
+     * @throws SQLException thrown if error executing SQL
+     * @throws IOException thrown if error writing the shard
+     */
+    private Path exportRange(Connection con, Range range, ExportOptions options, Progress progress)
+            throws SQLException, IOException {
+        ExportFormat format = options.getFormat();
+        String name = String.format(SHARD_NAME, range.shard, format.getExtension()) + (options.isGzip() ? ".gz" : "");
+        Path shard = options.getDirectory().resolve(name);
+        Path temp = options.getDirectory().resolve(name + TEMP_SUFFIX);
+
+        try (PreparedStatement ps = con.prepareStatement(options.isEncrypted() ? SELECT_RANGE_ENCRYPTED_SQL
+                : SELECT_RANGE_PLAIN_SQL)) {
+            ps.setInt(1, range.from);
+            ps.setInt(2, range.to);
+            ps.setFetchSize(options.getFetchSize());
+            if (ps.isWrapperFor(SQLServerStatement.class)) {
+                ps.unwrap(SQLServerStatement.class).setResponseBuffering("adaptive");
+            }
+
+            try (ResultSet resultSet = ps.executeQuery();
+                 ShardWriter writer = openShard(temp, options)) {
+                Customer customer = null;
+                while (resultSet.next()) {
+                    int id = resultSet.getInt(1);
+                    if (customer == null || customer.getId() != id) {
+                        if (customer != null) {
+                            writer.write(customer);
+                            progress.add(customer);
+                        }
+                        customer = Customer.builder()
+                                .id(id)
+                                .ssn(resultSet.getString(2))
+                                .firstName(resultSet.getNString(3))
+                                .middleInitial(resultSet.getString(4))
+                                .lastName(resultSet.getNString(5))
+                                .accounts(new ArrayList<>())
+                                .build();
+                    }
+
+                    int accountId = resultSet.getInt(6);
+                    if (!resultSet.wasNull()) {
+                        customer.getAccounts().add(Account.builder()
+                                .id(accountId)
+                                .customerId(resultSet.getInt(7))
+                                .accountNumber(resultSet.getString(8))
+                                .balance(resultSet.getDouble(9))
+                                .build());
+                    }
+                }
+
+                if (customer != null) {
+                    writer.write(customer);
+                    progress.add(customer);
+                }
+            }
+
+            Files.move(temp, shard, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return shard;
+        } catch (SQLException | IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException deleteException) {
+                e.addSuppressed(deleteException);
+            }
+            throw e;
+        }
+    }
+
+    private ShardWriter openShard(Path file, ExportOptions options) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+        if (options.isGzip()) {
+            out = new GZIPOutputStream(out, 64 * 1024);
+        }
+
+        if (options.getFormat() == ExportFormat.CSV) {
+            CsvCustomerWriter csv = new CsvCustomerWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            return new ShardWriter() {
+                @Override
+                public void write(Customer customer) throws IOException {
+                    csv.write(customer);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    csv.close();
+                }
+            };
+        }
+
+        // Lines are separated by the newline alone, not the generator's default root value separator
+        JsonGenerator generator = jsonFactory.createGenerator(out);
+        generator.enable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return new ShardWriter() {
+            @Override
+            public void write(Customer customer) throws IOException {
+                EntityJsonWriter.writeCustomer(generator, customer);
+                generator.writeRaw('\n');
+            }
+
+            @Override
+            public void close() throws IOException {
+                generator.close();
+            }
+        };
+    }
+
+    private static void await(List<Future<?>> running) throws SQLException, IOException {
+        try {
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the export", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new SQLException("Export failed", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the customers of one shard
+     */
+    private interface ShardWriter extends Closeable {
+        void write(Customer customer) throws IOException;
+    }
+
+    /**
+     * Ids {@code from} inclusive to {@code to} exclusive, written to shard number {@code shard}
+     */
+    private static final class Range {
+
+        private final int shard;
+        private final int from;
+        private final int to;
+
+        private Range(int shard, int from, int to) {
+            this.shard = shard;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Counters shared by the workers
+     */
+    private static final class Progress {
+
+        private final int totalRanges;
+        private final AtomicInteger ranges = new AtomicInteger();
+        private final AtomicLong customers = new AtomicLong();
+        private final AtomicLong accounts = new AtomicLong();
+
+        private Progress(int totalRanges) {
+            this.totalRanges = totalRanges;
+        }
+
+        private void add(Customer customer) {
+            customers.incrementAndGet();
+            accounts.addAndGet(customer.getAccounts().size());
+        }
+
+        private String describe(long start) {
+            long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return String.format("Exported %d of %d ranges, %d customers (%.0f/s), %d accounts", ranges.get(),
+                    totalRanges, customers.get(), customers.get() * 1000.0 / elapsedMillis, accounts.get());
+        }
+    }
+}
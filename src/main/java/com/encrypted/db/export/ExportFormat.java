@@ -0,0 +1,23 @@
+package com.encrypted.db.export;
+
+/**
+ * File format of the export shards
+ */
+public enum ExportFormat {
+
+    // One customer per line, with its accounts, as the REST API returns it
+    NDJSON("ndjson"),
+
+    // One row per account in the format the bulk loader reads, without ids
+    CSV("csv");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
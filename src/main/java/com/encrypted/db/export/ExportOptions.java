@@ -0,0 +1,43 @@
+package com.encrypted.db.export;
+
+import java.nio.file.Path;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Destination and tuning of a customer export
+ */
+@Data
+@Builder
+public class ExportOptions {
+
+    // Directory the shards are written to, created if missing
+    private Path directory;
+
+    @Builder.Default
+    private ExportFormat format = ExportFormat.NDJSON;
+
+    @Builder.Default
+    private boolean gzip = true;
+
+    // Customer ids per range, each range is scanned by one worker and written to its own shard
+    @Builder.Default
+    private int rangeSize = 100000;
+
+    // Workers scanning ranges, each holding one connection for the whole export
+    @Builder.Default
+    private int parallelism = 4;
+
+    // Rows the driver fetches per round trip
+    @Builder.Default
+    private int fetchSize = 1000;
+
+    // Export ciphertext instead of letting the driver decrypt
+    @Builder.Default
+    private boolean encrypted = false;
+
+    // Progress is logged this often, 0 to only report at the end
+    @Builder.Default
+    private long progressIntervalSeconds = 10;
+}
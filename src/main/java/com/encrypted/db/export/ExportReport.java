@@ -0,0 +1,42 @@
+package com.encrypted.db.export;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Outcome and throughput of a customer export
+ */
+@Data
+public class ExportReport {
+
+    private long customers;
+    private long accounts;
+
+    // Shards written, in id order, and their total size on disk
+    private List<String> files = new ArrayList<>();
+    private long bytes;
+
+    private long elapsedMillis;
+
+    public double getCustomersPerSecond() {
+        return elapsedMillis == 0 ? 0 : customers * 1000.0 / elapsedMillis;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedMillis == 0 ? 0 : bytes / 1048576.0 * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder("Customer export").append("\n")
+                .append("\tcustomers: ").append(customers)
+                .append(String.format(" (%.0f/s)", getCustomersPerSecond())).append("\n")
+                .append("\taccounts: ").append(accounts).append("\n")
+                .append("\tshards: ").append(files.size()).append(", ").append(bytes).append(" bytes")
+                .append(String.format(" (%.1f MB/s)", getMegabytesPerSecond())).append("\n")
+                .append("\telapsed: ").append(elapsedMillis).append(" ms")
+                .toString();
+    }
+}
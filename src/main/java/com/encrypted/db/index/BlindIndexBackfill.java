@@ -0,0 +1,226 @@
+package com.encrypted.db.index;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.encryption.BlindIndex;
+import com.encrypted.db.rotation.Throttle;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import javax.sql.DataSource;
+
+/**
+ * Fills the blind index columns of rows written before the index existed, or by a DAO without a blind index key.
+ * <p>
+ * The index columns and their indexes are created if they are missing.  Rows without an index are then read in id
+ * order a chunk at a time, decrypted by the driver, indexed and written back in one transaction per chunk.  Each
+ * write only applies while the row still has no index, so a row a DAO updates in the meantime keeps the index the DAO
+ * wrote.  Progress is the data itself, so a backfill that is stopped simply carries on when it is run again.
+ */
+public class BlindIndexBackfill {
+
+    private static final String SSN_INDEX_COLUMN = "ssn_index";
+    private static final String ACCOUNT_NUMBER_INDEX_COLUMN = "account_number_index";
+
+    private static final List<IndexedColumn> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            new IndexedColumn(CustomerDAO.SCHEMA, CustomerDAO.TABLE_CUSTOMER, "ssn", SSN_INDEX_COLUMN,
+                    BlindIndex::ssn),
+            new IndexedColumn(AccountDAO.SCHEMA, AccountDAO.TABLE_ACCOUNT, "account_number",
+                    ACCOUNT_NUMBER_INDEX_COLUMN, BlindIndex::accountNumber)));
+
+    private static final String ADD_COLUMN_SQL = "IF COL_LENGTH(N'%1$s', N'%2$s') IS NULL " +
+            "ALTER TABLE %1$s ADD %2$s BINARY(" + BlindIndex.LENGTH + ") NULL";
+    private static final String CREATE_INDEX_SQL = "IF NOT EXISTS (SELECT 1 FROM sys.indexes " +
+            "WHERE object_id = OBJECT_ID(N'%1$s') AND name = N'%2$s') CREATE INDEX %2$s ON %1$s (%3$s)";
+
+    private static final String SELECT_CHUNK_SQL = "SELECT TOP (?) id, %s FROM %s WHERE id > ? AND %s IS NULL " +
+            "ORDER BY id";
+    private static final String UPDATE_SQL = "UPDATE %s SET %s = ? WHERE id = ? AND %s IS NULL";
+
+    private final DataSource dataSource;
+    private final BlindIndex blindIndex;
+
+    /**
+     * @param dataSource data source with Always Encrypted enabled, so the driver decrypts the indexed columns
+     * @param blindIndex blind index the DAOs use
+     */
+    public BlindIndexBackfill(DataSource dataSource, BlindIndex blindIndex) {
+        this.dataSource = dataSource;
+        this.blindIndex = blindIndex;
+    }
+
+    /**
+     * Create the index columns if needed and index every row that has no index
+     *
+     * @param options tuning
+     * @return rows indexed
+     * @throws SQLException thrown if error executing SQL, chunks committed before the error stay committed
+     */
+    public BlindIndexBackfillReport backfill(BlindIndexBackfillOptions options) throws SQLException {
+        if (options.getChunkSize() < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+
+        long start = System.nanoTime();
+        BlindIndexBackfillReport report = new BlindIndexBackfillReport();
+        Throttle throttle = new Throttle(options.getMaxRowsPerSecond());
+
+        try (Connection con = dataSource.getConnection()) {
+            createIndexes(con);
+
+            for (IndexedColumn column : COLUMNS) {
+                backfill(con, column, options.getChunkSize(), throttle, report);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while backfilling blind indexes", e);
+        }
+
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    /**
+     * Add the index columns and their indexes where they are missing
+     *
+     * @param con connection to use
+     * @throws SQLException thrown if error executing SQL
+     */
+    private static void createIndexes(Connection con) throws SQLException {
+        for (IndexedColumn column : COLUMNS) {
+            try (PreparedStatement ps = con.prepareStatement(String.format(ADD_COLUMN_SQL, column.table(),
+                    column.indexColumn))) {
+                ps.execute();
+            }
+            try (PreparedStatement ps = con.prepareStatement(String.format(CREATE_INDEX_SQL, column.table(),
+                    column.indexName(), column.indexColumn))) {
+                ps.execute();
+            }
+        }
+    }
+
+    /**
+     * Index every row of one column that has no index, a chunk per transaction
+     *
+     * @param con connection to use
+     * @param column column to index
+     * @param chunkSize rows per chunk
+     * @param throttle shared rate limit
+     * @param report report to add to
+     * @throws SQLException thrown if error executing SQL
+     * @throws InterruptedException thrown if interrupted while throttled
+     */
+    private void backfill(Connection con, IndexedColumn column, int chunkSize, Throttle throttle,
+                          BlindIndexBackfillReport report) throws SQLException, InterruptedException {
+        String selectSql = String.format(SELECT_CHUNK_SQL, column.column, column.table(), column.indexColumn);
+        String updateSql = String.format(UPDATE_SQL, column.table(), column.indexColumn, column.indexColumn);
+
+        long indexed = 0;
+        long skipped = 0;
+        int afterId = 0;
+
+        while (true) {
+            List<Integer> ids = new ArrayList<>(chunkSize);
+            List<byte[]> indexes = new ArrayList<>(chunkSize);
+
+            try (PreparedStatement ps = con.prepareStatement(selectSql)) {
+                ps.setInt(1, chunkSize);
+                ps.setInt(2, afterId);
+
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getInt(1));
+                        indexes.add(column.index.apply(blindIndex, resultSet.getString(2)));
+                    }
+                }
+            }
+
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            throttle.acquire(ids.size());
+
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(updateSql)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    if (indexes.get(i) == null) {
+                        ps.setNull(1, Types.BINARY);
+                    } else {
+                        ps.setBytes(1, indexes.get(i));
+                    }
+                    ps.setInt(2, ids.get(i));
+                    ps.addBatch();
+                }
+
+                for (int count : ps.executeBatch()) {
+                    if (count > 0) {
+                        indexed++;
+                    } else {
+                        skipped++;
+                    }
+                }
+
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    con.rollback();
+                } catch (SQLException rollbackException) {
+                    e.addSuppressed(rollbackException);
+                }
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+
+            afterId = ids.get(ids.size() - 1);
+            report.setChunks(report.getChunks() + 1);
+        }
+
+        report.getIndexedRows().put(column.toString(), indexed);
+        report.getSkippedRows().put(column.toString(), skipped);
+    }
+
+    /**
+     * Encrypted column and the blind index column beside it
+     */
+    private static final class IndexedColumn {
+
+        private final String schema;
+        private final String tableName;
+        private final String column;
+        private final String indexColumn;
+        private final BiFunction<BlindIndex, String, byte[]> index;
+
+        private IndexedColumn(String schema, String tableName, String column, String indexColumn,
+                              BiFunction<BlindIndex, String, byte[]> index) {
+            this.schema = schema;
+            this.tableName = tableName;
+            this.column = column;
+            this.indexColumn = indexColumn;
+            this.index = index;
+        }
+
+        private String table() {
+            return schema + "." + tableName;
+        }
+
+        private String indexName() {
+            return "ix_" + tableName + "_" + indexColumn;
+        }
+
+        @Override
+        public String toString() {
+            return table() + "." + column;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.encrypted.db.index;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Tuning for a blind index backfill
+ */
+@Data
+@Builder
+public class BlindIndexBackfillOptions {
+
+    // Rows read and indexed per transaction
+    @Builder.Default
+    private int chunkSize = 1000;
+
+    // Rows indexed per second, 0 for no limit
+    @Builder.Default
+    private int maxRowsPerSecond = 0;
+}
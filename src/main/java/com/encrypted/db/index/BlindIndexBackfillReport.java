@@ -0,0 +1,23 @@
+package com.encrypted.db.index;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Outcome of a blind index backfill
+ */
+@Data
+public class BlindIndexBackfillReport {
+
+    // Rows given an index, by column
+    private Map<String, Long> indexedRows = new LinkedHashMap<>();
+
+    // Rows written concurrently by a DAO while their index was computed, left with the DAO's index
+    private Map<String, Long> skippedRows = new LinkedHashMap<>();
+
+    private long chunks;
+
+    private long elapsedMillis;
+}
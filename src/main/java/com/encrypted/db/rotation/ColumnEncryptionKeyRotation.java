@@ -0,0 +1,634 @@
+package com.encrypted.db.rotation;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionKeyStoreProvider;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+/**
+ * Rotates the column encryption key of {@code customer.ssn} and {@code account.account_number} while the DAOs keep
+ * serving traffic.
+ * <p>
+ * Always Encrypted values can only be re-encrypted by a client holding both keys, so each column gets a
+ * {@code _rotated} shadow column encrypted with the new key, and the rows are copied across in parallel id range
+ * chunks.  A trigger clears the shadow value whenever the original column is updated, and each copy is guarded by the
+ * row's {@code row_version}, so a row written by the application during the rotation is never left with a stale
+ * copy; it is simply copied again.  Chunks are checkpointed in {@code acct.cek_rotation_checkpoint} in the same
+ * transaction as their rows, so a rotation that is run again after a crash resumes where it stopped.
+ * <p>
+ * At cutover both tables are locked briefly: rows changed since they were copied are copied again, every row is
+ * verified to have a shadow value, the shadow columns replace the originals and the old key is dropped.  Callers must
+ * then drop cached statements and keys (see {@code ConnectionPoolFactory.invalidateStatementCaches}) because the
+ * encryption metadata the driver cached for the old columns is no longer valid.
+ * <p>
+ * Every step checks what is already in place, so running a rotation again is always safe.
+ */
+public class ColumnEncryptionKeyRotation {
+
+    static final String CHECKPOINT_TABLE = "cek_rotation_checkpoint";
+
+    static final String ROTATED_SUFFIX = "_rotated";
+    static final String ROW_VERSION = "row_version";
+
+    private static final String ALGORITHM = "AEAD_AES_256_CBC_HMAC_SHA_256";
+    private static final String KEY_ENCRYPTION_ALGORITHM = "RSA_OAEP";
+    private static final int KEY_BYTES = 32;
+
+    private static final List<EncryptedColumn> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            new EncryptedColumn(CustomerDAO.SCHEMA, CustomerDAO.TABLE_CUSTOMER, "ssn", "NVARCHAR(9)"),
+            new EncryptedColumn(AccountDAO.SCHEMA, AccountDAO.TABLE_ACCOUNT, "account_number", "NVARCHAR(30)")));
+
+    private static final String CHECKPOINTS = CustomerDAO.SCHEMA + "." + CHECKPOINT_TABLE;
+
+    private static final String CREATE_CHECKPOINT_TABLE_SQL = String.format(
+            "IF OBJECT_ID(N'%1$s', N'U') IS NULL CREATE TABLE %1$s (" +
+                    "new_key_name SYSNAME NOT NULL, " +
+                    "column_name NVARCHAR(300) NOT NULL, " +
+                    "chunk_start INT NOT NULL, " +
+                    "rows_copied INT NOT NULL, " +
+                    "committed_at DATETIME2 NOT NULL DEFAULT SYSUTCDATETIME(), " +
+                    "CONSTRAINT pk_%2$s PRIMARY KEY (new_key_name, column_name, chunk_start))",
+            CHECKPOINTS, CHECKPOINT_TABLE);
+    private static final String SELECT_CHECKPOINTS_SQL = String.format(
+            "SELECT chunk_start FROM %s WHERE new_key_name = ? AND column_name = ?", CHECKPOINTS);
+    private static final String INSERT_CHECKPOINT_SQL = String.format(
+            "INSERT INTO %s (new_key_name, column_name, chunk_start, rows_copied) VALUES (?, ?, ?, ?)", CHECKPOINTS);
+
+    private static final String KEY_EXISTS_SQL = "SELECT 1 FROM sys.column_encryption_keys WHERE name = ?";
+    private static final String MASTER_KEY_SQL = "SELECT cmk.name, cmk.key_path " +
+            "FROM sys.column_encryption_keys cek " +
+            "JOIN sys.column_encryption_key_values v ON v.column_encryption_key_id = cek.column_encryption_key_id " +
+            "JOIN sys.column_master_keys cmk ON cmk.column_master_key_id = v.column_master_key_id " +
+            "WHERE cek.name = ?";
+    private static final String CREATE_KEY_SQL = "CREATE COLUMN ENCRYPTION KEY [%s] WITH VALUES " +
+            "(COLUMN_MASTER_KEY = [%s], ALGORITHM = '%s', ENCRYPTED_VALUE = 0x%s)";
+    private static final String KEY_IN_USE_SQL = "SELECT COUNT(*) FROM sys.columns c " +
+            "JOIN sys.column_encryption_keys k ON k.column_encryption_key_id = c.column_encryption_key_id " +
+            "WHERE k.name = ?";
+    private static final String DROP_KEY_SQL = "DROP COLUMN ENCRYPTION KEY [%s]";
+
+    private static final String COLUMN_EXISTS_SQL = "SELECT COL_LENGTH(?, ?)";
+    private static final String COLUMN_KEY_SQL = "SELECT k.name FROM sys.columns c " +
+            "JOIN sys.column_encryption_keys k ON k.column_encryption_key_id = c.column_encryption_key_id " +
+            "WHERE c.object_id = OBJECT_ID(?) AND c.name = ?";
+    private static final String ADD_ROW_VERSION_SQL = "ALTER TABLE %s ADD " + ROW_VERSION + " ROWVERSION";
+    private static final String ADD_ROTATED_COLUMN_SQL = "ALTER TABLE %s ADD %s %s ENCRYPTED WITH " +
+            "(COLUMN_ENCRYPTION_KEY = [%s], ENCRYPTION_TYPE = Randomized, ALGORITHM = '" + ALGORITHM + "') NULL";
+    private static final String CREATE_TRIGGER_SQL = "CREATE OR ALTER TRIGGER %1$s ON %2$s AFTER UPDATE AS " +
+            "BEGIN SET NOCOUNT ON; " +
+            "IF UPDATE(%3$s) UPDATE t SET %4$s = NULL FROM %2$s t JOIN inserted i ON t.id = i.id; " +
+            "END";
+    private static final String DROP_TRIGGER_SQL = "DROP TRIGGER IF EXISTS %s";
+
+    private static final String MAX_ID_SQL = "SELECT ISNULL(MAX(id), 0) FROM %s";
+    private static final String SELECT_CHUNK_SQL = "SELECT id, %s, " + ROW_VERSION + " FROM %s " +
+            "WHERE id >= ? AND id < ? AND %s IS NULL";
+    private static final String SELECT_REMAINING_SQL = "SELECT id, %s, " + ROW_VERSION + " FROM %s WHERE %s IS NULL";
+    private static final String COPY_SQL = "UPDATE %s SET %s = ? WHERE id = ? AND " + ROW_VERSION + " = ?";
+
+    private static final String LOCK_SQL = "SELECT TOP (1) id FROM %s WITH (TABLOCKX, HOLDLOCK)";
+    private static final String COUNT_SQL = "SELECT COUNT(*), COUNT(%s) FROM %s";
+    private static final String DROP_COLUMN_SQL = "ALTER TABLE %s DROP COLUMN %s";
+    private static final String RENAME_COLUMN_SQL = "EXEC sp_rename N'%s.%s', N'%s', N'COLUMN'";
+    private static final String NOT_NULL_SQL = "ALTER TABLE %s ALTER COLUMN %s %s ENCRYPTED WITH " +
+            "(COLUMN_ENCRYPTION_KEY = [%s], ENCRYPTION_TYPE = Randomized, ALGORITHM = '" + ALGORITHM + "') NOT NULL";
+
+    private final DataSource dataSource;
+    private final SQLServerColumnEncryptionKeyStoreProvider keyStoreProvider;
+
+    /**
+     * @param dataSource data source with Always Encrypted enabled and access to both keys
+     * @param keyStoreProvider provider of the column master key, used to wrap the new column encryption key
+     */
+    public ColumnEncryptionKeyRotation(DataSource dataSource, SQLServerColumnEncryptionKeyStoreProvider keyStoreProvider) {
+        this.dataSource = dataSource;
+        this.keyStoreProvider = keyStoreProvider;
+    }
+
+    /**
+     * Run, or resume, a rotation
+     *
+     * @param options keys and tuning
+     * @return what was done
+     * @throws SQLException thrown if error executing SQL, the rotation can be resumed by running it again
+     */
+    public KeyRotationReport rotate(KeyRotationOptions options) throws SQLException {
+        if (options.getOldKeyName() == null || options.getNewKeyName() == null || options.getChunkSize() < 1
+                || options.getThreads() < 1) {
+            throw new IllegalArgumentException("oldKeyName and newKeyName are required and chunkSize and threads " +
+                    "must be at least 1");
+        }
+
+        long start = System.nanoTime();
+        KeyRotationReport report = new KeyRotationReport();
+        report.setOldKeyName(options.getOldKeyName());
+        report.setNewKeyName(options.getNewKeyName());
+
+        try (Connection con = dataSource.getConnection()) {
+            report.setKeyCreated(createKey(con, options.getOldKeyName(), options.getNewKeyName()));
+            execute(con, CREATE_CHECKPOINT_TABLE_SQL);
+
+            for (EncryptedColumn column : COLUMNS) {
+                String key = columnKey(con, column);
+                if (options.getNewKeyName().equals(key)) {
+                    // An earlier run already cut this column over
+                    continue;
+                }
+                if (!options.getOldKeyName().equals(key)) {
+                    throw new SQLException(column + " is encrypted with " + key + ", not " + options.getOldKeyName());
+                }
+                prepare(con, column, options.getNewKeyName());
+            }
+        }
+
+        Throttle throttle = new Throttle(options.getMaxRowsPerSecond());
+        for (EncryptedColumn column : COLUMNS) {
+            if (rotatedColumnExists(column)) {
+                copy(column, options, throttle, report);
+            }
+        }
+
+        cutOver(options, report);
+
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+
+    /**
+     * Create the new column encryption key under the column master key of the old one
+     *
+     * @return true if the key was created, false if it already existed
+     */
+    private boolean createKey(Connection con, String oldKeyName, String newKeyName) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(KEY_EXISTS_SQL)) {
+            ps.setString(1, newKeyName);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (resultSet.next()) {
+                    return false;
+                }
+            }
+        }
+
+        String masterKeyName;
+        String masterKeyPath;
+        try (PreparedStatement ps = con.prepareStatement(MASTER_KEY_SQL)) {
+            ps.setString(1, oldKeyName);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("Column encryption key " + oldKeyName + " not found");
+                }
+                masterKeyName = resultSet.getString(1);
+                masterKeyPath = resultSet.getString(2);
+            }
+        }
+
+        byte[] key = new byte[KEY_BYTES];
+        new SecureRandom().nextBytes(key);
+        try {
+            byte[] encryptedKey = keyStoreProvider.encryptColumnEncryptionKey(masterKeyPath,
+                    KEY_ENCRYPTION_ALGORITHM, key);
+            execute(con, String.format(CREATE_KEY_SQL, newKeyName, masterKeyName, KEY_ENCRYPTION_ALGORITHM,
+                    toHex(encryptedKey)));
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+
+        return true;
+    }
+
+    /**
+     * Add the row version, the shadow column and the trigger that clears the shadow value on update
+     */
+    private void prepare(Connection con, EncryptedColumn column, String newKeyName) throws SQLException {
+        if (!columnExists(con, column.table(), ROW_VERSION)) {
+            execute(con, String.format(ADD_ROW_VERSION_SQL, column.table()));
+        }
+        if (!columnExists(con, column.table(), column.rotated())) {
+            execute(con, String.format(ADD_ROTATED_COLUMN_SQL, column.table(), column.rotated(), column.sqlType,
+                    newKeyName));
+        }
+        execute(con, String.format(CREATE_TRIGGER_SQL, column.trigger(), column.table(), column.column,
+                column.rotated()));
+    }
+
+    private boolean rotatedColumnExists(EncryptedColumn column) throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            return columnExists(con, column.table(), column.rotated());
+        }
+    }
+
+    /**
+     * Copy a column into its shadow column in parallel id range chunks
+     */
+    private void copy(EncryptedColumn column, KeyRotationOptions options, Throttle throttle,
+                      KeyRotationReport report) throws SQLException {
+        int maxId;
+        Set<Integer> committed = new HashSet<>();
+
+        try (Connection con = dataSource.getConnection()) {
+            try (Statement statement = con.createStatement();
+                 ResultSet resultSet = statement.executeQuery(String.format(MAX_ID_SQL, column.table()))) {
+                resultSet.next();
+                maxId = resultSet.getInt(1);
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(SELECT_CHECKPOINTS_SQL)) {
+                ps.setString(1, options.getNewKeyName());
+                ps.setString(2, column.toString());
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        committed.add(resultSet.getInt(1));
+                    }
+                }
+            }
+        }
+
+        AtomicLong rows = new AtomicLong();
+        AtomicLong chunks = new AtomicLong();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "cek-rotation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (long from = 1; from <= maxId; from += options.getChunkSize()) {
+                int chunkStart = (int) from;
+                int chunkEnd = (int) Math.min(from + options.getChunkSize(), (long) maxId + 1);
+
+                if (committed.contains(chunkStart)) {
+                    report.setSkippedChunks(report.getSkippedChunks() + 1);
+                    continue;
+                }
+
+                running.add(executor.submit(() -> {
+                    try (Connection con = dataSource.getConnection()) {
+                        rows.addAndGet(copyChunk(con, column, chunkStart, chunkEnd, options.getNewKeyName(),
+                                throttle));
+                        chunks.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            await(running);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        report.getReencryptedRows().merge(column.toString(), rows.get(), Long::sum);
+        report.setCommittedChunks(report.getCommittedChunks() + chunks.get());
+    }
+
+    /**
+     * Copy the rows of one id range that have no shadow value yet in a transaction of their own
+     *
+     * @param con connection in auto commit mode
+     * @param column column to copy
+     * @param chunkStart first id of the range
+     * @param chunkEnd id after the range
+     * @param newKeyName key being rotated to, null to copy without a checkpoint
+     * @param throttle limits the copy rate
+     * @return rows copied
+     * @throws SQLException thrown if error executing SQL
+     * @throws InterruptedException thrown if interrupted while throttled
+     */
+    private int copyChunk(Connection con, EncryptedColumn column, int chunkStart, int chunkEnd, String newKeyName,
+                          Throttle throttle) throws SQLException, InterruptedException {
+        con.setAutoCommit(false);
+        try {
+            int rows = copyRows(con, column, chunkStart, chunkEnd, throttle);
+
+            if (newKeyName != null) {
+                try (PreparedStatement ps = con.prepareStatement(INSERT_CHECKPOINT_SQL)) {
+                    ps.setString(1, newKeyName);
+                    ps.setString(2, column.toString());
+                    ps.setInt(3, chunkStart);
+                    ps.setInt(4, rows);
+                    ps.executeUpdate();
+                }
+            }
+
+            con.commit();
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                con.rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Copy the rows of one id range that have no shadow value yet, inside the caller's transaction.  A row updated
+     * between the read and the copy has a new row version and is left for a later pass.
+     *
+     * @return rows copied
+     */
+    private int copyRows(Connection con, EncryptedColumn column, int chunkStart, int chunkEnd, Throttle throttle)
+            throws SQLException, InterruptedException {
+        try (PreparedStatement ps = con.prepareStatement(String.format(SELECT_CHUNK_SQL, column.column,
+                column.table(), column.rotated()))) {
+            ps.setInt(1, chunkStart);
+            ps.setInt(2, chunkEnd);
+            return copySelected(con, column, ps, throttle);
+        }
+    }
+
+    /**
+     * Copy the rows selected by a query of id, column value and row version, inside the caller's transaction
+     *
+     * @return rows copied
+     */
+    private int copySelected(Connection con, EncryptedColumn column, PreparedStatement select, Throttle throttle)
+            throws SQLException, InterruptedException {
+        List<Object[]> values = new ArrayList<>();
+        try (ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                values.add(new Object[]{resultSet.getInt(1), resultSet.getNString(2), resultSet.getBytes(3)});
+            }
+        }
+
+        if (values.isEmpty()) {
+            return 0;
+        }
+
+        throttle.acquire(values.size());
+
+        try (PreparedStatement ps = con.prepareStatement(String.format(COPY_SQL, column.table(), column.rotated()))) {
+            for (Object[] row : values) {
+                ps.setNString(1, (String) row[1]);
+                ps.setInt(2, (Integer) row[0]);
+                ps.setBytes(3, (byte[]) row[2]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        return values.size();
+    }
+
+    /**
+     * Lock both tables, copy the rows written since they were copied, verify and swap the shadow columns in
+     */
+    private void cutOver(KeyRotationOptions options, KeyRotationReport report) throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            List<EncryptedColumn> pending = new ArrayList<>();
+            for (EncryptedColumn column : COLUMNS) {
+                if (columnExists(con, column.table(), column.rotated())) {
+                    pending.add(column);
+                }
+            }
+
+            if (!pending.isEmpty()) {
+                // Catch up without locks first so the locked pass only has the last few writes left to copy
+                for (EncryptedColumn column : pending) {
+                    report.getReencryptedRows().merge(column.toString(), catchUp(con, column, options), Long::sum);
+                }
+
+                con.setAutoCommit(false);
+                try {
+                    for (EncryptedColumn column : pending) {
+                        execute(con, String.format(LOCK_SQL, column.table()));
+                    }
+
+                    for (EncryptedColumn column : pending) {
+                        report.getReencryptedRows().merge(column.toString(), catchUp(con, column, options),
+                                Long::sum);
+                        report.getVerifiedRows().put(column.toString(), verify(con, column));
+
+                        execute(con, String.format(DROP_TRIGGER_SQL, column.trigger()));
+                        execute(con, String.format(DROP_COLUMN_SQL, column.table(), column.column));
+                        execute(con, String.format(RENAME_COLUMN_SQL, column.table(), column.rotated(),
+                                column.column));
+                        execute(con, String.format(NOT_NULL_SQL, column.table(), column.column, column.sqlType,
+                                options.getNewKeyName()));
+                    }
+
+                    con.commit();
+                } catch (SQLException | RuntimeException e) {
+                    try {
+                        con.rollback();
+                    } catch (SQLException rollbackException) {
+                        e.addSuppressed(rollbackException);
+                    }
+                    throw e;
+                } finally {
+                    con.setAutoCommit(true);
+                }
+            }
+            report.setCutOver(true);
+
+            if (options.isRetireOldKey()) {
+                report.setOldKeyRetired(retireKey(con, options.getOldKeyName()));
+            }
+        }
+    }
+
+    /**
+     * Copy every row of a column without a shadow value on one connection.  Without locks the rows are copied in id
+     * chunks of their own transactions; under the cutover's table locks nothing else writes, so the remaining rows
+     * are selected once rather than scanning the table for every chunk.
+     *
+     * @return rows copied
+     */
+    private long catchUp(Connection con, EncryptedColumn column, KeyRotationOptions options) throws SQLException {
+        Throttle unthrottled = new Throttle(0);
+        if (!con.getAutoCommit()) {
+            try (PreparedStatement ps = con.prepareStatement(String.format(SELECT_REMAINING_SQL, column.column,
+                    column.table(), column.rotated()))) {
+                return copySelected(con, column, ps, unthrottled);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted catching up " + column, e);
+            }
+        }
+
+        int maxId;
+        try (Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery(String.format(MAX_ID_SQL, column.table()))) {
+            resultSet.next();
+            maxId = resultSet.getInt(1);
+        }
+
+        long rows = 0;
+        try {
+            for (long from = 1; from <= maxId; from += options.getChunkSize()) {
+                int chunkStart = (int) from;
+                int chunkEnd = (int) Math.min(from + options.getChunkSize(), (long) maxId + 1);
+
+                rows += copyChunk(con, column, chunkStart, chunkEnd, null, unthrottled);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted catching up " + column, e);
+        }
+        return rows;
+    }
+
+    /**
+     * Check every row has a shadow value
+     *
+     * @return rows verified
+     */
+    private long verify(Connection con, EncryptedColumn column) throws SQLException {
+        try (Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery(String.format(COUNT_SQL, column.rotated(),
+                     column.table()))) {
+            resultSet.next();
+            long total = resultSet.getLong(1);
+            long rotated = resultSet.getLong(2);
+
+            if (total != rotated) {
+                throw new SQLException(String.format("%s has %d rows but only %d were re-encrypted", column, total,
+                        rotated));
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Drop a column encryption key if no column uses it any more
+     *
+     * @return true if the key was dropped
+     */
+    private boolean retireKey(Connection con, String keyName) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(KEY_EXISTS_SQL)) {
+            ps.setString(1, keyName);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (!resultSet.next()) {
+                    return false;
+                }
+            }
+        }
+
+        try (PreparedStatement ps = con.prepareStatement(KEY_IN_USE_SQL)) {
+            ps.setString(1, keyName);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                resultSet.next();
+                if (resultSet.getInt(1) > 0) {
+                    return false;
+                }
+            }
+        }
+
+        execute(con, String.format(DROP_KEY_SQL, keyName));
+        return true;
+    }
+
+    private static boolean columnExists(Connection con, String table, String column) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(COLUMN_EXISTS_SQL)) {
+            ps.setString(1, table);
+            ps.setString(2, column);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                resultSet.next();
+                resultSet.getInt(1);
+                return !resultSet.wasNull();
+            }
+        }
+    }
+
+    /**
+     * @return name of the column encryption key a column is encrypted with, null if it is not encrypted
+     */
+    private static String columnKey(Connection con, EncryptedColumn column) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(COLUMN_KEY_SQL)) {
+            ps.setString(1, column.table());
+            ps.setString(2, column.column);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    private static void execute(Connection con, String sql) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void await(List<Future<?>> running) throws SQLException {
+        try {
+            for (Future<?> future : running) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the re-encryption", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Re-encryption failed", e.getCause());
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02X", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * An Always Encrypted column that is rotated
+     */
+    private static final class EncryptedColumn {
+        private final String schema;
+        private final String tableName;
+        private final String column;
+        private final String sqlType;
+
+        private EncryptedColumn(String schema, String tableName, String column, String sqlType) {
+            this.schema = schema;
+            this.tableName = tableName;
+            this.column = column;
+            this.sqlType = sqlType;
+        }
+
+        private String table() {
+            return schema + "." + tableName;
+        }
+
+        private String rotated() {
+            return column + ROTATED_SUFFIX;
+        }
+
+        private String trigger() {
+            return schema + "." + tableName + "_" + column + "_rotation";
+        }
+
+        @Override
+        public String toString() {
+            return table() + "." + column;
+        }
+    }
+}
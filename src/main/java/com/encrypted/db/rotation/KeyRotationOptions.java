@@ -0,0 +1,33 @@
+package com.encrypted.db.rotation;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Keys and tuning for a column encryption key rotation
+ */
+@Data
+@Builder
+public class KeyRotationOptions {
+
+    // Column encryption key the columns are encrypted with now
+    private String oldKeyName;
+
+    // Column encryption key to re-encrypt with, created under the old key's column master key if it does not exist
+    private String newKeyName;
+
+    // Ids per chunk; a chunk is re-encrypted and checkpointed in one transaction
+    @Builder.Default
+    private int chunkSize = 10000;
+
+    @Builder.Default
+    private int threads = 4;
+
+    // Rows re-encrypted per second across all threads, 0 for no limit
+    @Builder.Default
+    private int maxRowsPerSecond = 0;
+
+    // Drop the old column encryption key once no column uses it
+    @Builder.Default
+    private boolean retireOldKey = true;
+}
@@ -0,0 +1,33 @@
+package com.encrypted.db.rotation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Outcome of a column encryption key rotation
+ */
+@Data
+public class KeyRotationReport {
+
+    private String oldKeyName;
+    private String newKeyName;
+    private boolean keyCreated;
+
+    // Rows re-encrypted by column, including rows caught up at cutover
+    private Map<String, Long> reencryptedRows = new LinkedHashMap<>();
+
+    // Rows per column verified to be encrypted with the new key at cutover
+    private Map<String, Long> verifiedRows = new LinkedHashMap<>();
+
+    private long committedChunks;
+
+    // Chunks an earlier run of the rotation already committed
+    private long skippedChunks;
+
+    private boolean cutOver;
+    private boolean oldKeyRetired;
+
+    private long elapsedMillis;
+}
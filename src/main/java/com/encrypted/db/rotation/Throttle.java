@@ -0,0 +1,42 @@
+package com.encrypted.db.rotation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate rows are processed at across all threads sharing it
+ */
+public class Throttle {
+
+    private final long nanosPerRow;
+    private long next = System.nanoTime();
+
+    /**
+     * @param rowsPerSecond maximum rows per second, 0 for no limit
+     */
+    public Throttle(int rowsPerSecond) {
+        this.nanosPerRow = rowsPerSecond <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / rowsPerSecond;
+    }
+
+    /**
+     * Wait until {@code rows} more rows may be processed
+     *
+     * @param rows rows about to be processed
+     * @throws InterruptedException thrown if interrupted while waiting
+     */
+    public void acquire(int rows) throws InterruptedException {
+        if (nanosPerRow == 0) {
+            return;
+        }
+
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            next = Math.max(next, now) + nanosPerRow * rows;
+            wait = next - now - nanosPerRow * rows;
+        }
+
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
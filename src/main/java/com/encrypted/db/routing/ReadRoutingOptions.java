@@ -0,0 +1,26 @@
+package com.encrypted.db.routing;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Health checks and staleness limit of the readable secondaries
+ */
+@Data
+@Builder
+public class ReadRoutingOptions {
+
+    // Reads go to the primary while a secondary is further behind than this, 0 routes to any healthy secondary
+    @Builder.Default
+    private long maxStalenessMillis = 5000;
+
+    @Builder.Default
+    private long healthCheckIntervalMillis = 1000;
+
+    // Written on the primary every health check, the replicated value on a secondary shows how far behind it is
+    @Builder.Default
+    private String heartbeatTable = "acct.replication_heartbeat";
+
+    @Builder.Default
+    private int healthCheckTimeoutSeconds = 2;
+}
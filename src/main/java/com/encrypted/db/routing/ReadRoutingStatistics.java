@@ -0,0 +1,23 @@
+package com.encrypted.db.routing;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Point in time snapshot of the read routing counters
+ */
+@Data
+@Builder
+public class ReadRoutingStatistics {
+
+    private long secondaryReads;
+
+    // Reads sent to the primary because no secondary was healthy and fresh enough
+    private long primaryReads;
+
+    // Secondaries that are healthy and within the staleness limit
+    private int usableSecondaries;
+
+    // Lag of the most stale healthy secondary, -1 if none has been measured
+    private long maxLagMillis;
+}
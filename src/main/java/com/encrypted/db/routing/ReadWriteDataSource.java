@@ -0,0 +1,289 @@
+package com.encrypted.db.routing;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Data source that sends writes to the primary and lets read-only DAO methods use readable secondaries.
+ * <p>
+ * {@link #getConnection()} always returns a primary connection, so anything unaware of the routing keeps working
+ * against the primary.  {@link #reads()} returns connections from the secondaries round-robin, skipping any that failed
+ * their last health check or are further behind than {@code maxStalenessMillis}, and falls back to the primary when
+ * none is usable.  A secondary that refuses a connection is skipped until it passes a health check again.
+ * <p>
+ * Staleness is measured with a heartbeat row: each health check first reads the heartbeat on every secondary and
+ * compares it with the heartbeat the primary wrote on the previous check, then writes a new one.  The measured lag is
+ * therefore accurate to within one health check interval.  Secondaries should connect with
+ * {@code ApplicationIntent=ReadOnly}.
+ */
+public class ReadWriteDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ReadWriteDataSource.class.getName());
+
+    private static final String NOW_MILLIS = "DATEDIFF_BIG(MILLISECOND, '19700101', SYSUTCDATETIME())";
+    private static final String CREATE_HEARTBEAT_SQL = "IF OBJECT_ID(N'%1$s') IS NULL " +
+            "CREATE TABLE %1$s (id INT NOT NULL PRIMARY KEY, beat BIGINT NOT NULL); " +
+            "IF NOT EXISTS (SELECT 1 FROM %1$s WHERE id = 1) INSERT INTO %1$s (id, beat) VALUES (1, 0)";
+    private static final String WRITE_HEARTBEAT_SQL = "UPDATE %s SET beat = " + NOW_MILLIS +
+            " OUTPUT inserted.beat WHERE id = 1";
+    private static final String READ_HEARTBEAT_SQL = "SELECT beat FROM %s WHERE id = 1";
+    private static final String PING_SQL = "SELECT 1";
+
+    private final DataSource primary;
+    private final List<Replica> secondaries;
+    private final ReadRoutingOptions options;
+    private final DelegatingDataSource reads;
+
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder secondaryReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+
+    private volatile List<Replica> usable = Collections.emptyList();
+
+    // Heartbeat written on the primary by the previous health check, 0 before the first one
+    private long lastBeat;
+    private boolean heartbeatCreated;
+
+    /**
+     * @param primary pooled primary data source, not closed by this data source
+     * @param secondaries pooled readable secondaries, closed with this data source
+     * @param options health checks and staleness limit
+     */
+    public ReadWriteDataSource(DataSource primary, List<DataSource> secondaries, ReadRoutingOptions options) {
+        super(primary);
+
+        if (options.getHealthCheckIntervalMillis() < 1) {
+            throw new IllegalArgumentException("healthCheckIntervalMillis must be at least 1");
+        }
+
+        this.primary = primary;
+        this.options = options;
+
+        List<Replica> replicas = new ArrayList<>(secondaries.size());
+        for (int i = 0; i < secondaries.size(); i++) {
+            replicas.add(new Replica("secondary-" + i, secondaries.get(i)));
+        }
+        this.secondaries = Collections.unmodifiableList(replicas);
+
+        this.reads = new DelegatingDataSource(primary) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return getReadConnection();
+            }
+        };
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "read-routing-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Write the first heartbeat, check the secondaries and schedule the health checks.  Reads go to the primary until
+     * a secondary has passed a check.
+     */
+    public void start() {
+        synchronized (this) {
+            lastBeat = writeHeartbeat(lastBeat);
+        }
+        checkHealth();
+
+        scheduler.scheduleWithFixedDelay(this::checkHealth, options.getHealthCheckIntervalMillis(),
+                options.getHealthCheckIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return data source for read-only work, whose connections come from a usable secondary or the primary
+     */
+    public javax.sql.DataSource reads() {
+        return reads;
+    }
+
+    /**
+     * Check every secondary against the previous heartbeat, then write a new heartbeat on the primary
+     */
+    public synchronized void checkHealth() {
+        try {
+            for (Replica replica : secondaries) {
+                replica.check(lastBeat);
+            }
+            lastBeat = writeHeartbeat(lastBeat);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Read routing health check failed", e);
+        }
+
+        List<Replica> fresh = new ArrayList<>();
+        for (Replica replica : secondaries) {
+            if (replica.isUsable()) {
+                fresh.add(replica);
+            }
+        }
+        usable = Collections.unmodifiableList(fresh);
+    }
+
+    /**
+     * @return current routing counters
+     */
+    public ReadRoutingStatistics getStatistics() {
+        long maxLag = -1;
+        for (Replica replica : secondaries) {
+            if (replica.healthy) {
+                maxLag = Math.max(maxLag, replica.lagMillis);
+            }
+        }
+
+        return ReadRoutingStatistics.builder()
+                .secondaryReads(secondaryReads.sum())
+                .primaryReads(primaryReads.sum())
+                .usableSecondaries(usable.size())
+                .maxLagMillis(maxLag)
+                .build();
+    }
+
+    /**
+     * Stop the health checks and close the secondary pools
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (Replica replica : secondaries) {
+            replica.dataSource.close();
+        }
+    }
+
+    private Connection getReadConnection() throws SQLException {
+        List<Replica> candidates = usable;
+
+        int start = next.getAndIncrement();
+        for (int i = 0; i < candidates.size(); i++) {
+            Replica replica = candidates.get(Math.floorMod(start + i, candidates.size()));
+            try {
+                Connection con = replica.dataSource.getConnection();
+                secondaryReads.increment();
+                return con;
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    private void markDown(Replica replica, SQLException e) {
+        LOG.log(Level.WARNING, "Routing reads away from " + replica.name + ": " + e.getMessage());
+        replica.healthy = false;
+
+        List<Replica> remaining = new ArrayList<>(usable);
+        remaining.remove(replica);
+        usable = Collections.unmodifiableList(remaining);
+    }
+
+    /**
+     * Write a new heartbeat on the primary, creating the heartbeat table the first time
+     *
+     * @param previous heartbeat to keep if the write fails
+     * @return heartbeat written
+     */
+    private long writeHeartbeat(long previous) {
+        if (options.getMaxStalenessMillis() <= 0) {
+            return previous;
+        }
+
+        try (Connection con = primary.getConnection()) {
+            if (!heartbeatCreated) {
+                try (PreparedStatement ps = con.prepareStatement(String.format(CREATE_HEARTBEAT_SQL,
+                        options.getHeartbeatTable()))) {
+                    ps.execute();
+                }
+                heartbeatCreated = true;
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(String.format(WRITE_HEARTBEAT_SQL,
+                    options.getHeartbeatTable()))) {
+                ps.setQueryTimeout(options.getHealthCheckTimeoutSeconds());
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : previous;
+                }
+            }
+        } catch (SQLException e) {
+            LOG.log(Level.WARNING, "Could not write the replication heartbeat on the primary: " + e.getMessage());
+            return previous;
+        }
+    }
+
+    /**
+     * A secondary and the result of its last health check
+     */
+    private final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+
+        private volatile boolean healthy;
+        private volatile long lagMillis = -1;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private boolean isUsable() {
+            return healthy && (options.getMaxStalenessMillis() <= 0
+                    || (lagMillis >= 0 && lagMillis <= options.getMaxStalenessMillis()));
+        }
+
+        /**
+         * Ping the secondary and measure its lag against the primary's heartbeat
+         *
+         * @param primaryBeat heartbeat last written on the primary, 0 if none
+         */
+        private void check(long primaryBeat) {
+            boolean heartbeat = options.getMaxStalenessMillis() > 0;
+            String sql = heartbeat ? String.format(READ_HEARTBEAT_SQL, options.getHeartbeatTable()) : PING_SQL;
+
+            try (Connection con = dataSource.getConnection();
+                 PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setQueryTimeout(options.getHealthCheckTimeoutSeconds());
+
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    if (!heartbeat) {
+                        lagMillis = 0;
+                    } else if (resultSet.next() && primaryBeat > 0) {
+                        lagMillis = Math.max(0, primaryBeat - resultSet.getLong(1));
+                    } else {
+                        lagMillis = -1;
+                    }
+                }
+
+                if (!healthy) {
+                    LOG.info("Secondary " + name + " is healthy, lag " + lagMillis + " ms");
+                }
+                healthy = true;
+            } catch (SQLException e) {
+                if (healthy) {
+                    LOG.log(Level.WARNING, "Secondary " + name + " failed its health check: " + e.getMessage());
+                }
+                healthy = false;
+                lagMillis = -1;
+            }
+        }
+    }
+}
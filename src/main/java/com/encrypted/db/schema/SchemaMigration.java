@@ -0,0 +1,190 @@
+package com.encrypted.db.schema;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.encryption.BlindIndex;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Brings the customer and account tables up to the schema the DAOs read and write, so a database created for an
+ * earlier version of the application keeps working without any feature being enabled first.
+ * <p>
+ * Every step checks the catalog and only changes what is missing, so running the migration again, or on a database
+ * that is already up to date, does nothing.  Steps run in one transaction under an application lock, so instances
+ * starting together do not race each other, and a failing step leaves the schema as it was.
+ * <p>
+ * The first migration of a large table rebuilds it around the new clustered primary key and holds a schema lock while
+ * it does, so it is best run in a maintenance window.  It fails if ids are not unique.
+ */
+public class SchemaMigration {
+
+    private static final Logger LOG = Logger.getLogger(SchemaMigration.class.getName());
+
+    private static final String CUSTOMER = CustomerDAO.SCHEMA + "." + CustomerDAO.TABLE_CUSTOMER;
+    private static final String ACCOUNT = AccountDAO.SCHEMA + "." + AccountDAO.TABLE_ACCOUNT;
+
+    private static final String LOCK_SQL = "EXEC sp_getapplock @Resource = N'acct.schema', " +
+            "@LockMode = N'Exclusive', @LockOwner = N'Transaction'";
+
+    private static final String COLUMN_EXISTS_SQL = "SELECT 1 WHERE COL_LENGTH(N'%s', N'%s') IS NOT NULL";
+    private static final String INDEX_EXISTS_SQL = "SELECT 1 FROM sys.indexes " +
+            "WHERE object_id = OBJECT_ID(N'%s') AND name = N'%s'";
+
+    private static final String ADD_COLUMN_SQL = "ALTER TABLE %s ADD %s %s";
+    private static final String CREATE_INDEX_SQL = "CREATE INDEX %s ON %s (%s)";
+
+    // A table that already has a primary key or another clustered index is left as it is
+    private static final String CLUSTERED_EXISTS_SQL = "SELECT 1 FROM sys.indexes " +
+            "WHERE object_id = OBJECT_ID(N'%s') AND (type = 1 OR is_primary_key = 1)";
+    private static final String ADD_PRIMARY_KEY_SQL = "ALTER TABLE %s ADD CONSTRAINT pk_%s PRIMARY KEY CLUSTERED (id)";
+
+    private static final String BLIND_INDEX_TYPE = "BINARY(" + BlindIndex.LENGTH + ") NULL";
+    private static final String ROW_VERSION_TYPE = "ROWVERSION NOT NULL";
+
+    private static final List<Step> STEPS = Collections.unmodifiableList(steps());
+
+    private final DataSource dataSource;
+
+    /**
+     * @param dataSource data source of the database holding the acct tables, with rights to alter them
+     */
+    public SchemaMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Apply every step the database is missing
+     *
+     * @return number of steps applied, 0 when the schema was already up to date
+     * @throws SQLException thrown if error executing SQL, no step is applied then
+     */
+    public int migrate() throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            return migrate(con);
+        }
+    }
+
+    /**
+     * Apply every step the database of a connection is missing
+     *
+     * @param con connection in auto commit mode
+     * @return number of steps applied, 0 when the schema was already up to date
+     * @throws SQLException thrown if error executing SQL, no step is applied then
+     */
+    public static int migrate(Connection con) throws SQLException {
+        int applied = 0;
+
+        con.setAutoCommit(false);
+        try {
+            execute(con, LOCK_SQL);
+
+            for (Step step : STEPS) {
+                if (!exists(con, step.existsSql)) {
+                    execute(con, step.sql);
+                    LOG.info("Applied schema migration step: " + step.description);
+                    applied++;
+                }
+            }
+
+            con.commit();
+            return applied;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                con.rollback();
+            } catch (SQLException rollbackException) {
+                e.addSuppressed(rollbackException);
+            }
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    private static List<Step> steps() {
+        List<Step> steps = new ArrayList<>();
+
+        /*
+         * Clustering on id lets keyset pages, id lookups and the chunked tools seek instead of scanning.  It rebuilds
+         * the table, so it comes before the other indexes, which would otherwise be rebuilt with it.
+         */
+        addPrimaryKey(steps, CUSTOMER, CustomerDAO.TABLE_CUSTOMER);
+        addPrimaryKey(steps, ACCOUNT, AccountDAO.TABLE_ACCOUNT);
+
+        // Accounts of a customer, for every customer read and the account pages
+        createIndex(steps, ACCOUNT, AccountDAO.TABLE_ACCOUNT, "customer_id");
+
+        // Blind index columns written by every insert and update, filled for older rows by BlindIndexBackfill
+        addColumn(steps, CUSTOMER, "ssn_index", BLIND_INDEX_TYPE);
+        createIndex(steps, CUSTOMER, CustomerDAO.TABLE_CUSTOMER, "ssn_index");
+        addColumn(steps, ACCOUNT, "account_number_index", BLIND_INDEX_TYPE);
+        createIndex(steps, ACCOUNT, AccountDAO.TABLE_ACCOUNT, "account_number_index");
+
+        // Change tokens of the change feed, moved by every write; existing rows are given one as the column is added
+        addColumn(steps, CUSTOMER, "row_version", ROW_VERSION_TYPE);
+        createIndex(steps, CUSTOMER, CustomerDAO.TABLE_CUSTOMER, "row_version");
+        addColumn(steps, ACCOUNT, "row_version", ROW_VERSION_TYPE);
+        createIndex(steps, ACCOUNT, AccountDAO.TABLE_ACCOUNT, "row_version");
+
+        return steps;
+    }
+
+    private static void addPrimaryKey(List<Step> steps, String table, String tableName) {
+        steps.add(new Step("cluster " + table + " on id",
+                String.format(CLUSTERED_EXISTS_SQL, table),
+                String.format(ADD_PRIMARY_KEY_SQL, table, tableName)));
+    }
+
+    private static void addColumn(List<Step> steps, String table, String column, String type) {
+        steps.add(new Step("add " + table + "." + column,
+                String.format(COLUMN_EXISTS_SQL, table, column),
+                String.format(ADD_COLUMN_SQL, table, column, type)));
+    }
+
+    // Named like the indexes BlindIndexBackfill creates, so either creates them once
+    private static void createIndex(List<Step> steps, String table, String tableName, String column) {
+        String name = "ix_" + tableName + "_" + column;
+        steps.add(new Step("index " + table + "." + column,
+                String.format(INDEX_EXISTS_SQL, table, name),
+                String.format(CREATE_INDEX_SQL, name, table, column)));
+    }
+
+    private static boolean exists(Connection con, String sql) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet resultSet = ps.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    private static void execute(Connection con, String sql) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * One change to the schema and the catalog query that finds it already made
+     */
+    private static final class Step {
+
+        private final String description;
+        private final String existsSql;
+        private final String sql;
+
+        private Step(String description, String existsSql, String sql) {
+            this.description = description;
+            this.existsSql = existsSql;
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.encrypted.db.sharding;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Tuning of a shard rebalance
+ */
+@Data
+@Builder
+public class RebalanceOptions {
+
+    // Customers per chunk; a chunk is copied, routed to its new shard and deleted from its old one as a unit
+    @Builder.Default
+    private int chunkSize = 1000;
+}
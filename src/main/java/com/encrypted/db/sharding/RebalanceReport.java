@@ -0,0 +1,33 @@
+package com.encrypted.db.sharding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Outcome of a shard rebalance
+ */
+@Data
+public class RebalanceReport {
+
+    private long customersMoved;
+    private long accountsMoved;
+    private long chunks;
+
+    // Ranges moved, as "first-last from -> to"
+    private List<String> moves = new ArrayList<>();
+
+    private long elapsedMillis;
+
+    @Override
+    public String toString() {
+        return new StringBuilder("Shard rebalance").append("\n")
+                .append("\tcustomers moved: ").append(customersMoved).append("\n")
+                .append("\taccounts moved: ").append(accountsMoved).append("\n")
+                .append("\tchunks: ").append(chunks).append("\n")
+                .append("\tmoves: ").append(moves).append("\n")
+                .append("\telapsed: ").append(elapsedMillis).append(" ms")
+                .toString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.encrypted.db.sharding;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+
+/**
+ * One database holding a share of the customers and their accounts, with DAOs bound to it
+ */
+public class Shard implements AutoCloseable {
+
+    private final String name;
+    private final DataSource dataSource;
+    private final CustomerDAO customerDAO;
+    private final AccountDAO accountDAO;
+    private final boolean ownsDataSource;
+
+    /**
+     * @param name shard name, as kept in the shard map
+     * @param dataSource pool of the shard's database
+     * @param customerDAO customer DAO on the pool
+     * @param accountDAO account DAO on the pool
+     * @param ownsDataSource true to close the pool with the shard
+     */
+    public Shard(String name, DataSource dataSource, CustomerDAO customerDAO, AccountDAO accountDAO,
+                 boolean ownsDataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+        this.customerDAO = customerDAO;
+        this.accountDAO = accountDAO;
+        this.ownsDataSource = ownsDataSource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public CustomerDAO getCustomerDAO() {
+        return customerDAO;
+    }
+
+    public AccountDAO getAccountDAO() {
+        return accountDAO;
+    }
+
+    @Override
+    public void close() {
+        if (ownsDataSource) {
+            dataSource.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
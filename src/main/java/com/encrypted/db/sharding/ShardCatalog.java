@@ -0,0 +1,122 @@
+package com.encrypted.db.sharding;
+
+import com.encrypted.db.dao.CustomerDAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * Keeps the {@link ShardMap} in {@code acct.shard_block} and {@code acct.shard_range} of one database, normally the
+ * primary, so every instance routes by the same map.  The tables are created the first time the map is read.
+ */
+public class ShardCatalog {
+
+    static final String TABLE_BLOCK = "shard_block";
+    static final String TABLE_RANGE = "shard_range";
+
+    private static final String BLOCK = CustomerDAO.SCHEMA + "." + TABLE_BLOCK;
+    private static final String RANGE = CustomerDAO.SCHEMA + "." + TABLE_RANGE;
+
+    private static final String CREATE_SQL = "IF OBJECT_ID(N'" + BLOCK + "', N'U') IS NULL " +
+            "CREATE TABLE " + BLOCK + " (shard NVARCHAR(128) NOT NULL PRIMARY KEY, " +
+            "first_id INT NOT NULL, last_id INT NOT NULL); " +
+            "IF OBJECT_ID(N'" + RANGE + "', N'U') IS NULL " +
+            "CREATE TABLE " + RANGE + " (first_id INT NOT NULL PRIMARY KEY, last_id INT NOT NULL, " +
+            "shard NVARCHAR(128) NOT NULL)";
+    private static final String SELECT_BLOCKS_SQL = "SELECT first_id, last_id, shard FROM " + BLOCK;
+    private static final String SELECT_RANGES_SQL = "SELECT first_id, last_id, shard FROM " + RANGE;
+    private static final String DELETE_SQL = "DELETE FROM " + BLOCK + " WITH (TABLOCKX); " +
+            "DELETE FROM " + RANGE + " WITH (TABLOCKX)";
+    private static final String INSERT_BLOCK_SQL = "INSERT INTO " + BLOCK + " (first_id, last_id, shard) " +
+            "VALUES (?, ?, ?)";
+    private static final String INSERT_RANGE_SQL = "INSERT INTO " + RANGE + " (first_id, last_id, shard) " +
+            "VALUES (?, ?, ?)";
+
+    private final DataSource dataSource;
+
+    private volatile boolean created;
+
+    /**
+     * @param dataSource database the map is kept in
+     */
+    public ShardCatalog(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @return map last saved, empty if none was
+     * @throws SQLException thrown if error executing SQL
+     */
+    public ShardMap load() throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            create(con);
+            return new ShardMap(read(con, SELECT_RANGES_SQL), read(con, SELECT_BLOCKS_SQL));
+        }
+    }
+
+    /**
+     * Replace the saved map in one transaction
+     *
+     * @param map map to save
+     * @throws SQLException thrown if error executing SQL
+     */
+    public void save(ShardMap map) throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            create(con);
+
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = con.prepareStatement(DELETE_SQL)) {
+                    ps.execute();
+                }
+                write(con, INSERT_BLOCK_SQL, new ArrayList<>(map.getBlocks().values()));
+                write(con, INSERT_RANGE_SQL, map.getRanges());
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void create(Connection con) throws SQLException {
+        if (!created) {
+            try (PreparedStatement ps = con.prepareStatement(CREATE_SQL)) {
+                ps.execute();
+            }
+            created = true;
+        }
+    }
+
+    private static List<ShardRange> read(Connection con, String sql) throws SQLException {
+        List<ShardRange> ranges = new ArrayList<>();
+        try (PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet resultSet = ps.executeQuery()) {
+            while (resultSet.next()) {
+                ranges.add(new ShardRange(resultSet.getInt(1), resultSet.getInt(2), resultSet.getString(3)));
+            }
+        }
+        return ranges;
+    }
+
+    private static void write(Connection con, String sql, List<ShardRange> ranges) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (ShardRange range : ranges) {
+                ps.setInt(1, range.getFirstId());
+                ps.setInt(2, range.getLastId());
+                ps.setNString(3, range.getShard());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}
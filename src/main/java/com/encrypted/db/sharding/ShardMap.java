@@ -0,0 +1,198 @@
+package com.encrypted.db.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Which shard holds which customer ids.
+ * <p>
+ * Every shard owns a block of customer ids, and its customer and account identities are seeded inside that block, so
+ * the id of a customer inserted on a shard already names the shard.  The ranges start out as the blocks and change
+ * when the rebalancer moves customers, who keep their ids, to another shard.  Accounts live on the shard of their
+ * customer.
+ * <p>
+ * Maps are immutable; {@link #assign(int, int, String)} and {@link #withBlock(String, int)} return a new map.
+ */
+public final class ShardMap {
+
+    private static final ShardMap EMPTY = new ShardMap(Collections.emptyList(), Collections.emptyList());
+
+    private final List<ShardRange> ranges;
+    private final Map<String, ShardRange> blocks;
+    private final int[] firstIds;
+
+    /**
+     * @param ranges ranges of customer ids, must not overlap
+     * @param blocks id block owned by each shard
+     */
+    public ShardMap(List<ShardRange> ranges, List<ShardRange> blocks) {
+        List<ShardRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingInt(ShardRange::getFirstId));
+
+        for (int i = 0; i < sorted.size(); i++) {
+            ShardRange range = sorted.get(i);
+            if (range.getFirstId() > range.getLastId()) {
+                throw new IllegalArgumentException("Empty range " + range);
+            }
+            if (i > 0 && sorted.get(i - 1).getLastId() >= range.getFirstId()) {
+                throw new IllegalArgumentException("Range " + sorted.get(i - 1) + " overlaps " + range);
+            }
+        }
+
+        Map<String, ShardRange> blocksByShard = new TreeMap<>();
+        for (ShardRange block : blocks) {
+            blocksByShard.put(block.getShard(), block);
+        }
+
+        this.ranges = Collections.unmodifiableList(sorted);
+        this.blocks = Collections.unmodifiableMap(blocksByShard);
+        this.firstIds = sorted.stream().mapToInt(ShardRange::getFirstId).toArray();
+    }
+
+    /**
+     * @return map without shards
+     */
+    public static ShardMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param customerId customer id
+     * @return name of the shard holding the customer, null if no shard holds the id
+     */
+    public String shardFor(int customerId) {
+        int index = Arrays.binarySearch(firstIds, customerId);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        if (index < 0 || !ranges.get(index).contains(customerId)) {
+            return null;
+        }
+        return ranges.get(index).getShard();
+    }
+
+    /**
+     * @return ranges in id order
+     */
+    public List<ShardRange> getRanges() {
+        return ranges;
+    }
+
+    /**
+     * @param shard shard name
+     * @return ranges held by the shard, in id order
+     */
+    public List<ShardRange> getRanges(String shard) {
+        List<ShardRange> held = new ArrayList<>();
+        for (ShardRange range : ranges) {
+            if (range.getShard().equals(shard)) {
+                held.add(range);
+            }
+        }
+        return held;
+    }
+
+    /**
+     * @return id block of each shard, by shard name
+     */
+    public Map<String, ShardRange> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @param shard shard name
+     * @return id block the shard inserts customers in, null if it has none
+     */
+    public ShardRange getBlock(String shard) {
+        return blocks.get(shard);
+    }
+
+    /**
+     * Give a shard the next free block of ids and the range covering it
+     *
+     * @param shard shard name, must not have a block yet
+     * @param blockSize number of ids in the block
+     * @return new map
+     */
+    public ShardMap withBlock(String shard, int blockSize) {
+        if (blocks.containsKey(shard)) {
+            throw new IllegalArgumentException("Shard " + shard + " already has a block");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be at least 1");
+        }
+
+        long lastUsed = 0;
+        for (ShardRange block : blocks.values()) {
+            lastUsed = Math.max(lastUsed, block.getLastId());
+        }
+        for (ShardRange range : ranges) {
+            lastUsed = Math.max(lastUsed, range.getLastId());
+        }
+        if (lastUsed + blockSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("No block of " + blockSize + " ids left after " + lastUsed);
+        }
+
+        ShardRange block = new ShardRange((int) lastUsed + 1, (int) (lastUsed + blockSize), shard);
+
+        List<ShardRange> newBlocks = new ArrayList<>(blocks.values());
+        newBlocks.add(block);
+        List<ShardRange> newRanges = new ArrayList<>(ranges);
+        newRanges.add(block);
+        return new ShardMap(newRanges, newBlocks);
+    }
+
+    /**
+     * Hand a range of ids to a shard, splitting the ranges it overlaps and merging neighbours held by the same shard
+     *
+     * @param firstId first id of the range
+     * @param lastId last id of the range
+     * @param shard shard that holds the range from now on
+     * @return new map
+     */
+    public ShardMap assign(int firstId, int lastId, String shard) {
+        if (firstId > lastId) {
+            throw new IllegalArgumentException("firstId must not exceed lastId");
+        }
+
+        List<ShardRange> assigned = new ArrayList<>();
+        for (ShardRange range : ranges) {
+            if (range.getLastId() < firstId || range.getFirstId() > lastId) {
+                assigned.add(range);
+                continue;
+            }
+            if (range.getFirstId() < firstId) {
+                assigned.add(new ShardRange(range.getFirstId(), firstId - 1, range.getShard()));
+            }
+            if (range.getLastId() > lastId) {
+                assigned.add(new ShardRange(lastId + 1, range.getLastId(), range.getShard()));
+            }
+        }
+        assigned.add(new ShardRange(firstId, lastId, shard));
+        assigned.sort(Comparator.comparingInt(ShardRange::getFirstId));
+
+        List<ShardRange> merged = new ArrayList<>();
+        for (ShardRange range : assigned) {
+            ShardRange previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (previous != null && previous.getShard().equals(range.getShard())
+                    && previous.getLastId() + 1 == range.getFirstId()) {
+                merged.set(merged.size() - 1, new ShardRange(previous.getFirstId(), range.getLastId(),
+                        range.getShard()));
+            } else {
+                merged.add(range);
+            }
+        }
+
+        return new ShardMap(merged, new ArrayList<>(blocks.values()));
+    }
+
+    @Override
+    public String toString() {
+        return "ShardMap " + ranges;
+    }
+}
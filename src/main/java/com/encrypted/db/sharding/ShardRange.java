@@ -0,0 +1,25 @@
+package com.encrypted.db.sharding;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Inclusive range of customer ids and the shard holding them
+ */
+@Data
+@AllArgsConstructor
+public class ShardRange {
+
+    private int firstId;
+    private int lastId;
+    private String shard;
+
+    public boolean contains(int customerId) {
+        return customerId >= firstId && customerId <= lastId;
+    }
+
+    @Override
+    public String toString() {
+        return firstId + "-" + lastId + " " + shard;
+    }
+}
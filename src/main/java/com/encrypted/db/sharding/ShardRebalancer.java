@@ -0,0 +1,472 @@
+package com.encrypted.db.sharding;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Adds shards and moves customers, with their accounts, between shards.
+ * <p>
+ * {@link #addShard(String, int)} gives a shard the next free id block and seeds its customer and account identities
+ * inside it.  Moves go in chunks of customers: the chunk is locked on the old shard, copied to the new one with its
+ * ids, routed to the new shard in the catalog and only then deleted from the old one, so every customer is readable
+ * throughout.  Ids the old shard may still hand out are never moved.
+ * <p>
+ * Always Encrypted values are copied decrypted through the driver, so both shards need the column master key.
+ * Routers on other instances pick the moves up on their next map refresh.  A write they route by the old map in the
+ * meantime waits for the chunk's locks on the old shard and then finds its rows deleted; the sharded DAOs then reload
+ * the map and write to the new shard, see {@link ShardRouter#write}, so no write is lost.  Run one rebalancer at a
+ * time.
+ * Copying needs {@code ALTER} on the account and customer tables for {@code SET IDENTITY_INSERT} and
+ * {@code DBCC CHECKIDENT}.
+ */
+public class ShardRebalancer {
+
+    private static final Logger LOG = Logger.getLogger(ShardRebalancer.class.getName());
+
+    private static final String CUSTOMER = CustomerDAO.SCHEMA + "." + CustomerDAO.TABLE_CUSTOMER;
+    private static final String ACCOUNT = AccountDAO.SCHEMA + "." + AccountDAO.TABLE_ACCOUNT;
+
+    private static final String SELECT_IDENTITY_SQL = "SELECT CAST(last_value AS BIGINT) FROM sys.identity_columns " +
+            "WHERE object_id = OBJECT_ID(?)";
+    private static final String RESEED_SQL = "DBCC CHECKIDENT (N'%s', RESEED, %d) WITH NO_INFOMSGS";
+    private static final String COUNT_OUTSIDE_SQL = "SELECT (SELECT COUNT(*) FROM " + CUSTOMER +
+            " WHERE id < ? OR id > ?) + (SELECT COUNT(*) FROM " + ACCOUNT + " WHERE id < ? OR id > ?)";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM " + CUSTOMER;
+    private static final String SELECT_TOP_IDS_SQL = "SELECT MIN(id), MAX(id) FROM " +
+            "(SELECT TOP (?) id FROM " + CUSTOMER + " ORDER BY id DESC) t";
+
+    // The chunk stays locked on the old shard until it has been deleted there
+    private static final String SELECT_CUSTOMERS_SQL = "SELECT TOP (?) id, ssn, first_name, middle_initial, " +
+            "last_name, ssn_index FROM " + CUSTOMER + " WITH (UPDLOCK, HOLDLOCK) WHERE id > ? AND id <= ? ORDER BY id";
+    private static final String SELECT_ACCOUNTS_SQL = "SELECT id, customer_id, account_number, balance, " +
+            "account_number_index FROM " + ACCOUNT + " WITH (UPDLOCK, HOLDLOCK) " +
+            "WHERE customer_id > ? AND customer_id <= ?";
+
+    // Rows left on the new shard by a move that failed before routing them there
+    private static final String DELETE_LEFTOVERS_SQL = "DELETE FROM " + ACCOUNT + " WITH (TABLOCKX) " +
+            "WHERE customer_id > ? AND customer_id <= ?; " +
+            "DELETE FROM " + CUSTOMER + " WITH (TABLOCKX) WHERE id > ? AND id <= ?";
+    private static final String INSERT_CUSTOMER_SQL = "INSERT INTO " + CUSTOMER +
+            " (id, ssn, first_name, middle_initial, last_name, ssn_index) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ACCOUNT_SQL = "INSERT INTO " + ACCOUNT +
+            " (id, customer_id, account_number, balance, account_number_index) VALUES (?, ?, ?, ?, ?)";
+    private static final String IDENTITY_INSERT_SQL = "SET IDENTITY_INSERT %s %s";
+
+    private static final String DELETE_ACCOUNTS_SQL = "DELETE FROM " + ACCOUNT +
+            " WHERE customer_id > ? AND customer_id <= ?";
+    private static final String DELETE_CUSTOMERS_SQL = "DELETE FROM " + CUSTOMER + " WHERE id > ? AND id <= ?";
+
+    private final ShardRouter router;
+    private final ShardCatalog catalog;
+
+    /**
+     * @param router router whose shards are rebalanced, routed by each move as soon as it is saved
+     */
+    public ShardRebalancer(ShardRouter router) {
+        this.router = router;
+        this.catalog = router.getCatalog();
+    }
+
+    /**
+     * Give a shard an id block and seed its identities inside it.  Safe to run again for a shard that has a block.
+     *
+     * @param name configured shard, empty apart from ids inside the block it already has, if any
+     * @param blockSize ids in the block
+     * @return id block of the shard
+     * @throws SQLException thrown if error executing SQL
+     */
+    public synchronized ShardRange addShard(String name, int blockSize) throws SQLException {
+        Shard shard = router.getShard(name);
+
+        ShardMap map = catalog.load();
+        if (map.getBlock(name) == null) {
+            map = map.withBlock(name, blockSize);
+        }
+        ShardRange block = map.getBlock(name);
+
+        try (Connection con = shard.getDataSource().getConnection()) {
+            try (PreparedStatement ps = con.prepareStatement(COUNT_OUTSIDE_SQL)) {
+                for (int i = 0; i < 2; i++) {
+                    ps.setInt(2 * i + 1, block.getFirstId());
+                    ps.setInt(2 * i + 2, block.getLastId());
+                }
+                try (ResultSet resultSet = ps.executeQuery()) {
+                    if (resultSet.next() && resultSet.getLong(1) > 0) {
+                        throw new IllegalStateException("Shard " + name + " holds rows outside its id block " +
+                                block);
+                    }
+                }
+            }
+
+            seedIdentity(con, CUSTOMER, block);
+            seedIdentity(con, ACCOUNT, block);
+        }
+
+        catalog.save(map);
+        router.setMap(map);
+
+        LOG.info("Shard " + name + " has id block " + block);
+        return block;
+    }
+
+    /**
+     * Move every customer with an id in a range to a shard
+     *
+     * @param firstId first customer id to move
+     * @param lastId last customer id to move
+     * @param target shard to move to, which must have an id block
+     * @param options chunk size
+     * @return customers and accounts moved
+     * @throws SQLException thrown if error executing SQL, chunks moved before the error stay moved
+     */
+    public synchronized RebalanceReport moveRange(int firstId, int lastId, String target, RebalanceOptions options)
+            throws SQLException {
+        long start = System.nanoTime();
+        RebalanceReport report = new RebalanceReport();
+        Set<Shard> touched = new HashSet<>();
+
+        router.setMap(catalog.load());
+        Shard to = targetShard(target);
+        for (ShardRange range : router.getMap().getRanges()) {
+            if (!range.getShard().equals(target) && range.getLastId() >= firstId && range.getFirstId() <= lastId) {
+                Shard from = router.getShard(range.getShard());
+                move(from, to, Math.max(firstId, range.getFirstId()), Math.min(lastId, range.getLastId()), options,
+                        report);
+                touched.add(from);
+            }
+        }
+        touched.add(to);
+
+        rebuildBalanceSummaries(touched);
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+
+    /**
+     * Even out the number of customers of the shards with an id block, moving the newest customers of the fullest
+     * shards to the emptiest ones
+     *
+     * @param options chunk size
+     * @return customers and accounts moved
+     * @throws SQLException thrown if error executing SQL, chunks moved before the error stay moved
+     */
+    public synchronized RebalanceReport rebalance(RebalanceOptions options) throws SQLException {
+        long start = System.nanoTime();
+        RebalanceReport report = new RebalanceReport();
+        Set<Shard> touched = new HashSet<>();
+
+        router.setMap(catalog.load());
+        List<Shard> shards = new ArrayList<>();
+        for (String name : router.getMap().getBlocks().keySet()) {
+            shards.add(router.getShard(name));
+        }
+
+        Map<Shard, Long> counts = new LinkedHashMap<>();
+        List<Long> counted = router.scatter(shards, ShardRebalancer::countCustomers);
+        long total = 0;
+        for (int i = 0; i < shards.size(); i++) {
+            counts.put(shards.get(i), counted.get(i));
+            total += counted.get(i);
+        }
+        long fairShare = shards.isEmpty() ? 0 : (total + shards.size() - 1) / shards.size();
+
+        while (true) {
+            Shard fullest = null;
+            Shard emptiest = null;
+            for (Shard shard : shards) {
+                if (fullest == null || counts.get(shard) > counts.get(fullest)) {
+                    fullest = shard;
+                }
+                if (emptiest == null || counts.get(shard) < counts.get(emptiest)) {
+                    emptiest = shard;
+                }
+            }
+
+            long customers = fullest == null ? 0
+                    : Math.min(counts.get(fullest) - fairShare, fairShare - counts.get(emptiest));
+            if (customers <= 0) {
+                break;
+            }
+
+            int[] ids = topIds(fullest, customers);
+            long before = report.getCustomersMoved();
+            for (ShardRange range : router.getMap().getRanges(fullest.getName())) {
+                if (range.getLastId() >= ids[0] && range.getFirstId() <= ids[1]) {
+                    move(fullest, emptiest, Math.max(ids[0], range.getFirstId()),
+                            Math.min(ids[1], range.getLastId()), options, report);
+                }
+            }
+            long moved = report.getCustomersMoved() - before;
+            if (moved == 0) {
+                break;
+            }
+
+            counts.put(fullest, counts.get(fullest) - moved);
+            counts.put(emptiest, counts.get(emptiest) + moved);
+            touched.add(fullest);
+            touched.add(emptiest);
+        }
+
+        rebuildBalanceSummaries(touched);
+        report.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return report;
+    }
+
+    private Shard targetShard(String target) {
+        Shard to = router.getShard(target);
+        if (router.getMap().getBlock(target) == null) {
+            throw new IllegalArgumentException("Shard " + target + " has no id block, add it first");
+        }
+        return to;
+    }
+
+    /**
+     * Move a range held by one shard to another, chunk by chunk
+     */
+    private void move(Shard from, Shard to, int firstId, int lastId, RebalanceOptions options,
+                      RebalanceReport report) throws SQLException {
+        // Ids the old shard may still insert have to stay there
+        ShardRange block = router.getMap().getBlock(from.getName());
+        if (block != null) {
+            long handedOut;
+            try (Connection con = from.getDataSource().getConnection()) {
+                Long last = lastIdentity(con, CUSTOMER);
+                handedOut = last == null ? block.getFirstId() - 1L : last;
+            }
+            if (Math.max(firstId, handedOut + 1) <= Math.min(lastId, block.getLastId())) {
+                throw new IllegalArgumentException("Ids after " + handedOut + " may still be inserted on shard " +
+                        from.getName() + ", they can not be moved");
+            }
+        }
+
+        long before = report.getCustomersMoved();
+        long after = firstId - 1L;
+        while (after < lastId) {
+            after = moveChunk(from, to, after, lastId, options.getChunkSize(), report);
+            report.setChunks(report.getChunks() + 1);
+        }
+
+        String move = firstId + "-" + lastId + " " + from.getName() + " -> " + to.getName();
+        report.getMoves().add(move);
+        LOG.info("Moved " + (report.getCustomersMoved() - before) + " customers " + move);
+    }
+
+    /**
+     * Copy, route and delete the next chunk of customers after an id
+     *
+     * @return last id of the range the chunk covered
+     */
+    private long moveChunk(Shard from, Shard to, long after, int lastId, int chunkSize, RebalanceReport report)
+            throws SQLException {
+        try (Connection source = from.getDataSource().getConnection();
+             Connection target = to.getDataSource().getConnection()) {
+            source.setAutoCommit(false);
+            target.setAutoCommit(false);
+
+            try {
+                Long lastCustomerIdentity = lastIdentity(target, CUSTOMER);
+                Long lastAccountIdentity = lastIdentity(target, ACCOUNT);
+                deleteRange(target, DELETE_LEFTOVERS_SQL, after, lastId, 2);
+
+                long customers = 0;
+                long chunkLast = after;
+                setIdentityInsert(target, CUSTOMER, true);
+                try (PreparedStatement select = source.prepareStatement(SELECT_CUSTOMERS_SQL);
+                     PreparedStatement insert = target.prepareStatement(INSERT_CUSTOMER_SQL)) {
+                    select.setInt(1, chunkSize);
+                    select.setLong(2, after);
+                    select.setInt(3, lastId);
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        while (resultSet.next()) {
+                            chunkLast = resultSet.getInt(1);
+                            insert.setInt(1, resultSet.getInt(1));
+                            insert.setNString(2, resultSet.getNString(2));
+                            insert.setNString(3, resultSet.getNString(3));
+                            insert.setString(4, resultSet.getString(4));
+                            insert.setNString(5, resultSet.getNString(5));
+                            setBytes(insert, 6, resultSet.getBytes(6));
+                            insert.addBatch();
+                            customers++;
+                        }
+                    }
+                    if (customers > 0) {
+                        insert.executeBatch();
+                    }
+                }
+                setIdentityInsert(target, CUSTOMER, false);
+
+                // A short chunk is the last one, it covers the rest of the range
+                if (customers < chunkSize) {
+                    chunkLast = lastId;
+                }
+
+                long accounts = 0;
+                setIdentityInsert(target, ACCOUNT, true);
+                try (PreparedStatement select = source.prepareStatement(SELECT_ACCOUNTS_SQL);
+                     PreparedStatement insert = target.prepareStatement(INSERT_ACCOUNT_SQL)) {
+                    select.setLong(1, after);
+                    select.setLong(2, chunkLast);
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        while (resultSet.next()) {
+                            insert.setInt(1, resultSet.getInt(1));
+                            insert.setInt(2, resultSet.getInt(2));
+                            insert.setNString(3, resultSet.getNString(3));
+                            double balance = resultSet.getDouble(4);
+                            if (resultSet.wasNull()) {
+                                insert.setNull(4, Types.DOUBLE);
+                            } else {
+                                insert.setDouble(4, balance);
+                            }
+                            setBytes(insert, 5, resultSet.getBytes(5));
+                            insert.addBatch();
+                            accounts++;
+                        }
+                    }
+                    if (accounts > 0) {
+                        insert.executeBatch();
+                    }
+                }
+                setIdentityInsert(target, ACCOUNT, false);
+
+                // Explicit ids above the identity move it, which would hand out ids of the old shard's block
+                ShardRange block = router.getMap().getBlock(to.getName());
+                restoreIdentity(target, CUSTOMER, lastCustomerIdentity, block);
+                restoreIdentity(target, ACCOUNT, lastAccountIdentity, block);
+                target.commit();
+
+                // Route the chunk to the new shard before the old one lets go of it
+                ShardMap map = router.getMap().assign((int) (after + 1), (int) chunkLast, to.getName());
+                catalog.save(map);
+                router.setMap(map);
+
+                deleteRange(source, DELETE_ACCOUNTS_SQL, after, chunkLast, 1);
+                deleteRange(source, DELETE_CUSTOMERS_SQL, after, chunkLast, 1);
+                source.commit();
+
+                report.setCustomersMoved(report.getCustomersMoved() + customers);
+                report.setAccountsMoved(report.getAccountsMoved() + accounts);
+                return chunkLast;
+            } catch (SQLException | RuntimeException e) {
+                target.rollback();
+                source.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void rebuildBalanceSummaries(Set<Shard> shards) throws SQLException {
+        // The moves wrote past the DAOs
+        for (Shard shard : shards) {
+            if (shard.getAccountDAO().isBalanceSummaries()) {
+                shard.getAccountDAO().rebuildBalanceSummaries();
+            }
+        }
+    }
+
+    private static long countCustomers(Shard shard) throws SQLException {
+        try (Connection con = shard.getDataSource().getConnection();
+             PreparedStatement ps = con.prepareStatement(COUNT_SQL);
+             ResultSet resultSet = ps.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * @return lowest and highest id of a shard's newest customers
+     */
+    private static int[] topIds(Shard shard, long customers) throws SQLException {
+        try (Connection con = shard.getDataSource().getConnection();
+             PreparedStatement ps = con.prepareStatement(SELECT_TOP_IDS_SQL)) {
+            ps.setLong(1, customers);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                resultSet.next();
+                return new int[]{resultSet.getInt(1), resultSet.getInt(2)};
+            }
+        }
+    }
+
+    /**
+     * @return last identity value handed out by a table, null if it never handed one out
+     */
+    private static Long lastIdentity(Connection con, String table) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(SELECT_IDENTITY_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet resultSet = ps.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                long last = resultSet.getLong(1);
+                return resultSet.wasNull() ? null : last;
+            }
+        }
+    }
+
+    /**
+     * Move a table's identity into a block, unless it is there already
+     */
+    private static void seedIdentity(Connection con, String table, ShardRange block) throws SQLException {
+        Long last = lastIdentity(con, table);
+        if (last != null && last > block.getLastId()) {
+            throw new IllegalStateException(table + " identity " + last + " is past the id block " + block);
+        }
+        if (last == null || last < block.getFirstId()) {
+            // An identity that never handed out a value starts at the seed, otherwise after it
+            reseed(con, table, last == null ? block.getFirstId() : block.getFirstId() - 1L);
+        }
+    }
+
+    private static void restoreIdentity(Connection con, String table, Long previous, ShardRange block)
+            throws SQLException {
+        Long last = lastIdentity(con, table);
+        if (last != null && !last.equals(previous)) {
+            // The table has rows now, so the next value is the one after the seed
+            reseed(con, table, previous != null ? previous : block.getFirstId() - 1L);
+        }
+    }
+
+    private static void reseed(Connection con, String table, long value) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(String.format(RESEED_SQL, table, value));
+        }
+    }
+
+    private static void setIdentityInsert(Connection con, String table, boolean on) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(String.format(IDENTITY_INSERT_SQL, table, on ? "ON" : "OFF"));
+        }
+    }
+
+    private static void deleteRange(Connection con, String sql, long after, long lastId, int ranges)
+            throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < ranges; i++) {
+                ps.setLong(2 * i + 1, after);
+                ps.setLong(2 * i + 2, lastId);
+            }
+            ps.execute();
+        }
+    }
+
+    private static void setBytes(PreparedStatement ps, int index, byte[] bytes) throws SQLException {
+        if (bytes == null) {
+            ps.setNull(index, Types.BINARY);
+        } else {
+            ps.setBytes(index, bytes);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.encrypted.db.sharding;
+
+import com.encrypted.db.dao.DaoExecutor;
+import com.encrypted.db.dao.UncheckedSQLException;
+import com.encrypted.db.entity.Customer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Routes customers to shards by the {@link ShardMap} kept in the {@link ShardCatalog}, and runs calls on several
+ * shards in parallel on the DAO executor.
+ * <p>
+ * The map is reloaded every {@code refreshIntervalMillis}, so a move made by the rebalancer on another instance is
+ * picked up within one interval.  New customers are placed by a hash of their ssn over the shards that have an id
+ * block, which spreads them evenly and keeps the choice independent of the order customers arrive in.
+ */
+public class ShardRouter implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ShardRouter.class.getName());
+
+    private final Map<String, Shard> shards;
+    private final ShardCatalog catalog;
+    private final DaoExecutor executor;
+    private final long refreshIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile ShardMap map = ShardMap.empty();
+
+    /**
+     * A call made on one shard
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface ShardCall<T> {
+        T call(Shard shard) throws SQLException;
+    }
+
+    /**
+     * A write made on the shard of a customer
+     */
+    @FunctionalInterface
+    public interface ShardWrite {
+
+        /**
+         * @param shard shard the customer is routed to
+         * @return true if the write found the rows it writes on the shard
+         * @throws SQLException thrown if error executing SQL
+         */
+        boolean write(Shard shard) throws SQLException;
+    }
+
+    /**
+     * @param shards every shard the map may name, closed with the router
+     * @param catalog catalog the map is loaded from
+     * @param executor executor the calls on several shards run on
+     * @param refreshIntervalMillis how often the map is reloaded, 0 to only load it on {@link #start()}
+     */
+    public ShardRouter(List<Shard> shards, ShardCatalog catalog, DaoExecutor executor, long refreshIntervalMillis) {
+        Map<String, Shard> byName = new LinkedHashMap<>();
+        for (Shard shard : shards) {
+            if (byName.put(shard.getName(), shard) != null) {
+                throw new IllegalArgumentException("Duplicate shard " + shard.getName());
+            }
+        }
+
+        this.shards = Collections.unmodifiableMap(byName);
+        this.catalog = catalog;
+        this.executor = executor;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-map-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load the map and schedule its refreshes
+     *
+     * @throws SQLException thrown if the map could not be loaded
+     */
+    public void start() throws SQLException {
+        reload();
+
+        if (refreshIntervalMillis > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    reload();
+                } catch (SQLException | RuntimeException e) {
+                    LOG.log(Level.WARNING, "Could not refresh the shard map, routing by the previous one", e);
+                }
+            }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Load the map from the catalog
+     *
+     * @throws SQLException thrown if error executing SQL
+     */
+    public void reload() throws SQLException {
+        ShardMap loaded = catalog.load();
+        for (ShardRange range : loaded.getRanges()) {
+            if (!shards.containsKey(range.getShard())) {
+                LOG.warning("Shard map names shard " + range.getShard() + ", which is not configured");
+            }
+        }
+        map = loaded;
+    }
+
+    /**
+     * @return map the router routes by
+     */
+    public ShardMap getMap() {
+        return map;
+    }
+
+    /**
+     * Route by a map the rebalancer has just saved, without waiting for the next refresh
+     */
+    void setMap(ShardMap map) {
+        this.map = map;
+    }
+
+    ShardCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * @return every configured shard, in configuration order
+     */
+    public Collection<Shard> getShards() {
+        return shards.values();
+    }
+
+    /**
+     * @param name shard name
+     * @return the shard
+     */
+    public Shard getShard(String name) {
+        Shard shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown shard " + name);
+        }
+        return shard;
+    }
+
+    /**
+     * @param customerId customer id
+     * @return shard holding the customer and its accounts, null if no shard holds the id
+     */
+    public Shard shardFor(int customerId) {
+        String name = map.shardFor(customerId);
+        if (name == null) {
+            return null;
+        }
+        Shard shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalStateException("Customer " + customerId + " is on shard " + name +
+                    ", which is not configured");
+        }
+        return shard;
+    }
+
+    /**
+     * Run a write on the shard holding a customer.
+     * <p>
+     * A router whose map is older than a move sends the write to the shard the customer was moved from.  The move
+     * keeps the customer locked there until it has deleted it, so the write waits and then finds no rows.  It is then
+     * run once more on the shard named by the reloaded map, which the move saved before deleting the customer.
+     *
+     * @param customerId customer id
+     * @param write write to run
+     * @throws SQLException thrown if error executing SQL
+     * @throws IllegalArgumentException thrown if no shard holds the customer
+     */
+    public void write(int customerId, ShardWrite write) throws SQLException {
+        if (write.write(requireShardFor(customerId))) {
+            return;
+        }
+
+        reload();
+        if (!write.write(requireShardFor(customerId))) {
+            throw new IllegalArgumentException("No shard holds customer " + customerId);
+        }
+    }
+
+    /**
+     * @param customerId customer id
+     * @return shard holding the customer and its accounts
+     * @throws IllegalArgumentException thrown if no shard holds the id
+     */
+    public Shard requireShardFor(int customerId) {
+        Shard shard = shardFor(customerId);
+        if (shard == null) {
+            throw new IllegalArgumentException("No shard holds customer " + customerId);
+        }
+        return shard;
+    }
+
+    /**
+     * @param customer new customer
+     * @return shard the customer is inserted on
+     */
+    public Shard placementFor(Customer customer) {
+        List<Shard> candidates = new ArrayList<>();
+        for (String name : map.getBlocks().keySet()) {
+            Shard shard = shards.get(name);
+            if (shard != null) {
+                candidates.add(shard);
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("No configured shard has an id block, add the shards first");
+        }
+
+        int hash = customer.getSsn() == null ? 0 : customer.getSsn().hashCode() * 0x9E3779B9;
+        return candidates.get(Math.floorMod(hash ^ (hash >>> 16), candidates.size()));
+    }
+
+    /**
+     * Run a call on every configured shard
+     *
+     * @param call call to run
+     * @param <T> result type
+     * @return results in shard order
+     * @throws SQLException thrown if the call failed on any shard, with the first failure
+     */
+    public <T> List<T> scatter(ShardCall<T> call) throws SQLException {
+        return scatter(shards.values(), call);
+    }
+
+    /**
+     * Run a call on several shards in parallel and wait for all of them
+     *
+     * @param targets shards to run the call on
+     * @param call call to run
+     * @param <T> result type
+     * @return results in the order of the targets
+     * @throws SQLException thrown if the call failed on any shard, with the first failure
+     */
+    public <T> List<T> scatter(Collection<Shard> targets, ShardCall<T> call) throws SQLException {
+        return scatter(targets, call, false);
+    }
+
+    /**
+     * Run a call that writes on several shards in parallel and wait for all of them.  The calls are not timed out, see
+     * {@link DaoExecutor#submitWrite(DaoExecutor.SqlCall)}.
+     *
+     * @param targets shards to run the call on
+     * @param call call to run
+     * @param <T> result type
+     * @return results in the order of the targets
+     * @throws SQLException thrown if the call failed on any shard, with the first failure
+     */
+    public <T> List<T> scatterWrite(Collection<Shard> targets, ShardCall<T> call) throws SQLException {
+        return scatter(targets, call, true);
+    }
+
+    private <T> List<T> scatter(Collection<Shard> targets, ShardCall<T> call, boolean write) throws SQLException {
+        if (targets.size() == 1) {
+            return Collections.singletonList(call.call(targets.iterator().next()));
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(targets.size());
+        for (Shard shard : targets) {
+            futures.add(write ? executor.submitWrite(() -> call.call(shard)) : executor.submit(() -> call.call(shard)));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        SQLException failure = null;
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                SQLException cause = unwrap(e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new SQLException("Interrupted waiting for the shards", e);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Stop the map refreshes and close the shards
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (Shard shard : shards.values()) {
+            shard.close();
+        }
+    }
+
+    private static SQLException unwrap(Throwable throwable) {
+        if (throwable instanceof SQLException) {
+            return (SQLException) throwable;
+        }
+        if (throwable instanceof UncheckedSQLException) {
+            return ((UncheckedSQLException) throwable).getCause();
+        }
+        return new SQLException("Shard call failed", throwable);
+    }
+}
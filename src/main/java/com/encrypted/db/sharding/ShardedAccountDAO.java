@@ -0,0 +1,199 @@
+package com.encrypted.db.sharding;
+
+import com.encrypted.db.dao.BalanceBucket;
+import com.encrypted.db.dao.BalanceSummary;
+import com.encrypted.db.entity.Account;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Account Data Access across shards.
+ * <p>
+ * Accounts live on the shard of their customer, so everything keyed by customer id goes to one shard.  Accounts by
+ * account id, the top customers by balance and the balance buckets are read from every shard in parallel and merged.
+ * An account can only be moved to a customer on the same shard.
+ */
+public class ShardedAccountDAO {
+
+    private final ShardRouter router;
+
+    public ShardedAccountDAO(ShardRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * Insert an Account on the shard of its customer
+     *
+     * @param account account to insert
+     * @throws SQLException thrown if error executing SQL
+     * @throws IllegalArgumentException thrown if no shard holds the customer
+     */
+    public void insertAccount(Account account) throws SQLException {
+        insertAccounts(Collections.singletonList(account));
+    }
+
+    /**
+     * Insert Accounts, one transaction per shard, on the shards in parallel.  The accounts of a shard are only inserted
+     * if all their customers are there; the accounts of customers moved away meanwhile are inserted again on the
+     * shards named by the reloaded map, see {@link ShardRouter#write}.
+     *
+     * @param accounts accounts to insert
+     * @return number of accounts inserted
+     * @throws SQLException thrown if error executing SQL, accounts on other shards may have been inserted
+     * @throws IllegalArgumentException thrown if no shard holds one of the customers, accounts on other shards may
+     *                                  have been inserted
+     */
+    public int insertAccounts(List<Account> accounts) throws SQLException {
+        List<Account> missed = new ArrayList<>();
+        int inserted = insertAccounts(accounts, missed);
+        if (missed.isEmpty()) {
+            return inserted;
+        }
+
+        router.reload();
+        List<Account> stillMissed = new ArrayList<>();
+        inserted += insertAccounts(missed, stillMissed);
+        if (!stillMissed.isEmpty()) {
+            throw new IllegalArgumentException("No shard holds customer " + stillMissed.get(0).getCustomerId());
+        }
+        return inserted;
+    }
+
+    /**
+     * Update an Account on the shard of its customer, following the customer if it was moved
+     *
+     * @param account account to update
+     * @throws SQLException thrown if error executing SQL
+     * @throws IllegalArgumentException thrown if no shard holds the account
+     */
+    public void updateAccount(Account account) throws SQLException {
+        router.write(account.getCustomerId(), shard -> shard.getAccountDAO().updateAccount(account));
+    }
+
+    /**
+     * Get Account by Id from whichever shard holds it
+     *
+     * @param id id of account
+     * @return account if found
+     * @throws SQLException thrown if error executing SQL
+     */
+    public Account getAccountById(int id) throws SQLException {
+        for (Account account : router.scatter(shard -> shard.getAccountDAO().getAccountById(id))) {
+            if (account != null) {
+                return account;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get a page of a customer's accounts from its shard
+     *
+     * @param customerId customer id
+     * @param afterId id of the last account of the previous page, 0 for the first page
+     * @param limit maximum number of accounts
+     * @param encrypted true if fields should be encrypted
+     * @return accounts in id order
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<Account> getAccountsByCustomerIdAfter(int customerId, int afterId, int limit, boolean encrypted)
+            throws SQLException {
+        Shard shard = router.shardFor(customerId);
+        if (shard == null) {
+            return new ArrayList<>();
+        }
+        return shard.getAccountDAO().getAccountsByCustomerIdAfter(customerId, afterId, limit, encrypted);
+    }
+
+    /**
+     * Get the number of accounts and total balance of a customer from its shard
+     *
+     * @param customerId customer id
+     * @return balance summary, with no accounts if the customer has none
+     * @throws SQLException thrown if error executing SQL
+     */
+    public BalanceSummary getBalanceSummary(int customerId) throws SQLException {
+        Shard shard = router.shardFor(customerId);
+        if (shard == null) {
+            return new BalanceSummary(customerId, 0, 0);
+        }
+        return shard.getAccountDAO().getBalanceSummary(customerId);
+    }
+
+    /**
+     * Get the customers with the highest total balance, merging the top customers of every shard
+     *
+     * @param limit number of customers to return
+     * @return balance summaries, highest total balance first
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<BalanceSummary> getTopCustomersByBalance(int limit) throws SQLException {
+        List<BalanceSummary> merged = new ArrayList<>();
+        router.scatter(shard -> shard.getAccountDAO().getTopCustomersByBalance(limit)).forEach(merged::addAll);
+
+        merged.sort(Comparator.comparingDouble(BalanceSummary::getTotalBalance).reversed()
+                .thenComparingInt(BalanceSummary::getCustomerId));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Count the accounts and total their balances by balance range over every shard
+     *
+     * @param bounds ascending bucket bounds
+     * @return one bucket per range, lowest first, including empty ones
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<BalanceBucket> getBalanceBuckets(double... bounds) throws SQLException {
+        List<BalanceBucket> totals = null;
+        for (List<BalanceBucket> buckets : router.scatter(shard -> shard.getAccountDAO().getBalanceBuckets(bounds))) {
+            if (totals == null) {
+                totals = buckets;
+                continue;
+            }
+            for (int i = 0; i < totals.size(); i++) {
+                BalanceBucket total = totals.get(i);
+                total.setAccounts(total.getAccounts() + buckets.get(i).getAccounts());
+                total.setTotalBalance(total.getTotalBalance() + buckets.get(i).getTotalBalance());
+            }
+        }
+        return totals == null ? new ArrayList<>() : totals;
+    }
+
+    /**
+     * Insert accounts on the shards of their customers by the current map
+     *
+     * @param accounts accounts to insert
+     * @param missed receives the accounts of shards where a customer was missing, none of them inserted
+     * @return number of accounts inserted
+     */
+    private int insertAccounts(List<Account> accounts, List<Account> missed) throws SQLException {
+        Map<Shard, List<Account>> accountsByShard = new LinkedHashMap<>();
+        for (Account account : accounts) {
+            accountsByShard.computeIfAbsent(router.requireShardFor(account.getCustomerId()), s -> new ArrayList<>())
+                    .add(account);
+        }
+        if (accountsByShard.isEmpty()) {
+            return 0;
+        }
+
+        List<Boolean> results = router.scatterWrite(accountsByShard.keySet(),
+                shard -> shard.getAccountDAO().insertAccountsOfExistingCustomers(accountsByShard.get(shard)));
+
+        int inserted = 0;
+        int i = 0;
+        for (List<Account> shardAccounts : accountsByShard.values()) {
+            if (results.get(i++)) {
+                inserted += shardAccounts.size();
+            } else {
+                missed.addAll(shardAccounts);
+            }
+        }
+        return inserted;
+    }
+}
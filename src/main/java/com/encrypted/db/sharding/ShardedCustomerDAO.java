@@ -0,0 +1,144 @@
+package com.encrypted.db.sharding;
+
+import com.encrypted.db.entity.Customer;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Customer Data Access across shards.
+ * <p>
+ * A customer and its accounts are inserted on the shard chosen by {@link ShardRouter#placementFor(Customer)} and read
+ * and updated on the shard its id is routed to.  Reads of several customers run on every shard involved in parallel
+ * and merge the results: by id for pages, in request order for customers by id.  Because ids are unique across shards
+ * a keyset page is the first {@code limit} ids of the per shard pages merged.
+ */
+public class ShardedCustomerDAO {
+
+    private final ShardRouter router;
+
+    public ShardedCustomerDAO(ShardRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * Insert Customer and its accounts on one shard in a single transaction
+     *
+     * @param customer customer to insert
+     * @throws SQLException thrown if error executing SQL
+     */
+    public void insertCustomer(Customer customer) throws SQLException {
+        Shard shard = router.placementFor(customer);
+        shard.getCustomerDAO().insertCustomer(customer);
+
+        // An identity that ran past the shard's block hands out ids of another shard
+        ShardRange block = router.getMap().getBlock(shard.getName());
+        if (block != null && !block.contains(customer.getId())) {
+            throw new IllegalStateException("Shard " + shard.getName() + " inserted customer " + customer.getId() +
+                    " outside its id block " + block + ", the block is exhausted");
+        }
+    }
+
+    /**
+     * Get Customer by Id from its shard
+     *
+     * @param id id of customer
+     * @param encrypted true if fields should be encrypted
+     * @return customer if found
+     * @throws SQLException thrown if error executing SQL
+     */
+    public Customer getCustomerById(int id, boolean encrypted) throws SQLException {
+        Shard shard = router.shardFor(id);
+        return shard == null ? null : shard.getCustomerDAO().getCustomerById(id, encrypted);
+    }
+
+    /**
+     * Get Customers and their accounts by Id, reading the shards involved in parallel
+     *
+     * @param ids ids of the customers
+     * @param encrypted true if fields should be encrypted
+     * @return customers found, in the order of the requested ids, without duplicates
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<Customer> getCustomersByIds(Collection<Integer> ids, boolean encrypted) throws SQLException {
+        Map<Shard, List<Integer>> idsByShard = new LinkedHashMap<>();
+        for (int id : new LinkedHashSet<>(ids)) {
+            Shard shard = router.shardFor(id);
+            if (shard != null) {
+                idsByShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(id);
+            }
+        }
+        if (idsByShard.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Customer> found = new HashMap<>();
+        for (List<Customer> customers : router.scatter(idsByShard.keySet(),
+                shard -> shard.getCustomerDAO().getCustomersByIds(idsByShard.get(shard), encrypted))) {
+            customers.forEach(customer -> found.put(customer.getId(), customer));
+        }
+
+        List<Customer> ordered = new ArrayList<>(found.size());
+        for (int id : new LinkedHashSet<>(ids)) {
+            Customer customer = found.get(id);
+            if (customer != null) {
+                ordered.add(customer);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Get a page of customers in id order, reading a page from every shard in parallel
+     *
+     * @param afterId id of the last customer of the previous page, 0 for the first page
+     * @param limit maximum number of customers
+     * @param encrypted true if fields should be encrypted
+     * @param includeAccounts true to read the accounts of the customers
+     * @return customers with ids after {@code afterId}, in id order
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<Customer> getCustomersAfter(int afterId, int limit, boolean encrypted, boolean includeAccounts)
+            throws SQLException {
+        List<Customer> merged = new ArrayList<>();
+        router.scatter(shard -> shard.getCustomerDAO().getCustomersAfter(afterId, limit, encrypted, includeAccounts))
+                .forEach(merged::addAll);
+
+        merged.sort(Comparator.comparingInt(Customer::getId));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Find Customers by ssn on every shard in parallel
+     *
+     * @param ssn ssn to search for
+     * @param encrypted true if fields should be encrypted
+     * @return customers with the ssn, in id order
+     * @throws SQLException thrown if error executing SQL
+     */
+    public List<Customer> findBySsn(String ssn, boolean encrypted) throws SQLException {
+        List<Customer> found = new ArrayList<>();
+        router.scatter(shard -> shard.getCustomerDAO().findBySsn(ssn, encrypted)).forEach(found::addAll);
+
+        found.sort(Comparator.comparingInt(Customer::getId));
+        return found;
+    }
+
+    /**
+     * Update Customer on its shard, following the customer if it was moved, see {@link ShardRouter#write}
+     *
+     * @param customer customer to update
+     * @throws SQLException thrown if error executing SQL
+     * @throws IllegalArgumentException thrown if no shard holds the customer
+     */
+    public void updateCustomer(Customer customer) throws SQLException {
+        router.write(customer.getId(), shard -> shard.getCustomerDAO().updateCustomer(customer));
+    }
+}
@@ -0,0 +1,215 @@
+package com.encrypted.db.warmup;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.CustomerField;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Startup warm-up, so the first requests after a deploy do not pay for everything that is slow the first time.
+ * <p>
+ * The warm-up first opens and holds {@code connections} pool connections, paying for their logins, then runs rounds
+ * of representative reads on that many threads.  The reads decrypt and return ciphertext, which unwraps the column
+ * encryption keys, fills the driver's encryption metadata and the pool's statement caches, and gives the JIT the hot
+ * paths of the DAOs and the driver.  Reads of a customer go past the customer cache.
+ * <p>
+ * The warm-up never fails: a failed read is counted and the rounds go on, and once the time limit is reached the
+ * warm-up reports what it managed.  {@link WarmupHealthIndicator} keeps the application out of service until it has
+ * finished.
+ */
+public class Warmup {
+
+    private static final Logger LOG = Logger.getLogger(Warmup.class.getName());
+
+    // Rows read by each listing
+    private static final int PAGE_SIZE = 10;
+
+    private final DataSource dataSource;
+    private final CustomerDAO customerDAO;
+    private final AccountDAO accountDAO;
+
+    private volatile long startNanos;
+    private volatile WarmupReport report;
+
+    /**
+     * A read run by every round
+     */
+    @FunctionalInterface
+    private interface Read {
+        void run() throws SQLException;
+    }
+
+    /**
+     * @param dataSource pool the connections are opened in
+     * @param customerDAO customer reads to warm, on the same pool
+     * @param accountDAO account reads to warm, on the same pool
+     */
+    public Warmup(DataSource dataSource, CustomerDAO customerDAO, AccountDAO accountDAO) {
+        this.dataSource = dataSource;
+        this.customerDAO = customerDAO;
+        this.accountDAO = accountDAO;
+    }
+
+    /**
+     * Run the warm-up, on the caller's thread and the warm-up threads
+     *
+     * @param options connections, rounds and time limit
+     * @return outcome and duration of the warm-up
+     */
+    public WarmupReport warmUp(WarmupOptions options) {
+        if (options.getConnections() < 1) {
+            throw new IllegalArgumentException("connections must be at least 1");
+        }
+
+        startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.SECONDS.toNanos(options.getTimeoutSeconds());
+
+        AtomicLong queries = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        AtomicBoolean timedOut = new AtomicBoolean();
+
+        int connections = openConnections(options.getConnections(), failures);
+        if (connections > 0) {
+            int customerId = sampleCustomerId(queries, failures);
+            runRounds(connections, options.getIterations(), deadline, customerId, queries, failures, timedOut);
+        }
+
+        WarmupReport result = new WarmupReport();
+        result.setConnections(connections);
+        result.setQueries(queries.get());
+        result.setFailures(failures.get());
+        result.setTimedOut(timedOut.get());
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        report = result;
+        return result;
+    }
+
+    /**
+     * @return report of the finished warm-up, null while it is running or before it started
+     */
+    public WarmupReport getReport() {
+        return report;
+    }
+
+    /**
+     * @return time the warm-up took, or has taken so far, 0 before it started
+     */
+    public long getElapsedMillis() {
+        WarmupReport finished = report;
+        if (finished != null) {
+            return finished.getElapsedMillis();
+        }
+        return startNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Borrow the connections all at once so the pool has to log each of them in, then return them
+     *
+     * @return number of connections opened
+     */
+    private int openConnections(int count, AtomicLong failures) {
+        List<Connection> connections = new ArrayList<>(count);
+        try {
+            while (connections.size() < count) {
+                connections.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            failures.incrementAndGet();
+            LOG.warning("Warm-up opened " + connections.size() + " of " + count + " connections: " + e.getMessage());
+        } finally {
+            for (Connection con : connections) {
+                try {
+                    con.close();
+                } catch (SQLException e) {
+                    LOG.log(Level.FINE, "Could not return a warm-up connection", e);
+                }
+            }
+        }
+        return connections.size();
+    }
+
+    /**
+     * @return id of the first customer, 0 if there are none, in which case the reads return nothing but still prepare
+     */
+    private int sampleCustomerId(AtomicLong queries, AtomicLong failures) {
+        int[] customerId = {0};
+        read(() -> customerDAO.getCustomersAfter(0, 1, true, false).forEach(c -> customerId[0] = c.getId()),
+                queries, failures);
+        return customerId[0];
+    }
+
+    private void runRounds(int workers, int iterations, long deadline, int customerId, AtomicLong queries,
+                           AtomicLong failures, AtomicBoolean timedOut) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "warmup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> {
+                    for (int round = 0; round < iterations; round++) {
+                        if (System.nanoTime() - deadline > 0 || Thread.currentThread().isInterrupted()) {
+                            timedOut.set(true);
+                            return;
+                        }
+                        round(customerId, queries, failures);
+                    }
+                });
+            }
+
+            executor.shutdown();
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            if (!executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                timedOut.set(true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timedOut.set(true);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The reads behind the busiest endpoints, decrypted and as ciphertext
+     */
+    private void round(int customerId, AtomicLong queries, AtomicLong failures) {
+        for (boolean encrypted : new boolean[]{false, true}) {
+            read(() -> customerDAO.getCustomerById(customerId, CustomerField.ALL, encrypted, false),
+                    queries, failures);
+            read(() -> customerDAO.getCustomersAfter(0, PAGE_SIZE, encrypted, true), queries, failures);
+            read(() -> accountDAO.getAccountsByCustomerIdAfter(customerId, 0, PAGE_SIZE, encrypted),
+                    queries, failures);
+        }
+    }
+
+    private static void read(Read read, AtomicLong queries, AtomicLong failures) {
+        try {
+            read.run();
+            queries.incrementAndGet();
+        } catch (SQLException | RuntimeException e) {
+            // Log the first failure only, the rest are counted
+            if (failures.incrementAndGet() == 1) {
+                LOG.log(Level.WARNING, "Warm-up read failed", e);
+            }
+        }
+    }
+}
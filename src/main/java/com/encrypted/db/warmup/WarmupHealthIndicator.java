@@ -0,0 +1,35 @@
+package com.encrypted.db.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * Holds the health endpoint, and with it the readiness probe, out of service until the warm-up has finished.  A
+ * warm-up that failed or timed out still finishes, its failures are reported as details.
+ */
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final Warmup warmup;
+
+    public WarmupHealthIndicator(Warmup warmup) {
+        this.warmup = warmup;
+    }
+
+    @Override
+    public Health health() {
+        WarmupReport report = warmup.getReport();
+        if (report == null) {
+            return Health.outOfService()
+                    .withDetail("elapsedMillis", warmup.getElapsedMillis())
+                    .build();
+        }
+
+        return Health.up()
+                .withDetail("elapsedMillis", report.getElapsedMillis())
+                .withDetail("connections", report.getConnections())
+                .withDetail("queries", report.getQueries())
+                .withDetail("failures", report.getFailures())
+                .withDetail("timedOut", report.isTimedOut())
+                .build();
+    }
+}
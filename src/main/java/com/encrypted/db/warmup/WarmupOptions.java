@@ -0,0 +1,24 @@
+package com.encrypted.db.warmup;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Size and time limit of a startup warm-up
+ */
+@Data
+@Builder
+public class WarmupOptions {
+
+    // Connections opened and held at once, so the pool has them logged in before the first request
+    @Builder.Default
+    private int connections = 10;
+
+    // Rounds of representative reads per connection, enough for the hot paths to be compiled by the JIT
+    @Builder.Default
+    private int iterations = 200;
+
+    // The warm-up stops and reports ready after this long even if rounds are left
+    @Builder.Default
+    private long timeoutSeconds = 60;
+}
@@ -0,0 +1,30 @@
+package com.encrypted.db.warmup;
+
+import lombok.Data;
+
+/**
+ * Outcome and duration of a startup warm-up
+ */
+@Data
+public class WarmupReport {
+
+    private int connections;
+    private long queries;
+    private long failures;
+
+    // True if the time limit stopped the warm-up before every round ran
+    private boolean timedOut;
+
+    private long elapsedMillis;
+
+    @Override
+    public String toString() {
+        return new StringBuilder("Warm-up").append("\n")
+                .append("\tconnections: ").append(connections).append("\n")
+                .append("\tqueries: ").append(queries).append("\n")
+                .append("\tfailures: ").append(failures).append("\n")
+                .append("\ttimed out: ").append(timedOut).append("\n")
+                .append("\telapsed: ").append(elapsedMillis).append(" ms")
+                .toString();
+    }
+}
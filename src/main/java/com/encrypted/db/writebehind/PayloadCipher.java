@@ -0,0 +1,82 @@
+package com.encrypted.db.writebehind;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Seals write-behind message bodies with AES-GCM.
+ * <p>
+ * Queued writes carry decrypted SSNs and account numbers and the broker may keep them on disk, so bodies are sealed
+ * before they are sent and only opened by the consumer about to write them.  The key has to be shared by every
+ * producer and consumer and outlive the messages, so it is configured rather than generated.
+ */
+public class PayloadCipher {
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param key AES key of 16, 24 or 32 bytes.  Not retained.
+     */
+    public PayloadCipher(byte[] key) {
+        if (key == null || (key.length != 16 && key.length != 24 && key.length != 32)) {
+            throw new IllegalArgumentException("Write-behind payload key must be 16, 24 or 32 bytes");
+        }
+        this.key = new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * @param plaintext message body
+     * @return random IV followed by the ciphertext and tag
+     */
+    public byte[] seal(byte[] plaintext) {
+        return seal(plaintext, 0, plaintext.length);
+    }
+
+    /**
+     * @param plaintext buffer holding the message body
+     * @param offset start of the body
+     * @param length length of the body
+     * @return random IV followed by the ciphertext and tag
+     */
+    public byte[] seal(byte[] plaintext, int offset, int length) {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+
+        try {
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+
+            ByteBuffer sealed = ByteBuffer.allocate(IV_BYTES + cipher.getOutputSize(length));
+            sealed.put(iv);
+            cipher.doFinal(ByteBuffer.wrap(plaintext, offset, length), sealed);
+            return sealed.array();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not seal write-behind payload", e);
+        }
+    }
+
+    /**
+     * @param sealed output of {@link #seal(byte[])}
+     * @return message body
+     * @throws GeneralSecurityException thrown if the payload was sealed with another key or was modified
+     */
+    public byte[] open(byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length < IV_BYTES) {
+            throw new GeneralSecurityException("Write-behind payload is truncated");
+        }
+
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealed, 0, IV_BYTES));
+        return cipher.doFinal(sealed, IV_BYTES, sealed.length - IV_BYTES);
+    }
+}
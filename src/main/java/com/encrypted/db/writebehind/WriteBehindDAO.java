@@ -0,0 +1,112 @@
+package com.encrypted.db.writebehind;
+
+import com.encrypted.db.codec.EntityCodec;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.core.JmsTemplate;
+
+import javax.jms.BytesMessage;
+import javax.jms.ConnectionFactory;
+
+/**
+ * Write-behind Customer and Account Data Access.
+ * <p>
+ * Writes are sealed and queued instead of being written to the database, so callers only wait for the broker.  A
+ * {@link WriteBehindWriter} writes them later, in batches.  Writes to the same entity are queued in the same message
+ * group and applied in the order they were queued.  Inserted entities do not get their id, and a write that the
+ * database rejects ends up on the dead letter queue rather than with the caller.
+ * <p>
+ * Entities are encoded with {@link EntityCodec} before they are sealed.  Messages without the encoding property carry
+ * JSON, as queued by earlier versions, and are still read by the writer.
+ */
+public class WriteBehindDAO implements AutoCloseable {
+
+    static final String TYPE_PROPERTY = "writeType";
+    static final String GROUP_PROPERTY = "JMSXGroupID";
+    static final String ENCODING_PROPERTY = "encoding";
+    static final String ENCODING_BINARY = "entity-codec-" + EntityCodec.VERSION;
+
+    private final CachingConnectionFactory connectionFactory;
+    private final JmsTemplate jmsTemplate;
+    private final PayloadCipher cipher;
+
+    /**
+     * @param connectionFactory broker connection factory, sessions are cached on top of it
+     * @param queue queue the writes are sent to
+     * @param cipher seals the message bodies
+     */
+    public WriteBehindDAO(ConnectionFactory connectionFactory, String queue, PayloadCipher cipher) {
+        this.connectionFactory = new CachingConnectionFactory(connectionFactory);
+        this.jmsTemplate = new JmsTemplate(this.connectionFactory);
+        this.jmsTemplate.setDefaultDestinationName(queue);
+        this.cipher = cipher;
+    }
+
+    /**
+     * Queue an insert of a Customer and its accounts
+     *
+     * @param customer customer to insert
+     */
+    public void insertCustomer(Customer customer) {
+        send(WriteType.INSERT_CUSTOMER, EntityCodec.encode(customer), null);
+    }
+
+    /**
+     * Queue an update of a Customer
+     *
+     * @param customer customer to update
+     */
+    public void updateCustomer(Customer customer) {
+        send(WriteType.UPDATE_CUSTOMER, EntityCodec.encode(customer), "customer-" + customer.getId());
+    }
+
+    /**
+     * Queue an insert of an Account
+     *
+     * @param account account to insert
+     */
+    public void insertAccount(Account account) {
+        send(WriteType.INSERT_ACCOUNT, EntityCodec.encode(account), null);
+    }
+
+    /**
+     * Queue an update of an Account
+     *
+     * @param account account to update
+     */
+    public void updateAccount(Account account) {
+        send(WriteType.UPDATE_ACCOUNT, EntityCodec.encode(account), "account-" + account.getId());
+    }
+
+    /**
+     * Seal and send a write
+     *
+     * @param type kind of write
+     * @param entity encoded entity to write, closed once it is sealed
+     * @param group message group of the entity, null if it does not need ordering
+     */
+    private void send(WriteType type, EntityCodec.Encoded entity, String group) {
+        byte[] body;
+        try (EntityCodec.Encoded encoded = entity) {
+            body = cipher.seal(encoded.buffer(), 0, encoded.size());
+        }
+
+        jmsTemplate.send(session -> {
+            BytesMessage message = session.createBytesMessage();
+            message.writeBytes(body);
+            message.setStringProperty(TYPE_PROPERTY, type.name());
+            message.setStringProperty(ENCODING_PROPERTY, ENCODING_BINARY);
+            if (group != null) {
+                message.setStringProperty(GROUP_PROPERTY, group);
+            }
+            return message;
+        });
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+    }
+}
@@ -0,0 +1,34 @@
+package com.encrypted.db.writebehind;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Queues and tuning of the write-behind consumers
+ */
+@Data
+@Builder
+public class WriteBehindOptions {
+
+    @Builder.Default
+    private String queue = "encrypted.writes";
+
+    // Writes that failed maxDeliveries times or can never succeed, with the reason in the deadLetterReason property
+    @Builder.Default
+    private String deadLetterQueue = "encrypted.writes.DLQ";
+
+    @Builder.Default
+    private int consumers = 4;
+
+    // Messages coalesced and flushed to the DAOs together
+    @Builder.Default
+    private int batchSize = 500;
+
+    // How long a consumer waits for more messages before flushing a partial batch
+    @Builder.Default
+    private long maxWaitMillis = 50;
+
+    // Deliveries of a failing message before it is dead lettered
+    @Builder.Default
+    private int maxDeliveries = 5;
+}
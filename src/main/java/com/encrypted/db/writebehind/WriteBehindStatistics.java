@@ -0,0 +1,28 @@
+package com.encrypted.db.writebehind;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Point in time snapshot of the write-behind consumer counters
+ */
+@Data
+@Builder
+public class WriteBehindStatistics {
+
+    // Messages written to the database, including the ones a later update in the same batch replaced
+    private long applied;
+
+    // Updates skipped because a later update of the same entity was in the same batch
+    private long coalesced;
+
+    private long batches;
+
+    // Failed messages left for the broker to redeliver
+    private long retried;
+
+    private long deadLettered;
+
+    // Milliseconds between enqueue and commit of the most recently applied message
+    private long lagMillis;
+}
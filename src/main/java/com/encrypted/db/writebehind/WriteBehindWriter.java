@@ -0,0 +1,503 @@
+package com.encrypted.db.writebehind;
+
+import com.encrypted.db.codec.EntityCodec;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.BatchInsertResult;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.RowFailure;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.activemq.ActiveMQSession;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * Consumes the writes queued by {@link WriteBehindDAO} and applies them to the database in batches.
+ * <p>
+ * Each consumer thread has its own session and takes up to {@code batchSize} messages, waiting at most
+ * {@code maxWaitMillis} for a batch to fill.  Updates of the same entity within a batch are coalesced to the last
+ * one, then customers are inserted with JDBC batches, accounts are inserted with one JDBC batch and the remaining
+ * updates are applied in order.  Messages are acknowledged individually once their write is committed.
+ * <p>
+ * If a batch fails its messages are retried one at a time, so one bad write does not hold back the others.  A message
+ * that fails again is left unacknowledged and redelivered by the broker, with the broker's redelivery delay, until it
+ * has been delivered {@code maxDeliveries} times; it is then moved to the dead letter queue, still sealed.  Writes the
+ * database can never accept, such as a customer failing validation, are dead lettered straight away.
+ * <p>
+ * Delivery is at least once: a consumer that dies between committing a write and acknowledging it gets the message
+ * again, which repeats an insert.
+ */
+public class WriteBehindWriter implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(WriteBehindWriter.class.getName());
+
+    static final String DEAD_LETTER_REASON_PROPERTY = "deadLetterReason";
+    static final String ORIGINAL_TIMESTAMP_PROPERTY = "originalTimestamp";
+
+    private static final String DELIVERY_COUNT_PROPERTY = "JMSXDeliveryCount";
+    private static final long RECEIVE_TIMEOUT_MILLIS = 1000;
+    private static final int MAX_REASON_LENGTH = 1000;
+
+    private final ConnectionFactory connectionFactory;
+    private final CustomerDAO customerDAO;
+    private final AccountDAO accountDAO;
+    private final ObjectMapper objectMapper;
+    private final PayloadCipher cipher;
+    private final WriteBehindOptions options;
+
+    private final List<Thread> threads = new ArrayList<>();
+    private Connection connection;
+    private volatile boolean running;
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private volatile long lagMillis;
+
+    /**
+     * @param connectionFactory broker connection factory, its redelivery policy sets the delay between retries
+     * @param customerDAO DAO customer writes are applied with
+     * @param accountDAO DAO account writes are applied with
+     * @param objectMapper deserializes JSON entities queued before the binary encoding
+     * @param cipher opens the message bodies
+     * @param options queues and tuning
+     */
+    public WriteBehindWriter(ConnectionFactory connectionFactory, CustomerDAO customerDAO, AccountDAO accountDAO,
+                             ObjectMapper objectMapper, PayloadCipher cipher, WriteBehindOptions options) {
+        if (options.getConsumers() < 1 || options.getBatchSize() < 1 || options.getMaxDeliveries() < 1) {
+            throw new IllegalArgumentException("consumers, batchSize and maxDeliveries must be at least 1");
+        }
+
+        this.connectionFactory = connectionFactory;
+        this.customerDAO = customerDAO;
+        this.accountDAO = accountDAO;
+        this.objectMapper = objectMapper;
+        this.cipher = cipher;
+        this.options = options;
+    }
+
+    /**
+     * Connect to the broker and start the consumer threads
+     *
+     * @throws JMSException thrown if the broker can not be reached
+     */
+    public synchronized void start() throws JMSException {
+        if (running) {
+            return;
+        }
+
+        connection = connectionFactory.createConnection();
+        try {
+            for (int i = 0; i < options.getConsumers(); i++) {
+                // Individual acknowledgement lets a batch acknowledge the writes that succeeded and leave the rest
+                Session session = connection.createSession(false, ActiveMQSession.INDIVIDUAL_ACKNOWLEDGE);
+                MessageConsumer consumer = session.createConsumer(session.createQueue(options.getQueue()));
+                MessageProducer deadLetters = session.createProducer(
+                        session.createQueue(options.getDeadLetterQueue()));
+
+                Thread thread = new Thread(() -> consume(session, consumer, deadLetters), "write-behind-" + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+            }
+            connection.start();
+        } catch (JMSException e) {
+            threads.clear();
+            connection.close();
+            throw e;
+        }
+
+        running = true;
+        threads.forEach(Thread::start);
+    }
+
+    /**
+     * Stop the consumers once their current batch is written and disconnect.  Messages still queued stay on the
+     * broker.
+     */
+    @Override
+    public synchronized void close() throws JMSException, InterruptedException {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        threads.clear();
+        connection.close();
+    }
+
+    /**
+     * @return snapshot of the consumer counters
+     */
+    public WriteBehindStatistics getStatistics() {
+        return WriteBehindStatistics.builder()
+                .applied(applied.sum())
+                .coalesced(coalesced.sum())
+                .batches(batches.sum())
+                .retried(retried.sum())
+                .deadLettered(deadLettered.sum())
+                .lagMillis(lagMillis)
+                .build();
+    }
+
+    /**
+     * Consumer thread loop
+     *
+     * @param session session owned by this thread
+     * @param consumer consumer of the write queue
+     * @param deadLetters producer for the dead letter queue
+     */
+    private void consume(Session session, MessageConsumer consumer, MessageProducer deadLetters) {
+        while (running) {
+            try {
+                List<Write> batch = receiveBatch(session, consumer, deadLetters);
+                if (!batch.isEmpty()) {
+                    process(session, batch, deadLetters);
+                }
+            } catch (JMSException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                LOG.log(Level.WARNING, "Write-behind consumer failed, retrying", e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RECEIVE_TIMEOUT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for a message, then take more until the batch is full or {@code maxWaitMillis} has passed
+     *
+     * @param session session of the consumer
+     * @param consumer consumer of the write queue
+     * @param deadLetters producer for messages that can not be read
+     * @return writes, empty if no message arrived
+     * @throws JMSException thrown if the broker connection failed
+     */
+    private List<Write> receiveBatch(Session session, MessageConsumer consumer, MessageProducer deadLetters)
+            throws JMSException {
+        List<Write> batch = new ArrayList<>();
+
+        Message message = consumer.receive(RECEIVE_TIMEOUT_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getMaxWaitMillis());
+
+        while (message != null) {
+            Write write = decode(session, message, deadLetters);
+            if (write != null) {
+                batch.add(write);
+            }
+
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (batch.size() >= options.getBatchSize() || remainingMillis <= 0) {
+                break;
+            }
+            message = consumer.receive(remainingMillis);
+        }
+
+        return batch;
+    }
+
+    /**
+     * Open and deserialize a message, dead lettering it if that is not possible
+     *
+     * @param session session the message was received on
+     * @param message received message
+     * @param deadLetters producer for the dead letter queue
+     * @return write, null if the message was dead lettered
+     * @throws JMSException thrown if the broker connection failed
+     */
+    private Write decode(Session session, Message message, MessageProducer deadLetters) throws JMSException {
+        byte[] body = null;
+        try {
+            if (!(message instanceof BytesMessage)) {
+                throw new IllegalArgumentException("Expected a BytesMessage");
+            }
+            BytesMessage bytesMessage = (BytesMessage) message;
+            body = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(body);
+
+            WriteType type = WriteType.valueOf(message.getStringProperty(WriteBehindDAO.TYPE_PROPERTY));
+            Object entity = readEntity(message.getStringProperty(WriteBehindDAO.ENCODING_PROPERTY),
+                    cipher.open(body), type);
+
+            return new Write(message, body, type, entity);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            deadLetter(session, message, body, deadLetters, "Unreadable message: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Decode an opened message body and zero it
+     *
+     * @param encoding encoding property of the message, null for JSON
+     * @param plaintext opened message body
+     * @param type kind of write
+     * @return entity
+     * @throws IOException thrown if a JSON body can not be read
+     * @throws IllegalArgumentException thrown if the body is not the entity the write type carries
+     */
+    private Object readEntity(String encoding, byte[] plaintext, WriteType type) throws IOException {
+        try {
+            if (encoding == null) {
+                return objectMapper.readValue(plaintext, type.getEntityType());
+            }
+            if (!WriteBehindDAO.ENCODING_BINARY.equals(encoding)) {
+                throw new IllegalArgumentException("Unsupported encoding " + encoding);
+            }
+
+            Object entity = EntityCodec.decode(plaintext);
+            if (!type.getEntityType().isInstance(entity)) {
+                throw new IllegalArgumentException(type + " message carries a " + entity.getClass().getSimpleName());
+            }
+            return entity;
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    /**
+     * Apply a batch and acknowledge it, falling back to one write at a time if it fails
+     *
+     * @param session session the batch was received on
+     * @param batch writes to apply
+     * @param deadLetters producer for the dead letter queue
+     * @throws JMSException thrown if the broker connection failed
+     */
+    private void process(Session session, List<Write> batch, MessageProducer deadLetters) throws JMSException {
+        batches.increment();
+
+        Exception failure = null;
+        try {
+            apply(batch);
+        } catch (SQLException | RuntimeException e) {
+            failure = e;
+        }
+
+        if (failure != null && batch.size() > 1) {
+            LOG.log(Level.FINE, "Write-behind batch failed, applying its writes one at a time", failure);
+            failure = null;
+
+            for (Write write : batch) {
+                if (write.applied || write.rejection != null) {
+                    continue;
+                }
+                try {
+                    apply(Collections.singletonList(write));
+                } catch (SQLException | RuntimeException e) {
+                    write.failure = e;
+                }
+            }
+        } else if (failure != null) {
+            batch.get(0).failure = failure;
+        }
+
+        boolean redeliver = false;
+        for (Write write : batch) {
+            if (write.applied) {
+                write.message.acknowledge();
+                applied.increment();
+                lagMillis = System.currentTimeMillis() - write.message.getJMSTimestamp();
+            } else if (write.rejection != null) {
+                deadLetter(session, write.message, write.body, deadLetters, write.rejection);
+            } else if (write.failure != null && deliveryCount(write.message) >= options.getMaxDeliveries()) {
+                deadLetter(session, write.message, write.body, deadLetters, String.valueOf(write.failure));
+            } else {
+                retried.increment();
+                redeliver = true;
+            }
+        }
+
+        // Every write that is not acknowledged is redelivered after the redelivery policy's delay
+        if (redeliver) {
+            session.recover();
+        }
+    }
+
+    /**
+     * Coalesce and apply writes.  Each write that is committed, or that the database rejected for good, is marked.
+     *
+     * @param writes writes in the order they were queued
+     * @throws SQLException thrown if error executing SQL, writes committed before the error stay marked
+     */
+    private void apply(List<Write> writes) throws SQLException {
+        List<Write> customerInserts = new ArrayList<>();
+        List<Write> accountInserts = new ArrayList<>();
+        Map<Integer, Write> customerUpdates = new LinkedHashMap<>();
+        Map<Integer, Write> accountUpdates = new LinkedHashMap<>();
+
+        for (Write write : writes) {
+            switch (write.type) {
+                case INSERT_CUSTOMER:
+                    customerInserts.add(write);
+                    break;
+                case INSERT_ACCOUNT:
+                    accountInserts.add(write);
+                    break;
+                case UPDATE_CUSTOMER:
+                    coalesce(customerUpdates, ((Customer) write.entity).getId(), write);
+                    break;
+                case UPDATE_ACCOUNT:
+                    coalesce(accountUpdates, ((Account) write.entity).getId(), write);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown write type " + write.type);
+            }
+        }
+
+        if (!customerInserts.isEmpty()) {
+            List<Customer> customers = new ArrayList<>(customerInserts.size());
+            customerInserts.forEach(write -> customers.add((Customer) write.entity));
+
+            try {
+                BatchInsertResult result = customerDAO.insertCustomers(customers);
+                for (RowFailure rowFailure : result.getFailures()) {
+                    customerInserts.get(rowFailure.getIndex()).rejection = rowFailure.getReason();
+                }
+            } finally {
+                // Committed customers have their ids, whether or not a later chunk failed
+                for (Write write : customerInserts) {
+                    write.applied = write.rejection == null && ((Customer) write.entity).getId() != 0;
+                }
+            }
+        }
+
+        if (!accountInserts.isEmpty()) {
+            List<Account> accounts = new ArrayList<>(accountInserts.size());
+            accountInserts.forEach(write -> accounts.add((Account) write.entity));
+
+            accountDAO.insertAccounts(accounts);
+            accountInserts.forEach(write -> write.applied = true);
+        }
+
+        for (Write write : customerUpdates.values()) {
+            customerDAO.updateCustomer((Customer) write.entity);
+            write.markApplied();
+        }
+
+        for (Write write : accountUpdates.values()) {
+            accountDAO.updateAccount((Account) write.entity);
+            write.markApplied();
+        }
+    }
+
+    /**
+     * Keep only the last update of an entity, remembering the updates it replaced
+     *
+     * @param updates last update by entity id
+     * @param id entity id
+     * @param write update
+     */
+    private void coalesce(Map<Integer, Write> updates, int id, Write write) {
+        Write previous = updates.put(id, write);
+        if (previous != null) {
+            write.replaced.add(previous);
+            write.replaced.addAll(previous.replaced);
+            previous.replaced.clear();
+            coalesced.increment();
+        }
+    }
+
+    /**
+     * Move a message to the dead letter queue and acknowledge it.  The body is copied still sealed.
+     *
+     * @param session session the message was received on
+     * @param message message to dead letter
+     * @param body sealed body, null if it could not be read
+     * @param deadLetters producer for the dead letter queue
+     * @param reason why the write was given up
+     * @throws JMSException thrown if the broker connection failed
+     */
+    private void deadLetter(Session session, Message message, byte[] body, MessageProducer deadLetters,
+                            String reason) throws JMSException {
+        LOG.warning("Dead lettering write-behind message " + message.getJMSMessageID() + ": " + reason);
+
+        BytesMessage deadLetter = session.createBytesMessage();
+        if (body != null) {
+            deadLetter.writeBytes(body);
+        }
+        for (String property : new String[]{WriteBehindDAO.TYPE_PROPERTY, WriteBehindDAO.GROUP_PROPERTY}) {
+            if (message.propertyExists(property)) {
+                deadLetter.setStringProperty(property, message.getStringProperty(property));
+            }
+        }
+        deadLetter.setStringProperty(DEAD_LETTER_REASON_PROPERTY,
+                reason.length() > MAX_REASON_LENGTH ? reason.substring(0, MAX_REASON_LENGTH) : reason);
+        deadLetter.setLongProperty(ORIGINAL_TIMESTAMP_PROPERTY, message.getJMSTimestamp());
+
+        deadLetters.send(deadLetter);
+        message.acknowledge();
+        deadLettered.increment();
+    }
+
+    /**
+     * @param message received message
+     * @return times the message has been delivered, including this delivery
+     * @throws JMSException thrown if the property can not be read
+     */
+    private static int deliveryCount(Message message) throws JMSException {
+        return message.propertyExists(DELIVERY_COUNT_PROPERTY)
+                ? Math.max(message.getIntProperty(DELIVERY_COUNT_PROPERTY), 1) : 1;
+    }
+
+    /**
+     * A received message and the write it carries
+     */
+    private static final class Write {
+
+        private final Message message;
+        private final byte[] body;
+        private final WriteType type;
+        private final Object entity;
+
+        // Earlier updates of the same entity in the batch, applied by applying this one
+        private final List<Write> replaced = new ArrayList<>();
+
+        private boolean applied;
+        private String rejection;
+        private Exception failure;
+
+        private Write(Message message, byte[] body, WriteType type, Object entity) {
+            this.message = message;
+            this.body = body;
+            this.type = type;
+            this.entity = entity;
+        }
+
+        private void markApplied() {
+            applied = true;
+            replaced.forEach(write -> write.applied = true);
+        }
+    }
+}
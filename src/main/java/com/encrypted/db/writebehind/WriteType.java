@@ -0,0 +1,25 @@
+package com.encrypted.db.writebehind;
+
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+/**
+ * Kind of write carried by a write-behind message, and the entity it carries
+ */
+public enum WriteType {
+
+    INSERT_CUSTOMER(Customer.class),
+    UPDATE_CUSTOMER(Customer.class),
+    INSERT_ACCOUNT(Account.class),
+    UPDATE_ACCOUNT(Account.class);
+
+    private final Class<?> entityType;
+
+    WriteType(Class<?> entityType) {
+        this.entityType = entityType;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+}
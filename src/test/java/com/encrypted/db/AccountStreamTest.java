@@ -0,0 +1,69 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AccountStreamTest extends BaseTest {
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldStreamAccountsByCustomerId() throws SQLException {
+        AccountDAO accountDAO = new AccountDAO(encryptedPool);
+
+        try (Stream<Account> accounts = accountDAO.streamAccountsByCustomerId(1, false, 1)) {
+            assertEquals(Arrays.asList("12345ABCDE", "1234567890"),
+                    accounts.map(Account::getAccountNumber).sorted().collect(Collectors.toList()));
+        }
+
+        List<Account> accounts = new ArrayList<>();
+        accountDAO.forEachAccountByCustomerId(1, false, AccountDAO.DEFAULT_FETCH_SIZE, accounts::add);
+        assertEquals(2, accounts.size());
+
+        // A failing consumer releases the connection even though the stream is never closed
+        Stream<Account> failing = accountDAO.streamAccountsByCustomerId(1, false, 1);
+        assertThrows(IllegalStateException.class, () -> failing.forEach(account -> {
+            throw new IllegalStateException("consumer failed");
+        }));
+
+        assertEquals(0, encryptedPool.getActive());
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+}
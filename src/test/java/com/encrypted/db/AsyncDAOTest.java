@@ -0,0 +1,64 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.AsyncAccountDAO;
+import com.encrypted.db.dao.AsyncCustomerDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.DaoExecutor;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AsyncDAOTest extends BaseTest {
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldFanOutAsyncLookups() throws Exception {
+        try (DaoExecutor executor = new DaoExecutor("test-dao", 4, 10, 10, TimeUnit.SECONDS)) {
+            AsyncCustomerDAO asyncCustomerDAO = new AsyncCustomerDAO(new CustomerDAO(encryptedPool), executor);
+            AsyncAccountDAO asyncAccountDAO = new AsyncAccountDAO(new AccountDAO(encryptedPool), executor);
+
+            CompletableFuture<Customer> customer = asyncCustomerDAO.getCustomerById(1, false);
+            CompletableFuture<List<Account>> accounts = asyncAccountDAO.getAccountByCustomerId(2, false);
+
+            CompletableFuture.allOf(customer, accounts).get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, customer.get().getId());
+            assertEquals(1, accounts.get().size());
+            assertEquals(2, executor.getStatistics().getCompleted());
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+}
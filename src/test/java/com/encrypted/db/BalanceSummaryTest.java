@@ -0,0 +1,117 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.BalanceBucket;
+import com.encrypted.db.dao.BalanceSummary;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.DaoMetrics;
+import com.encrypted.db.entity.Account;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BalanceSummaryTest extends BaseTest {
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldKeepBalanceSummariesWithAccounts() throws Exception {
+        AccountDAO aggregates = new AccountDAO(encryptedPool);
+        AccountDAO summaries = new AccountDAO(encryptedPool, DaoMetrics.global(), null, null, true);
+
+        assertTrue(summaries.rebuildBalanceSummaries() > 0);
+        assertBalance(aggregates.getBalanceSummary(1), summaries.getBalanceSummary(1));
+        assertBalance(aggregates.getBalanceSummary(2), summaries.getBalanceSummary(2));
+
+        // Writes through the DAO keep the summaries of both the old and the new customer
+        summaries.insertAccount(Account.builder().customerId(2).accountNumber("SUMMARY-1").balance(1000).build());
+        assertBalance(aggregates.getBalanceSummary(2), summaries.getBalanceSummary(2));
+
+        Account account = aggregates.getAccountsByCustomerIdAfter(2, 0, 1000, false)
+                .stream()
+                .filter(a -> "SUMMARY-1".equals(a.getAccountNumber()))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        account.setCustomerId(1);
+        account.setBalance(500);
+        summaries.updateAccount(account);
+        assertBalance(aggregates.getBalanceSummary(1), summaries.getBalanceSummary(1));
+        assertBalance(aggregates.getBalanceSummary(2), summaries.getBalanceSummary(2));
+
+        List<BalanceSummary> top = aggregates.getTopCustomersByBalance(2);
+        List<BalanceSummary> topSummaries = summaries.getTopCustomersByBalance(2);
+        assertEquals(top.size(), topSummaries.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertBalance(top.get(i), topSummaries.get(i));
+        }
+
+        assertEquals(0, summaries.getBalanceSummary(-1).getAccounts());
+    }
+
+    @Test
+    void shouldBucketAccountsByBalance() throws Exception {
+        AccountDAO accountDAO = new AccountDAO(encryptedPool);
+
+        List<BalanceBucket> buckets = accountDAO.getBalanceBuckets(100, 10000);
+        assertEquals(3, buckets.size());
+        assertNull(buckets.get(0).getLowerBound());
+        assertEquals(1, buckets.get(0).getAccounts());
+        // Empty buckets are listed too
+        assertEquals(0, buckets.get(1).getAccounts());
+        assertEquals(0, buckets.get(1).getTotalBalance());
+        assertEquals(Double.valueOf(10000), buckets.get(2).getLowerBound());
+        assertNull(buckets.get(2).getUpperBound());
+        assertEquals(2, buckets.get(2).getAccounts());
+
+        assertThrows(IllegalArgumentException.class, () -> accountDAO.getBalanceBuckets(10, 10));
+    }
+
+    private static void assertBalance(BalanceSummary expected, BalanceSummary actual) {
+        assertEquals(expected.getCustomerId(), actual.getCustomerId());
+        assertEquals(expected.getAccounts(), actual.getAccounts());
+        // Summaries add balances in write order rather than the order of a SUM
+        assertEquals(expected.getTotalBalance(), actual.getTotalBalance(), 0.001);
+    }
+
+    @AfterEach
+    public void cleanUp() throws Exception {
+        try (Connection con = getMSSQLConnection(); Statement statement = con.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS acct.customer_balance");
+            dropTables(con);
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        encryptedPool.close();
+    }
+}
@@ -1,23 +1,33 @@
 package com.encrypted.db;
 
+import com.encrypted.db.config.ConnectionPoolFactory;
+import com.encrypted.db.config.EncryptedDataSourceProperties;
 import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.encrypted.db.schema.SchemaMigration;
 import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionJavaKeyStoreProvider;
 import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionKeyStoreProvider;
 import com.microsoft.sqlserver.jdbc.SQLServerConnection;
 import com.microsoft.sqlserver.jdbc.SQLServerDataSource;
 import com.microsoft.sqlserver.jdbc.SQLServerException;
 
-import org.junit.jupiter.api.AfterAll;
+import org.apache.tomcat.jdbc.pool.DataSource;
 import org.junit.jupiter.api.BeforeAll;
 import org.testcontainers.containers.MSSQLServerContainer;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
 public class BaseTest {
 
     private static final MSSQLServerContainer MS_SQL_SERVER =
             new MSSQLServerContainer("mcr.microsoft.com/mssql/server:2019-latest");
 
     private static final String CREATE_SCHEMA_SQL = "CREATE SCHEMA %s";
-    private static final String DROP_SCHEMA_SQL = "DROP SCHEMA %s";
 
     private static final String KEY_ALIAS = "AlwaysEncryptedKey";
     private static final String COLUMN_MASTER_KEY_NAME = "AlwaysEncryptedCMK";
@@ -26,13 +36,42 @@ public class BaseTest {
     private static final char[] KEYSTORE_SECRET = "changeit".toCharArray();
     private static final String ALGORITHM = "RSA_OAEP";
 
+    private static final String ENCRYPTED_WITH = "ENCRYPTED WITH (COLUMN_ENCRYPTION_KEY = [" +
+            COLUMN_ENCRYPTION_KEY_NAME + "], ENCRYPTION_TYPE = Randomized, " +
+            "ALGORITHM = 'AEAD_AES_256_CBC_HMAC_SHA_256')";
+
+    private static final String CREATE_TABLE_ACCOUNT = "CREATE TABLE [%s].[%s] (" +
+            "[id] [int] IDENTITY NOT NULL, " +
+            "[customer_id] [int] NOT NULL, " +
+            "[account_number] [nvarchar](30) %s NOT NULL, " +
+            "[balance] float)";
+
+    private static final String CREATE_TABLE_CUSTOMER = "CREATE TABLE [%s].[%s] (" +
+            "[id] [int] IDENTITY NOT NULL, " +
+            "[ssn] [nvarchar](9) %s NOT NULL, " +
+            "[first_name] [nvarchar](50) NOT NULL, " +
+            "[middle_initial] [char], " +
+            "[last_name] [nvarchar](50) NOT NULL)";
+
+    private static final String DROP_TABLE = "DROP TABLE %s.%s";
+
     private static final String CREATE_CMK = "CREATE COLUMN MASTER KEY [%s] WITH " +
             "(KEY_STORE_PROVIDER_NAME = N'MSSQL_JAVA_KEYSTORE', KEY_PATH = N'%s')";
     private static final String CREATE_CEK = "CREATE COLUMN ENCRYPTION KEY %s WITH VALUES " +
             "(COLUMN_MASTER_KEY = %s, ALGORITHM =  '%s', ENCRYPTED_VALUE =  0x%s)";
 
+    /**
+     * Start the container and create the schema and keys, once for every test class of the run.  Testcontainers
+     * stops the container when the JVM exits.
+     *
+     * @throws Exception thrown if the container or the keys can not be set up
+     */
     @BeforeAll
-    public static void init() throws Exception {
+    public static synchronized void init() throws Exception {
+        if (MS_SQL_SERVER.isRunning()) {
+            return;
+        }
+
         MS_SQL_SERVER.start();
 
         System.out.println("User: " + MS_SQL_SERVER.getUsername());
@@ -58,6 +97,89 @@ public class BaseTest {
         return (SQLServerConnection) msSqlServerAlwaysEncryptedEnabledTestDatasource().getConnection();
     }
 
+    /**
+     * Create the customer and account tables and migrate them, the way the application brings an existing database
+     * up to date
+     *
+     * @param con connection to the database the tables are created in
+     * @param encrypted true if ssn and account number should be encrypted with the column encryption key
+     * @throws SQLException thrown if error executing SQL
+     */
+    protected static void createTables(Connection con, boolean encrypted) throws SQLException {
+        createFirstVersionTables(con, encrypted);
+
+        SchemaMigration.migrate(con);
+    }
+
+    /**
+     * Create the customer and account tables as the first version of the application had them, without migrating
+     *
+     * @param con connection to the database the tables are created in
+     * @param encrypted true if ssn and account number should be encrypted with the column encryption key
+     * @throws SQLException thrown if error executing SQL
+     */
+    protected static void createFirstVersionTables(Connection con, boolean encrypted) throws SQLException {
+        String encryptedWith = encrypted ? ENCRYPTED_WITH : "";
+
+        con.prepareCall(String.format(CREATE_TABLE_ACCOUNT, AccountDAO.SCHEMA, AccountDAO.TABLE_ACCOUNT,
+                encryptedWith)).execute();
+        con.prepareCall(String.format(CREATE_TABLE_CUSTOMER, CustomerDAO.SCHEMA, CustomerDAO.TABLE_CUSTOMER,
+                encryptedWith)).execute();
+    }
+
+    /**
+     * Drop the customer and account tables
+     *
+     * @param con connection to the database the tables are in
+     * @throws SQLException thrown if error executing SQL
+     */
+    protected static void dropTables(Connection con) throws SQLException {
+        con.prepareCall(String.format(DROP_TABLE, AccountDAO.SCHEMA, AccountDAO.TABLE_ACCOUNT)).execute();
+        con.prepareCall(String.format(DROP_TABLE, CustomerDAO.SCHEMA, CustomerDAO.TABLE_CUSTOMER)).execute();
+    }
+
+    /**
+     * Insert Jane A Doe with two accounts and John B Smith with one, customers 1 and 2 of freshly created tables
+     *
+     * @param customerDAO DAO of the tables the customers are inserted into
+     * @throws SQLException thrown if error executing SQL
+     */
+    protected static void insertRecords(CustomerDAO customerDAO) throws SQLException {
+        Account account1 = Account.builder()
+                .accountNumber("12345ABCDE")
+                .balance(12954.32)
+                .build();
+
+        Account account2 = Account.builder()
+                .accountNumber("1234567890")
+                .balance(965476.43)
+                .build();
+
+        Account account3 = Account.builder()
+                .accountNumber("ABCDEFG")
+                .balance(65.98)
+                .build();
+
+        Customer customer1 = Customer.builder()
+                .firstName("Jane")
+                .middleInitial("A")
+                .lastName("Doe")
+                .ssn("123456789")
+                .accounts(Arrays.asList(account1, account2))
+                .build();
+
+        Customer customer2 = Customer.builder()
+                .firstName("John")
+                .middleInitial("B")
+                .lastName("Smith")
+                .ssn("987654321")
+                .accounts(Collections.singletonList(account3))
+                .build();
+
+        customerDAO.insertCustomer(customer1);
+        customerDAO.insertCustomer(customer2);
+    }
+
     /**
      * Create a SQL Server Data Source with Always Encrypted Enabled.
      * Using this data source we will be able to see the unencrypted values
@@ -92,6 +214,44 @@ public class BaseTest {
         return sqlServerDataSource;
     }
 
+    /**
+     * Wrap a SQL Server Data Source in a small connection pool, the same way the application does
+     *
+     * @param sqlServerDataSource data source used to open the physical connections
+     * @return pooled data source
+     */
+    protected static DataSource pooledTestDatasource(SQLServerDataSource sqlServerDataSource) {
+        EncryptedDataSourceProperties.Pool pool = new EncryptedDataSourceProperties.Pool();
+        pool.setInitialSize(1);
+        pool.setMinIdle(1);
+        pool.setMaxActive(4);
+        pool.setMaxIdle(4);
+        pool.setJmxEnabled(false);
+
+        return ConnectionPoolFactory.createPool(sqlServerDataSource, pool);
+    }
+
+    /**
+     * Create a SQL Server Data Source for another database in the container, with Always Encrypted Disabled
+     *
+     * @param databaseName database to connect to
+     * @return SQL Server Data Source
+     */
+    protected static SQLServerDataSource msSqlServerTestDatasource(String databaseName) {
+        SQLServerDataSource sqlServerDataSource = msSqlServerAlwaysEncryptedDisabledTestDatasource();
+        sqlServerDataSource.setDatabaseName(databaseName);
+
+        return sqlServerDataSource;
+    }
+
+    /**
+     * @return key store provider of the test column master key
+     * @throws SQLServerException thrown if the key store can not be opened
+     */
+    protected static SQLServerColumnEncryptionKeyStoreProvider keyStoreProvider() throws SQLServerException {
+        return new SQLServerColumnEncryptionJavaKeyStoreProvider(KEYSTORE_LOCATION, KEYSTORE_SECRET);
+    }
+
     private static byte[] getEncryptedCEK(SQLServerColumnEncryptionKeyStoreProvider storeProvider) throws SQLServerException {
         String plainTextKey = "You need to give your plain text";
 
@@ -108,10 +268,4 @@ public class BaseTest {
             sb.append(String.format("%02x", b).toUpperCase());
         return sb.toString();
     }
-
-    @AfterAll
-    public static void tearDown() throws Exception {
-        getMSSQLConnection().prepareCall(String.format(DROP_SCHEMA_SQL, AccountDAO.SCHEMA)).execute();
-        MS_SQL_SERVER.stop();
-    }
 }
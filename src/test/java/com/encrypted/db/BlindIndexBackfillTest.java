@@ -0,0 +1,101 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.DaoMetrics;
+import com.encrypted.db.encryption.BlindIndex;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.encrypted.db.index.BlindIndexBackfill;
+import com.encrypted.db.index.BlindIndexBackfillOptions;
+import com.encrypted.db.index.BlindIndexBackfillReport;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlindIndexBackfillTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(BlindIndexBackfillTest.class.getName());
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldFindByBlindIndexAfterBackfill() throws SQLException {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        BlindIndex blindIndex = new BlindIndex(key);
+
+        CustomerDAO indexedCustomerDAO = new CustomerDAO(encryptedPool, CustomerDAO.DEFAULT_BATCH_SIZE,
+                DaoMetrics.global(), null, blindIndex);
+        AccountDAO indexedAccountDAO = new AccountDAO(encryptedPool, DaoMetrics.global(), null, blindIndex);
+
+        // Rows written without a key are only found once they are backfilled
+        Customer existing = new CustomerDAO(encryptedPool).getCustomerById(1, false);
+        assertTrue(indexedCustomerDAO.findBySsn(existing.getSsn(), false).isEmpty());
+
+        BlindIndexBackfillReport report = new BlindIndexBackfill(encryptedPool, blindIndex)
+                .backfill(BlindIndexBackfillOptions.builder().chunkSize(1).build());
+        LOG.info(report.toString());
+        assertEquals(Long.valueOf(2), report.getIndexedRows().get("acct.customer.ssn"));
+
+        List<Customer> found = indexedCustomerDAO.findBySsn(existing.getSsn(), false);
+        assertEquals(1, found.size());
+        assertEquals(existing, found.get(0));
+
+        Customer inserted = Customer.builder()
+                .ssn("555443333")
+                .firstName("Blind")
+                .lastName("Index")
+                .accounts(new ArrayList<>(Collections.singletonList(Account.builder()
+                        .accountNumber("BLIND1")
+                        .balance(1.5)
+                        .build())))
+                .build();
+        indexedCustomerDAO.insertCustomer(inserted);
+
+        assertEquals(inserted.getId(), indexedCustomerDAO.findBySsn("555-44-3333", false).get(0).getId());
+        List<Account> accounts = indexedAccountDAO.findByAccountNumber("BLIND1", false);
+        assertEquals(1, accounts.size());
+        assertEquals(inserted.getId(), accounts.get(0).getCustomerId());
+
+        // An update keeps the index in step with the new value
+        inserted.setSsn("555443334");
+        indexedCustomerDAO.updateCustomer(inserted);
+        assertTrue(indexedCustomerDAO.findBySsn("555443333", false).isEmpty());
+        assertEquals(1, indexedCustomerDAO.findBySsn("555443334", true).size());
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+}
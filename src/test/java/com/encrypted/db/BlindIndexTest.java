@@ -0,0 +1,57 @@
+package com.encrypted.db;
+
+import com.encrypted.db.encryption.BlindIndex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BlindIndexTest {
+
+    private static final byte[] KEY = key(1);
+
+    @Test
+    public void shouldIndexEqualValuesEqually() {
+        BlindIndex blindIndex = new BlindIndex(KEY);
+
+        byte[] index = blindIndex.ssn("123456789");
+
+        assertEquals(BlindIndex.LENGTH, index.length);
+        assertArrayEquals(index, new BlindIndex(KEY).ssn("123456789"));
+        assertArrayEquals(index, blindIndex.ssn("123-45-6789"));
+        assertFalse(Arrays.equals(index, blindIndex.ssn("123456780")));
+    }
+
+    @Test
+    public void shouldIndexColumnsAndKeysIndependently() {
+        BlindIndex blindIndex = new BlindIndex(KEY);
+
+        assertFalse(Arrays.equals(blindIndex.ssn("123456789"), blindIndex.accountNumber("123456789")));
+        assertFalse(Arrays.equals(blindIndex.ssn("123456789"), new BlindIndex(key(2)).ssn("123456789")));
+    }
+
+    @Test
+    public void shouldMatchAccountNumbersExactly() {
+        BlindIndex blindIndex = new BlindIndex(KEY);
+
+        assertFalse(Arrays.equals(blindIndex.accountNumber("12345ABCDE"), blindIndex.accountNumber("12345abcde")));
+        assertNull(blindIndex.accountNumber(null));
+    }
+
+    @Test
+    public void shouldRejectShortKey() {
+        assertThrows(IllegalArgumentException.class, () -> new BlindIndex(new byte[16]));
+    }
+
+    private static byte[] key(int seed) {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) seed);
+        return key;
+    }
+}
@@ -0,0 +1,168 @@
+package com.encrypted.db;
+
+import com.encrypted.db.bulk.BulkLoadOptions;
+import com.encrypted.db.bulk.BulkLoadReport;
+import com.encrypted.db.bulk.BulkLoader;
+import com.encrypted.db.bulk.CustomerSource;
+import com.encrypted.db.bulk.NdjsonCustomerSource;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BulkLoaderTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(BulkLoaderTest.class.getName());
+
+    private static DataSource encryptedPool;
+
+    private CustomerDAO encryptedCustomerDAO;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedCustomerDAO = new CustomerDAO(encryptedPool);
+    }
+
+    @Test
+    void shouldBulkLoadAndResumeByCheckpoint() throws Exception {
+        String ndjson = "{\"ssn\":\"555000001\",\"firstName\":\"Bulk\",\"lastName\":\"One\"," +
+                "\"accounts\":[{\"accountNumber\":\"BULK1\",\"balance\":1.5}]}\n" +
+                "{\"ssn\":\"SSN-TOO-LONG\",\"firstName\":\"Bulk\",\"lastName\":\"Rejected\"}\n" +
+                "{\"ssn\":\"555000002\",\"firstName\":\"Bulk\",\"lastName\":\"Two\",\"accounts\":[]}\n" +
+                "{\"ssn\":\"555000003\",\"firstName\":\"Bulk\",\"lastName\":\"Three\"," +
+                "\"accounts\":[{\"accountNumber\":\"BULK3\",\"balance\":3.5}]}\n";
+        BulkLoader bulkLoader = new BulkLoader(encryptedPool);
+        BulkLoadOptions options = BulkLoadOptions.builder()
+                .jobId("bulk-test")
+                .batchSize(2)
+                .writerThreads(2)
+                .build();
+
+        BulkLoadReport report;
+        try (CustomerSource source = ndjsonSource(ndjson)) {
+            report = bulkLoader.load(source, options);
+        }
+        LOG.info(report.toString());
+
+        assertEquals(4, report.getRecords());
+        assertEquals(3, report.getLoadedCustomers());
+        assertEquals(2, report.getLoadedAccounts());
+        assertEquals(2, report.getCommittedBatches());
+        assertEquals(1, report.getRejected());
+
+        List<Customer> loaded = encryptedCustomerDAO.getCustomersAfter(0, 100, false, true);
+        assertEquals(3, loaded.size());
+        assertEquals("555000003", loaded.get(2).getSsn());
+        assertEquals("BULK3", loaded.get(2).getAccounts().get(0).getAccountNumber());
+
+        try (CustomerSource source = ndjsonSource(ndjson)) {
+            report = bulkLoader.load(source, options);
+        }
+        assertEquals(0, report.getLoadedCustomers());
+        assertEquals(2, report.getSkippedBatches());
+    }
+
+    @Test
+    void shouldNotHandOutBulkReservedIdsToConcurrentInserts() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            ndjson.append(String.format("{\"ssn\":\"7770%05d\",\"firstName\":\"Race\",\"lastName\":\"Bulk\"," +
+                    "\"accounts\":[{\"accountNumber\":\"R7770%05d\",\"balance\":1.0}]}\n", i, i));
+        }
+        BulkLoadOptions options = BulkLoadOptions.builder()
+                .jobId("bulk-race-test")
+                .batchSize(5)
+                .writerThreads(2)
+                .build();
+
+        CompletableFuture<Void> inserts = CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < 100; i++) {
+                    encryptedCustomerDAO.insertCustomer(Customer.builder()
+                            .firstName("Race")
+                            .lastName("Insert")
+                            .ssn(String.format("7771%05d", i))
+                            .accounts(Collections.singletonList(Account.builder()
+                                    .accountNumber(String.format("R7771%05d", i))
+                                    .balance(1.0)
+                                    .build()))
+                            .build());
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        BulkLoadReport report;
+        try (CustomerSource source = ndjsonSource(ndjson.toString())) {
+            report = new BulkLoader(encryptedPool).load(source, options);
+        }
+        inserts.get(1, TimeUnit.MINUTES);
+        assertEquals(200, report.getLoadedCustomers());
+
+        try (Connection con = encryptedPool.getConnection(); Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM (SELECT id FROM acct.customer " +
+                     "GROUP BY id HAVING COUNT(*) > 1) duplicates")) {
+            resultSet.next();
+            assertEquals(0, resultSet.getInt(1));
+        }
+
+        // Every account is attached to the customer it was written with
+        List<Customer> raced = encryptedCustomerDAO.getCustomersAfter(0, 100000, false, true);
+        assertEquals(300, raced.size());
+        for (Customer customer : raced) {
+            assertEquals(1, customer.getAccounts().size());
+            assertEquals("R" + customer.getSsn(), customer.getAccounts().get(0).getAccountNumber());
+        }
+    }
+
+    private static CustomerSource ndjsonSource(String ndjson) {
+        return new NdjsonCustomerSource(new BufferedReader(new StringReader(ndjson)), new ObjectMapper());
+    }
+
+    @AfterEach
+    public void cleanUp() throws Exception {
+        try (Connection con = getMSSQLConnection()) {
+            con.prepareCall("DROP TABLE IF EXISTS acct.bulk_load_checkpoint").execute();
+            dropTables(con);
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        encryptedPool.close();
+    }
+}
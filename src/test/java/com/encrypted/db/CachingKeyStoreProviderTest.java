@@ -0,0 +1,124 @@
+package com.encrypted.db;
+
+import com.encrypted.db.encryption.CachingKeyStoreProvider;
+import com.encrypted.db.encryption.KeyCacheStatistics;
+import com.microsoft.sqlserver.jdbc.SQLServerColumnEncryptionKeyStoreProvider;
+import com.microsoft.sqlserver.jdbc.SQLServerException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CachingKeyStoreProviderTest {
+
+    private static final String KEY_PATH = "AlwaysEncryptedKey";
+    private static final String ALGORITHM = "RSA_OAEP";
+
+    private AtomicInteger unwraps;
+    private SQLServerColumnEncryptionKeyStoreProvider delegate;
+
+    @BeforeEach
+    public void setUp() {
+        unwraps = new AtomicInteger();
+
+        // Unwraps a key by reversing its bytes
+        delegate = new SQLServerColumnEncryptionKeyStoreProvider() {
+            private String name = "TEST";
+
+            @Override
+            public void setName(String name) {
+                this.name = name;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public byte[] encryptColumnEncryptionKey(String masterKeyPath, String encryptionAlgorithm,
+                                                     byte[] columnEncryptionKey) {
+                return reverse(columnEncryptionKey);
+            }
+
+            @Override
+            public byte[] decryptColumnEncryptionKey(String masterKeyPath, String encryptionAlgorithm,
+                                                     byte[] encryptedColumnEncryptionKey) {
+                unwraps.incrementAndGet();
+                return reverse(encryptedColumnEncryptionKey);
+            }
+        };
+    }
+
+    @Test
+    void shouldUnwrapEachKeyOnce() throws SQLServerException {
+        CachingKeyStoreProvider provider = new CachingKeyStoreProvider("CACHED", delegate, 1, TimeUnit.HOURS, 10);
+
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(new byte[]{3, 2, 1}, provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM,
+                    new byte[]{1, 2, 3}));
+        }
+
+        KeyCacheStatistics statistics = provider.getStatistics();
+        assertEquals(1, unwraps.get());
+        assertEquals(4, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(1, statistics.getSize());
+    }
+
+    @Test
+    void shouldNotExposeCachedKey() throws SQLServerException {
+        CachingKeyStoreProvider provider = new CachingKeyStoreProvider("CACHED", delegate, 1, TimeUnit.HOURS, 10);
+
+        byte[] key = provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{1, 2, 3});
+        key[0] = 0;
+
+        assertArrayEquals(new byte[]{3, 2, 1}, provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM,
+                new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedKey() throws SQLServerException {
+        CachingKeyStoreProvider provider = new CachingKeyStoreProvider("CACHED", delegate, 1, TimeUnit.HOURS, 2);
+
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{1});
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{2});
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{1});
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{3});
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{1});
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{2});
+
+        assertEquals(4, unwraps.get());
+        assertEquals(2, provider.getStatistics().getSize());
+    }
+
+    @Test
+    void shouldUnwrapAgainAfterTtlOrFlush() throws Exception {
+        CachingKeyStoreProvider provider = new CachingKeyStoreProvider("CACHED", delegate, 50, TimeUnit.MILLISECONDS,
+                10);
+
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{1});
+        Thread.sleep(100);
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{1});
+        assertEquals(2, unwraps.get());
+
+        provider.flush();
+        assertEquals(0, provider.getStatistics().getSize());
+
+        provider.decryptColumnEncryptionKey(KEY_PATH, ALGORITHM, new byte[]{1});
+        assertEquals(3, unwraps.get());
+    }
+
+    private static byte[] reverse(byte[] bytes) {
+        byte[] reversed = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            reversed[i] = bytes[bytes.length - 1 - i];
+        }
+        return reversed;
+    }
+}
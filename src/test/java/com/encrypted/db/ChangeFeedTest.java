@@ -0,0 +1,83 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.ChangeBatch;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangeFeedTest extends BaseTest {
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldReadChangesSinceToken() throws SQLException {
+        CustomerDAO customerDAO = new CustomerDAO(encryptedPool);
+
+        long token = 0;
+        int read = 0;
+        ChangeBatch<Customer> customerChanges;
+        do {
+            customerChanges = customerDAO.getCustomerChanges(token, 1, false);
+            read += customerChanges.getItems().size();
+            token = customerChanges.getNextToken();
+        } while (!customerChanges.isComplete());
+        assertEquals(2, read);
+        assertTrue(customerDAO.getCustomerChanges(token, 1, false).getItems().isEmpty());
+
+        Customer customer = customerDAO.getCustomerById(1, false);
+        customer.setMiddleInitial("C");
+        customerDAO.updateCustomer(customer);
+
+        customerChanges = customerDAO.getCustomerChanges(token, 1, false);
+        assertEquals(1, customerChanges.getItems().size());
+        assertEquals(1, customerChanges.getItems().get(0).getId());
+        assertEquals("C", customerChanges.getItems().get(0).getMiddleInitial());
+        assertTrue(customerChanges.getNextToken() > token);
+
+        AccountDAO accountDAO = new AccountDAO(encryptedPool);
+        ChangeBatch<Account> accountChanges = accountDAO.getAccountChanges(0, 1000, false);
+        assertTrue(accountChanges.isComplete());
+        assertEquals(3, accountChanges.getItems().size());
+
+        Account account = accountDAO.getAccountById(1);
+        account.setBalance(account.getBalance() + 1);
+        accountDAO.updateAccount(account);
+
+        accountChanges = accountDAO.getAccountChanges(accountChanges.getNextToken(), 1000, false);
+        assertEquals(1, accountChanges.getItems().size());
+        assertEquals(1, accountChanges.getItems().get(0).getId());
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+}
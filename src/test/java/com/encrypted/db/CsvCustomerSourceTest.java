@@ -0,0 +1,59 @@
+package com.encrypted.db;
+
+import com.encrypted.db.bulk.CsvCustomerSource;
+import com.encrypted.db.bulk.MalformedRecordException;
+import com.encrypted.db.entity.Customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvCustomerSourceTest {
+
+    private static final String HEADER = "ssn,first_name,middle_initial,last_name,account_number,balance\n";
+
+    @Test
+    public void shouldGroupConsecutiveAccountsOfACustomer() throws IOException {
+        try (CsvCustomerSource source = source(HEADER +
+                "123456789,Jane,A,Doe,12345ABCDE,12954.32\n" +
+                "123456789,Jane,A,Doe,1234567890,965476.43\n" +
+                "987654321,\"Smith, John\",,Smith,,\n")) {
+
+            Customer jane = source.next();
+            assertEquals("123456789", jane.getSsn());
+            assertEquals(2, jane.getAccounts().size());
+            assertEquals(965476.43, jane.getAccounts().get(1).getBalance());
+
+            Customer john = source.next();
+            assertEquals("Smith, John", john.getFirstName());
+            assertNull(john.getMiddleInitial());
+            assertEquals(0, john.getAccounts().size());
+
+            assertNull(source.next());
+        }
+    }
+
+    @Test
+    public void shouldSkipPastMalformedRecord() throws IOException {
+        try (CsvCustomerSource source = source(HEADER +
+                "123456789,Jane,A,Doe\n" +
+                "987654321,John,B,Smith,ABCDEFG,65.98\n")) {
+
+            MalformedRecordException e = assertThrows(MalformedRecordException.class, source::next);
+            assertEquals(2, e.getLine());
+
+            assertEquals("987654321", source.next().getSsn());
+            assertNull(source.next());
+        }
+    }
+
+    private static CsvCustomerSource source(String csv) {
+        return new CsvCustomerSource(new BufferedReader(new StringReader(csv)));
+    }
+}
@@ -0,0 +1,140 @@
+package com.encrypted.db;
+
+import com.encrypted.db.cache.CustomerCache;
+import com.encrypted.db.cache.CustomerCacheStatistics;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class CustomerCacheTest {
+
+    private AtomicInteger loads;
+    private CustomerCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        loads = new AtomicInteger();
+        cache = new CustomerCache(1, TimeUnit.HOURS, 2);
+    }
+
+    @Test
+    public void shouldServeRepeatedReadsFromCache() throws Exception {
+        Customer first = cache.get(1, false, () -> load(1));
+        Customer second = cache.get(1, false, () -> load(1));
+
+        assertEquals(1, loads.get());
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals("123456789", second.getSsn());
+        assertEquals("ABC1234", second.getAccounts().get(0).getAccountNumber());
+    }
+
+    @Test
+    public void shouldReloadAfterInvalidation() throws Exception {
+        cache.get(1, false, () -> load(1));
+        cache.get(1, true, () -> load(1));
+        cache.invalidate(1);
+        cache.get(1, false, () -> load(1));
+        cache.get(1, true, () -> load(1));
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        cache.get(1, false, () -> load(1));
+        cache.get(2, false, () -> load(2));
+        cache.get(1, false, () -> load(1));
+        cache.get(3, false, () -> load(3));
+        cache.get(1, false, () -> load(1));
+        cache.get(2, false, () -> load(2));
+
+        CustomerCacheStatistics statistics = cache.getStatistics();
+        assertEquals(4, loads.get());
+        assertEquals(2, statistics.getSize());
+        assertEquals(2, statistics.getEvictions());
+    }
+
+    @Test
+    public void shouldNotCacheMissingCustomer() throws Exception {
+        assertNull(cache.get(1, false, () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        cache.get(1, false, () -> load(1));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void shouldShareConcurrentLoads() throws Exception {
+        int threads = 8;
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<Future<Customer>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get(1, false, () -> {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return load(1);
+            })));
+            loading.await();
+
+            for (int i = 1; i < threads; i++) {
+                results.add(executor.submit(() -> cache.get(1, false, () -> load(1))));
+            }
+
+            // Give the followers time to find the running load before it completes
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<Customer> result : results) {
+                assertEquals(1, result.get(10, TimeUnit.SECONDS).getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    private Customer load(int id) {
+        loads.incrementAndGet();
+
+        return Customer.builder()
+                .id(id)
+                .ssn("123456789")
+                .firstName("Jane")
+                .middleInitial("Q")
+                .lastName("Public")
+                .accounts(Collections.singletonList(Account.builder()
+                        .id(id)
+                        .customerId(id)
+                        .accountNumber("ABC1234")
+                        .balance(10.5)
+                        .build()))
+                .build();
+    }
+}
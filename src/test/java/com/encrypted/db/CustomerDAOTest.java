@@ -0,0 +1,193 @@
+package com.encrypted.db;
+
+import com.encrypted.db.config.PoolStatistics;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.BatchInsertResult;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CustomerDAOTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(CustomerDAOTest.class.getName());
+
+    private static DataSource encryptedPool;
+    private static DataSource unencryptedPool;
+
+    private CustomerDAO encryptedCustomerDAO;
+    private CustomerDAO unencryptedCustomerDAO;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        unencryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedDisabledTestDatasource());
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedCustomerDAO = new CustomerDAO(encryptedPool);
+        unencryptedCustomerDAO = new CustomerDAO(unencryptedPool);
+
+        insertRecords(encryptedCustomerDAO);
+    }
+
+    @Test
+    void shouldRetrieveAccountRecords() throws SQLException {
+        LOG.info("*************Retrieved Customer with Encryption Enabled*************");
+        LOG.info(encryptedCustomerDAO.getCustomerById(1, false).toString());
+        LOG.info("********************************************************************");
+
+        LOG.info("*************Retrieved Customer with Encryption Disabled*************");
+        LOG.info(unencryptedCustomerDAO.getCustomerById(1, true).toString());
+        LOG.info("*********************************************************************");
+
+    }
+
+    @Test
+    void shouldReturnPooledConnections() throws SQLException {
+        for (int i = 0; i < 10; i++) {
+            encryptedCustomerDAO.getCustomerById(1, false);
+        }
+
+        PoolStatistics statistics = PoolStatistics.of(encryptedPool);
+        LOG.info(statistics.toString());
+
+        assertEquals(0, statistics.getActive());
+        assertEquals(statistics.getBorrowedCount(), statistics.getReturnedCount());
+        assertTrue(statistics.getCreatedCount() <= encryptedPool.getMaxActive());
+    }
+
+    @Test
+    void shouldBatchInsertCustomersAndReportFailures() throws SQLException {
+        CustomerDAO batchingCustomerDAO = new CustomerDAO(encryptedPool, 2);
+
+        List<Customer> customers = batchCustomers();
+        customers.get(3).setSsn("SSN-TOO-LONG");
+
+        BatchInsertResult result = batchingCustomerDAO.insertCustomers(customers);
+
+        assertEquals(4, result.getInsertedCustomers());
+        assertEquals(4, result.getInsertedAccounts());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(3, result.getFailures().get(0).getIndex());
+
+        Customer inserted = encryptedCustomerDAO.getCustomerById(customers.get(4).getId(), false);
+        assertEquals("000000004", inserted.getSsn());
+        assertEquals("BATCH4", inserted.getAccounts().get(0).getAccountNumber());
+    }
+
+    @Test
+    void shouldGetCustomersByIdsWithTheirAccounts() throws SQLException {
+        List<Customer> customers = encryptedCustomerDAO.getCustomersByIds(Arrays.asList(2, 1, 2, -1), false);
+
+        assertEquals(2, customers.size());
+        assertEquals(2, customers.get(0).getId());
+        assertEquals(1, customers.get(1).getId());
+        assertEquals(encryptedCustomerDAO.getCustomerById(1, false), customers.get(1));
+        assertEquals(1, customers.get(0).getAccounts().size());
+        assertEquals(2, customers.get(1).getAccounts().size());
+    }
+
+    @Test
+    void shouldUpdateCustomerAndAccount() throws SQLException {
+        Customer customer = encryptedCustomerDAO.getCustomerById(2, false);
+        customer.setLastName("Smyth");
+        customer.setSsn("111223333");
+        encryptedCustomerDAO.updateCustomer(customer);
+
+        AccountDAO accountDAO = new AccountDAO(encryptedPool);
+        Account account = customer.getAccounts().get(0);
+        account.setBalance(100.25);
+        accountDAO.updateAccount(account);
+
+        Customer updated = encryptedCustomerDAO.getCustomerById(2, false);
+        assertEquals("Smyth", updated.getLastName());
+        assertEquals("111223333", updated.getSsn());
+        assertEquals(100.25, updated.getAccounts().get(0).getBalance());
+    }
+
+    @Test
+    void shouldPageCustomersByKeyset() throws SQLException {
+        assertEquals(5, encryptedCustomerDAO.insertCustomers(batchCustomers()).getInsertedCustomers());
+
+        List<Integer> paged = new ArrayList<>();
+        int after = 0;
+        List<Customer> page;
+        do {
+            page = encryptedCustomerDAO.getCustomersAfter(after, 4, false, true);
+            for (Customer customer : page) {
+                paged.add(customer.getId());
+                assertEquals(encryptedCustomerDAO.getCustomerById(customer.getId(), false).getAccounts(),
+                        customer.getAccounts());
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 4);
+
+        List<Integer> streamed;
+        try (Stream<Customer> customers = encryptedCustomerDAO.streamCustomersAfter(0, false, 2)) {
+            streamed = customers.map(Customer::getId).collect(Collectors.toList());
+        }
+
+        assertEquals(7, paged.size());
+        assertEquals(streamed, paged);
+        assertEquals(paged.stream().sorted().collect(Collectors.toList()), paged);
+        assertEquals(0, encryptedPool.getActive());
+    }
+
+    private static List<Customer> batchCustomers() {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            customers.add(Customer.builder()
+                    .firstName("Batch" + i)
+                    .lastName("Customer")
+                    .ssn(String.format("%09d", i))
+                    .accounts(Collections.singletonList(Account.builder()
+                            .accountNumber("BATCH" + i)
+                            .balance(i)
+                            .build()))
+                    .build());
+        }
+        return customers;
+    }
+
+    @AfterEach
+    public void cleanUp() throws Exception {
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        encryptedPool.close();
+        unencryptedPool.close();
+    }
+}
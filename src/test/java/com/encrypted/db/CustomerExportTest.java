@@ -0,0 +1,106 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Customer;
+import com.encrypted.db.export.CustomerExport;
+import com.encrypted.db.export.ExportFormat;
+import com.encrypted.db.export.ExportOptions;
+import com.encrypted.db.export.ExportReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CustomerExportTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(CustomerExportTest.class.getName());
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldExportCustomersInParallelShards() throws Exception {
+        List<Customer> expected = new CustomerDAO(encryptedPool).getCustomersAfter(0, 100000, false, true);
+        ObjectMapper objectMapper = new ObjectMapper();
+        CustomerExport export = new CustomerExport(encryptedPool, objectMapper.getFactory());
+        Path directory = Files.createTempDirectory("customer-export");
+
+        ExportReport ndjson = export.export(ExportOptions.builder()
+                .directory(directory.resolve("ndjson"))
+                .rangeSize(1)
+                .parallelism(3)
+                .build());
+        LOG.info(ndjson.toString());
+        assertEquals(2, ndjson.getCustomers());
+
+        List<Customer> exported = new ArrayList<>();
+        for (String file : ndjson.getFiles()) {
+            try (BufferedReader reader = gzipReader(directory.resolve("ndjson").resolve(file))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    exported.add(objectMapper.readValue(line, Customer.class));
+                }
+            }
+        }
+        assertEquals(expected, exported);
+
+        // CSV shards are in the bulk load format
+        ExportReport csv = export.export(ExportOptions.builder()
+                .directory(directory.resolve("csv"))
+                .format(ExportFormat.CSV)
+                .rangeSize(2)
+                .parallelism(2)
+                .build());
+        assertEquals(ndjson.getAccounts(), csv.getAccounts());
+
+        long rows = 0;
+        for (String file : csv.getFiles()) {
+            try (BufferedReader reader = gzipReader(directory.resolve("csv").resolve(file))) {
+                assertEquals("ssn,first_name,middle_initial,last_name,account_number,balance", reader.readLine());
+                rows += reader.lines().count();
+            }
+        }
+        assertEquals(3, rows);
+    }
+
+    private static BufferedReader gzipReader(Path file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)),
+                StandardCharsets.UTF_8));
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+}
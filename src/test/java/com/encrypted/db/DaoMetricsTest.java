@@ -0,0 +1,54 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.DaoMetrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DaoMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private DaoMetrics metrics;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new DaoMetrics(registry, true);
+    }
+
+    @Test
+    public void shouldTimeSuccessfulOperation() throws SQLException {
+        String result = metrics.record("getCustomerById", true, () -> "customer");
+
+        assertEquals("customer", result);
+
+        Timer timer = registry.get("dao.operation")
+                .tag("method", "getCustomerById")
+                .tag("encrypted", "true")
+                .tag("outcome", "success")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    public void shouldTimeFailedOperation() {
+        assertThrows(SQLException.class, () -> metrics.record("updateCustomer", false, () -> {
+            throw new SQLException("failed");
+        }));
+
+        Timer timer = registry.get("dao.operation")
+                .tag("method", "updateCustomer")
+                .tag("encrypted", "false")
+                .tag("outcome", "error")
+                .timer();
+        assertEquals(1, timer.count());
+    }
+}
@@ -0,0 +1,131 @@
+package com.encrypted.db;
+
+import com.encrypted.db.codec.EntityCodec;
+import com.encrypted.db.codec.EntityJsonWriter;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EntityCodecTest {
+
+    @Test
+    public void shouldRoundTripCustomerWithAccounts() {
+        Customer customer = customer();
+
+        byte[] bytes;
+        try (EntityCodec.Encoded encoded = EntityCodec.encode(customer)) {
+            bytes = encoded.toByteArray();
+        }
+
+        assertEquals(customer, EntityCodec.decodeCustomer(bytes, 0, bytes.length));
+        assertEquals(customer, EntityCodec.decode(bytes));
+    }
+
+    @Test
+    public void shouldRoundTripNullsAndNonAsciiText() {
+        Customer customer = Customer.builder().id(Integer.MAX_VALUE).firstName("Zo\u00eb \ud83d\ude00").build();
+        Account account = Account.builder().id(-1).accountNumber(null).balance(-0.5).build();
+
+        try (EntityCodec.Encoded encoded = EntityCodec.encode(customer)) {
+            assertEquals(customer, EntityCodec.decodeCustomer(encoded.buffer(), 0, encoded.size()));
+        }
+        try (EntityCodec.Encoded encoded = EntityCodec.encode(account)) {
+            assertEquals(account, EntityCodec.decodeAccount(encoded.buffer(), 0, encoded.size()));
+        }
+    }
+
+    @Test
+    public void shouldZeroAndReuseBufferOnClose() {
+        EntityCodec.Encoded encoded = EntityCodec.encode(customer());
+        byte[] buffer = encoded.buffer();
+        int size = encoded.size();
+
+        // A second encoding while the first is open gets its own buffer
+        try (EntityCodec.Encoded nested = EntityCodec.encode(customer())) {
+            assertNotSame(buffer, nested.buffer());
+        }
+
+        encoded.close();
+        for (int i = 0; i < size; i++) {
+            assertEquals(0, buffer[i]);
+        }
+
+        try (EntityCodec.Encoded next = EntityCodec.encode(customer())) {
+            assertSame(buffer, next.buffer());
+        }
+    }
+
+    @Test
+    public void shouldRejectOtherVersionsAndTruncatedInput() {
+        byte[] bytes;
+        try (EntityCodec.Encoded encoded = EntityCodec.encode(customer())) {
+            bytes = encoded.toByteArray();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> EntityCodec.decodeCustomer(bytes, 0, bytes.length - 1));
+        assertThrows(IllegalArgumentException.class, () -> EntityCodec.decodeAccount(bytes, 0, bytes.length));
+
+        bytes[0] = EntityCodec.VERSION + 1;
+        assertThrows(IllegalArgumentException.class, () -> EntityCodec.decodeCustomer(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void shouldBeSmallerThanJavaSerialization() throws IOException {
+        Customer customer = customer();
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(customer);
+        }
+
+        try (EntityCodec.Encoded encoded = EntityCodec.encode(customer)) {
+            assertTrue(encoded.size() * 4 < serialized.size(),
+                    encoded.size() + " bytes encoded, " + serialized.size() + " bytes serialized");
+        }
+    }
+
+    @Test
+    public void shouldWriteSameJsonAsObjectMapper() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Customer customer = customer();
+        customer.setMiddleInitial(null);
+
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            EntityJsonWriter.writeCustomer(generator, customer);
+        }
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(customer)),
+                objectMapper.readTree(json.toString()));
+    }
+
+    private static Customer customer() {
+        return Customer.builder()
+                .id(42)
+                .ssn("123456789")
+                .firstName("Jane")
+                .middleInitial("A")
+                .lastName("Doe")
+                .accounts(new ArrayList<>(Arrays.asList(
+                        Account.builder().id(1).customerId(42).accountNumber("12345ABCDE").balance(12954.32).build(),
+                        Account.builder().id(2).customerId(42).accountNumber("1234567890").balance(965476.43).build(),
+                        Account.builder().id(3).customerId(42).accountNumber("ABCDEFG").balance(65.98).build())))
+                .build();
+    }
+}
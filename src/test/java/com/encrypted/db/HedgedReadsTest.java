@@ -0,0 +1,123 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.DaoExecutor;
+import com.encrypted.db.dao.HedgeOptions;
+import com.encrypted.db.dao.HedgeStatistics;
+import com.encrypted.db.dao.HedgedReads;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HedgedReadsTest {
+
+    private DaoExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new DaoExecutor("hedge-test", 4, 100, 10, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        executor.close();
+    }
+
+    @Test
+    public void shouldAnswerFromHedgeAndCancelStalledAttempt() throws Exception {
+        HedgedReads hedgedReads = new HedgedReads(executor, options(100, 1));
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+
+        String value = hedgedReads.read((hedge, cancel) -> {
+            if (hedge) {
+                return "hedge";
+            }
+            try {
+                stalled.await();
+                return "first";
+            } catch (InterruptedException e) {
+                cancelled.countDown();
+                throw new SQLException("cancelled", e);
+            }
+        });
+
+        assertEquals("hedge", value);
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+
+        HedgeStatistics statistics = hedgedReads.getStatistics();
+        assertEquals(1, statistics.getReads());
+        assertEquals(1, statistics.getHedges());
+        assertEquals(1, statistics.getHedgeWins());
+    }
+
+    @Test
+    public void shouldNotHedgeFastReads() throws Exception {
+        HedgedReads hedgedReads = new HedgedReads(executor, HedgeOptions.builder().initialDelayMillis(500).build());
+
+        for (int i = 0; i < 100; i++) {
+            int id = i;
+            assertEquals(id, (int) hedgedReads.read((hedge, cancel) -> id));
+        }
+
+        assertEquals(100, hedgedReads.getStatistics().getReads());
+        assertEquals(0, hedgedReads.getStatistics().getHedges());
+    }
+
+    @Test
+    public void shouldCapHedgesWithBudget() throws Exception {
+        HedgedReads hedgedReads = new HedgedReads(executor, options(10, 1));
+
+        for (int i = 0; i < 20; i++) {
+            hedgedReads.read((hedge, cancel) -> {
+                if (!hedge) {
+                    sleep(30);
+                }
+                return hedge;
+            });
+        }
+
+        HedgeStatistics statistics = hedgedReads.getStatistics();
+        assertEquals(2, statistics.getHedges());
+        assertEquals(18, statistics.getBudgetExhausted());
+    }
+
+    @Test
+    public void shouldFailWhenBothAttemptsFail() {
+        HedgedReads hedgedReads = new HedgedReads(executor, options(100, 1));
+
+        SQLException e = assertThrows(SQLException.class, () -> hedgedReads.read((hedge, cancel) -> {
+            if (!hedge) {
+                sleep(30);
+            }
+            throw new SQLException(hedge ? "hedge failed" : "first failed");
+        }));
+        assertTrue(e.getMessage().endsWith("failed"));
+    }
+
+    private static HedgeOptions options(double budgetPercent, int maxBurst) {
+        return HedgeOptions.builder()
+                .initialDelayMillis(5)
+                .minDelayMillis(1)
+                .budgetPercent(budgetPercent)
+                .maxBurst(maxBurst)
+                .build();
+    }
+
+    private static void sleep(long millis) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted", e);
+        }
+    }
+}
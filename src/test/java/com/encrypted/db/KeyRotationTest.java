@@ -0,0 +1,97 @@
+package com.encrypted.db;
+
+import com.encrypted.db.config.ConnectionPoolFactory;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Customer;
+import com.encrypted.db.rotation.ColumnEncryptionKeyRotation;
+import com.encrypted.db.rotation.KeyRotationOptions;
+import com.encrypted.db.rotation.KeyRotationReport;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeyRotationTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(KeyRotationTest.class.getName());
+
+    private static final String ROTATED_KEY_NAME = COLUMN_ENCRYPTION_KEY_NAME + "2";
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldRotateColumnEncryptionKey() throws Exception {
+        CustomerDAO customerDAO = new CustomerDAO(encryptedPool);
+        ColumnEncryptionKeyRotation rotation = new ColumnEncryptionKeyRotation(encryptedPool, keyStoreProvider());
+        KeyRotationOptions options = KeyRotationOptions.builder()
+                .oldKeyName(COLUMN_ENCRYPTION_KEY_NAME)
+                .newKeyName(ROTATED_KEY_NAME)
+                .chunkSize(2)
+                .threads(2)
+                .build();
+
+        KeyRotationReport report = rotation.rotate(options);
+        LOG.info(report.toString());
+
+        assertTrue(report.isKeyCreated());
+        assertTrue(report.isCutOver());
+        assertTrue(report.isOldKeyRetired());
+        assertEquals(Long.valueOf(2), report.getVerifiedRows().get("acct.customer.ssn"));
+
+        // Running it again finds every column already rotated
+        assertTrue(rotation.rotate(options).getReencryptedRows().isEmpty());
+
+        ConnectionPoolFactory.invalidateStatementCaches(encryptedPool);
+
+        Customer customer = customerDAO.getCustomerById(1, false);
+        assertEquals("123456789", customer.getSsn());
+        assertEquals("12345ABCDE", customer.getAccounts().get(0).getAccountNumber());
+
+        customer.setSsn("999887777");
+        customerDAO.updateCustomer(customer);
+        assertEquals("999887777", customerDAO.getCustomerById(1, false).getSsn());
+
+        // Rotating back recreates the key the other test classes encrypt their tables with
+        report = rotation.rotate(KeyRotationOptions.builder()
+                .oldKeyName(ROTATED_KEY_NAME)
+                .newKeyName(COLUMN_ENCRYPTION_KEY_NAME)
+                .chunkSize(2)
+                .threads(2)
+                .build());
+        assertTrue(report.isKeyCreated());
+        assertTrue(report.isOldKeyRetired());
+
+        ConnectionPoolFactory.invalidateStatementCaches(encryptedPool);
+
+        assertEquals("999887777", customerDAO.getCustomerById(1, false).getSsn());
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            con.prepareCall("DROP TABLE IF EXISTS acct.cek_rotation_checkpoint").execute();
+            dropTables(con);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.CustomerField;
+import com.encrypted.db.dao.DaoMetrics;
+import com.encrypted.db.entity.Customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProjectionTest extends BaseTest {
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldReadProjectedAndLazyCustomers() throws SQLException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CustomerDAO customerDAO = new CustomerDAO(encryptedPool, CustomerDAO.DEFAULT_BATCH_SIZE,
+                new DaoMetrics(registry, true));
+
+        Customer names = customerDAO.getCustomerById(1, EnumSet.of(CustomerField.FIRST_NAME, CustomerField.LAST_NAME),
+                false, false);
+        assertEquals("Jane", names.getFirstName());
+        assertEquals("Doe", names.getLastName());
+        assertNull(names.getSsn());
+        assertNull(names.getMiddleInitial());
+        assertNull(names.getAccounts());
+
+        List<Customer> eager = customerDAO.getCustomersAfter(0, 1000, false, true);
+        List<Customer> lazy = customerDAO.getCustomersAfter(0, 1000, CustomerField.ALL, false, true);
+        assertEquals(2, lazy.size());
+        assertTrue(registry.find("dao.operation").tag("method", "loadSsns").timers().isEmpty());
+
+        // Every ssn of the page comes from the one query the first getter runs
+        for (int i = 0; i < eager.size(); i++) {
+            assertEquals(eager.get(i).getSsn(), lazy.get(i).getSsn());
+            assertEquals(eager.get(i).getAccounts(), lazy.get(i).getAccounts());
+        }
+        assertEquals(1, registry.get("dao.operation").tag("method", "loadSsns").timer().count());
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+}
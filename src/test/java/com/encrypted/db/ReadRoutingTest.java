@@ -0,0 +1,108 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.routing.ReadRoutingOptions;
+import com.encrypted.db.routing.ReadWriteDataSource;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A second database of the container stands in for a readable secondary, its heartbeat is copied by hand
+ */
+public class ReadRoutingTest extends BaseTest {
+
+    private static DataSource primaryPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection(); Statement statement = con.createStatement()) {
+            statement.execute("CREATE DATABASE secondary");
+        }
+
+        primaryPool = pooledTestDatasource(msSqlServerAlwaysEncryptedDisabledTestDatasource());
+    }
+
+    @Test
+    void shouldRouteReadsToFreshSecondaries() throws Exception {
+        DataSource secondaryPool = pooledTestDatasource(msSqlServerTestDatasource("secondary"));
+        try (Connection con = secondaryPool.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("CREATE SCHEMA " + AccountDAO.SCHEMA);
+            statement.execute("CREATE TABLE acct.replication_heartbeat " +
+                    "(id INT NOT NULL PRIMARY KEY, beat BIGINT NOT NULL)");
+            statement.execute("INSERT INTO acct.replication_heartbeat (id, beat) VALUES (1, 0)");
+        }
+
+        ReadRoutingOptions options = ReadRoutingOptions.builder()
+                .maxStalenessMillis(60_000)
+                .healthCheckIntervalMillis(60_000)
+                .build();
+
+        try (ReadWriteDataSource routing = new ReadWriteDataSource(primaryPool,
+                Collections.singletonList(secondaryPool), options)) {
+            routing.start();
+
+            // Never replicated, so reads stay on the primary
+            assertEquals(0, routing.getStatistics().getUsableSecondaries());
+            assertEquals("master", databaseName(routing.reads()));
+
+            copyHeartbeat(primaryPool, secondaryPool);
+            routing.checkHealth();
+            assertEquals(1, routing.getStatistics().getUsableSecondaries());
+            assertEquals("secondary", databaseName(routing.reads()));
+            assertEquals("master", databaseName(routing));
+
+            try (Connection con = secondaryPool.getConnection(); Statement statement = con.createStatement()) {
+                statement.execute("UPDATE acct.replication_heartbeat SET beat = 1 WHERE id = 1");
+            }
+            routing.checkHealth();
+            assertEquals(0, routing.getStatistics().getUsableSecondaries());
+            assertEquals("master", databaseName(routing.reads()));
+
+            assertEquals(1, routing.getStatistics().getSecondaryReads());
+            assertEquals(2, routing.getStatistics().getPrimaryReads());
+        }
+    }
+
+    private static String databaseName(javax.sql.DataSource dataSource) throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT DB_NAME()")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    private static void copyHeartbeat(DataSource primary, DataSource secondary) throws SQLException {
+        long beat;
+        try (Connection con = primary.getConnection(); Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT beat FROM acct.replication_heartbeat WHERE id = 1")) {
+            resultSet.next();
+            beat = resultSet.getLong(1);
+        }
+        try (Connection con = secondary.getConnection(); Statement statement = con.createStatement()) {
+            statement.execute("UPDATE acct.replication_heartbeat SET beat = " + beat + " WHERE id = 1");
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        primaryPool.close();
+
+        try (Connection con = getMSSQLConnection(); Statement statement = con.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS acct.replication_heartbeat");
+            statement.execute("DROP DATABASE IF EXISTS secondary");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.encrypted.db;
+
+import com.encrypted.db.bulk.BulkLoadOptions;
+import com.encrypted.db.bulk.BulkLoadReport;
+import com.encrypted.db.bulk.BulkLoader;
+import com.encrypted.db.bulk.CustomerSource;
+import com.encrypted.db.bulk.NdjsonCustomerSource;
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.encrypted.db.schema.SchemaMigration;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DAOs with the default configuration against the tables as the first version of the application created them
+ */
+public class SchemaMigrationTest extends BaseTest {
+
+    private static final String CLUSTERED_PRIMARY_KEYS_SQL = "SELECT COUNT(*) FROM sys.indexes " +
+            "WHERE type = 1 AND is_primary_key = 1 AND object_id IN (OBJECT_ID(N'acct.customer'), " +
+            "OBJECT_ID(N'acct.account'))";
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createFirstVersionTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+    }
+
+    @Test
+    void shouldWriteToTablesOfTheFirstVersionOnceMigrated() throws Exception {
+        SchemaMigration migration = new SchemaMigration(encryptedPool);
+        assertTrue(migration.migrate() > 0);
+        assertEquals(0, migration.migrate());
+
+        try (Connection con = encryptedPool.getConnection(); Statement statement = con.createStatement();
+             ResultSet resultSet = statement.executeQuery(CLUSTERED_PRIMARY_KEYS_SQL)) {
+            resultSet.next();
+            assertEquals(2, resultSet.getInt(1));
+        }
+
+        CustomerDAO customerDAO = new CustomerDAO(encryptedPool);
+        AccountDAO accountDAO = new AccountDAO(encryptedPool);
+
+        Customer customer = Customer.builder()
+                .firstName("Jane")
+                .middleInitial("A")
+                .lastName("Doe")
+                .ssn("123456789")
+                .accounts(Collections.singletonList(Account.builder()
+                        .accountNumber("12345ABCDE")
+                        .balance(12954.32)
+                        .build()))
+                .build();
+        customerDAO.insertCustomer(customer);
+
+        Customer batched = Customer.builder()
+                .firstName("John")
+                .lastName("Smith")
+                .ssn("987654321")
+                .accounts(Collections.singletonList(Account.builder()
+                        .accountNumber("ABCDEFG")
+                        .balance(65.98)
+                        .build()))
+                .build();
+        assertEquals(1, customerDAO.insertCustomers(Collections.singletonList(batched)).getInsertedCustomers());
+
+        Customer updated = customerDAO.getCustomerById(customer.getId(), false);
+        updated.setLastName("Smyth");
+        customerDAO.updateCustomer(updated);
+
+        Account account = updated.getAccounts().get(0);
+        account.setBalance(100.25);
+        accountDAO.updateAccount(account);
+
+        String ndjson = "{\"ssn\":\"555000001\",\"firstName\":\"Bulk\",\"lastName\":\"One\"," +
+                "\"accounts\":[{\"accountNumber\":\"BULK1\",\"balance\":1.5}]}\n";
+        try (CustomerSource source = new NdjsonCustomerSource(new BufferedReader(new StringReader(ndjson)),
+                new ObjectMapper())) {
+            BulkLoadReport report = new BulkLoader(encryptedPool).load(source, BulkLoadOptions.builder()
+                    .jobId("schema-migration-test")
+                    .build());
+            assertEquals(1, report.getLoadedCustomers());
+        }
+
+        Customer read = customerDAO.getCustomerById(customer.getId(), false);
+        assertEquals("Smyth", read.getLastName());
+        assertEquals(100.25, read.getAccounts().get(0).getBalance());
+        assertEquals("ABCDEFG", customerDAO.getCustomerById(batched.getId(), false).getAccounts().get(0)
+                .getAccountNumber());
+        assertEquals(Arrays.asList("Smyth", "Smith", "One"), customerDAO.getCustomersAfter(0, 10, false, false)
+                .stream()
+                .map(Customer::getLastName)
+                .collect(Collectors.toList()));
+
+        assertEquals(3, customerDAO.getCustomerChanges(0, 10, false).getItems().size());
+        assertEquals(3, accountDAO.getAccountChanges(0, 10, false).getItems().size());
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            con.prepareCall("DROP TABLE IF EXISTS acct.bulk_load_checkpoint").execute();
+            dropTables(con);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.encrypted.db;
+
+import com.encrypted.db.sharding.ShardMap;
+import com.encrypted.db.sharding.ShardRange;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ShardMapTest {
+
+    @Test
+    public void shouldGiveEachShardTheNextFreeBlock() {
+        ShardMap map = ShardMap.empty()
+                .withBlock("a", 100)
+                .withBlock("b", 100);
+
+        assertEquals(new ShardRange(1, 100, "a"), map.getBlock("a"));
+        assertEquals(new ShardRange(101, 200, "b"), map.getBlock("b"));
+        assertEquals("a", map.shardFor(1));
+        assertEquals("a", map.shardFor(100));
+        assertEquals("b", map.shardFor(101));
+        assertNull(map.shardFor(0));
+        assertNull(map.shardFor(201));
+
+        assertThrows(IllegalArgumentException.class, () -> map.withBlock("a", 100));
+    }
+
+    @Test
+    public void shouldSplitAndMergeAssignedRanges() {
+        ShardMap map = ShardMap.empty()
+                .withBlock("a", 100)
+                .withBlock("b", 100)
+                .assign(51, 60, "b");
+
+        assertEquals(Arrays.asList(
+                new ShardRange(1, 50, "a"),
+                new ShardRange(51, 60, "b"),
+                new ShardRange(61, 100, "a"),
+                new ShardRange(101, 200, "b")), map.getRanges());
+        assertEquals("b", map.shardFor(55));
+        assertEquals("a", map.shardFor(61));
+
+        // Blocks stay with the shard that inserts in them
+        assertEquals(new ShardRange(1, 100, "a"), map.getBlock("a"));
+
+        ShardMap moved = map.assign(61, 100, "b");
+        assertEquals(Arrays.asList(
+                new ShardRange(1, 50, "a"),
+                new ShardRange(51, 200, "b")), moved.getRanges());
+        assertEquals(Collections.singletonList(new ShardRange(51, 200, "b")), moved.getRanges("b"));
+    }
+
+    @Test
+    public void shouldRejectOverlappingRanges() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardMap(Arrays.asList(
+                new ShardRange(1, 10, "a"),
+                new ShardRange(10, 20, "b")), Collections.emptyList()));
+    }
+}
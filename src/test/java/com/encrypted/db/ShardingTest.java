@@ -0,0 +1,183 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.BalanceBucket;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.dao.DaoExecutor;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.encrypted.db.sharding.RebalanceOptions;
+import com.encrypted.db.sharding.RebalanceReport;
+import com.encrypted.db.sharding.Shard;
+import com.encrypted.db.sharding.ShardCatalog;
+import com.encrypted.db.sharding.ShardRange;
+import com.encrypted.db.sharding.ShardRebalancer;
+import com.encrypted.db.sharding.ShardRouter;
+import com.encrypted.db.sharding.ShardedAccountDAO;
+import com.encrypted.db.sharding.ShardedCustomerDAO;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Three databases of the container stand in for the shards, the first also holds the shard map
+ */
+public class ShardingTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(ShardingTest.class.getName());
+
+    private static final List<String> NAMES = Arrays.asList("shard0", "shard1", "shard2");
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection(); Statement statement = con.createStatement()) {
+            for (String name : NAMES) {
+                statement.execute("CREATE DATABASE " + name);
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepShardedCustomersReadableThroughARebalance() throws Exception {
+        List<Shard> shards = new ArrayList<>();
+        for (String name : NAMES) {
+            DataSource pool = pooledTestDatasource(msSqlServerTestDatasource(name));
+            try (Connection con = pool.getConnection(); Statement statement = con.createStatement()) {
+                statement.execute("CREATE SCHEMA " + AccountDAO.SCHEMA);
+                createTables(con, false);
+            }
+            shards.add(new Shard(name, pool, new CustomerDAO(pool), new AccountDAO(pool), true));
+        }
+
+        // Routers of other instances, which keep the map they loaded before the rebalance
+        List<Shard> unowned = new ArrayList<>();
+        for (Shard shard : shards) {
+            unowned.add(new Shard(shard.getName(), shard.getDataSource(), shard.getCustomerDAO(),
+                    shard.getAccountDAO(), false));
+        }
+
+        try (DaoExecutor executor = new DaoExecutor("test-shard", 4, 10, 10, TimeUnit.SECONDS);
+             ShardRouter router = new ShardRouter(shards, new ShardCatalog(shards.get(0).getDataSource()),
+                     executor, 0);
+             ShardRouter staleCustomerRouter = new ShardRouter(unowned,
+                     new ShardCatalog(shards.get(0).getDataSource()), executor, 0);
+             ShardRouter staleAccountRouter = new ShardRouter(unowned,
+                     new ShardCatalog(shards.get(0).getDataSource()), executor, 0)) {
+            router.start();
+            ShardRebalancer rebalancer = new ShardRebalancer(router);
+            ShardedCustomerDAO customerDAO = new ShardedCustomerDAO(router);
+            ShardedAccountDAO accountDAO = new ShardedAccountDAO(router);
+
+            assertEquals(new ShardRange(1, 1000, "shard0"), rebalancer.addShard("shard0", 1000));
+            assertEquals(new ShardRange(1001, 2000, "shard1"), rebalancer.addShard("shard1", 1000));
+
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                Customer customer = Customer.builder()
+                        .firstName("Shard")
+                        .lastName("Customer" + i)
+                        .ssn(String.format("%09d", 555000000 + i))
+                        .accounts(Collections.singletonList(Account.builder()
+                                .accountNumber("SHARD" + i)
+                                .balance(100.0 * i)
+                                .build()))
+                        .build();
+                customerDAO.insertCustomer(customer);
+                ids.add(customer.getId());
+
+                Shard shard = router.shardFor(customer.getId());
+                assertTrue(router.getMap().getBlock(shard.getName()).contains(customer.getId()));
+                assertEquals(customer.getId(), shard.getCustomerDAO().getCustomerById(customer.getId(), false)
+                        .getId());
+            }
+            Collections.sort(ids);
+            assertEquals(ids, customerDAO.getCustomersAfter(0, 100, false, false).stream()
+                    .map(Customer::getId)
+                    .collect(Collectors.toList()));
+
+            // The new shard starts empty and takes the newest customers of the fullest shards
+            assertEquals(new ShardRange(2001, 3000, "shard2"), rebalancer.addShard("shard2", 1000));
+            staleCustomerRouter.start();
+            staleAccountRouter.start();
+            RebalanceReport report = rebalancer.rebalance(RebalanceOptions.builder().chunkSize(2).build());
+            LOG.info(report.toString());
+            assertTrue(report.getCustomersMoved() > 0);
+            assertEquals(report.getCustomersMoved(), report.getAccountsMoved());
+
+            for (Shard shard : shards) {
+                assertTrue(shard.getCustomerDAO().getCustomersAfter(0, 100, false, false).size() <= 7);
+            }
+            assertEquals(ids, customerDAO.getCustomersAfter(0, 100, false, true).stream()
+                    .map(Customer::getId)
+                    .collect(Collectors.toList()));
+            assertEquals(ids.size(), customerDAO.getCustomersByIds(ids, false).size());
+            for (int id : ids) {
+                assertEquals(1, accountDAO.getAccountsByCustomerIdAfter(id, 0, 10, false).size());
+            }
+            assertEquals(ids.size(), accountDAO.getBalanceBuckets(1000).stream()
+                    .mapToLong(BalanceBucket::getAccounts)
+                    .sum());
+
+            // Writes routed by a map from before the moves follow the customers to their new shard
+            int moved = ids.stream()
+                    .filter(id -> !staleCustomerRouter.shardFor(id).equals(router.shardFor(id)))
+                    .findFirst()
+                    .orElseThrow(AssertionError::new);
+            Customer update = customerDAO.getCustomerById(moved, false);
+            update.setLastName("Moved");
+            new ShardedCustomerDAO(staleCustomerRouter).updateCustomer(update);
+            new ShardedAccountDAO(staleAccountRouter).insertAccount(Account.builder()
+                    .customerId(moved)
+                    .accountNumber("SHARDMOVED")
+                    .balance(1.0)
+                    .build());
+            assertEquals(router.shardFor(moved), staleCustomerRouter.shardFor(moved));
+            assertEquals("Moved", router.shardFor(moved).getCustomerDAO().getCustomerById(moved, false)
+                    .getLastName());
+            assertEquals(2, accountDAO.getAccountsByCustomerIdAfter(moved, 0, 10, false).size());
+            assertThrows(IllegalArgumentException.class, () -> customerDAO.updateCustomer(Customer.builder()
+                    .id(999)
+                    .firstName("Shard")
+                    .lastName("Missing")
+                    .ssn("555999998")
+                    .build()));
+
+            // Ids copied onto the new shard do not move its identity out of its block
+            Customer customer = Customer.builder()
+                    .firstName("Shard")
+                    .lastName("Customer")
+                    .ssn("555999999")
+                    .accounts(new ArrayList<>())
+                    .build();
+            shards.get(2).getCustomerDAO().insertCustomer(customer);
+            assertEquals(2001, customer.getId());
+        }
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        try (Connection con = getMSSQLConnection(); Statement statement = con.createStatement()) {
+            for (String name : NAMES) {
+                statement.execute("DROP DATABASE IF EXISTS " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.warmup.Warmup;
+import com.encrypted.db.warmup.WarmupHealthIndicator;
+import com.encrypted.db.warmup.WarmupOptions;
+import com.encrypted.db.warmup.WarmupReport;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.sql.Connection;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class WarmupTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(WarmupTest.class.getName());
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldWarmUpBeforeReportingReady() {
+        Warmup warmup = new Warmup(encryptedPool, new CustomerDAO(encryptedPool), new AccountDAO(encryptedPool));
+        WarmupHealthIndicator health = new WarmupHealthIndicator(warmup);
+        assertEquals(Status.OUT_OF_SERVICE, health.health().getStatus());
+
+        WarmupReport report = warmup.warmUp(WarmupOptions.builder()
+                .connections(2)
+                .iterations(3)
+                .build());
+        LOG.info(report.toString());
+
+        assertEquals(2, report.getConnections());
+        assertEquals(0, report.getFailures());
+        // One sample read, then six reads per round on each connection
+        assertEquals(1 + 2 * 3 * 6, report.getQueries());
+        assertEquals(Status.UP, health.health().getStatus());
+        assertEquals(report.getElapsedMillis(), health.health().getDetails().get("elapsedMillis"));
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.encrypted.db;
+
+import com.encrypted.db.dao.AccountDAO;
+import com.encrypted.db.dao.CustomerDAO;
+import com.encrypted.db.entity.Account;
+import com.encrypted.db.entity.Customer;
+import com.encrypted.db.writebehind.PayloadCipher;
+import com.encrypted.db.writebehind.WriteBehindDAO;
+import com.encrypted.db.writebehind.WriteBehindOptions;
+import com.encrypted.db.writebehind.WriteBehindStatistics;
+import com.encrypted.db.writebehind.WriteBehindWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteBehindTest extends BaseTest {
+
+    private static final Logger LOG = Logger.getLogger(WriteBehindTest.class.getName());
+
+    private static DataSource encryptedPool;
+
+    @BeforeAll
+    public static void init() throws Exception {
+        BaseTest.init();
+
+        try (Connection con = getMSSQLConnection()) {
+            createTables(con, true);
+        }
+
+        encryptedPool = pooledTestDatasource(msSqlServerAlwaysEncryptedEnabledTestDatasource());
+        insertRecords(new CustomerDAO(encryptedPool));
+    }
+
+    @Test
+    void shouldWriteBehindInBatchesAndDeadLetterRejectedWrites() throws Exception {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        PayloadCipher cipher = new PayloadCipher(key);
+        ObjectMapper objectMapper = new ObjectMapper();
+        ActiveMQConnectionFactory connectionFactory =
+                new ActiveMQConnectionFactory("vm://write-behind-test?broker.persistent=false");
+        WriteBehindOptions options = WriteBehindOptions.builder()
+                .consumers(2)
+                .batchSize(10)
+                .maxWaitMillis(200)
+                .build();
+
+        CustomerDAO customerDAO = new CustomerDAO(encryptedPool);
+        Customer customer = customerDAO.getCustomerById(2, false);
+        Account account = customer.getAccounts().get(0);
+
+        try (WriteBehindDAO writeBehindDAO = new WriteBehindDAO(connectionFactory, options.getQueue(), cipher)) {
+            // Keeps the embedded broker up while the writer connects
+            writeBehindDAO.insertCustomer(Customer.builder()
+                    .ssn("444556666")
+                    .firstName("Write")
+                    .lastName("Behind")
+                    .accounts(new ArrayList<>(Collections.singletonList(Account.builder()
+                            .accountNumber("BEHIND1")
+                            .balance(7.25)
+                            .build())))
+                    .build());
+            writeBehindDAO.insertCustomer(Customer.builder()
+                    .ssn("4445566667777")
+                    .firstName("Too")
+                    .lastName("Long")
+                    .build());
+
+            customer.setFirstName("First");
+            writeBehindDAO.updateCustomer(customer);
+            customer.setFirstName("Second");
+            writeBehindDAO.updateCustomer(customer);
+
+            account.setBalance(42.5);
+            writeBehindDAO.updateAccount(account);
+
+            WriteBehindWriter writer = new WriteBehindWriter(connectionFactory, customerDAO,
+                    new AccountDAO(encryptedPool), objectMapper, cipher, options);
+            writer.start();
+            try {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+                WriteBehindStatistics statistics = writer.getStatistics();
+                while (statistics.getApplied() + statistics.getDeadLettered() < 5 && System.nanoTime() < deadline) {
+                    TimeUnit.MILLISECONDS.sleep(50);
+                    statistics = writer.getStatistics();
+                }
+                LOG.info(statistics.toString());
+
+                assertEquals(4, statistics.getApplied());
+                assertEquals(1, statistics.getDeadLettered());
+            } finally {
+                writer.close();
+            }
+        }
+
+        Customer updated = customerDAO.getCustomerById(2, false);
+        assertEquals("Second", updated.getFirstName());
+        assertEquals(42.5, updated.getAccounts().get(0).getBalance());
+
+        assertTrue(customerDAO.getCustomersAfter(0, 1000, false, true).stream()
+                .anyMatch(c -> "Behind".equals(c.getLastName())
+                        && "BEHIND1".equals(c.getAccounts().get(0).getAccountNumber())));
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        encryptedPool.close();
+
+        try (Connection con = getMSSQLConnection()) {
+            dropTables(con);
+        }
+    }
+}